@@ -0,0 +1,41 @@
+/*
+ * (c) Copyright IBM Corp 2006
+ */
+
+package com.ibm.wsdl.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks selected on the command line, like JMH's own main
+ * class, but always with the gc profiler, so that the allocation rate
+ * is reported next to the times.
+ */
+public class BenchmarkMain
+{
+  public static void main(String[] args) throws Exception
+  {
+    CommandLineOptions cmdOptions = new CommandLineOptions(args);
+
+    if (cmdOptions.shouldHelp()
+        || cmdOptions.shouldList()
+        || cmdOptions.shouldListProfilers()
+        || cmdOptions.shouldListResultFormats())
+    {
+      org.openjdk.jmh.Main.main(args);
+
+      return;
+    }
+
+    Options options = new OptionsBuilder()
+                        .parent(cmdOptions)
+                        .addProfiler(GCProfiler.class)
+                        .build();
+
+    new Runner(options).run();
+  }
+}
@@ -0,0 +1,138 @@
+/*
+ * (c) Copyright IBM Corp 2006
+ */
+
+package com.ibm.wsdl.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs ConcurrentReadBenchmark with 1, 2, 4 and so on threads, up to
+ * twice the number of processors, and reports how throughput scales.
+ * For each document and kind of sharing, it prints the throughput at
+ * each number of threads, the speedup over one thread, and the
+ * efficiency, which is the speedup divided by the number of threads: 1
+ * means that each thread added the throughput of a whole core, and
+ * values that fall as threads are added point to contention.
+ * <p>
+ * Any JMH options given are passed on, e.g. "-p sharing=none" or
+ * "-p document=AddressBook.wsdl". The maximum number of threads can be
+ * set with the system property wsdl4j.maxThreads.
+ */
+public class ConcurrencyMain
+{
+  public static void main(String[] args) throws Exception
+  {
+    CommandLineOptions cmdOptions = new CommandLineOptions(args);
+    int processors = Runtime.getRuntime().availableProcessors();
+    int maxThreads = Integer.getInteger("wsdl4j.maxThreads",
+                                        processors * 2).intValue();
+    List threadCounts = new ArrayList();
+
+    for (int threads = 1; threads < maxThreads; threads *= 2)
+    {
+      threadCounts.add(new Integer(threads));
+    }
+
+    threadCounts.add(new Integer(maxThreads));
+
+    // Throughputs by document and sharing, then by number of threads.
+    Map scores = new TreeMap();
+
+    for (int i = 0; i < threadCounts.size(); i++)
+    {
+      int threads = ((Integer)threadCounts.get(i)).intValue();
+      Options options = new OptionsBuilder()
+                          .parent(cmdOptions)
+                          .include(ConcurrentReadBenchmark.class.getName())
+                          .threads(threads)
+                          .build();
+      Collection results = new Runner(options).run();
+      Iterator resultIterator = results.iterator();
+
+      while (resultIterator.hasNext())
+      {
+        RunResult result = (RunResult)resultIterator.next();
+        String key = result.getParams().getParam("document") + ", " +
+                     "sharing=" + result.getParams().getParam("sharing") +
+                     ", " + result.getParams().getParam("factoryImplName");
+        Map scoresByThreads = (Map)scores.get(key);
+
+        if (scoresByThreads == null)
+        {
+          scoresByThreads = new TreeMap();
+          scores.put(key, scoresByThreads);
+        }
+
+        scoresByThreads.put(new Integer(threads),
+                            new Double(result.getPrimaryResult().getScore()));
+      }
+    }
+
+    System.out.println();
+    System.out.println("Scaling with " + processors + " processors:");
+
+    Iterator keyIterator = scores.keySet().iterator();
+
+    while (keyIterator.hasNext())
+    {
+      String key = (String)keyIterator.next();
+      Map scoresByThreads = (Map)scores.get(key);
+      Double single = (Double)scoresByThreads.get(new Integer(1));
+
+      System.out.println();
+      System.out.println(key);
+      System.out.println("  threads        ops/s   speedup  efficiency");
+
+      Iterator threadsIterator = scoresByThreads.keySet().iterator();
+
+      while (threadsIterator.hasNext())
+      {
+        Integer threads = (Integer)threadsIterator.next();
+        double score = ((Double)scoresByThreads.get(threads)).doubleValue();
+        double speedup = (single != null)
+                         ? score / single.doubleValue()
+                         : Double.NaN;
+
+        System.out.println(pad(threads.toString(), 9) +
+                           pad(format(score, 1), 13) +
+                           pad(format(speedup, 2), 10) +
+                           pad(format(speedup / threads.intValue(), 2), 12) +
+                           (threads.intValue() > processors
+                            ? "  (more threads than processors)"
+                            : ""));
+      }
+    }
+  }
+
+  private static String format(double value, int decimals)
+  {
+    if (Double.isNaN(value))
+    {
+      return "?";
+    }
+
+    return new BigDecimal(value)
+             .setScale(decimals, BigDecimal.ROUND_HALF_UP)
+             .toString();
+  }
+
+  private static String pad(String str, int width)
+  {
+    StringBuffer strBuf = new StringBuffer();
+
+    for (int i = str.length(); i < width; i++)
+    {
+      strBuf.append(' ');
+    }
+
+    return strBuf.append(str).toString();
+  }
+}
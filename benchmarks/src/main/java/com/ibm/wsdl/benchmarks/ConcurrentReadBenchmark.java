@@ -0,0 +1,113 @@
+/*
+ * (c) Copyright IBM Corp 2006
+ */
+
+package com.ibm.wsdl.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.wsdl.Definition;
+import javax.wsdl.factory.WSDLFactory;
+import javax.wsdl.xml.WSDLReader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the throughput of reading from several threads at once. Run
+ * it with -t to set the number of threads, or use ConcurrencyMain,
+ * which runs it with more and more threads and reports how well it
+ * scales.
+ * <p>
+ * The sharing parameter decides what the threads share:
+ * <ul>
+ * <li>none - each thread has a factory and a reader of its own</li>
+ * <li>factory - the threads share a factory, and create a new reader
+ * for every read</li>
+ * <li>reader - the threads share a single reader</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+public class ConcurrentReadBenchmark
+{
+  public static final String SHARING_NONE = "none";
+  public static final String SHARING_FACTORY = "factory";
+  public static final String SHARING_READER = "reader";
+
+  @Param({"AddressBook.wsdl",
+          "schemas/TravelCo.wsdl",
+          "imports/MyImportA.wsdl"})
+  public String document;
+
+  @Param({SHARING_NONE, SHARING_FACTORY, SHARING_READER})
+  public String sharing;
+
+  @Param({"com.ibm.wsdl.factory.WSDLFactoryImpl"})
+  public String factoryImplName;
+
+  private String uri;
+  private WSDLFactory factory;
+  private WSDLReader reader;
+
+  @Setup
+  public void setUp() throws Exception
+  {
+    uri = Documents.getURI(document);
+    factory = WSDLFactory.newInstance(factoryImplName);
+    reader = factory.newWSDLReader();
+    reader.setFeature("javax.wsdl.verbose", false);
+  }
+
+  @Benchmark
+  public Definition read(PerThread perThread) throws Exception
+  {
+    WSDLReader reader;
+
+    if (sharing.equals(SHARING_NONE))
+    {
+      reader = perThread.reader;
+    }
+    else if (sharing.equals(SHARING_FACTORY))
+    {
+      reader = factory.newWSDLReader();
+      reader.setFeature("javax.wsdl.verbose", false);
+    }
+    else
+    {
+      reader = this.reader;
+    }
+
+    return reader.readWSDL(uri);
+  }
+
+  /**
+   * The factory and reader of a thread that shares neither.
+   */
+  @State(Scope.Thread)
+  public static class PerThread
+  {
+    WSDLReader reader;
+
+    @Setup
+    public void setUp(ConcurrentReadBenchmark benchmark) throws Exception
+    {
+      reader = WSDLFactory.newInstance(benchmark.factoryImplName)
+                 .newWSDLReader();
+      reader.setFeature("javax.wsdl.verbose", false);
+    }
+  }
+}
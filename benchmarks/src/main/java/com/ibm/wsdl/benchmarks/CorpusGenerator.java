@@ -0,0 +1,1089 @@
+/*
+ * (c) Copyright IBM Corp 2006
+ */
+
+package com.ibm.wsdl.benchmarks;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Writes synthetic WSDL 1.1 documents, and the schema documents they
+ * reference, to a directory. The same settings and seed always write the
+ * same documents, so they can be used to measure how reading and writing
+ * scale without shipping large documents or needing a network.
+ * <p>
+ * Every WSDL document has the same shape: inline schemas, one for each
+ * namespace, holding complex types and an element for each; messages
+ * whose parts refer to those elements or to built-in types; port types
+ * with operations, which may be overloaded; bindings of each port type
+ * using each of the selected kinds of binding; and a service with a
+ * port for each binding.
+ * <p>
+ * The root document imports a tree of other WSDL documents, each of
+ * which imports importFanOut more, down to importDepth. Imports can be
+ * made to form diamonds, where a document is imported by two others,
+ * and cycles, where the leaves import the root. The first inline schema
+ * of the root document can import a graph of schema documents, each of
+ * which imports others, and can include, and redefine, a chain of
+ * further schema documents.
+ * <p>
+ * The seed decides the number and types of message parts and complex
+ * type fields, which messages operations use, which operations have
+ * faults and documentation, and which schema documents import which.
+ */
+public class CorpusGenerator
+{
+  public static final int BINDING_SOAP = 1;
+  public static final int BINDING_SOAP12 = 2;
+  public static final int BINDING_HTTP = 4;
+  public static final int BINDING_MIME = 8;
+  public static final int ALL_BINDINGS = BINDING_SOAP | BINDING_SOAP12 |
+                                         BINDING_HTTP | BINDING_MIME;
+
+  /**
+   * The name of the root WSDL document in the directory.
+   */
+  public static final String ROOT_FILE_NAME = "root.wsdl";
+
+  // Writing more than this many documents is almost certainly a mistake.
+  private static final long MAX_DOCUMENTS = 100000;
+
+  private static final String NS_URI_WSDL = "http://schemas.xmlsoap.org/wsdl/";
+  private static final String NS_URI_SOAP =
+    "http://schemas.xmlsoap.org/wsdl/soap/";
+  private static final String NS_URI_SOAP12 =
+    "http://schemas.xmlsoap.org/wsdl/soap12/";
+  private static final String NS_URI_HTTP =
+    "http://schemas.xmlsoap.org/wsdl/http/";
+  private static final String NS_URI_MIME =
+    "http://schemas.xmlsoap.org/wsdl/mime/";
+  private static final String NS_URI_XSD = "http://www.w3.org/2001/XMLSchema";
+  private static final String SOAP_HTTP =
+    "http://schemas.xmlsoap.org/soap/http";
+  private static final String[] BUILT_IN_TYPES =
+    {"string", "int", "long", "boolean", "double", "dateTime", "base64Binary"};
+
+  private long seed = 0;
+  private int operations = 10;
+  private int overloads = 0;
+  private int messages = 10;
+  private int portTypes = 1;
+  private int bindings = BINDING_SOAP;
+  private int namespaces = 1;
+  private int typesPerSchema = 10;
+  private int importDepth = 0;
+  private int importFanOut = 2;
+  private boolean diamondImports = false;
+  private boolean cyclicImports = false;
+  private int schemaDocuments = 0;
+  private int schemaImports = 2;
+  private int includeChain = 0;
+  private int redefineChain = 0;
+
+  // Only set while generating.
+  private Random random = null;
+
+  public void setSeed(long seed)
+  {
+    this.seed = seed;
+  }
+
+  public long getSeed()
+  {
+    return seed;
+  }
+
+  /**
+   * Set the number of operations in each port type, not counting
+   * overloads. Default is 10.
+   */
+  public void setOperations(int operations)
+  {
+    this.operations = checkCount("operations", operations);
+  }
+
+  public int getOperations()
+  {
+    return operations;
+  }
+
+  /**
+   * Set the number of extra operations with the same name as each
+   * operation, told apart by the names of their inputs and outputs.
+   * Default is 0.
+   */
+  public void setOverloads(int overloads)
+  {
+    this.overloads = checkCount("overloads", overloads);
+  }
+
+  public int getOverloads()
+  {
+    return overloads;
+  }
+
+  /**
+   * Set the number of messages in each WSDL document. Operations use
+   * them at random, so some messages may not be used, and some may be
+   * used more than once. Default is 10; there is always at least one if
+   * there are operations.
+   */
+  public void setMessages(int messages)
+  {
+    this.messages = checkCount("messages", messages);
+  }
+
+  public int getMessages()
+  {
+    return messages;
+  }
+
+  /**
+   * Set the number of port types in each WSDL document. Default is 1.
+   */
+  public void setPortTypes(int portTypes)
+  {
+    this.portTypes = checkCount("portTypes", portTypes);
+  }
+
+  public int getPortTypes()
+  {
+    return portTypes;
+  }
+
+  /**
+   * Set the kinds of binding made for each port type, as a combination
+   * of BINDING_SOAP, BINDING_SOAP12, BINDING_HTTP and BINDING_MIME.
+   * MIME bindings are SOAP 1.1 bindings with multipart outputs. Default
+   * is BINDING_SOAP.
+   */
+  public void setBindings(int bindings)
+  {
+    if ((bindings & ~ALL_BINDINGS) != 0)
+    {
+      throw new IllegalArgumentException("Unknown bindings: " + bindings +
+                                         ".");
+    }
+
+    this.bindings = bindings;
+  }
+
+  public int getBindings()
+  {
+    return bindings;
+  }
+
+  /**
+   * Set the number of inline schemas, each with its own target
+   * namespace, in each WSDL document. Default is 1.
+   */
+  public void setNamespaces(int namespaces)
+  {
+    this.namespaces = checkCount("namespaces", namespaces);
+  }
+
+  public int getNamespaces()
+  {
+    return namespaces;
+  }
+
+  /**
+   * Set the number of complex types in each schema, inline or not.
+   * Default is 10.
+   */
+  public void setTypesPerSchema(int typesPerSchema)
+  {
+    this.typesPerSchema = checkCount("typesPerSchema", typesPerSchema);
+  }
+
+  public int getTypesPerSchema()
+  {
+    return typesPerSchema;
+  }
+
+  /**
+   * Set the depth of the tree of imported WSDL documents. Default is 0,
+   * in which case the root document imports none.
+   */
+  public void setImportDepth(int importDepth)
+  {
+    this.importDepth = checkCount("importDepth", importDepth);
+  }
+
+  public int getImportDepth()
+  {
+    return importDepth;
+  }
+
+  /**
+   * Set the number of WSDL documents each document in the tree imports.
+   * Default is 2.
+   */
+  public void setImportFanOut(int importFanOut)
+  {
+    this.importFanOut = checkCount("importFanOut", importFanOut);
+  }
+
+  public int getImportFanOut()
+  {
+    return importFanOut;
+  }
+
+  /**
+   * If true, each document in the tree also imports the first document
+   * imported by the one after it, so that documents are reached along
+   * two paths. Default is false.
+   */
+  public void setDiamondImports(boolean diamondImports)
+  {
+    this.diamondImports = diamondImports;
+  }
+
+  public boolean getDiamondImports()
+  {
+    return diamondImports;
+  }
+
+  /**
+   * If true, the leaves of the tree import the root document. Default is
+   * false.
+   */
+  public void setCyclicImports(boolean cyclicImports)
+  {
+    this.cyclicImports = cyclicImports;
+  }
+
+  public boolean getCyclicImports()
+  {
+    return cyclicImports;
+  }
+
+  /**
+   * Set the number of schema documents imported, directly or not, by the
+   * first inline schema of the root document. Default is 0.
+   */
+  public void setSchemaDocuments(int schemaDocuments)
+  {
+    this.schemaDocuments = checkCount("schemaDocuments", schemaDocuments);
+  }
+
+  public int getSchemaDocuments()
+  {
+    return schemaDocuments;
+  }
+
+  /**
+   * Set the number of other schema documents each schema document
+   * imports. The first is always the next one, so that all are reached;
+   * the rest are chosen at random, so the graph has cycles. Default is 2.
+   */
+  public void setSchemaImports(int schemaImports)
+  {
+    this.schemaImports = checkCount("schemaImports", schemaImports);
+  }
+
+  public int getSchemaImports()
+  {
+    return schemaImports;
+  }
+
+  /**
+   * Set the length of the chain of schema documents each schema document
+   * includes: it includes the first, which includes the second, and so
+   * on. Default is 0.
+   */
+  public void setIncludeChain(int includeChain)
+  {
+    this.includeChain = checkCount("includeChain", includeChain);
+  }
+
+  public int getIncludeChain()
+  {
+    return includeChain;
+  }
+
+  /**
+   * Set the length of the chain of schema documents each schema document
+   * redefines: it redefines a type in the first, which redefines it in
+   * the second, and so on. Default is 0.
+   */
+  public void setRedefineChain(int redefineChain)
+  {
+    this.redefineChain = checkCount("redefineChain", redefineChain);
+  }
+
+  public int getRedefineChain()
+  {
+    return redefineChain;
+  }
+
+  /**
+   * Write the documents to the specified directory, creating it if it
+   * doesn't exist. Files with the same names are overwritten.
+   *
+   * @param dir the directory
+   * @return the root WSDL document
+   */
+  public synchronized File generate(File dir) throws IOException
+  {
+    long documents = 0;
+
+    for (int level = 0; level <= importDepth; level++)
+    {
+      documents += getDocumentCount(level);
+    }
+
+    documents += schemaDocuments * (1L + includeChain + redefineChain);
+
+    if (documents > MAX_DOCUMENTS)
+    {
+      throw new IllegalArgumentException("These settings would write " +
+                                         documents + " documents.");
+    }
+
+    dir.mkdirs();
+
+    if (!dir.isDirectory())
+    {
+      throw new IOException("Unable to create '" + dir + "'.");
+    }
+
+    random = new Random(seed);
+
+    try
+    {
+      for (int level = 0; level <= importDepth; level++)
+      {
+        long count = getDocumentCount(level);
+
+        for (int index = 0; index < count; index++)
+        {
+          writeWSDLDocument(dir, level, index);
+        }
+      }
+
+      for (int i = 0; i < schemaDocuments; i++)
+      {
+        writeSchemaDocument(dir, i);
+      }
+    }
+    finally
+    {
+      random = null;
+    }
+
+    return new File(dir, ROOT_FILE_NAME);
+  }
+
+  private long getDocumentCount(int level)
+  {
+    long count = 1;
+
+    for (int i = 0; i < level && count <= MAX_DOCUMENTS; i++)
+    {
+      count *= importFanOut;
+    }
+
+    return count;
+  }
+
+  private static String getFileName(int level, int index)
+  {
+    return (level == 0) ? ROOT_FILE_NAME : "d" + level + "_" + index + ".wsdl";
+  }
+
+  private static String getTargetNamespace(int level, int index)
+  {
+    return "urn:corpus:d" + level + "_" + index;
+  }
+
+  private void writeWSDLDocument(File dir, int level, int index)
+    throws IOException
+  {
+    String targetNamespace = getTargetNamespace(level, index);
+    StringBuffer strBuf = new StringBuffer();
+
+    strBuf.append("<?xml version='1.0' encoding='UTF-8'?>\n" +
+                  "<definitions xmlns='" + NS_URI_WSDL + "'\n" +
+                  "  xmlns:soap='" + NS_URI_SOAP + "'\n" +
+                  "  xmlns:soap12='" + NS_URI_SOAP12 + "'\n" +
+                  "  xmlns:http='" + NS_URI_HTTP + "'\n" +
+                  "  xmlns:mime='" + NS_URI_MIME + "'\n" +
+                  "  xmlns:xsd='" + NS_URI_XSD + "'\n" +
+                  "  xmlns:tns='" + targetNamespace + "'\n");
+
+    for (int i = 0; i < namespaces; i++)
+    {
+      strBuf.append("  xmlns:s" + i + "='" + targetNamespace + ":s" + i +
+                    "'\n");
+    }
+
+    strBuf.append("  targetNamespace='" + targetNamespace + "'>\n" +
+                  "  <documentation>Generated with seed " + seed + ".</" +
+                  "documentation>\n");
+    appendImports(strBuf, level, index);
+    appendTypes(strBuf, level, targetNamespace);
+
+    int messageCount = (operations > 0) ? Math.max(messages, 1) : messages;
+
+    appendMessages(strBuf, messageCount);
+
+    for (int i = 0; i < portTypes; i++)
+    {
+      List ops = appendPortType(strBuf, "pt" + i, messageCount);
+
+      if ((bindings & BINDING_SOAP) != 0)
+      {
+        appendSOAPBinding(strBuf, "pt" + i, "Soap", "soap", false, ops);
+      }
+
+      if ((bindings & BINDING_SOAP12) != 0)
+      {
+        appendSOAPBinding(strBuf, "pt" + i, "Soap12", "soap12", false, ops);
+      }
+
+      if ((bindings & BINDING_HTTP) != 0)
+      {
+        appendHTTPBinding(strBuf, "pt" + i, ops);
+      }
+
+      if ((bindings & BINDING_MIME) != 0)
+      {
+        appendSOAPBinding(strBuf, "pt" + i, "Mime", "soap", true, ops);
+      }
+    }
+
+    appendService(strBuf, targetNamespace);
+    strBuf.append("</definitions>\n");
+    write(new File(dir, getFileName(level, index)), strBuf);
+  }
+
+  private void appendImports(StringBuffer strBuf, int level, int index)
+  {
+    if (level < importDepth)
+    {
+      long nextCount = getDocumentCount(level + 1);
+
+      for (int i = 0; i < importFanOut; i++)
+      {
+        appendImport(strBuf, level + 1, index * importFanOut + i);
+      }
+
+      // The first document imported by the next one along.
+      if (diamondImports && getDocumentCount(level) > 1 && importFanOut > 0)
+      {
+        appendImport(strBuf,
+                     level + 1,
+                     (int)(((index + 1) * (long)importFanOut) % nextCount));
+      }
+    }
+    else if (cyclicImports && level > 0)
+    {
+      appendImport(strBuf, 0, 0);
+    }
+  }
+
+  private static void appendImport(StringBuffer strBuf, int level, int index)
+  {
+    strBuf.append("  <import namespace='" + getTargetNamespace(level, index) +
+                  "' location='" + getFileName(level, index) + "'/>\n");
+  }
+
+  private void appendTypes(StringBuffer strBuf,
+                           int level,
+                           String targetNamespace)
+  {
+    if (namespaces == 0)
+    {
+      return;
+    }
+
+    strBuf.append("  <types>\n");
+
+    for (int i = 0; i < namespaces; i++)
+    {
+      strBuf.append("    <xsd:schema targetNamespace='" + targetNamespace +
+                    ":s" + i + "'>\n");
+
+      if (i == 0 && level == 0 && schemaDocuments > 0)
+      {
+        strBuf.append("      <xsd:import namespace='" +
+                      getSchemaNamespace(0) + "' schemaLocation='" +
+                      getSchemaFileName(0, "") + "'/>\n");
+      }
+
+      appendComplexTypes(strBuf, "      ", "s" + i, "t", typesPerSchema);
+      strBuf.append("    </xsd:schema>\n");
+    }
+
+    strBuf.append("  </types>\n");
+  }
+
+  /*
+    Append complex types, each with a few fields, of built-in types or of
+    the types before it, and an element for each.
+  */
+  private void appendComplexTypes(StringBuffer strBuf,
+                                  String indent,
+                                  String prefix,
+                                  String name,
+                                  int count)
+  {
+    for (int i = 0; i < count; i++)
+    {
+      strBuf.append(indent + "<xsd:complexType name='" + name + i + "'>" +
+                    "<xsd:sequence>");
+
+      int fields = 1 + random.nextInt(4);
+
+      for (int j = 0; j < fields; j++)
+      {
+        String type = (i > 0 && random.nextInt(3) == 0)
+                      ? prefix + ":" + name + random.nextInt(i)
+                      : "xsd:" + randomBuiltInType();
+
+        strBuf.append("<xsd:element name='f" + j + "' type='" + type + "'" +
+                      (random.nextInt(4) == 0
+                       ? " minOccurs='0' maxOccurs='unbounded'"
+                       : "") +
+                      "/>");
+      }
+
+      strBuf.append("</xsd:sequence></xsd:complexType>\n" +
+                    indent + "<xsd:element name='e" + name + i + "' " +
+                    "type='" + prefix + ":" + name + i + "'/>\n");
+    }
+  }
+
+  /*
+    Append messages with one to three parts, named p0, p1 and p2.
+  */
+  private void appendMessages(StringBuffer strBuf, int count)
+  {
+    boolean elements = namespaces > 0 && typesPerSchema > 0;
+
+    for (int i = 0; i < count; i++)
+    {
+      strBuf.append("  <message name='m" + i + "'>");
+
+      int parts = 1 + random.nextInt(3);
+
+      for (int j = 0; j < parts; j++)
+      {
+        strBuf.append("<part name='p" + j + "' ");
+
+        if (elements && random.nextBoolean())
+        {
+          strBuf.append("element='s" + random.nextInt(namespaces) + ":et" +
+                        random.nextInt(typesPerSchema) + "'/>");
+        }
+        else
+        {
+          strBuf.append("type='xsd:" + randomBuiltInType() + "'/>");
+        }
+      }
+
+      strBuf.append("</message>\n");
+    }
+  }
+
+  private List appendPortType(StringBuffer strBuf,
+                              String portTypeName,
+                              int messageCount)
+  {
+    List ops = new ArrayList();
+
+    strBuf.append("  <portType name='" + portTypeName + "'>\n");
+
+    for (int i = 0; i < operations; i++)
+    {
+      for (int j = 0; j <= overloads; j++)
+      {
+        Op op = new Op();
+
+        op.name = "op" + i;
+        op.inputName = (overloads > 0) ? op.name + "Request" + j : null;
+        op.outputName = (overloads > 0) ? op.name + "Response" + j : null;
+        op.inputMessage = random.nextInt(messageCount);
+        op.fault = random.nextInt(3) == 0;
+        ops.add(op);
+
+        strBuf.append("    <operation name='" + op.name + "'>");
+
+        if (random.nextInt(4) == 0)
+        {
+          strBuf.append("<documentation>Operation " + i + ", overload " + j +
+                        ".</documentation>");
+        }
+
+        strBuf.append("<input" + getNameAttribute(op.inputName) +
+                      " message='tns:m" + op.inputMessage + "'/>" +
+                      "<output" + getNameAttribute(op.outputName) +
+                      " message='tns:m" + random.nextInt(messageCount) +
+                      "'/>");
+
+        if (op.fault)
+        {
+          strBuf.append("<fault name='fault' message='tns:m" +
+                        random.nextInt(messageCount) + "'/>");
+        }
+
+        strBuf.append("</operation>\n");
+      }
+    }
+
+    strBuf.append("  </portType>\n");
+
+    return ops;
+  }
+
+  private static void appendSOAPBinding(StringBuffer strBuf,
+                                        String portTypeName,
+                                        String suffix,
+                                        String soap,
+                                        boolean mime,
+                                        List ops)
+  {
+    strBuf.append("  <binding name='" + portTypeName + suffix + "' " +
+                  "type='tns:" + portTypeName + "'>" +
+                  "<" + soap + ":binding style='document' " +
+                  "transport='" + SOAP_HTTP + "'/>\n");
+
+    for (int i = 0; i < ops.size(); i++)
+    {
+      Op op = (Op)ops.get(i);
+      String body = "<" + soap + ":body use='literal'/>";
+
+      strBuf.append("    <operation name='" + op.name + "'>" +
+                    "<" + soap + ":operation soapAction='" + op.name + "'/>" +
+                    "<input" + getNameAttribute(op.inputName) + ">" + body +
+                    "<" + soap + ":header message='tns:m" + op.inputMessage +
+                    "' part='p0' use='literal'/>" +
+                    "</input>" +
+                    "<output" + getNameAttribute(op.outputName) + ">");
+
+      if (mime)
+      {
+        strBuf.append("<mime:multipartRelated>" +
+                      "<mime:part>" + body + "</mime:part>" +
+                      "<mime:part><mime:content part='p0' " +
+                      "type='application/octet-stream'/></mime:part>" +
+                      "<mime:part><mime:mimeXml part='p0'/></mime:part>" +
+                      "</mime:multipartRelated>");
+      }
+      else
+      {
+        strBuf.append(body);
+      }
+
+      strBuf.append("</output>");
+
+      if (op.fault)
+      {
+        strBuf.append("<fault name='fault'><" + soap + ":fault " +
+                      "name='fault' use='literal'/></fault>");
+      }
+
+      strBuf.append("</operation>\n");
+    }
+
+    strBuf.append("  </binding>\n");
+  }
+
+  private static void appendHTTPBinding(StringBuffer strBuf,
+                                        String portTypeName,
+                                        List ops)
+  {
+    strBuf.append("  <binding name='" + portTypeName + "Http' " +
+                  "type='tns:" + portTypeName + "'>" +
+                  "<http:binding verb='POST'/>\n");
+
+    for (int i = 0; i < ops.size(); i++)
+    {
+      Op op = (Op)ops.get(i);
+
+      strBuf.append("    <operation name='" + op.name + "'>" +
+                    "<http:operation location='" + op.name + "/" + i + "'/>" +
+                    "<input" + getNameAttribute(op.inputName) + ">" +
+                    "<http:urlEncoded/></input>" +
+                    "<output" + getNameAttribute(op.outputName) + ">" +
+                    "<mime:content type='text/xml'/></output>" +
+                    "</operation>\n");
+    }
+
+    strBuf.append("  </binding>\n");
+  }
+
+  private void appendService(StringBuffer strBuf, String targetNamespace)
+  {
+    if (portTypes == 0 || bindings == 0)
+    {
+      return;
+    }
+
+    String location = "http://localhost/" +
+                      targetNamespace.substring("urn:".length());
+
+    strBuf.append("  <service name='Service'>\n");
+
+    for (int i = 0; i < portTypes; i++)
+    {
+      if ((bindings & BINDING_SOAP) != 0)
+      {
+        appendPort(strBuf, "pt" + i + "Soap", "soap", location);
+      }
+
+      if ((bindings & BINDING_SOAP12) != 0)
+      {
+        appendPort(strBuf, "pt" + i + "Soap12", "soap12", location);
+      }
+
+      if ((bindings & BINDING_HTTP) != 0)
+      {
+        appendPort(strBuf, "pt" + i + "Http", "http", location);
+      }
+
+      if ((bindings & BINDING_MIME) != 0)
+      {
+        appendPort(strBuf, "pt" + i + "Mime", "soap", location);
+      }
+    }
+
+    strBuf.append("  </service>\n");
+  }
+
+  private static void appendPort(StringBuffer strBuf,
+                                 String bindingName,
+                                 String prefix,
+                                 String location)
+  {
+    strBuf.append("    <port name='" + bindingName + "Port' " +
+                  "binding='tns:" + bindingName + "'>" +
+                  "<" + prefix + ":address location='" + location + "/" +
+                  bindingName + "'/></port>\n");
+  }
+
+  private static String getNameAttribute(String name)
+  {
+    return (name != null) ? " name='" + name + "'" : "";
+  }
+
+  private static String getSchemaNamespace(int index)
+  {
+    return "urn:corpus:schema:" + index;
+  }
+
+  private static String getSchemaFileName(int index, String suffix)
+  {
+    return "s" + index + suffix + ".xsd";
+  }
+
+  /*
+    Write a schema document, and the chains it includes and redefines.
+  */
+  private void writeSchemaDocument(File dir, int index) throws IOException
+  {
+    String targetNamespace = getSchemaNamespace(index);
+    StringBuffer strBuf = new StringBuffer();
+
+    startSchema(strBuf, targetNamespace);
+
+    if (includeChain > 0)
+    {
+      strBuf.append("  <xsd:include schemaLocation='" +
+                    getSchemaFileName(index, "_inc0") + "'/>\n");
+    }
+
+    for (int i = 0; i < schemaImports && schemaDocuments > 1; i++)
+    {
+      int target = (i == 0)
+                   ? (index + 1) % schemaDocuments
+                   : random.nextInt(schemaDocuments);
+
+      strBuf.append("  <xsd:import namespace='" + getSchemaNamespace(target) +
+                    "' schemaLocation='" + getSchemaFileName(target, "") +
+                    "'/>\n");
+    }
+
+    if (redefineChain > 0)
+    {
+      appendRedefine(strBuf, getSchemaFileName(index, "_redef0"));
+    }
+
+    appendComplexTypes(strBuf, "  ", "tns", "t", typesPerSchema);
+    strBuf.append("</xsd:schema>\n");
+    write(new File(dir, getSchemaFileName(index, "")), strBuf);
+
+    for (int i = 0; i < includeChain; i++)
+    {
+      strBuf = new StringBuffer();
+      startSchema(strBuf, targetNamespace);
+
+      if (i + 1 < includeChain)
+      {
+        strBuf.append("  <xsd:include schemaLocation='" +
+                      getSchemaFileName(index, "_inc" + (i + 1)) + "'/>\n");
+      }
+
+      appendComplexTypes(strBuf, "  ", "tns", "inc" + i + "t",
+                         typesPerSchema);
+      strBuf.append("</xsd:schema>\n");
+      write(new File(dir, getSchemaFileName(index, "_inc" + i)), strBuf);
+    }
+
+    for (int i = 0; i < redefineChain; i++)
+    {
+      strBuf = new StringBuffer();
+      startSchema(strBuf, targetNamespace);
+
+      if (i + 1 < redefineChain)
+      {
+        appendRedefine(strBuf, getSchemaFileName(index, "_redef" + (i + 1)));
+      }
+      else
+      {
+        strBuf.append("  <xsd:complexType name='base'><xsd:sequence>" +
+                      "<xsd:element name='id' type='xsd:string'/>" +
+                      "</xsd:sequence></xsd:complexType>\n");
+      }
+
+      strBuf.append("</xsd:schema>\n");
+      write(new File(dir, getSchemaFileName(index, "_redef" + i)), strBuf);
+    }
+  }
+
+  private static void startSchema(StringBuffer strBuf, String targetNamespace)
+  {
+    strBuf.append("<?xml version='1.0' encoding='UTF-8'?>\n" +
+                  "<xsd:schema xmlns:xsd='" + NS_URI_XSD + "'\n" +
+                  "  xmlns:tns='" + targetNamespace + "'\n" +
+                  "  targetNamespace='" + targetNamespace + "'>\n");
+  }
+
+  /*
+    Redefine the type "base" in the specified document by extending it.
+  */
+  private void appendRedefine(StringBuffer strBuf, String schemaLocation)
+  {
+    strBuf.append("  <xsd:redefine schemaLocation='" + schemaLocation + "'>" +
+                  "<xsd:complexType name='base'><xsd:complexContent>" +
+                  "<xsd:extension base='tns:base'><xsd:sequence>" +
+                  "<xsd:element name='x" + random.nextInt(1000) + "' " +
+                  "type='xsd:" + randomBuiltInType() + "'/>" +
+                  "</xsd:sequence></xsd:extension></xsd:complexContent>" +
+                  "</xsd:complexType></xsd:redefine>\n");
+  }
+
+  private String randomBuiltInType()
+  {
+    return BUILT_IN_TYPES[random.nextInt(BUILT_IN_TYPES.length)];
+  }
+
+  private static int checkCount(String name, int count)
+  {
+    if (count < 0)
+    {
+      throw new IllegalArgumentException("The value of " + name +
+                                         " must not be negative.");
+    }
+
+    return count;
+  }
+
+  private static void write(File file, StringBuffer strBuf) throws IOException
+  {
+    Writer writer = new OutputStreamWriter(new FileOutputStream(file),
+                                           "UTF-8");
+
+    try
+    {
+      writer.write(strBuf.toString());
+    }
+    finally
+    {
+      writer.close();
+    }
+  }
+
+  /*
+    What the bindings need to know about an operation of a port type.
+  */
+  private static class Op
+  {
+    String name;
+    String inputName;
+    String outputName;
+    int inputMessage;
+    boolean fault;
+  }
+
+  public static void main(String[] argv) throws IOException
+  {
+    CorpusGenerator generator = new CorpusGenerator();
+    File dir = null;
+
+    try
+    {
+      for (int i = 0; i < argv.length; i++)
+      {
+        String arg = argv[i];
+
+        if (i == argv.length - 1 && !arg.startsWith("-"))
+        {
+          dir = new File(arg);
+        }
+        else if (arg.equals("-diamondImports"))
+        {
+          generator.setDiamondImports(true);
+        }
+        else if (arg.equals("-cyclicImports"))
+        {
+          generator.setCyclicImports(true);
+        }
+        else if (i + 1 < argv.length - 1)
+        {
+          String value = argv[++i];
+
+          if (arg.equals("-seed"))
+          {
+            generator.setSeed(Long.parseLong(value));
+          }
+          else if (arg.equals("-operations"))
+          {
+            generator.setOperations(Integer.parseInt(value));
+          }
+          else if (arg.equals("-overloads"))
+          {
+            generator.setOverloads(Integer.parseInt(value));
+          }
+          else if (arg.equals("-messages"))
+          {
+            generator.setMessages(Integer.parseInt(value));
+          }
+          else if (arg.equals("-portTypes"))
+          {
+            generator.setPortTypes(Integer.parseInt(value));
+          }
+          else if (arg.equals("-bindings"))
+          {
+            generator.setBindings(parseBindings(value));
+          }
+          else if (arg.equals("-namespaces"))
+          {
+            generator.setNamespaces(Integer.parseInt(value));
+          }
+          else if (arg.equals("-typesPerSchema"))
+          {
+            generator.setTypesPerSchema(Integer.parseInt(value));
+          }
+          else if (arg.equals("-importDepth"))
+          {
+            generator.setImportDepth(Integer.parseInt(value));
+          }
+          else if (arg.equals("-importFanOut"))
+          {
+            generator.setImportFanOut(Integer.parseInt(value));
+          }
+          else if (arg.equals("-schemaDocuments"))
+          {
+            generator.setSchemaDocuments(Integer.parseInt(value));
+          }
+          else if (arg.equals("-schemaImports"))
+          {
+            generator.setSchemaImports(Integer.parseInt(value));
+          }
+          else if (arg.equals("-includeChain"))
+          {
+            generator.setIncludeChain(Integer.parseInt(value));
+          }
+          else if (arg.equals("-redefineChain"))
+          {
+            generator.setRedefineChain(Integer.parseInt(value));
+          }
+          else
+          {
+            throw new IllegalArgumentException("Unknown option '" + arg +
+                                               "'.");
+          }
+        }
+        else
+        {
+          throw new IllegalArgumentException("Missing value for '" + arg +
+                                             "'.");
+        }
+      }
+    }
+    catch (IllegalArgumentException e)
+    {
+      System.err.println(e.getMessage());
+      dir = null;
+    }
+
+    if (dir != null)
+    {
+      System.out.println(generator.generate(dir));
+    }
+    else
+    {
+      System.err.println("Usage:");
+      System.err.println();
+      System.err.println("  java " + CorpusGenerator.class.getName() +
+                         " [options] directory");
+      System.err.println();
+      System.err.println("Options, with their defaults:");
+      System.err.println();
+      System.err.println("  -seed 0              -operations 10");
+      System.err.println("  -overloads 0         -messages 10");
+      System.err.println("  -portTypes 1         -bindings soap");
+      System.err.println("  -namespaces 1        -typesPerSchema 10");
+      System.err.println("  -importDepth 0       -importFanOut 2");
+      System.err.println("  -diamondImports      -cyclicImports");
+      System.err.println("  -schemaDocuments 0   -schemaImports 2");
+      System.err.println("  -includeChain 0      -redefineChain 0");
+      System.err.println();
+      System.err.println("Bindings are a comma-separated list of soap, " +
+                         "soap12, http and mime, or all. The path of the " +
+                         "root WSDL document is printed.");
+    }
+  }
+
+  private static int parseBindings(String value)
+  {
+    int bindings = 0;
+    StringTokenizer strTok = new StringTokenizer(value, ",");
+
+    while (strTok.hasMoreTokens())
+    {
+      String token = strTok.nextToken().trim();
+
+      if (token.equals("soap"))
+      {
+        bindings |= BINDING_SOAP;
+      }
+      else if (token.equals("soap12"))
+      {
+        bindings |= BINDING_SOAP12;
+      }
+      else if (token.equals("http"))
+      {
+        bindings |= BINDING_HTTP;
+      }
+      else if (token.equals("mime"))
+      {
+        bindings |= BINDING_MIME;
+      }
+      else if (token.equals("all"))
+      {
+        bindings |= ALL_BINDINGS;
+      }
+      else
+      {
+        throw new IllegalArgumentException("Unknown binding '" + token +
+                                           "'.");
+      }
+    }
+
+    return bindings;
+  }
+}
@@ -0,0 +1,174 @@
+/*
+ * (c) Copyright IBM Corp 2006
+ */
+
+package com.ibm.wsdl.benchmarks;
+
+import java.io.*;
+
+/**
+ * Finds the documents the benchmarks read. Names are either paths
+ * relative to the test resources, or one of the synthetic documents,
+ * which are written by CorpusGenerator to a temporary directory the
+ * first time they are asked for:
+ * <ul>
+ * <li>synthetic:large - a single WSDL document with a great many
+ * messages, operations and bindings, and a big inline schema</li>
+ * <li>synthetic:imports - a WSDL document importing a deep tree of
+ * other WSDL documents</li>
+ * <li>synthetic:schemas - a WSDL document whose inline schema imports
+ * and includes a big graph of schema documents</li>
+ * <li>synthetic:inline-schemas - a WSDL document with a few operations
+ * and many big inline schemas</li>
+ * <li>synthetic:bindings - a WSDL document with many operations and no
+ * schema, bound using SOAP 1.1, SOAP 1.2, HTTP and MIME</li>
+ * </ul>
+ */
+public class Documents
+{
+  public static final String SYNTHETIC_LARGE = "synthetic:large";
+  public static final String SYNTHETIC_IMPORTS = "synthetic:imports";
+  public static final String SYNTHETIC_SCHEMAS = "synthetic:schemas";
+  public static final String SYNTHETIC_INLINE_SCHEMAS =
+    "synthetic:inline-schemas";
+  public static final String SYNTHETIC_BINDINGS = "synthetic:bindings";
+
+  /**
+   * The name of the system property that can be set to the directory
+   * the test resources are in.
+   */
+  public static final String RESOURCES_PROPERTY = "wsdl4j.resources";
+
+  private static File syntheticDir = null;
+
+  /**
+   * Get the URI of the named document.
+   */
+  public static synchronized String getURI(String name) throws IOException
+  {
+    File file;
+
+    if (name.startsWith("synthetic:"))
+    {
+      File dir = new File(getSyntheticDir(), name.substring(10));
+
+      file = new File(dir, CorpusGenerator.ROOT_FILE_NAME);
+
+      if (!file.exists())
+      {
+        getGenerator(name).generate(dir);
+        deleteOnExit(dir);
+      }
+    }
+    else
+    {
+      file = new File(getResourcesDir(), name);
+
+      if (!file.exists())
+      {
+        throw new FileNotFoundException("Unable to find '" + file + "'. " +
+                                        "Run the benchmarks from the " +
+                                        "top-level directory, or set " +
+                                        RESOURCES_PROPERTY + ".");
+      }
+    }
+
+    return file.toURI().toString();
+  }
+
+  private static File getResourcesDir()
+  {
+    String dir = System.getProperty(RESOURCES_PROPERTY);
+
+    if (dir != null)
+    {
+      return new File(dir);
+    }
+
+    File resourcesDir = new File("test/resources");
+
+    return resourcesDir.exists() ? resourcesDir : new File("../test/resources");
+  }
+
+  private static File getSyntheticDir() throws IOException
+  {
+    if (syntheticDir == null)
+    {
+      syntheticDir = File.createTempFile("wsdl4j-benchmarks", "");
+      syntheticDir.delete();
+
+      if (!syntheticDir.mkdir())
+      {
+        throw new IOException("Unable to create '" + syntheticDir + "'.");
+      }
+
+      syntheticDir.deleteOnExit();
+    }
+
+    return syntheticDir;
+  }
+
+  /*
+    Get a generator for the named synthetic document.
+  */
+  private static CorpusGenerator getGenerator(String name)
+  {
+    CorpusGenerator generator = new CorpusGenerator();
+
+    if (SYNTHETIC_LARGE.equals(name))
+    {
+      generator.setOperations(2000);
+      generator.setMessages(4000);
+      generator.setTypesPerSchema(2000);
+    }
+    else if (SYNTHETIC_IMPORTS.equals(name))
+    {
+      generator.setOperations(1);
+      generator.setMessages(1);
+      generator.setNamespaces(0);
+      generator.setImportDepth(6);
+      generator.setImportFanOut(2);
+    }
+    else if (SYNTHETIC_SCHEMAS.equals(name))
+    {
+      generator.setOperations(1);
+      generator.setMessages(1);
+      generator.setTypesPerSchema(5);
+      generator.setSchemaDocuments(200);
+      generator.setSchemaImports(3);
+      generator.setIncludeChain(1);
+    }
+    else if (SYNTHETIC_INLINE_SCHEMAS.equals(name))
+    {
+      generator.setOperations(20);
+      generator.setMessages(20);
+      generator.setNamespaces(20);
+      generator.setTypesPerSchema(100);
+    }
+    else if (SYNTHETIC_BINDINGS.equals(name))
+    {
+      generator.setOperations(500);
+      generator.setMessages(1000);
+      generator.setNamespaces(0);
+      generator.setBindings(CorpusGenerator.ALL_BINDINGS);
+    }
+    else
+    {
+      throw new IllegalArgumentException("Unknown document '" + name + "'.");
+    }
+
+    return generator;
+  }
+
+  private static void deleteOnExit(File dir)
+  {
+    dir.deleteOnExit();
+
+    File[] files = dir.listFiles();
+
+    for (int i = 0; i < files.length; i++)
+    {
+      files[i].deleteOnExit();
+    }
+  }
+}
@@ -0,0 +1,319 @@
+/*
+ * (c) Copyright IBM Corp 2006
+ */
+
+package com.ibm.wsdl.benchmarks;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.util.*;
+
+import javax.wsdl.*;
+import javax.wsdl.factory.*;
+import javax.wsdl.xml.*;
+
+import com.ibm.wsdl.util.FootprintEstimator;
+
+/**
+ * Reports how much heap the definitions read from documents retain. For
+ * each document, the estimate of FootprintEstimator is printed, split
+ * into model objects, collections, strings, QNames and DOM nodes, and
+ * then checked by measuring: many copies of the definition are read and
+ * kept, and the growth of the heap after a full collection is divided
+ * by the number of copies. The measured figure leaves out anything the
+ * copies share, such as interned names, which the estimate counts, and
+ * includes anything the estimate can't see, such as the node tables of
+ * a deferred DOM, so the two should be close but needn't match.
+ * <p>
+ * With -csv, a line of comma-separated values is printed for each
+ * document instead, so that the figures can be kept and compared over
+ * time. The heap should be big enough for all the copies, e.g. run with
+ * -Xmx1g, and -copies can be used to read fewer.
+ */
+public class FootprintMain
+{
+  private static final String[] DEFAULT_DOCUMENTS =
+  {
+    "AddressBook.wsdl",
+    "SOAP12Test.wsdl",
+    "MyExtendedWSDL.wsdl",
+    "schemas/TravelCo.wsdl",
+    "imports/MyImportA.wsdl",
+    Documents.SYNTHETIC_LARGE,
+    Documents.SYNTHETIC_IMPORTS,
+    Documents.SYNTHETIC_SCHEMAS,
+    Documents.SYNTHETIC_INLINE_SCHEMAS,
+    Documents.SYNTHETIC_BINDINGS
+  };
+
+  private final WSDLReader reader;
+  private final int copies;
+
+  public FootprintMain(String factoryImplName,
+                       boolean lazySchemas,
+                       int copies) throws WSDLException
+  {
+    this.reader = WSDLFactory.newInstance(factoryImplName).newWSDLReader();
+    this.copies = copies;
+
+    reader.setFeature("javax.wsdl.verbose", false);
+    reader.setFeature("com.ibm.wsdl.lazySchemas", lazySchemas);
+  }
+
+  /**
+   * Read the document, and estimate how much its definition retains.
+   */
+  public FootprintEstimator estimate(String uri) throws WSDLException
+  {
+    FootprintEstimator estimator = new FootprintEstimator();
+
+    estimator.add(reader.readWSDL(uri));
+
+    return estimator;
+  }
+
+  /**
+   * Read the document many times, and measure how much heap each copy
+   * of its definition takes up.
+   *
+   * @return the number of bytes per copy
+   */
+  public long measure(String uri) throws WSDLException
+  {
+    Definition[] defs = new Definition[copies];
+
+    // Read it once first, so that the classes and shared structures
+    // are already in place.
+    reader.readWSDL(uri);
+
+    long before = getUsedMemory();
+
+    for (int i = 0; i < copies; i++)
+    {
+      defs[i] = reader.readWSDL(uri);
+    }
+
+    long after = getUsedMemory();
+
+    // Keep the copies alive until the heap has been measured.
+    if (defs[copies - 1] == null)
+    {
+      throw new IllegalStateException();
+    }
+
+    return (after - before) / copies;
+  }
+
+  private static long getUsedMemory()
+  {
+    Runtime runtime = Runtime.getRuntime();
+    long used = Long.MAX_VALUE;
+
+    // Collect until the heap stops shrinking.
+    for (int i = 0; i < 10; i++)
+    {
+      System.gc();
+
+      try
+      {
+        Thread.sleep(20);
+      }
+      catch (InterruptedException e)
+      {
+        break;
+      }
+
+      long nowUsed = runtime.totalMemory() - runtime.freeMemory();
+
+      if (nowUsed >= used)
+      {
+        return nowUsed;
+      }
+
+      used = nowUsed;
+    }
+
+    return used;
+  }
+
+  private static void print(String name,
+                            FootprintEstimator estimator,
+                            long measured,
+                            int copies)
+  {
+    long total = estimator.getTotal();
+
+    System.out.println();
+    System.out.println(name);
+
+    for (int i = 0; i < FootprintEstimator.CATEGORY_COUNT; i++)
+    {
+      System.out.println("  " +
+                         padRight(FootprintEstimator.getCategoryName(i), 18) +
+                         padLeft(Long.toString(estimator.getSize(i)), 12) +
+                         padLeft(percent(estimator.getSize(i), total), 9) +
+                         padLeft(Long.toString(estimator.getCount(i)), 10) +
+                         " objects");
+    }
+
+    System.out.println("  " + padRight("estimated", 18) +
+                       padLeft(Long.toString(total), 12));
+
+    if (copies > 0)
+    {
+      System.out.println("  " + padRight("measured", 18) +
+                         padLeft(Long.toString(measured), 12) +
+                         padLeft(percent(measured, total), 9) +
+                         "  (" + copies + " copies)");
+    }
+  }
+
+  private static void printCSVHeader()
+  {
+    StringBuffer strBuf = new StringBuffer("document,factory,lazySchemas");
+
+    for (int i = 0; i < FootprintEstimator.CATEGORY_COUNT; i++)
+    {
+      strBuf.append("," + FootprintEstimator.getCategoryName(i));
+    }
+
+    System.out.println(strBuf.append(",estimated,measured"));
+  }
+
+  private static void printCSV(String name,
+                               String factoryImplName,
+                               boolean lazySchemas,
+                               FootprintEstimator estimator,
+                               long measured)
+  {
+    StringBuffer strBuf = new StringBuffer();
+
+    strBuf.append(name + "," + factoryImplName + "," + lazySchemas);
+
+    for (int i = 0; i < FootprintEstimator.CATEGORY_COUNT; i++)
+    {
+      strBuf.append("," + estimator.getSize(i));
+    }
+
+    System.out.println(strBuf.append("," + estimator.getTotal() + "," +
+                                     measured));
+  }
+
+  private static String percent(long part, long whole)
+  {
+    if (whole == 0)
+    {
+      return "?";
+    }
+
+    return new BigDecimal(100.0 * part / whole)
+             .setScale(1, BigDecimal.ROUND_HALF_UP)
+             .toString() + "%";
+  }
+
+  private static String padLeft(String str, int width)
+  {
+    StringBuffer strBuf = new StringBuffer();
+
+    for (int i = str.length(); i < width; i++)
+    {
+      strBuf.append(' ');
+    }
+
+    return strBuf.append(str).toString();
+  }
+
+  private static String padRight(String str, int width)
+  {
+    StringBuffer strBuf = new StringBuffer(str);
+
+    while (strBuf.length() < width)
+    {
+      strBuf.append(' ');
+    }
+
+    return strBuf.toString();
+  }
+
+  public static void main(String[] argv) throws Exception
+  {
+    String factoryImplName = "com.ibm.wsdl.factory.WSDLFactoryImpl";
+    boolean lazySchemas = false;
+    boolean csv = false;
+    int copies = 100;
+    List names = new ArrayList();
+
+    for (int i = 0; i < argv.length; i++)
+    {
+      if (argv[i].equals("-factory") && i + 1 < argv.length)
+      {
+        factoryImplName = argv[++i];
+      }
+      else if (argv[i].equals("-copies") && i + 1 < argv.length)
+      {
+        copies = Integer.parseInt(argv[++i]);
+      }
+      else if (argv[i].equals("-lazySchemas"))
+      {
+        lazySchemas = true;
+      }
+      else if (argv[i].equals("-csv"))
+      {
+        csv = true;
+      }
+      else if (argv[i].startsWith("-"))
+      {
+        System.err.println("Usage:");
+        System.err.println();
+        System.err.println("  java " + FootprintMain.class.getName() +
+                           " [-factory className] [-copies n]" +
+                           " [-lazySchemas] [-csv] [name|filename|URL]...");
+        System.err.println();
+        System.err.println("Names are relative to the test resources, or " +
+                           "one of the synthetic documents, e.g. " +
+                           Documents.SYNTHETIC_LARGE + ". Use -copies 0 " +
+                           "to skip measuring.");
+        System.exit(2);
+      }
+      else
+      {
+        names.add(argv[i]);
+      }
+    }
+
+    if (names.isEmpty())
+    {
+      names.addAll(Arrays.asList(DEFAULT_DOCUMENTS));
+    }
+
+    FootprintMain main = new FootprintMain(factoryImplName,
+                                           lazySchemas,
+                                           copies);
+
+    if (csv)
+    {
+      printCSVHeader();
+    }
+
+    for (int i = 0; i < names.size(); i++)
+    {
+      String name = (String)names.get(i);
+      String uri = new File(name).exists()
+                   ? new File(name).toURI().toString()
+                   : (name.indexOf(':') == -1 || name.startsWith("synthetic:"))
+                     ? Documents.getURI(name)
+                     : name;
+      FootprintEstimator estimator = main.estimate(uri);
+      long measured = (copies > 0) ? main.measure(uri) : 0;
+
+      if (csv)
+      {
+        printCSV(name, factoryImplName, lazySchemas, estimator, measured);
+      }
+      else
+      {
+        print(name, estimator, measured, copies);
+      }
+    }
+  }
+}
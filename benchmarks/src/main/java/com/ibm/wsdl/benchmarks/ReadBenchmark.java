@@ -0,0 +1,95 @@
+/*
+ * (c) Copyright IBM Corp 2006
+ */
+
+package com.ibm.wsdl.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.wsdl.Definition;
+import javax.wsdl.factory.WSDLFactory;
+import javax.wsdl.xml.WSDLReader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures WSDLReader.readWSDL(String) for each document and reader
+ * implementation.
+ * <p>
+ * steadyState reads again and again with the same reader, once the JIT
+ * has warmed up, and reports both throughput and average time.
+ * singleShot reads once in each of several new JVMs, creating the
+ * factory and reader first, which is what a program that reads a
+ * single document at startup pays.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(2)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ReadBenchmark
+{
+  @Param({"test.wsdl",
+          "AddressBook.wsdl",
+          "SOAP12Test.wsdl",
+          "MyExtendedWSDL.wsdl",
+          "schemas/TravelCo.wsdl",
+          "imports/MyImportA.wsdl",
+          "testGetXXXA.wsdl",
+          Documents.SYNTHETIC_LARGE,
+          Documents.SYNTHETIC_IMPORTS,
+          Documents.SYNTHETIC_SCHEMAS})
+  public String document;
+
+  @Param({"com.ibm.wsdl.factory.WSDLFactoryImpl",
+          "com.ibm.wsdl.factory.StAXWSDLFactoryImpl"})
+  public String factoryImplName;
+
+  private String uri;
+  private WSDLReader reader;
+
+  @Setup
+  public void setUp() throws Exception
+  {
+    uri = Documents.getURI(document);
+    reader = newReader(factoryImplName);
+  }
+
+  @Benchmark
+  @BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+  public Definition steadyState() throws Exception
+  {
+    return reader.readWSDL(uri);
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  @Fork(10)
+  @Warmup(iterations = 0)
+  @Measurement(iterations = 1)
+  public Definition singleShot() throws Exception
+  {
+    return newReader(factoryImplName).readWSDL(uri);
+  }
+
+  static WSDLReader newReader(String factoryImplName) throws Exception
+  {
+    WSDLReader reader = WSDLFactory.newInstance(factoryImplName)
+                          .newWSDLReader();
+
+    reader.setFeature("javax.wsdl.verbose", false);
+
+    return reader;
+  }
+}
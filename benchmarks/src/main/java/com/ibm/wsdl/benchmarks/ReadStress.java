@@ -0,0 +1,438 @@
+/*
+ * (c) Copyright IBM Corp 2006
+ */
+
+package com.ibm.wsdl.benchmarks;
+
+import java.io.*;
+import java.util.*;
+
+import javax.wsdl.*;
+import javax.wsdl.extensions.schema.*;
+import javax.wsdl.factory.*;
+import javax.wsdl.xml.*;
+
+import com.ibm.wsdl.util.xml.DOM2Writer;
+
+/**
+ * Reads documents from many threads at once, for a while, and checks
+ * that every definition read is the same as the one read by a single
+ * thread beforehand. Definitions are compared by writing them, the
+ * definitions they import, and the schema documents their schemas
+ * reference, so a data race that changes anything in the model shows
+ * up as a mismatch.
+ * <p>
+ * Each kind of sharing (see ConcurrentReadBenchmark) is tried in turn,
+ * with each reader implementation. The threads start together, and each
+ * reads the documents in a different order. The counts of reads,
+ * mismatches and errors are printed, and the exit status is 1 if there
+ * were any mismatches or errors.
+ * <p>
+ * By default, the test resources are read, together with a generated
+ * corpus with diamond and cyclic imports and a graph of schema
+ * documents.
+ */
+public class ReadStress
+{
+  private static final String[] DEFAULT_DOCUMENTS =
+  {
+    "AddressBook.wsdl",
+    "SOAP12Test.wsdl",
+    "MyExtendedWSDL.wsdl",
+    "schemas/TravelCo.wsdl",
+    "imports/MyImportA.wsdl",
+    "testGetXXXA.wsdl",
+    Documents.SYNTHETIC_BINDINGS
+  };
+
+  private static final String[] DEFAULT_FACTORIES =
+  {
+    "com.ibm.wsdl.factory.WSDLFactoryImpl",
+    "com.ibm.wsdl.factory.StAXWSDLFactoryImpl"
+  };
+
+  private static final String[] SHARINGS =
+  {
+    ConcurrentReadBenchmark.SHARING_NONE,
+    ConcurrentReadBenchmark.SHARING_FACTORY,
+    ConcurrentReadBenchmark.SHARING_READER
+  };
+
+  private final String factoryImplName;
+  private final String sharing;
+  private final String[] uris;
+  private final Map expected = new HashMap();
+  private WSDLFactory sharedFactory;
+  private WSDLReader sharedReader;
+  private long reads = 0;
+  private long mismatches = 0;
+  private long errors = 0;
+
+  public ReadStress(String factoryImplName, String sharing, String[] uris)
+  {
+    this.factoryImplName = factoryImplName;
+    this.sharing = sharing;
+    this.uris = uris;
+  }
+
+  /**
+   * Read the documents from the specified number of threads for the
+   * specified time.
+   *
+   * @return true if every read gave the expected definition
+   */
+  public boolean run(int threads, long millis) throws Exception
+  {
+    for (int i = 0; i < uris.length; i++)
+    {
+      expected.put(uris[i], describe(newReader().readWSDL(uris[i])));
+    }
+
+    sharedFactory = WSDLFactory.newInstance(factoryImplName);
+    sharedReader = newReader(sharedFactory);
+
+    final long endTime = System.currentTimeMillis() + millis;
+    final Object startSignal = new Object();
+    final boolean[] started = {false};
+    Thread[] workers = new Thread[threads];
+
+    for (int i = 0; i < threads; i++)
+    {
+      final int offset = i;
+
+      workers[i] = new Thread("ReadStress-" + i)
+      {
+        public void run()
+        {
+          synchronized (startSignal)
+          {
+            while (!started[0])
+            {
+              try
+              {
+                startSignal.wait();
+              }
+              catch (InterruptedException e)
+              {
+                return;
+              }
+            }
+          }
+
+          work(offset, endTime);
+        }
+      };
+      workers[i].start();
+    }
+
+    synchronized (startSignal)
+    {
+      started[0] = true;
+      startSignal.notifyAll();
+    }
+
+    for (int i = 0; i < threads; i++)
+    {
+      workers[i].join();
+    }
+
+    return mismatches == 0 && errors == 0;
+  }
+
+  private void work(int offset, long endTime)
+  {
+    WSDLReader ownReader = null;
+
+    try
+    {
+      ownReader = newReader();
+    }
+    catch (WSDLException e)
+    {
+      error(e);
+
+      return;
+    }
+
+    for (int i = offset; System.currentTimeMillis() < endTime; i++)
+    {
+      String uri = uris[i % uris.length];
+
+      try
+      {
+        WSDLReader reader;
+
+        if (sharing.equals(ConcurrentReadBenchmark.SHARING_NONE))
+        {
+          reader = ownReader;
+        }
+        else if (sharing.equals(ConcurrentReadBenchmark.SHARING_FACTORY))
+        {
+          reader = newReader(sharedFactory);
+        }
+        else
+        {
+          reader = sharedReader;
+        }
+
+        String actual = describe(reader.readWSDL(uri));
+
+        synchronized (this)
+        {
+          reads++;
+
+          if (!actual.equals(expected.get(uri)))
+          {
+            if (mismatches++ == 0)
+            {
+              System.err.println("Mismatch reading '" + uri + "'.");
+            }
+          }
+        }
+      }
+      catch (Exception e)
+      {
+        error(e);
+      }
+    }
+  }
+
+  private synchronized void error(Exception e)
+  {
+    if (errors++ == 0)
+    {
+      e.printStackTrace();
+    }
+  }
+
+  private WSDLReader newReader() throws WSDLException
+  {
+    return newReader(WSDLFactory.newInstance(factoryImplName));
+  }
+
+  private static WSDLReader newReader(WSDLFactory factory)
+  {
+    WSDLReader reader = factory.newWSDLReader();
+
+    reader.setFeature("javax.wsdl.verbose", false);
+
+    return reader;
+  }
+
+  public synchronized long getReads()
+  {
+    return reads;
+  }
+
+  public synchronized long getMismatches()
+  {
+    return mismatches;
+  }
+
+  public synchronized long getErrors()
+  {
+    return errors;
+  }
+
+  /**
+   * Write the definition, the definitions it imports, and the schema
+   * documents its schemas reference, to a string.
+   */
+  public static String describe(Definition def) throws WSDLException
+  {
+    StringWriter strWriter = new StringWriter();
+    WSDLWriter writer = WSDLFactory.newInstance().newWSDLWriter();
+
+    describe(def, writer, strWriter, new IdentityHashMap());
+
+    return strWriter.toString();
+  }
+
+  private static void describe(Definition def,
+                               WSDLWriter writer,
+                               StringWriter strWriter,
+                               Map visited)
+                                 throws WSDLException
+  {
+    if (def == null || visited.put(def, def) != null)
+    {
+      return;
+    }
+
+    strWriter.write("\n--- " + def.getDocumentBaseURI() + "\n");
+    writer.writeWSDL(def, strWriter);
+
+    Types types = def.getTypes();
+
+    if (types != null)
+    {
+      List extElements = types.getExtensibilityElements();
+
+      for (int i = 0; i < extElements.size(); i++)
+      {
+        if (extElements.get(i) instanceof Schema)
+        {
+          describeReferences((Schema)extElements.get(i), strWriter, visited);
+        }
+      }
+    }
+
+    Iterator importListIterator = def.getImports().values().iterator();
+
+    while (importListIterator.hasNext())
+    {
+      List imports = (List)importListIterator.next();
+
+      for (int i = 0; i < imports.size(); i++)
+      {
+        describe(((Import)imports.get(i)).getDefinition(),
+                 writer,
+                 strWriter,
+                 visited);
+      }
+    }
+  }
+
+  private static void describeReferences(Schema schema,
+                                         StringWriter strWriter,
+                                         Map visited)
+  {
+    List schemaRefs = new ArrayList();
+    Iterator importListIterator = schema.getImports().values().iterator();
+
+    while (importListIterator.hasNext())
+    {
+      schemaRefs.addAll((List)importListIterator.next());
+    }
+
+    schemaRefs.addAll(schema.getIncludes());
+    schemaRefs.addAll(schema.getRedefines());
+
+    for (int i = 0; i < schemaRefs.size(); i++)
+    {
+      SchemaReference schemaRef = (SchemaReference)schemaRefs.get(i);
+      Schema referencedSchema = schemaRef.getReferencedSchema();
+
+      strWriter.write("\n--> " + schemaRef.getSchemaLocationURI() + "\n");
+
+      if (referencedSchema != null && visited.put(referencedSchema,
+                                                  referencedSchema) == null)
+      {
+        strWriter.write("\n--- " + referencedSchema.getDocumentBaseURI() +
+                        "\n");
+        DOM2Writer.serializeAsXML(referencedSchema.getElement(), strWriter);
+        describeReferences(referencedSchema, strWriter, visited);
+      }
+    }
+  }
+
+  public static void main(String[] argv) throws Exception
+  {
+    int threads = Runtime.getRuntime().availableProcessors() * 2;
+    long seconds = 10;
+    List sharings = new ArrayList();
+    List factories = new ArrayList();
+    List uris = new ArrayList();
+
+    for (int i = 0; i < argv.length; i++)
+    {
+      if (argv[i].equals("-threads") && i + 1 < argv.length)
+      {
+        threads = Integer.parseInt(argv[++i]);
+      }
+      else if (argv[i].equals("-seconds") && i + 1 < argv.length)
+      {
+        seconds = Long.parseLong(argv[++i]);
+      }
+      else if (argv[i].equals("-sharing") && i + 1 < argv.length)
+      {
+        sharings.add(argv[++i]);
+      }
+      else if (argv[i].equals("-factory") && i + 1 < argv.length)
+      {
+        factories.add(argv[++i]);
+      }
+      else if (argv[i].startsWith("-"))
+      {
+        System.err.println("Usage:");
+        System.err.println();
+        System.err.println("  java " + ReadStress.class.getName() +
+                           " [-threads n] [-seconds n]" +
+                           " [-sharing none|factory|reader]..." +
+                           " [-factory className]... [filename|URL]...");
+        System.exit(2);
+      }
+      else
+      {
+        uris.add(new File(argv[i]).exists()
+                 ? new File(argv[i]).toURI().toString()
+                 : argv[i]);
+      }
+    }
+
+    if (sharings.isEmpty())
+    {
+      sharings.addAll(Arrays.asList(SHARINGS));
+    }
+
+    if (factories.isEmpty())
+    {
+      factories.addAll(Arrays.asList(DEFAULT_FACTORIES));
+    }
+
+    if (uris.isEmpty())
+    {
+      for (int i = 0; i < DEFAULT_DOCUMENTS.length; i++)
+      {
+        uris.add(Documents.getURI(DEFAULT_DOCUMENTS[i]));
+      }
+
+      CorpusGenerator generator = new CorpusGenerator();
+      File dir = File.createTempFile("wsdl4j-stress", "");
+
+      dir.delete();
+      generator.setImportDepth(3);
+      generator.setImportFanOut(3);
+      generator.setDiamondImports(true);
+      generator.setCyclicImports(true);
+      generator.setSchemaDocuments(20);
+      generator.setIncludeChain(2);
+      generator.setRedefineChain(2);
+      generator.setBindings(CorpusGenerator.ALL_BINDINGS);
+      uris.add(generator.generate(dir).toURI().toString());
+
+      File[] files = dir.listFiles();
+
+      dir.deleteOnExit();
+
+      for (int i = 0; i < files.length; i++)
+      {
+        files[i].deleteOnExit();
+      }
+    }
+
+    boolean passed = true;
+
+    for (int i = 0; i < factories.size(); i++)
+    {
+      for (int j = 0; j < sharings.size(); j++)
+      {
+        ReadStress stress =
+          new ReadStress((String)factories.get(i),
+                         (String)sharings.get(j),
+                         (String[])uris.toArray(new String[uris.size()]));
+        boolean ok = stress.run(threads, seconds * 1000);
+
+        System.out.println(factories.get(i) + ", sharing=" + sharings.get(j) +
+                           ", threads=" + threads + ": " +
+                           stress.getReads() + " reads, " +
+                           stress.getMismatches() + " mismatches, " +
+                           stress.getErrors() + " errors" +
+                           (ok ? "" : " - FAILED"));
+        passed &= ok;
+      }
+    }
+
+    System.exit(passed ? 0 : 1);
+  }
+}
@@ -0,0 +1,145 @@
+/*
+ * (c) Copyright IBM Corp 2006
+ */
+
+package com.ibm.wsdl.benchmarks;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import javax.wsdl.Definition;
+import javax.wsdl.xml.WSDLReader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how reading scales along each of the dimensions of the
+ * documents CorpusGenerator writes. For each dimension, the average
+ * time to read is reported at scales 1, 2, 4 and 8, with everything
+ * else kept small, so that reading time growing faster than the scale
+ * shows up as a curve rather than a line:
+ * <ul>
+ * <li>operations - 250 operations per scale, and as many messages</li>
+ * <li>messages - 500 messages per scale</li>
+ * <li>overloads - 100 operations with a scale of overloads each</li>
+ * <li>namespaces - 5 inline schemas per scale</li>
+ * <li>importDepth - a tree of imports, two wide and scale deep</li>
+ * <li>importFanOut - a tree of imports, two deep and 2 * scale wide,
+ * with diamonds</li>
+ * <li>schemaDocuments - 25 schema documents per scale, each including
+ * and redefining a chain of two more</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ScalingBenchmark
+{
+  @Param({"operations",
+          "messages",
+          "overloads",
+          "namespaces",
+          "importDepth",
+          "importFanOut",
+          "schemaDocuments"})
+  public String dimension;
+
+  @Param({"1", "2", "4", "8"})
+  public int scale;
+
+  @Param({"com.ibm.wsdl.factory.WSDLFactoryImpl"})
+  public String factoryImplName;
+
+  private File dir;
+  private String uri;
+  private WSDLReader reader;
+
+  @Setup
+  public void setUp() throws Exception
+  {
+    CorpusGenerator generator = new CorpusGenerator();
+
+    generator.setOperations(10);
+    generator.setMessages(10);
+    generator.setBindings(CorpusGenerator.BINDING_SOAP |
+                          CorpusGenerator.BINDING_SOAP12);
+
+    if (dimension.equals("operations"))
+    {
+      generator.setOperations(250 * scale);
+      generator.setMessages(250 * scale);
+    }
+    else if (dimension.equals("messages"))
+    {
+      generator.setMessages(500 * scale);
+    }
+    else if (dimension.equals("overloads"))
+    {
+      generator.setOperations(100);
+      generator.setOverloads(scale);
+    }
+    else if (dimension.equals("namespaces"))
+    {
+      generator.setNamespaces(5 * scale);
+    }
+    else if (dimension.equals("importDepth"))
+    {
+      generator.setImportDepth(scale);
+    }
+    else if (dimension.equals("importFanOut"))
+    {
+      generator.setImportDepth(2);
+      generator.setImportFanOut(2 * scale);
+      generator.setDiamondImports(true);
+    }
+    else if (dimension.equals("schemaDocuments"))
+    {
+      generator.setSchemaDocuments(25 * scale);
+      generator.setIncludeChain(2);
+      generator.setRedefineChain(2);
+    }
+    else
+    {
+      throw new IllegalArgumentException("Unknown dimension '" + dimension +
+                                         "'.");
+    }
+
+    dir = File.createTempFile("wsdl4j-scaling", "");
+    dir.delete();
+    uri = generator.generate(dir).toURI().toString();
+    reader = ReadBenchmark.newReader(factoryImplName);
+  }
+
+  @TearDown
+  public void tearDown()
+  {
+    File[] files = dir.listFiles();
+
+    for (int i = 0; files != null && i < files.length; i++)
+    {
+      files[i].delete();
+    }
+
+    dir.delete();
+  }
+
+  @Benchmark
+  public Definition read() throws Exception
+  {
+    return reader.readWSDL(uri);
+  }
+}
@@ -0,0 +1,210 @@
+/*
+ * (c) Copyright IBM Corp 2006
+ */
+
+package com.ibm.wsdl.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.TimeUnit;
+
+import javax.wsdl.Definition;
+import javax.wsdl.factory.WSDLFactory;
+import javax.wsdl.xml.WSDLReader;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+
+import com.ibm.wsdl.util.xml.DOM2Writer;
+import com.ibm.wsdl.xml.WSDLWriterImpl;
+
+/**
+ * Measures writing definitions: WSDLWriter.writeWSDL(...) to Writer,
+ * OutputStream and channel sinks, WSDLWriter.getDocument(...) on its
+ * own, DOM2Writer serializing the document that returns, and reading
+ * back what was written.
+ * <p>
+ * The documents include ones made mostly of inline schemas, which are
+ * written by DOM2Writer, and ones made mostly of operations and
+ * bindings, which are written by the WSDL writer and the SOAP, SOAP
+ * 1.2, HTTP and MIME extension serializers. The sinks discard what they
+ * are given, so only the writing is measured; the bytes (or, for
+ * Writer sinks, chars) they are given are reported as a rate next to
+ * the throughput, and the gc profiler reports the allocations per
+ * write.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(2)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class WriteBenchmark
+{
+  @Param({"AddressBook.wsdl",
+          "SOAP12Test.wsdl",
+          "schemas/TravelCo.wsdl",
+          Documents.SYNTHETIC_INLINE_SCHEMAS,
+          Documents.SYNTHETIC_LARGE,
+          Documents.SYNTHETIC_BINDINGS})
+  public String document;
+
+  private String uri;
+  private Definition def;
+  private Document doc;
+  private WSDLReader reader;
+  private WSDLWriterImpl writer;
+
+  @Setup
+  public void setUp() throws Exception
+  {
+    WSDLFactory factory = WSDLFactory.newInstance();
+
+    uri = Documents.getURI(document);
+    reader = factory.newWSDLReader();
+    reader.setFeature("javax.wsdl.verbose", false);
+    def = reader.readWSDL(uri);
+    writer = (WSDLWriterImpl)factory.newWSDLWriter();
+    doc = writer.getDocument(def);
+  }
+
+  @Benchmark
+  public void writeToWriter(Output output) throws Exception
+  {
+    writer.writeWSDL(def, output.writer);
+  }
+
+  @Benchmark
+  public void writeToOutputStream(Output output) throws Exception
+  {
+    writer.writeWSDL(def, output.outputStream);
+  }
+
+  @Benchmark
+  public void writeToChannel(Output output) throws Exception
+  {
+    writer.writeWSDL(def, output.channel);
+  }
+
+  @Benchmark
+  public Document getDocument() throws Exception
+  {
+    return writer.getDocument(def);
+  }
+
+  @Benchmark
+  public void serializeDocument(Output output) throws Exception
+  {
+    DOM2Writer.serializeAsXML(doc, output.writer);
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public Definition roundTrip() throws Exception
+  {
+    Definition def = reader.readWSDL(uri);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+    writer.writeWSDL(def, bytes);
+
+    // The base URI lets imports be resolved as they were the first time.
+    return reader.readWSDL(uri,
+      new InputSource(new ByteArrayInputStream(bytes.toByteArray())));
+  }
+
+  /**
+   * Sinks that count what they are given, and throw it away. JMH reports
+   * the count as a rate.
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  public static class Output
+  {
+    public long bytes;
+
+    final Writer writer = new Writer()
+      {
+        public void write(int c)
+        {
+          bytes++;
+        }
+
+        public void write(char[] cbuf, int off, int len)
+        {
+          bytes += len;
+        }
+
+        public void write(String str, int off, int len)
+        {
+          bytes += len;
+        }
+
+        public void flush()
+        {
+        }
+
+        public void close()
+        {
+        }
+      };
+
+    final OutputStream outputStream = new OutputStream()
+      {
+        public void write(int b)
+        {
+          bytes++;
+        }
+
+        public void write(byte[] b, int off, int len)
+        {
+          bytes += len;
+        }
+      };
+
+    final WritableByteChannel channel = new WritableByteChannel()
+      {
+        public int write(ByteBuffer src)
+        {
+          int len = src.remaining();
+
+          src.position(src.limit());
+          bytes += len;
+
+          return len;
+        }
+
+        public boolean isOpen()
+        {
+          return true;
+        }
+
+        public void close()
+        {
+        }
+      };
+
+    @Setup(Level.Iteration)
+    public void reset()
+    {
+      bytes = 0;
+    }
+  }
+}
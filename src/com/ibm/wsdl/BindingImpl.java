@@ -4,6 +4,8 @@
 
 package com.ibm.wsdl;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.util.*;
 
 import javax.wsdl.*;
@@ -21,7 +23,7 @@ public class BindingImpl extends AbstractWSDLElement implements Binding
 {
   protected QName name = null;
   protected PortType portType = null;
-  protected List bindingOperations = new Vector();
+  protected List bindingOperations = new OperationList();
   protected List nativeAttributeNames =
     Arrays.asList(Constants.BINDING_ATTR_NAMES);
   protected boolean isUndefined = true;
@@ -117,7 +119,12 @@ public class BindingImpl extends AbstractWSDLElement implements Binding
   {
     boolean found = false;
     BindingOperation ret = null;
-    Iterator opBindingIterator = bindingOperations.iterator();
+    List candidates = (bindingOperations instanceof OperationList)
+                      ? ((OperationList)bindingOperations).getCandidates(name)
+                      : bindingOperations;
+    Iterator opBindingIterator = candidates.iterator();
+    boolean haveOpStyle = false;
+    OperationType opStyle = null;
 
     while (opBindingIterator.hasNext())
     {
@@ -136,34 +143,31 @@ public class BindingImpl extends AbstractWSDLElement implements Binding
         op = null;
       }
 
-      if (op != null && inputName != null)
+      if (op != null && (inputName != null || outputName != null))
       {
-        PortType pt = getPortType();
-        OperationType opStyle = null;
-
-        if (pt != null)
+        // The port type operation is the same for every candidate.
+        if (!haveOpStyle)
         {
-          Operation tempOp = pt.getOperation(name, inputName, outputName);
+          PortType pt = getPortType();
 
-          if (tempOp != null)
+          if (pt != null)
           {
-            opStyle = tempOp.getStyle();
-          }
-        }
+            Operation tempOp = pt.getOperation(name, inputName, outputName);
 
-        String defaultInputName = opName;
+            if (tempOp != null)
+            {
+              opStyle = tempOp.getStyle();
+            }
+          }
 
-        if (opStyle == OperationType.REQUEST_RESPONSE)
-        {
-          defaultInputName = opName + "Request";
-        }
-        else if (opStyle == OperationType.SOLICIT_RESPONSE)
-        {
-          defaultInputName = opName + "Solicit";
+          haveOpStyle = true;
         }
+      }
 
-        boolean specifiedDefault = inputName.equals(defaultInputName);
-        
+      if (op != null && inputName != null)
+      {
+        boolean specifiedDefault =
+          OperationList.isDefaultInputName(inputName, opName, opStyle);
         BindingInput input = op.getBindingInput();
 
         if (input != null)
@@ -190,29 +194,8 @@ public class BindingImpl extends AbstractWSDLElement implements Binding
 
       if (op != null && outputName != null)
       {
-        PortType pt = getPortType();
-        OperationType opStyle = null;
-
-        if (pt != null)
-        {
-          Operation tempOp = pt.getOperation(name, inputName, outputName);
-
-          if (tempOp != null)
-          {
-            opStyle = tempOp.getStyle();
-          }
-        }
-
-        String defaultOutputName = opName;
-
-        if (opStyle == OperationType.REQUEST_RESPONSE
-            || opStyle == OperationType.SOLICIT_RESPONSE)
-        {
-          defaultOutputName = opName + "Response";
-        }
-
-        boolean specifiedDefault = outputName.equals(defaultOutputName);
-        
+        boolean specifiedDefault =
+          OperationList.isDefaultOutputName(outputName, opName, opStyle);
         BindingOutput output = op.getBindingOutput();
 
         if (output != null)
@@ -360,4 +343,22 @@ public class BindingImpl extends AbstractWSDLElement implements Binding
   {
     return nativeAttributeNames;
   }
+
+  /*
+    The list is serialized as a Vector, as it was before it was grouped
+    by name, so turn it back into an OperationList.
+  */
+  private void readObject(ObjectInputStream in)
+    throws IOException, ClassNotFoundException
+  {
+    in.defaultReadObject();
+
+    if (bindingOperations != null && !(bindingOperations instanceof OperationList))
+    {
+      List list = new OperationList();
+
+      list.addAll(bindingOperations);
+      bindingOperations = list;
+    }
+  }
 }
@@ -132,6 +132,20 @@ public class Constants
     "javax.wsdl.importDocuments";
   public static final String FEATURE_PARSE_SCHEMA =
       "com.ibm.wsdl.parseXMLSchemas";
+  public static final String FEATURE_POOL_DOCUMENT_BUILDERS =
+      "com.ibm.wsdl.poolDocumentBuilders";
+  public static final String FEATURE_PARALLEL_IMPORTS =
+      "com.ibm.wsdl.parallelImports";
+  public static final String FEATURE_PARALLEL_SCHEMAS =
+      "com.ibm.wsdl.parallelSchemas";
+  public static final String FEATURE_LAZY_SCHEMAS =
+      "com.ibm.wsdl.lazySchemas";
+  public static final String FEATURE_PRETTY_PRINT =
+      "com.ibm.wsdl.prettyPrint";
+  public static final String FEATURE_LINE_NUMBERS =
+      "com.ibm.wsdl.lineNumbers";
+  public static final String FEATURE_INTERN_QNAMES =
+      "com.ibm.wsdl.internQNames";
 
   // Other
   public static final String NONE = ":none";
@@ -4,12 +4,16 @@
 
 package com.ibm.wsdl;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.util.*;
 
 import javax.wsdl.*;
 import javax.wsdl.extensions.*;
 import javax.xml.namespace.*;
 
+import com.ibm.wsdl.util.FootprintEstimator;
+
 /**
  * This class represents a WSDL definition.
  *
@@ -22,17 +26,19 @@ public class DefinitionImpl extends AbstractWSDLElement implements Definition
   protected String documentBaseURI = null;
   protected QName name = null;
   protected String targetNamespace = null;
-  protected Map namespaces = new HashMap();
-  protected Map imports = new HashMap();
+  protected Map namespaces = new NamespaceMap();
+  protected Map imports = new TrackedMap();
   protected Types types = null;
-  protected Map messages = new HashMap();
-  protected Map bindings = new HashMap();
-  protected Map portTypes = new HashMap();
-  protected Map services = new HashMap();
+  protected Map messages = new TrackedMap();
+  protected Map bindings = new TrackedMap();
+  protected Map portTypes = new TrackedMap();
+  protected Map services = new TrackedMap();
   protected List nativeAttributeNames =
     Arrays.asList(Constants.DEFINITION_ATTR_NAMES);
   protected ExtensionRegistry extReg = null;
 
+  private transient volatile ImportIndex importIndex = null;
+
   public static final long serialVersionUID = 1;
 
   /**
@@ -165,7 +171,8 @@ public class DefinitionImpl extends AbstractWSDLElement implements Definition
    /**
     * Get a prefix associated with this namespace URI. Or null if
     * there are no prefixes associated with this namespace URI. This is
-    * unrelated to the &lt;wsdl:import&gt; element.
+    * unrelated to the &lt;wsdl:import&gt; element. If there are several
+    * prefixes, the one that was associated first is returned.
     *
     * @see #addNamespace(String, String)
     * @see #getNamespace(String)
@@ -177,6 +184,11 @@ public class DefinitionImpl extends AbstractWSDLElement implements Definition
        return null;
      }
 
+     if (namespaces instanceof NamespaceMap)
+     {
+       return ((NamespaceMap)namespaces).getPrefix(namespaceURI);
+     }
+
      Iterator entryIterator = namespaces.entrySet().iterator();
 
      while (entryIterator.hasNext())
@@ -658,8 +670,32 @@ public class DefinitionImpl extends AbstractWSDLElement implements Definition
     return extReg;
   }
 
+  /*
+    Get the index of the definitions reachable through the imports, or
+    null if they can't all be indexed.
+  */
+  private ImportIndex getImportIndex()
+  {
+    ImportIndex index = importIndex;
+
+    if (index == null || !index.isCurrent())
+    {
+      index = ImportIndex.build(this);
+      importIndex = index;
+    }
+
+    return index;
+  }
+
   private Object getFromImports(String typeOfDefinition, QName name)
   {
+    ImportIndex index = getImportIndex();
+
+    if (index != null)
+    {
+      return index.getFromImports(typeOfDefinition, name);
+    }
+
     Object ret = null;
     List importList = getImports(name.getNamespaceURI());
 
@@ -713,6 +749,36 @@ public class DefinitionImpl extends AbstractWSDLElement implements Definition
     return ret;
   }
 
+  /*
+    The maps are serialized as HashMaps, as they were before they were
+    tracked, so turn them back into the kinds that keep indexes.
+  */
+  private void readObject(ObjectInputStream in)
+    throws IOException, ClassNotFoundException
+  {
+    in.defaultReadObject();
+
+    namespaces = TrackedMap.restore(namespaces, new NamespaceMap());
+    imports = TrackedMap.restore(imports, new TrackedMap());
+    messages = TrackedMap.restore(messages, new TrackedMap());
+    bindings = TrackedMap.restore(bindings, new TrackedMap());
+    portTypes = TrackedMap.restore(portTypes, new TrackedMap());
+    services = TrackedMap.restore(services, new TrackedMap());
+  }
+
+  /**
+   * Estimate the number of bytes of heap retained by this definition,
+   * including the definitions it imports, the schemas they reference,
+   * and the DOM documents that any of them keep elements of.
+   *
+   * @return the estimated size in bytes
+   * @see FootprintEstimator
+   */
+  public long estimateRetainedSize()
+  {
+    return FootprintEstimator.estimate(this);
+  }
+
   public String toString()
   {
     StringBuffer strBuf = new StringBuffer();
@@ -802,6 +868,13 @@ public class DefinitionImpl extends AbstractWSDLElement implements Definition
    */
   public Map getAllBindings()
   {
+    ImportIndex index = getImportIndex();
+
+    if (index != null)
+    {
+      return new HashMap(index.getAll(Constants.ELEM_BINDING));
+    }
+
     Map allBindings = new HashMap(getBindings());
     Map importMap = getImports();
     Iterator mapItr = importMap.values().iterator();
@@ -829,6 +902,13 @@ public class DefinitionImpl extends AbstractWSDLElement implements Definition
    */
   public Map getAllPortTypes()
   {
+    ImportIndex index = getImportIndex();
+
+    if (index != null)
+    {
+      return new HashMap(index.getAll(Constants.ELEM_PORT_TYPE));
+    }
+
     Map allPortTypes = new HashMap(getPortTypes());
     Map importMap = getImports();
     Iterator mapItr = importMap.values().iterator();
@@ -856,6 +936,13 @@ public class DefinitionImpl extends AbstractWSDLElement implements Definition
    */
   public Map getAllServices()
   {
+    ImportIndex index = getImportIndex();
+
+    if (index != null)
+    {
+      return new HashMap(index.getAll(Constants.ELEM_SERVICE));
+    }
+
     Map allServices = new HashMap(getServices());
     Map importMap = getImports();
     Iterator mapItr = importMap.values().iterator();
@@ -0,0 +1,433 @@
+/*
+ * (c) Copyright IBM Corp 2006
+ */
+
+package com.ibm.wsdl;
+
+import java.util.*;
+import javax.wsdl.*;
+import javax.xml.namespace.*;
+
+/**
+ * The definitions reachable through the imports of a definition, and
+ * what they contain, so that DefinitionImpl.getAllBindings() and the
+ * other getAllXXX() methods, and the lookups of getMessage() and the
+ * other getXXX(QName) methods that fall back to imported definitions,
+ * don't have to walk the imports again each time.
+ * <p>
+ * Each reachable definition is visited once, even if it is imported
+ * through several paths, or through a cycle. The index records the
+ * state of the import graph when it was built, and isCurrent() compares
+ * it with the current state, so changes made to any of the definitions
+ * after that, including through the maps and lists they return, are
+ * seen. This requires every reachable definition to be a DefinitionImpl
+ * whose maps are TrackedMaps; if not, build() returns null.
+ *
+ * @see DefinitionImpl
+ */
+class ImportIndex
+{
+  private static final String[] ELEMENT_TYPES =
+  {
+    Constants.ELEM_MESSAGE,
+    Constants.ELEM_BINDING,
+    Constants.ELEM_PORT_TYPE,
+    Constants.ELEM_SERVICE
+  };
+
+  // The reachable definitions in preorder, starting with the root.
+  private final DefinitionImpl[] defs;
+
+  // The same definitions, in the order getAll() merges their elements.
+  private final DefinitionImpl[] mergeOrder;
+  private final int[] elementModCounts;
+  private final int[] importsModCounts;
+
+  // The lists of imports of all the definitions, and their contents.
+  private final List[] importLists;
+  private final int[] importListSizes;
+  private final Import[] imports;
+  private final Definition[] importedDefs;
+
+  private final Map namespaceIndexes = new HashMap();
+  private Map[] allElements = null;
+  private int allElementsModCount = 0;
+
+  private ImportIndex(List defList, List importListList, List importList)
+  {
+    int defCount = defList.size();
+
+    defs = (DefinitionImpl[])defList.toArray(new DefinitionImpl[defCount]);
+    mergeOrder = new DefinitionImpl[defCount];
+
+    List postorder = new ArrayList(defCount);
+
+    visitInMergeOrder(defs[0], new HashSet(), postorder);
+
+    for (int i = 0; i < defCount; i++)
+    {
+      mergeOrder[i] = (DefinitionImpl)postorder.get(defCount - 1 - i);
+    }
+
+    elementModCounts = new int[defCount];
+    importsModCounts = new int[defCount];
+
+    for (int i = 0; i < defCount; i++)
+    {
+      elementModCounts[i] = getElementModCount(defs[i]);
+      importsModCounts[i] = ((TrackedMap)defs[i].imports).getModCount();
+    }
+
+    importLists = (List[])importListList.toArray(new List[0]);
+    importListSizes = new int[importLists.length];
+
+    for (int i = 0; i < importLists.length; i++)
+    {
+      importListSizes[i] = importLists[i].size();
+    }
+
+    imports = (Import[])importList.toArray(new Import[importList.size()]);
+    importedDefs = new Definition[imports.length];
+
+    for (int i = 0; i < imports.length; i++)
+    {
+      importedDefs[i] = (imports[i] != null)
+                        ? imports[i].getDefinition()
+                        : null;
+    }
+  }
+
+  /**
+   * Index the definitions reachable from the specified one.
+   *
+   * @return the index, or null if some of the definitions can't be
+   * tracked
+   */
+  static ImportIndex build(DefinitionImpl root)
+  {
+    List defList = new ArrayList();
+    List importListList = new ArrayList();
+    List importList = new ArrayList();
+
+    if (!visit(root, new HashSet(), defList, importListList, importList))
+    {
+      return null;
+    }
+
+    return new ImportIndex(defList, importListList, importList);
+  }
+
+  private static boolean visit(Definition def,
+                               Set visited,
+                               List defList,
+                               List importListList,
+                               List importList)
+  {
+    if (!visited.add(def))
+    {
+      return true;
+    }
+
+    if (!isTracked(def))
+    {
+      return false;
+    }
+
+    defList.add(def);
+
+    Iterator importListIterator =
+      ((DefinitionImpl)def).imports.values().iterator();
+
+    while (importListIterator.hasNext())
+    {
+      List importDefs = (List)importListIterator.next();
+
+      importListList.add(importDefs);
+
+      // Record the whole list before visiting what it imports.
+      for (int i = 0; i < importDefs.size(); i++)
+      {
+        importList.add(importDefs.get(i));
+      }
+
+      for (int i = 0; i < importDefs.size(); i++)
+      {
+        Import importDef = (Import)importDefs.get(i);
+        Definition importedDef =
+          (importDef != null) ? importDef.getDefinition() : null;
+
+        if (importedDef != null
+            && !visit(importedDef,
+                      visited,
+                      defList,
+                      importListList,
+                      importList))
+        {
+          return false;
+        }
+      }
+    }
+
+    return true;
+  }
+
+  /*
+    getAllXXX() used to merge the elements of a definition with those of
+    each of its imports in turn, recursively, the last one merged winning.
+    A definition imported through several paths was merged each time, so
+    it is the last time that counts. Taking the imports in reverse order,
+    the definitions end up in reverse of that order here, each once.
+  */
+  private static void visitInMergeOrder(DefinitionImpl def,
+                                        Set visited,
+                                        List postorder)
+  {
+    if (!visited.add(def))
+    {
+      return;
+    }
+
+    List importLists = new ArrayList(def.imports.values());
+
+    for (int i = importLists.size() - 1; i >= 0; i--)
+    {
+      List importDefs = (List)importLists.get(i);
+
+      for (int j = importDefs.size() - 1; j >= 0; j--)
+      {
+        Import importDef = (Import)importDefs.get(j);
+        Definition importedDef =
+          (importDef != null) ? importDef.getDefinition() : null;
+
+        if (importedDef != null)
+        {
+          visitInMergeOrder((DefinitionImpl)importedDef, visited, postorder);
+        }
+      }
+    }
+
+    postorder.add(def);
+  }
+
+  private static boolean isTracked(Definition def)
+  {
+    if (!(def instanceof DefinitionImpl))
+    {
+      return false;
+    }
+
+    DefinitionImpl defImpl = (DefinitionImpl)def;
+
+    return defImpl.imports instanceof TrackedMap
+           && defImpl.messages instanceof TrackedMap
+           && defImpl.bindings instanceof TrackedMap
+           && defImpl.portTypes instanceof TrackedMap
+           && defImpl.services instanceof TrackedMap;
+  }
+
+  private static int getElementModCount(DefinitionImpl def)
+  {
+    return ((TrackedMap)def.messages).getModCount()
+           + ((TrackedMap)def.bindings).getModCount()
+           + ((TrackedMap)def.portTypes).getModCount()
+           + ((TrackedMap)def.services).getModCount();
+  }
+
+  private static Map getElements(DefinitionImpl def, int type)
+  {
+    switch (type)
+    {
+      case 0 :
+        return def.messages;
+      case 1 :
+        return def.bindings;
+      case 2 :
+        return def.portTypes;
+      default :
+        return def.services;
+    }
+  }
+
+  private static int getType(String typeOfDefinition)
+  {
+    for (int i = 0; i < ELEMENT_TYPES.length; i++)
+    {
+      if (ELEMENT_TYPES[i] == typeOfDefinition)
+      {
+        return i;
+      }
+    }
+
+    throw new IllegalArgumentException("Unknown element type '" +
+                                       typeOfDefinition + "'.");
+  }
+
+  /**
+   * Check whether the import graph is still the same as when this index
+   * was built. Changes to the elements of the root definition itself
+   * don't matter here.
+   */
+  boolean isCurrent()
+  {
+    if (!isTracked(defs[0]))
+    {
+      return false;
+    }
+
+    for (int i = 0; i < defs.length; i++)
+    {
+      if (((TrackedMap)defs[i].imports).getModCount() != importsModCounts[i]
+          || (i > 0 && getElementModCount(defs[i]) != elementModCounts[i]))
+      {
+        return false;
+      }
+    }
+
+    int importIndex = 0;
+
+    for (int i = 0; i < importLists.length; i++)
+    {
+      List importDefs = importLists[i];
+
+      if (importDefs.size() != importListSizes[i])
+      {
+        return false;
+      }
+
+      for (int j = 0; j < importListSizes[i]; j++, importIndex++)
+      {
+        Import importDef = (Import)importDefs.get(j);
+
+        if (importDef != imports[importIndex]
+            || (importDef != null
+                && importDef.getDefinition() != importedDefs[importIndex]))
+        {
+          return false;
+        }
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Find the specified element in the definitions imported, directly or
+   * indirectly, using the namespace of its name, the same way
+   * getMessage() and the others do.
+   *
+   * @param typeOfDefinition one of Constants.ELEM_MESSAGE,
+   * ELEM_BINDING, ELEM_PORT_TYPE or ELEM_SERVICE
+   */
+  synchronized Object getFromImports(String typeOfDefinition, QName name)
+  {
+    String namespaceURI = name.getNamespaceURI();
+    Map[] elements = (Map[])namespaceIndexes.get(namespaceURI);
+
+    if (elements == null)
+    {
+      elements = newMaps();
+
+      Set visited = new HashSet();
+
+      visited.add(defs[0]);
+      indexNamespace(defs[0], namespaceURI, visited, elements);
+      namespaceIndexes.put(namespaceURI, elements);
+    }
+
+    return elements[getType(typeOfDefinition)].get(name);
+  }
+
+  /*
+    The first definition found, in the order they are searched, wins.
+  */
+  private static void indexNamespace(DefinitionImpl def,
+                                     String namespaceURI,
+                                     Set visited,
+                                     Map[] elements)
+  {
+    List importDefs = (List)def.imports.get(namespaceURI);
+
+    if (importDefs == null)
+    {
+      return;
+    }
+
+    for (int i = 0; i < importDefs.size(); i++)
+    {
+      Import importDef = (Import)importDefs.get(i);
+      DefinitionImpl importedDef = (importDef != null)
+                                   ? (DefinitionImpl)importDef.getDefinition()
+                                   : null;
+
+      if (importedDef != null && visited.add(importedDef))
+      {
+        for (int type = 0; type < elements.length; type++)
+        {
+          Iterator entryIterator =
+            getElements(importedDef, type).entrySet().iterator();
+
+          while (entryIterator.hasNext())
+          {
+            Map.Entry entry = (Map.Entry)entryIterator.next();
+
+            if (!elements[type].containsKey(entry.getKey()))
+            {
+              elements[type].put(entry.getKey(), entry.getValue());
+            }
+          }
+        }
+
+        indexNamespace(importedDef, namespaceURI, visited, elements);
+      }
+    }
+  }
+
+  /**
+   * Get the elements of the specified type in all the reachable
+   * definitions. If several have elements with the same name, the one
+   * that wins is the same as when getAllXXX() merged the results of each
+   * import. The getAllXXX() methods return copies, as callers may change
+   * what they are given.
+   *
+   * @return an unmodifiable map
+   */
+  synchronized Map getAll(String typeOfDefinition)
+  {
+    int modCount = getElementModCount(defs[0]);
+
+    if (allElements == null || allElementsModCount != modCount)
+    {
+      Map[] elements = newMaps();
+
+      for (int i = 0; i < mergeOrder.length; i++)
+      {
+        for (int type = 0; type < elements.length; type++)
+        {
+          elements[type].putAll(getElements(mergeOrder[i], type));
+        }
+      }
+
+      for (int type = 0; type < elements.length; type++)
+      {
+        elements[type] = Collections.unmodifiableMap(elements[type]);
+      }
+
+      allElements = elements;
+      allElementsModCount = modCount;
+    }
+
+    return allElements[getType(typeOfDefinition)];
+  }
+
+  private static Map[] newMaps()
+  {
+    Map[] maps = new Map[ELEMENT_TYPES.length];
+
+    for (int i = 0; i < maps.length; i++)
+    {
+      maps[i] = new HashMap();
+    }
+
+    return maps;
+  }
+}
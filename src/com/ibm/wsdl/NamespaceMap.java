@@ -0,0 +1,70 @@
+/*
+ * (c) Copyright IBM Corp 2006
+ */
+
+package com.ibm.wsdl;
+
+import java.util.*;
+
+/**
+ * The prefix to namespace URI map of a definition, which also keeps the
+ * prefixes of each namespace URI, so that DefinitionImpl.getPrefix() and
+ * containsValue() don't have to search the whole map. If a namespace URI
+ * has several prefixes, the one registered first is returned.
+ * <p>
+ * All changes, including those made through the views, go through this
+ * map, so the definition can keep returning it from getNamespaces().
+ *
+ * @see DefinitionImpl#getPrefix(String)
+ */
+class NamespaceMap extends TrackedMap
+{
+  public static final long serialVersionUID = 1;
+
+  // The namespace URIs, mapped to Lists of prefixes in registration order.
+  private final Map prefixes = new HashMap();
+
+  /**
+   * Get the first registered prefix associated with this namespace URI,
+   * or null if there isn't one.
+   */
+  String getPrefix(Object namespaceURI)
+  {
+    List prefixList = (List)prefixes.get(namespaceURI);
+
+    return (prefixList != null) ? (String)prefixList.get(0) : null;
+  }
+
+  public boolean containsValue(Object value)
+  {
+    return prefixes.containsKey(value);
+  }
+
+  protected void entryAdded(Object prefix, Object namespaceURI)
+  {
+    List prefixList = (List)prefixes.get(namespaceURI);
+
+    if (prefixList == null)
+    {
+      prefixList = new ArrayList(1);
+      prefixes.put(namespaceURI, prefixList);
+    }
+
+    prefixList.add(prefix);
+  }
+
+  protected void entryRemoved(Object prefix, Object namespaceURI)
+  {
+    List prefixList = (List)prefixes.get(namespaceURI);
+
+    if (prefixList != null)
+    {
+      prefixList.remove(prefix);
+
+      if (prefixList.isEmpty())
+      {
+        prefixes.remove(namespaceURI);
+      }
+    }
+  }
+}
@@ -29,6 +29,12 @@ public class OperationImpl extends AbstractWSDLElement implements Operation
     Arrays.asList(Constants.OPERATION_ATTR_NAMES);
   protected boolean isUndefined = true;
 
+  /*
+    The OperationLists that have grouped this by name, which need to know
+    about renames. Only replaced while holding this object's lock.
+  */
+  private transient volatile OperationList[] indexedBy = null;
+
   public static final long serialVersionUID = 1;
 
   /**
@@ -38,7 +44,28 @@ public class OperationImpl extends AbstractWSDLElement implements Operation
    */
   public void setName(String name)
   {
+    OperationList[] lists = indexedBy;
+    boolean renamed = lists != null
+                      && (name != null
+                          ? !name.equals(this.name)
+                          : this.name != null);
+
     this.name = name;
+
+    if (renamed)
+    {
+      OperationList.operationRenamed(lists);
+    }
+  }
+
+  synchronized void addIndexedBy(OperationList list)
+  {
+    indexedBy = OperationList.addList(indexedBy, list);
+  }
+
+  synchronized void removeIndexedBy(OperationList list)
+  {
+    indexedBy = OperationList.removeList(indexedBy, list);
   }
 
   /**
@@ -0,0 +1,370 @@
+/*
+ * (c) Copyright IBM Corp 2006
+ */
+
+package com.ibm.wsdl;
+
+import java.io.*;
+import java.util.*;
+import javax.wsdl.*;
+
+/**
+ * The list of operations of a port type, or of operation bindings of a
+ * binding, which also keeps its elements grouped by operation name so
+ * that PortTypeImpl.getOperation() and BindingImpl.getBindingOperation()
+ * only need to look at the operations with the requested name.
+ * <p>
+ * The grouping is updated by add() and remove(Object). Any other change
+ * to the list, or renaming an operation that has already been grouped,
+ * causes it to be rebuilt the next time it is used. Each operation keeps
+ * the lists that have grouped it, and tells only those about renames. If
+ * the list holds elements other than OperationImpl or
+ * BindingOperationImpl, renames can't be tracked, and getCandidates()
+ * returns the whole list.
+ * <p>
+ * The list is serialized as a plain Vector, so that the serialized forms
+ * of PortTypeImpl and BindingImpl are the same as they were before.
+ *
+ * @see PortTypeImpl#getOperation(String, String, String)
+ * @see BindingImpl#getBindingOperation(String, String, String)
+ */
+class OperationList extends Vector
+{
+  public static final long serialVersionUID = 1;
+
+  private transient int renameCount = 0;
+  private transient Map index = null;
+  private transient int indexModCount = 0;
+  private transient int indexRenameCount = 0;
+
+  /**
+   * Tell each of the lists that an operation they have grouped has been
+   * renamed.
+   *
+   * @param lists the lists the operation was grouped by, or null
+   */
+  static void operationRenamed(OperationList[] lists)
+  {
+    if (lists != null)
+    {
+      for (int i = 0; i < lists.length; i++)
+      {
+        lists[i].operationRenamed();
+      }
+    }
+  }
+
+  private synchronized void operationRenamed()
+  {
+    renameCount++;
+  }
+
+  /**
+   * Get an array of the lists with the specified list added, unless it
+   * is already there. The array passed in is not changed.
+   */
+  static OperationList[] addList(OperationList[] lists, OperationList list)
+  {
+    if (lists == null)
+    {
+      return new OperationList[] {list};
+    }
+
+    for (int i = 0; i < lists.length; i++)
+    {
+      if (lists[i] == list)
+      {
+        return lists;
+      }
+    }
+
+    OperationList[] newLists = new OperationList[lists.length + 1];
+
+    System.arraycopy(lists, 0, newLists, 0, lists.length);
+    newLists[lists.length] = list;
+
+    return newLists;
+  }
+
+  /**
+   * Get an array of the lists without the specified list, or null if
+   * there are none left. The array passed in is not changed.
+   */
+  static OperationList[] removeList(OperationList[] lists,
+                                    OperationList list)
+  {
+    if (lists == null)
+    {
+      return null;
+    }
+
+    for (int i = 0; i < lists.length; i++)
+    {
+      if (lists[i] == list)
+      {
+        if (lists.length == 1)
+        {
+          return null;
+        }
+
+        OperationList[] newLists = new OperationList[lists.length - 1];
+
+        System.arraycopy(lists, 0, newLists, 0, i);
+        System.arraycopy(lists, i + 1, newLists, i, newLists.length - i);
+
+        return newLists;
+      }
+    }
+
+    return lists;
+  }
+
+  /**
+   * Get the elements that may have the specified name, in list order.
+   * The returned list is never modified, and must not be modified by
+   * the caller.
+   */
+  synchronized List getCandidates(String name)
+  {
+    if (!isIndexCurrent() && !buildIndex())
+    {
+      return this;
+    }
+
+    List candidates = (List)index.get(name);
+
+    return (candidates != null) ? candidates : Collections.EMPTY_LIST;
+  }
+
+  /**
+   * Check whether name is the default input name of an operation with
+   * the specified name and style, without building the default name.
+   */
+  static boolean isDefaultInputName(String name,
+                                    String opName,
+                                    OperationType opStyle)
+  {
+    if (opStyle == OperationType.REQUEST_RESPONSE)
+    {
+      return isDefaultName(name, opName, "Request");
+    }
+    else if (opStyle == OperationType.SOLICIT_RESPONSE)
+    {
+      return isDefaultName(name, opName, "Solicit");
+    }
+    else
+    {
+      return name.equals(opName);
+    }
+  }
+
+  /**
+   * Check whether name is the default output name of an operation with
+   * the specified name and style, without building the default name.
+   */
+  static boolean isDefaultOutputName(String name,
+                                     String opName,
+                                     OperationType opStyle)
+  {
+    if (opStyle == OperationType.REQUEST_RESPONSE
+        || opStyle == OperationType.SOLICIT_RESPONSE)
+    {
+      return isDefaultName(name, opName, "Response");
+    }
+    else
+    {
+      return name.equals(opName);
+    }
+  }
+
+  private static boolean isDefaultName(String name,
+                                       String opName,
+                                       String suffix)
+  {
+    if (opName == null)
+    {
+      return name.equals(opName + suffix);
+    }
+
+    return name.length() == opName.length() + suffix.length()
+           && name.startsWith(opName)
+           && name.endsWith(suffix);
+  }
+
+  public synchronized boolean add(Object o)
+  {
+    boolean current = isIndexCurrent();
+
+    super.add(o);
+    updateIndex(current, o, true);
+
+    return true;
+  }
+
+  public synchronized void addElement(Object o)
+  {
+    add(o);
+  }
+
+  public synchronized boolean remove(Object o)
+  {
+    boolean current = isIndexCurrent();
+    boolean removed = super.remove(o);
+
+    if (removed)
+    {
+      updateIndex(current, o, false);
+
+      if (!contains(o))
+      {
+        unmarkIndexed(o);
+      }
+    }
+
+    return removed;
+  }
+
+  /*
+    Vector doesn't count these as modifications, so make sure the index
+    is rebuilt.
+  */
+  public synchronized Object set(int index, Object o)
+  {
+    modCount++;
+
+    return super.set(index, o);
+  }
+
+  public synchronized void setElementAt(Object o, int index)
+  {
+    modCount++;
+    super.setElementAt(o, index);
+  }
+
+  synchronized boolean isIndexCurrent()
+  {
+    return index != null
+           && indexModCount == modCount
+           && indexRenameCount == renameCount;
+  }
+
+  private boolean buildIndex()
+  {
+    int renames = renameCount;
+    Map newIndex = new HashMap();
+
+    for (int i = 0; i < elementCount; i++)
+    {
+      Object o = elementData[i];
+
+      if (!markIndexed(o))
+      {
+        index = null;
+        return false;
+      }
+
+      String name = getName(o);
+      List candidates = (List)newIndex.get(name);
+
+      if (candidates == null)
+      {
+        candidates = new ArrayList(1);
+        newIndex.put(name, candidates);
+      }
+
+      candidates.add(o);
+    }
+
+    index = newIndex;
+    indexModCount = modCount;
+    indexRenameCount = renames;
+
+    return true;
+  }
+
+  /*
+    The candidate lists may be in use by other threads, so they are
+    replaced rather than modified.
+  */
+  private void updateIndex(boolean current, Object o, boolean added)
+  {
+    if (!current || !markIndexed(o))
+    {
+      index = null;
+      return;
+    }
+
+    String name = getName(o);
+    List candidates = (List)index.get(name);
+    List newCandidates = (candidates != null)
+                         ? new ArrayList(candidates)
+                         : new ArrayList(1);
+
+    if (added)
+    {
+      newCandidates.add(o);
+    }
+    else
+    {
+      // Vector.remove(Object) removed the first equal element.
+      newCandidates.remove(o);
+    }
+
+    if (newCandidates.isEmpty())
+    {
+      index.remove(name);
+    }
+    else
+    {
+      index.put(name, newCandidates);
+    }
+
+    indexModCount = modCount;
+  }
+
+  private boolean markIndexed(Object o)
+  {
+    if (o instanceof OperationImpl)
+    {
+      ((OperationImpl)o).addIndexedBy(this);
+    }
+    else if (o instanceof BindingOperationImpl)
+    {
+      ((BindingOperationImpl)o).addIndexedBy(this);
+    }
+    else
+    {
+      return false;
+    }
+
+    return true;
+  }
+
+  /*
+    Operations removed in other ways, e.g. by clear(), stay marked, which
+    only costs this list a rebuild when they are renamed.
+  */
+  private void unmarkIndexed(Object o)
+  {
+    if (o instanceof OperationImpl)
+    {
+      ((OperationImpl)o).removeIndexedBy(this);
+    }
+    else if (o instanceof BindingOperationImpl)
+    {
+      ((BindingOperationImpl)o).removeIndexedBy(this);
+    }
+  }
+
+  private synchronized Object writeReplace() throws ObjectStreamException
+  {
+    return new Vector(this);
+  }
+
+  private static String getName(Object o)
+  {
+    return (o instanceof OperationImpl)
+           ? ((OperationImpl)o).getName()
+           : ((BindingOperationImpl)o).getName();
+  }
+}
@@ -4,6 +4,8 @@
 
 package com.ibm.wsdl;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.util.*;
 import javax.wsdl.*;
 import javax.xml.namespace.*;
@@ -19,7 +21,7 @@ import javax.xml.namespace.*;
 public class PortTypeImpl extends AbstractWSDLElement implements PortType
 {
   protected QName name = null;
-  protected List operations = new Vector();
+  protected List operations = new OperationList();
   protected List nativeAttributeNames =
     Arrays.asList(Constants.PORT_TYPE_ATTR_NAMES);
   protected boolean isUndefined = true;
@@ -95,7 +97,10 @@ public class PortTypeImpl extends AbstractWSDLElement implements PortType
   {
     boolean found = false;
     Operation ret = null;
-    Iterator opIterator = operations.iterator();
+    List candidates = (operations instanceof OperationList)
+                      ? ((OperationList)operations).getCandidates(name)
+                      : operations;
+    Iterator opIterator = candidates.iterator();
 
     while (opIterator.hasNext())
     {
@@ -116,20 +121,6 @@ public class PortTypeImpl extends AbstractWSDLElement implements PortType
 
       if (op != null && inputName != null)
       {
-        OperationType opStyle = op.getStyle();
-        String defaultInputName = opName;
-
-        if (opStyle == OperationType.REQUEST_RESPONSE)
-        {
-          defaultInputName = opName + "Request";
-        }
-        else if (opStyle == OperationType.SOLICIT_RESPONSE)
-        {
-          defaultInputName = opName + "Solicit";
-        }
-
-        boolean specifiedDefault = inputName.equals(defaultInputName);
-        
         Input input = op.getInput();
 
         if (input != null)
@@ -138,6 +129,11 @@ public class PortTypeImpl extends AbstractWSDLElement implements PortType
 
           if (opInputName == null)
           {
+            boolean specifiedDefault =
+              OperationList.isDefaultInputName(inputName,
+                                               opName,
+                                               op.getStyle());
+
             if (!specifiedDefault && !inputName.equals(Constants.NONE))
             {
               op = null;
@@ -156,17 +152,6 @@ public class PortTypeImpl extends AbstractWSDLElement implements PortType
 
       if (op != null && outputName != null)
       {
-        OperationType opStyle = op.getStyle();
-        String defaultOutputName = opName;
-
-        if (opStyle == OperationType.REQUEST_RESPONSE
-            || opStyle == OperationType.SOLICIT_RESPONSE)
-        {
-          defaultOutputName = opName + "Response";
-        }
-
-        boolean specifiedDefault = outputName.equals(defaultOutputName);
-        
         Output output = op.getOutput();
 
         if (output != null)
@@ -175,6 +160,11 @@ public class PortTypeImpl extends AbstractWSDLElement implements PortType
 
           if (opOutputName == null)
           {
+            boolean specifiedDefault =
+              OperationList.isDefaultOutputName(outputName,
+                                                opName,
+                                                op.getStyle());
+
             if (!specifiedDefault && !outputName.equals(Constants.NONE))
             {
               op = null;
@@ -306,4 +296,22 @@ public class PortTypeImpl extends AbstractWSDLElement implements PortType
 
     return strBuf.toString();
   }
+
+  /*
+    The list is serialized as a Vector, as it was before it was grouped
+    by name, so turn it back into an OperationList.
+  */
+  private void readObject(ObjectInputStream in)
+    throws IOException, ClassNotFoundException
+  {
+    in.defaultReadObject();
+
+    if (operations != null && !(operations instanceof OperationList))
+    {
+      List list = new OperationList();
+
+      list.addAll(operations);
+      operations = list;
+    }
+  }
 }
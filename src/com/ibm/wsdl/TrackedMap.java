@@ -0,0 +1,269 @@
+/*
+ * (c) Copyright IBM Corp 2006
+ */
+
+package com.ibm.wsdl;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * A map that counts the changes made to it, including those made through
+ * its views, so that information derived from it can be checked for
+ * staleness cheaply. Subclasses can also be told about each entry that
+ * is added or removed. The entries are kept in a HashMap, and are
+ * iterated in the same order.
+ * <p>
+ * The map is serialized as a plain HashMap, so that the serialized form
+ * of DefinitionImpl is the same as it was before.
+ *
+ * @see ImportIndex
+ */
+class TrackedMap extends AbstractMap implements Serializable
+{
+  public static final long serialVersionUID = 1;
+
+  private final Map map = new HashMap();
+
+  private transient int modCount = 0;
+  private transient Set entrySet = null;
+
+  /**
+   * Get the number of changes made to this map so far.
+   */
+  int getModCount()
+  {
+    return modCount;
+  }
+
+  /**
+   * Called after an entry has been added.
+   */
+  protected void entryAdded(Object key, Object value)
+  {
+  }
+
+  /**
+   * Called after an entry has been removed.
+   */
+  protected void entryRemoved(Object key, Object value)
+  {
+  }
+
+  public int size()
+  {
+    return map.size();
+  }
+
+  public boolean containsKey(Object key)
+  {
+    return map.containsKey(key);
+  }
+
+  public boolean containsValue(Object value)
+  {
+    return map.containsValue(value);
+  }
+
+  public Object get(Object key)
+  {
+    return map.get(key);
+  }
+
+  public Object put(Object key, Object value)
+  {
+    boolean present = map.containsKey(key);
+    Object oldValue = map.put(key, value);
+
+    modCount++;
+
+    if (!present)
+    {
+      entryAdded(key, value);
+    }
+    else if (!equals(oldValue, value))
+    {
+      entryRemoved(key, oldValue);
+      entryAdded(key, value);
+    }
+
+    return oldValue;
+  }
+
+  public Object remove(Object key)
+  {
+    if (!map.containsKey(key))
+    {
+      return null;
+    }
+
+    Object oldValue = map.remove(key);
+
+    modCount++;
+    entryRemoved(key, oldValue);
+
+    return oldValue;
+  }
+
+  public void clear()
+  {
+    Iterator entryIterator = entrySet().iterator();
+
+    while (entryIterator.hasNext())
+    {
+      entryIterator.next();
+      entryIterator.remove();
+    }
+  }
+
+  public Set entrySet()
+  {
+    if (entrySet == null)
+    {
+      entrySet = new EntrySet();
+    }
+
+    return entrySet;
+  }
+
+  /*
+    Package-private, so that NamespaceMap inherits it.
+  */
+  Object writeReplace() throws ObjectStreamException
+  {
+    return new HashMap(map);
+  }
+
+  /**
+   * Get a tracked map with the same entries as the specified map, which
+   * is returned if it already is one.
+   *
+   * @param map the map to copy, or null
+   * @param trackedMap an empty map to copy it into
+   */
+  static Map restore(Map map, TrackedMap trackedMap)
+  {
+    if (map == null || map instanceof TrackedMap)
+    {
+      return map;
+    }
+
+    trackedMap.putAll(map);
+
+    return trackedMap;
+  }
+
+  private static boolean equals(Object o1, Object o2)
+  {
+    return (o1 != null) ? o1.equals(o2) : o2 == null;
+  }
+
+  private class EntrySet extends AbstractSet
+  {
+    public int size()
+    {
+      return map.size();
+    }
+
+    public boolean contains(Object o)
+    {
+      return map.entrySet().contains(o);
+    }
+
+    public boolean remove(Object o)
+    {
+      if (!contains(o))
+      {
+        return false;
+      }
+
+      TrackedMap.this.remove(((Map.Entry)o).getKey());
+
+      return true;
+    }
+
+    public void clear()
+    {
+      TrackedMap.this.clear();
+    }
+
+    public Iterator iterator()
+    {
+      final Iterator entryIterator = map.entrySet().iterator();
+
+      return new Iterator()
+      {
+        private Map.Entry lastEntry = null;
+
+        public boolean hasNext()
+        {
+          return entryIterator.hasNext();
+        }
+
+        public Object next()
+        {
+          lastEntry = new Entry((Map.Entry)entryIterator.next());
+
+          return lastEntry;
+        }
+
+        public void remove()
+        {
+          entryIterator.remove();
+          modCount++;
+          entryRemoved(lastEntry.getKey(), lastEntry.getValue());
+        }
+      };
+    }
+  }
+
+  private class Entry implements Map.Entry
+  {
+    private final Map.Entry entry;
+
+    Entry(Map.Entry entry)
+    {
+      this.entry = entry;
+    }
+
+    public Object getKey()
+    {
+      return entry.getKey();
+    }
+
+    public Object getValue()
+    {
+      return entry.getValue();
+    }
+
+    public Object setValue(Object value)
+    {
+      Object oldValue = entry.setValue(value);
+
+      modCount++;
+
+      if (!TrackedMap.equals(oldValue, value))
+      {
+        entryRemoved(entry.getKey(), oldValue);
+        entryAdded(entry.getKey(), value);
+      }
+
+      return oldValue;
+    }
+
+    public boolean equals(Object o)
+    {
+      return entry.equals(o);
+    }
+
+    public int hashCode()
+    {
+      return entry.hashCode();
+    }
+
+    public String toString()
+    {
+      return entry.toString();
+    }
+  }
+}
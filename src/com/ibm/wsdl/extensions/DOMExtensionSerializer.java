@@ -0,0 +1,47 @@
+/*
+ * (c) Copyright IBM Corp 2006
+ */
+
+package com.ibm.wsdl.extensions;
+
+import org.w3c.dom.*;
+import javax.wsdl.*;
+import javax.wsdl.extensions.*;
+import javax.xml.namespace.*;
+
+/**
+ * This interface may be implemented, in addition to ExtensionSerializer,
+ * by serializers that can add extensibility elements to a DOM directly.
+ * WSDLWriterImpl.getDocument(Definition) uses it when building a
+ * document; serializers that don't implement it are asked to print
+ * their elements as text, which is then parsed.
+ *
+ * @see com.ibm.wsdl.xml.WSDLWriterImpl#getDocument(Definition)
+ */
+public interface DOMExtensionSerializer extends ExtensionSerializer
+{
+  /**
+   * This method adds the DOM nodes representing an extension-specific
+   * instance of ExtensibilityElement to the specified element. The
+   * namespace prefixes of the definition are declared in the document.
+   *
+   * @param parentType a class object indicating where in the WSDL
+   * definition this extension was encountered. For
+   * example, javax.wsdl.Binding.class would be used to indicate
+   * this extensibility element was found in the list of
+   * extensibility elements belonging to a javax.wsdl.Binding.
+   * @param elementType the qname of the extensibility element
+   * @param extension the extensibility element to serialize
+   * @param parent the element to add the nodes to
+   * @param def the definition this extensibility element was
+   * encountered in
+   * @param extReg the ExtensionRegistry to use (if needed again)
+   */
+  public void marshall(Class parentType,
+                       QName elementType,
+                       ExtensibilityElement extension,
+                       Element parent,
+                       Definition def,
+                       ExtensionRegistry extReg)
+                         throws WSDLException;
+}
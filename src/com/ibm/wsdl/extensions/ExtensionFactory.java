@@ -0,0 +1,39 @@
+/*
+ * (c) Copyright IBM Corp 2006 
+ */
+
+package com.ibm.wsdl.extensions;
+
+import javax.wsdl.*;
+import javax.wsdl.extensions.*;
+import javax.xml.namespace.*;
+
+/**
+ * This interface should be implemented by classes which create
+ * instances of ExtensibilityElement directly, without the reflection
+ * used for types declared using ExtensionRegistry.mapExtensionTypes.
+ * Implementations registered with an ExtensionRegistryImpl must be
+ * serializable if the registry is to be serialized.
+ *
+ * @see ExtensionRegistryImpl#registerExtensionFactory(Class, QName, ExtensionFactory)
+ */
+public interface ExtensionFactory
+{
+  /**
+   * Create a new instance of the type used to represent extensibility
+   * elements with qnames matching elementType, when intended to exist
+   * as children of the specified parentType.
+   *
+   * @param parentType a class object indicating where in the WSDL
+   * definition this extension will exist. For example,
+   * javax.wsdl.Binding.class would be used to indicate
+   * this extensibility element is going to be added to the list of
+   * extensibility elements belonging to a javax.wsdl.Binding,
+   * after being instantiated.
+   * @param elementType the qname of the extensibility element
+   * @return a new instance, never null
+   */
+  public ExtensibilityElement createExtension(Class parentType,
+                                              QName elementType)
+                                                throws WSDLException;
+}
@@ -0,0 +1,516 @@
+/*
+ * (c) Copyright IBM Corp 2006
+ */
+
+package com.ibm.wsdl.extensions;
+
+import java.io.*;
+import java.util.*;
+import javax.wsdl.*;
+import javax.wsdl.extensions.*;
+import javax.xml.namespace.*;
+
+/**
+ * This class extends ExtensionRegistry with the ability to share
+ * registrations with a template, to compile the registrations into
+ * read-optimized tables, to freeze the registrations, and to create
+ * extensibility elements through registered ExtensionFactories. The
+ * JWSDL ExtensionRegistry API itself is unchanged.
+ * <p>
+ * A registry created from a template shares the template's tables until
+ * either of them registers something, at which point the registering
+ * registry takes a private copy of the tables. Subclasses that update
+ * the tables directly, instead of through the register methods, must
+ * call copySharedTables() first.
+ * <p>
+ * Calling compile() builds read-optimized copies of the tables, which
+ * are used for lookups until the next registration. Lookups against
+ * compiled tables do not synchronize, so a compiled registry can be
+ * shared by many threads without contention. Calling freeze() compiles
+ * the registry and prevents any further registration.
+ */
+public class ExtensionRegistryImpl extends ExtensionRegistry
+{
+  public static final long serialVersionUID = 1;
+
+  /*
+    This is a Map of Maps. The top-level Map is keyed by (Class)parentType,
+    and the inner Maps are keyed by (QName)elementType.
+  */
+  protected Map extensionFactoryReg = new Hashtable();
+  /*
+    True if the tables may be referenced by another registry, in which
+    case they must be copied before they are updated.
+  */
+  private boolean shared = false;
+  /*
+    True if registrations may no longer be changed.
+  */
+  private boolean frozen = false;
+  /*
+    Read-optimized copies of the tables, or null if the registry has not
+    been compiled since the last registration.
+  */
+  private transient volatile CompiledTables compiled = null;
+
+  /**
+   * Creates an empty extension registry, with an
+   * UnknownExtensionSerializer and an UnknownExtensionDeserializer
+   * as its defaults.
+   */
+  public ExtensionRegistryImpl()
+  {
+  }
+
+  /**
+   * Creates an extension registry with the same registrations, and
+   * the same defaultSerializer and defaultDeserializer properties, as
+   * the specified template. The tables of the template are shared, not
+   * copied; a private copy is made the first time either registry
+   * registers something, so neither registry sees the other's later
+   * registrations.
+   *
+   * @param template the registry to take the registrations from
+   */
+  public ExtensionRegistryImpl(ExtensionRegistryImpl template)
+  {
+    serializerReg = template.serializerReg;
+    deserializerReg = template.deserializerReg;
+    extensionTypeReg = template.extensionTypeReg;
+    extensionFactoryReg = template.extensionFactoryReg;
+    extensionAttributeTypeReg = template.extensionAttributeTypeReg;
+    defaultSer = template.defaultSer;
+    defaultDeser = template.defaultDeser;
+    compiled = template.compiled;
+
+    shared = true;
+    template.shared = true;
+  }
+
+  /**
+   * Build read-optimized copies of the registration tables. Until the
+   * next registration, the query methods and createExtension(...) use
+   * the compiled tables, and do not need to synchronize.
+   *
+   * @see #freeze()
+   */
+  public void compile()
+  {
+    compiled = new CompiledTables(this);
+  }
+
+  /**
+   * Compile this registry and prevent any further changes to it. After
+   * this method has been called, the register methods, mapExtensionTypes
+   * and the default serializer and deserializer setters throw an
+   * IllegalStateException. Registries created using this registry as a
+   * template are not frozen.
+   *
+   * @see #compile()
+   */
+  public void freeze()
+  {
+    compile();
+    frozen = true;
+  }
+
+  /**
+   * Return true if freeze() has been called on this registry.
+   */
+  public boolean isFrozen()
+  {
+    return frozen;
+  }
+
+  /**
+   * Return true if the compiled tables are in use, that is, if compile()
+   * or freeze() has been called and nothing has been registered since.
+   */
+  public boolean isCompiled()
+  {
+    return compiled != null;
+  }
+
+  private void checkNotFrozen()
+  {
+    if (frozen)
+    {
+      throw new IllegalStateException("The extension registry is frozen, " +
+                                      "so it can not be changed.");
+    }
+  }
+
+  private void beforeUpdate()
+  {
+    checkNotFrozen();
+    copySharedTables();
+    compiled = null;
+  }
+
+  /**
+   * Make sure this registry has its own copy of the registration tables,
+   * so that they can be updated without affecting any registry they
+   * are shared with.
+   */
+  protected void copySharedTables()
+  {
+    if (shared)
+    {
+      serializerReg = copyTable(serializerReg);
+      deserializerReg = copyTable(deserializerReg);
+      extensionTypeReg = copyTable(extensionTypeReg);
+      extensionFactoryReg = copyTable(extensionFactoryReg);
+      extensionAttributeTypeReg = copyTable(extensionAttributeTypeReg);
+      shared = false;
+    }
+  }
+
+  private static Map copyTable(Map table)
+  {
+    Map copy = new Hashtable();
+    Iterator entryIterator = table.entrySet().iterator();
+
+    while (entryIterator.hasNext())
+    {
+      Map.Entry entry = (Map.Entry)entryIterator.next();
+
+      copy.put(entry.getKey(), new Hashtable((Map)entry.getValue()));
+    }
+
+    return copy;
+  }
+
+  public void setDefaultSerializer(ExtensionSerializer defaultSer)
+  {
+    checkNotFrozen();
+
+    super.setDefaultSerializer(defaultSer);
+  }
+
+  public void setDefaultDeserializer(ExtensionDeserializer defaultDeser)
+  {
+    checkNotFrozen();
+
+    super.setDefaultDeserializer(defaultDeser);
+  }
+
+  public void registerSerializer(Class parentType,
+                                 QName elementType,
+                                 ExtensionSerializer es)
+  {
+    beforeUpdate();
+
+    super.registerSerializer(parentType, elementType, es);
+  }
+
+  public void registerDeserializer(Class parentType,
+                                   QName elementType,
+                                   ExtensionDeserializer ed)
+  {
+    beforeUpdate();
+
+    super.registerDeserializer(parentType, elementType, ed);
+  }
+
+  public ExtensionSerializer querySerializer(Class parentType,
+                                             QName elementType)
+                                               throws WSDLException
+  {
+    CompiledTables tables = compiled;
+
+    if (tables != null)
+    {
+      ExtensionSerializer es =
+        (ExtensionSerializer)tables.get(tables.serializers,
+                                        parentType,
+                                        elementType);
+
+      if (es == null)
+      {
+        es = defaultSer;
+      }
+
+      if (es != null)
+      {
+        return es;
+      }
+    }
+
+    return super.querySerializer(parentType, elementType);
+  }
+
+  public ExtensionDeserializer queryDeserializer(Class parentType,
+                                                 QName elementType)
+                                                   throws WSDLException
+  {
+    CompiledTables tables = compiled;
+
+    if (tables != null)
+    {
+      ExtensionDeserializer ed =
+        (ExtensionDeserializer)tables.get(tables.deserializers,
+                                          parentType,
+                                          elementType);
+
+      if (ed == null)
+      {
+        ed = defaultDeser;
+      }
+
+      if (ed != null)
+      {
+        return ed;
+      }
+    }
+
+    return super.queryDeserializer(parentType, elementType);
+  }
+
+  public Set getAllowableExtensions(Class parentType)
+  {
+    Set allowableExtensions = super.getAllowableExtensions(parentType);
+
+    // Don't let a shared table be updated through the returned set.
+    return (shared && allowableExtensions != null)
+           ? Collections.unmodifiableSet(allowableExtensions)
+           : allowableExtensions;
+  }
+
+  public void mapExtensionTypes(Class parentType,
+                                QName elementType,
+                                Class extensionType)
+  {
+    beforeUpdate();
+
+    super.mapExtensionTypes(parentType, elementType, extensionType);
+
+    // The most recent declaration wins.
+    Map innerExtensionFactoryReg = (Map)extensionFactoryReg.get(parentType);
+
+    if (innerExtensionFactoryReg != null)
+    {
+      innerExtensionFactoryReg.remove(elementType);
+    }
+  }
+
+  /**
+   * Declare that the specified factory should be used to create
+   * the objects which represent extensibility elements with qnames
+   * matching elementType, that are intended to exist as children of
+   * the specified parentType. A factory takes precedence over a type
+   * declared using mapExtensionTypes(...) for the same parentType and
+   * elementType, until mapExtensionTypes(...) is called again for them.
+   *
+   * @param parentType a class object indicating where in the WSDL
+   * definition this extension would exist. For example,
+   * javax.wsdl.Binding.class would be used to indicate
+   * this extensibility element would be added to the list of
+   * extensibility elements belonging to a javax.wsdl.Binding,
+   * after being instantiated.
+   * @param elementType the qname of the extensibility element
+   * @param factory the factory to create instances with
+   *
+   * @see #createExtension(Class, QName)
+   */
+  public void registerExtensionFactory(Class parentType,
+                                       QName elementType,
+                                       ExtensionFactory factory)
+  {
+    beforeUpdate();
+
+    Map innerExtensionFactoryReg = (Map)extensionFactoryReg.get(parentType);
+
+    if (innerExtensionFactoryReg == null)
+    {
+      innerExtensionFactoryReg = new Hashtable();
+
+      extensionFactoryReg.put(parentType, innerExtensionFactoryReg);
+    }
+
+    innerExtensionFactoryReg.put(elementType, factory);
+  }
+
+  /**
+   * Create an instance of the type which was declared to be used to
+   * represent extensibility elements with qnames matching elementType,
+   * when intended to exist as children of the specified parentType.
+   * A factory registered for the parentType and elementType is used if
+   * there is one; otherwise the type declared using mapExtensionTypes(...)
+   * is instantiated.
+   *
+   * @see #registerExtensionFactory(Class, QName, ExtensionFactory)
+   * @see #mapExtensionTypes(Class, QName, Class)
+   */
+  public ExtensibilityElement createExtension(Class parentType,
+                                              QName elementType)
+                                                throws WSDLException
+  {
+    CompiledTables tables = compiled;
+    ExtensionFactory extensionFactory = null;
+
+    if (tables != null)
+    {
+      extensionFactory =
+        (ExtensionFactory)tables.get(tables.extensionFactories,
+                                     parentType,
+                                     elementType);
+    }
+    else
+    {
+      Map innerExtensionFactoryReg =
+        (Map)extensionFactoryReg.get(parentType);
+
+      if (innerExtensionFactoryReg != null)
+      {
+        extensionFactory =
+          (ExtensionFactory)innerExtensionFactoryReg.get(elementType);
+      }
+    }
+
+    if (extensionFactory == null)
+    {
+      return super.createExtension(parentType, elementType);
+    }
+
+    ExtensibilityElement ee =
+      extensionFactory.createExtension(parentType, elementType);
+
+    if (ee.getElementType() == null)
+    {
+      ee.setElementType(elementType);
+    }
+
+    return ee;
+  }
+
+  public void registerExtensionAttributeType(Class parentType,
+                                             QName attrName,
+                                             int attrType)
+  {
+    beforeUpdate();
+
+    super.registerExtensionAttributeType(parentType, attrName, attrType);
+  }
+
+  public int queryExtensionAttributeType(Class parentType, QName attrName)
+  {
+    CompiledTables tables = compiled;
+
+    if (tables == null)
+    {
+      return super.queryExtensionAttributeType(parentType, attrName);
+    }
+
+    Integer attrType = (Integer)tables.get(tables.extensionAttributeTypes,
+                                           parentType,
+                                           attrName);
+
+    return (attrType != null)
+           ? attrType.intValue()
+           : AttributeExtensible.NO_DECLARED_TYPE;
+  }
+
+  private void readObject(ObjectInputStream in)
+    throws IOException, ClassNotFoundException
+  {
+    in.defaultReadObject();
+
+    if (frozen)
+    {
+      compile();
+    }
+  }
+
+  /*
+    A (parentType, QName) pair, used as the key of the compiled tables.
+  */
+  private static final class CompiledKey
+  {
+    private final Class parentType;
+    private final QName qname;
+    private final int hashCode;
+
+    CompiledKey(Class parentType, QName qname)
+    {
+      this.parentType = parentType;
+      this.qname = qname;
+      this.hashCode = (parentType != null ? parentType.hashCode() * 31 : 0)
+                      + (qname != null ? qname.hashCode() : 0);
+    }
+
+    public int hashCode()
+    {
+      return hashCode;
+    }
+
+    public boolean equals(Object obj)
+    {
+      if (obj == this)
+      {
+        return true;
+      }
+      else if (!(obj instanceof CompiledKey))
+      {
+        return false;
+      }
+
+      CompiledKey key = (CompiledKey)obj;
+
+      return hashCode == key.hashCode
+             && parentType == key.parentType
+             && (qname != null ? qname.equals(key.qname) : key.qname == null);
+    }
+  }
+
+  /*
+    Flattened copies of the registration tables. The maps are filled in
+    by the constructor and never changed afterwards, and instances are
+    published through a volatile field, so they can be read without
+    synchronization.
+  */
+  private static final class CompiledTables
+  {
+    final Map serializers;
+    final Map deserializers;
+    final Map extensionFactories;
+    final Map extensionAttributeTypes;
+
+    CompiledTables(ExtensionRegistryImpl extReg)
+    {
+      serializers = flatten(extReg.serializerReg);
+      deserializers = flatten(extReg.deserializerReg);
+      extensionFactories = flatten(extReg.extensionFactoryReg);
+      extensionAttributeTypes = flatten(extReg.extensionAttributeTypeReg);
+    }
+
+    Object get(Map table, Class parentType, QName qname)
+    {
+      return table.get(new CompiledKey(parentType, qname));
+    }
+
+    private static Map flatten(Map table)
+    {
+      Map flattened = new HashMap();
+      Iterator outerIterator = table.entrySet().iterator();
+
+      while (outerIterator.hasNext())
+      {
+        Map.Entry outerEntry = (Map.Entry)outerIterator.next();
+        Class parentType = (Class)outerEntry.getKey();
+        Iterator innerIterator =
+          ((Map)outerEntry.getValue()).entrySet().iterator();
+
+        while (innerIterator.hasNext())
+        {
+          Map.Entry innerEntry = (Map.Entry)innerIterator.next();
+
+          flattened.put(new CompiledKey(parentType,
+                                        (QName)innerEntry.getKey()),
+                        innerEntry.getValue());
+        }
+      }
+
+      return flattened;
+    }
+  }
+}
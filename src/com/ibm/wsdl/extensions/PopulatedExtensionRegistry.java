@@ -4,6 +4,9 @@
 
 package com.ibm.wsdl.extensions;
 
+import java.io.*;
+import java.util.*;
+import javax.xml.namespace.*;
 import javax.wsdl.*;
 import javax.wsdl.extensions.*;
 import javax.wsdl.extensions.soap.*;
@@ -19,14 +22,28 @@ import com.ibm.wsdl.extensions.schema.*;
  * This class extends ExtensionRegistry and pre-registers
  * serializers/deserializers for the SOAP, HTTP and MIME
  * extensions. Java extensionTypes are also mapped for all
- * the SOAP, HTTP and MIME extensions.
+ * the SOAP, HTTP and MIME extensions. Each of the mapped types
+ * is also registered with a factory that instantiates it directly,
+ * without reflection.
  *
  * @author Matthew J. Duftler (duftler@us.ibm.com)
  */
-public class PopulatedExtensionRegistry extends ExtensionRegistry
+public class PopulatedExtensionRegistry extends ExtensionRegistryImpl
 {
   public static final long serialVersionUID = 1;
 
+  /**
+   * Create a registry that shares the registrations of the specified
+   * template until either of them registers something.
+   *
+   * @param template a populated registry to share registrations with
+   * @see ExtensionRegistryImpl#ExtensionRegistryImpl(ExtensionRegistryImpl)
+   */
+  public PopulatedExtensionRegistry(PopulatedExtensionRegistry template)
+  {
+    super(template);
+  }
+
   public PopulatedExtensionRegistry()
   {
     SOAPAddressSerializer soapAddressSer = new SOAPAddressSerializer();
@@ -431,5 +448,291 @@ public class PopulatedExtensionRegistry extends ExtensionRegistry
     registerSerializer(Types.class, SchemaConstants.Q_ELEM_XSD_2001,
         new SchemaSerializer());
 
+    registerImplFactories();
+  }
+
+  /*
+    One factory for each of the implementation types mapped above. A type
+    with no factory here is created by reflection.
+  */
+  private static final ImplFactory[] IMPL_FACTORIES =
+  {
+    new ImplFactory()
+    {
+      public static final long serialVersionUID = 1;
+
+      ExtensibilityElement newInstance()
+      {
+        return new SOAPAddressImpl();
+      }
+    },
+    new ImplFactory()
+    {
+      public static final long serialVersionUID = 1;
+
+      ExtensibilityElement newInstance()
+      {
+        return new SOAPBindingImpl();
+      }
+    },
+    new ImplFactory()
+    {
+      public static final long serialVersionUID = 1;
+
+      ExtensibilityElement newInstance()
+      {
+        return new SOAPHeaderImpl();
+      }
+    },
+    new ImplFactory()
+    {
+      public static final long serialVersionUID = 1;
+
+      ExtensibilityElement newInstance()
+      {
+        return new SOAPHeaderFaultImpl();
+      }
+    },
+    new ImplFactory()
+    {
+      public static final long serialVersionUID = 1;
+
+      ExtensibilityElement newInstance()
+      {
+        return new SOAPBodyImpl();
+      }
+    },
+    new ImplFactory()
+    {
+      public static final long serialVersionUID = 1;
+
+      ExtensibilityElement newInstance()
+      {
+        return new SOAPFaultImpl();
+      }
+    },
+    new ImplFactory()
+    {
+      public static final long serialVersionUID = 1;
+
+      ExtensibilityElement newInstance()
+      {
+        return new SOAPOperationImpl();
+      }
+    },
+    new ImplFactory()
+    {
+      public static final long serialVersionUID = 1;
+
+      ExtensibilityElement newInstance()
+      {
+        return new SOAP12AddressImpl();
+      }
+    },
+    new ImplFactory()
+    {
+      public static final long serialVersionUID = 1;
+
+      ExtensibilityElement newInstance()
+      {
+        return new SOAP12BindingImpl();
+      }
+    },
+    new ImplFactory()
+    {
+      public static final long serialVersionUID = 1;
+
+      ExtensibilityElement newInstance()
+      {
+        return new SOAP12HeaderImpl();
+      }
+    },
+    new ImplFactory()
+    {
+      public static final long serialVersionUID = 1;
+
+      ExtensibilityElement newInstance()
+      {
+        return new SOAP12HeaderFaultImpl();
+      }
+    },
+    new ImplFactory()
+    {
+      public static final long serialVersionUID = 1;
+
+      ExtensibilityElement newInstance()
+      {
+        return new SOAP12BodyImpl();
+      }
+    },
+    new ImplFactory()
+    {
+      public static final long serialVersionUID = 1;
+
+      ExtensibilityElement newInstance()
+      {
+        return new SOAP12FaultImpl();
+      }
+    },
+    new ImplFactory()
+    {
+      public static final long serialVersionUID = 1;
+
+      ExtensibilityElement newInstance()
+      {
+        return new SOAP12OperationImpl();
+      }
+    },
+    new ImplFactory()
+    {
+      public static final long serialVersionUID = 1;
+
+      ExtensibilityElement newInstance()
+      {
+        return new HTTPAddressImpl();
+      }
+    },
+    new ImplFactory()
+    {
+      public static final long serialVersionUID = 1;
+
+      ExtensibilityElement newInstance()
+      {
+        return new HTTPOperationImpl();
+      }
+    },
+    new ImplFactory()
+    {
+      public static final long serialVersionUID = 1;
+
+      ExtensibilityElement newInstance()
+      {
+        return new HTTPBindingImpl();
+      }
+    },
+    new ImplFactory()
+    {
+      public static final long serialVersionUID = 1;
+
+      ExtensibilityElement newInstance()
+      {
+        return new HTTPUrlEncodedImpl();
+      }
+    },
+    new ImplFactory()
+    {
+      public static final long serialVersionUID = 1;
+
+      ExtensibilityElement newInstance()
+      {
+        return new HTTPUrlReplacementImpl();
+      }
+    },
+    new ImplFactory()
+    {
+      public static final long serialVersionUID = 1;
+
+      ExtensibilityElement newInstance()
+      {
+        return new MIMEContentImpl();
+      }
+    },
+    new ImplFactory()
+    {
+      public static final long serialVersionUID = 1;
+
+      ExtensibilityElement newInstance()
+      {
+        return new MIMEMultipartRelatedImpl();
+      }
+    },
+    new ImplFactory()
+    {
+      public static final long serialVersionUID = 1;
+
+      ExtensibilityElement newInstance()
+      {
+        return new MIMEPartImpl();
+      }
+    },
+    new ImplFactory()
+    {
+      public static final long serialVersionUID = 1;
+
+      ExtensibilityElement newInstance()
+      {
+        return new MIMEMimeXmlImpl();
+      }
+    },
+    new ImplFactory()
+    {
+      public static final long serialVersionUID = 1;
+
+      ExtensibilityElement newInstance()
+      {
+        return new SchemaImpl();
+      }
+    }
+  };
+
+  // The factories, keyed by the type each one creates.
+  private static final Map IMPL_FACTORIES_BY_TYPE = new HashMap();
+
+  static
+  {
+    for (int i = 0; i < IMPL_FACTORIES.length; i++)
+    {
+      IMPL_FACTORIES_BY_TYPE.put(IMPL_FACTORIES[i].newInstance().getClass(),
+                                 IMPL_FACTORIES[i]);
+    }
+  }
+
+  /*
+    Register a factory for each of the types mapped above, so that
+    createExtension(...) does not need to use reflection for them.
+  */
+  private void registerImplFactories()
+  {
+    Iterator outerIterator = extensionTypeReg.entrySet().iterator();
+
+    while (outerIterator.hasNext())
+    {
+      Map.Entry outerEntry = (Map.Entry)outerIterator.next();
+      Class parentType = (Class)outerEntry.getKey();
+      Iterator innerIterator =
+        ((Map)outerEntry.getValue()).entrySet().iterator();
+
+      while (innerIterator.hasNext())
+      {
+        Map.Entry innerEntry = (Map.Entry)innerIterator.next();
+        ExtensionFactory factory =
+          (ExtensionFactory)IMPL_FACTORIES_BY_TYPE.get(innerEntry.getValue());
+
+        if (factory != null)
+        {
+          registerExtensionFactory(parentType,
+                                   (QName)innerEntry.getKey(),
+                                   factory);
+        }
+      }
+    }
+  }
+
+  /*
+    Creates instances of one of the extensibility element implementations
+    that are mapped by this registry.
+  */
+  private abstract static class ImplFactory
+    implements ExtensionFactory, Serializable
+  {
+    public static final long serialVersionUID = 1;
+
+    abstract ExtensibilityElement newInstance();
+
+    public ExtensibilityElement createExtension(Class parentType,
+                                                QName elementType)
+    {
+      return newInstance();
+    }
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,135 @@
+/*
+ * (c) Copyright IBM Corp 2006
+ */
+
+package com.ibm.wsdl.extensions.schema;
+
+import java.io.*;
+import java.net.*;
+import javax.wsdl.*;
+import org.w3c.dom.*;
+import org.xml.sax.*;
+
+import com.ibm.wsdl.util.*;
+import com.ibm.wsdl.util.xml.*;
+
+/**
+ * Where the &lt;xsd:schema&gt; element of a lazily read schema can be
+ * found again: the URI of the document containing it, and the position
+ * of the element within that document, as the index of each element
+ * among its parent's child elements, starting below the document element.
+ * An empty path refers to the document element itself.
+ *
+ * @see SchemaImpl#setElementSource(SchemaElementSource)
+ */
+public class SchemaElementSource implements Serializable
+{
+  public static final long serialVersionUID = 1;
+
+  private final String documentURI;
+  private final int[] path;
+  private transient DocumentBuilderPool pool;
+
+  /**
+   * @param documentURI the absolute URI of the document
+   * @param path the position of the element within the document
+   * @param pool the pool used to parse the document. If null, the
+   * default pool is used.
+   */
+  public SchemaElementSource(String documentURI,
+                             int[] path,
+                             DocumentBuilderPool pool)
+  {
+    this.documentURI = documentURI;
+    this.path = path.clone();
+    this.pool = pool;
+  }
+
+  public String getDocumentURI()
+  {
+    return documentURI;
+  }
+
+  public int[] getPath()
+  {
+    return path.clone();
+  }
+
+  /**
+   * Parse the document again and return the element.
+   */
+  public Element load() throws WSDLException
+  {
+    Document doc = null;
+
+    try
+    {
+      InputStream inputStream =
+        StringUtils.getContentAsInputStream(StringUtils.getURL(null,
+                                                               documentURI));
+
+      try
+      {
+        InputSource inputSource = new InputSource(inputStream);
+
+        inputSource.setSystemId(documentURI);
+        doc = ((pool != null) ? pool : DocumentBuilderPool.getDefaultPool())
+              .parse(inputSource, documentURI);
+      }
+      finally
+      {
+        inputStream.close();
+      }
+    }
+    catch (WSDLException e)
+    {
+      throw e;
+    }
+    catch (RuntimeException e)
+    {
+      throw e;
+    }
+    catch (Exception e)
+    {
+      throw new WSDLException(WSDLException.OTHER_ERROR,
+                              "Unable to retrieve the schema document at '" +
+                              documentURI + "'.",
+                              e);
+    }
+
+    Element el = doc.getDocumentElement();
+
+    for (int i = 0; i < path.length && el != null; i++)
+    {
+      el = DOMUtils.getFirstChildElement(el);
+
+      for (int j = 0; j < path[i] && el != null; j++)
+      {
+        el = DOMUtils.getNextSiblingElement(el);
+      }
+    }
+
+    if (el == null
+        || !SchemaConstants.XSD_QNAME_LIST.contains(QNameUtils.newQName(el)))
+    {
+      throw new WSDLException(WSDLException.OTHER_ERROR,
+                              "The schema element is no longer in the " +
+                              "document at '" + documentURI + "'.");
+    }
+
+    return el;
+  }
+
+  public String toString()
+  {
+    StringBuffer strBuf = new StringBuffer(documentURI);
+
+    for (int i = 0; i < path.length; i++)
+    {
+      strBuf.append((i == 0) ? "#" : "/");
+      strBuf.append(path[i]);
+    }
+
+    return strBuf.toString();
+  }
+}
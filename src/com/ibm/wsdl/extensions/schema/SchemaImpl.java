@@ -4,11 +4,13 @@
 
 package com.ibm.wsdl.extensions.schema;
 
+import java.lang.ref.SoftReference;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Vector;
 
+import javax.wsdl.WSDLException;
 import javax.wsdl.extensions.schema.Schema;
 import javax.wsdl.extensions.schema.SchemaImport;
 import javax.wsdl.extensions.schema.SchemaReference;
@@ -33,6 +35,13 @@ public class SchemaImpl implements Schema
   protected Boolean required = null;
   protected Element element = null;
 
+  /*
+   * Set instead of element when the schema is read lazily. The element is
+   * then parsed again when it is first asked for, and only kept softly.
+   */
+  private SchemaElementSource elementSource = null;
+  private transient SoftReference elementRef = null;
+
   public static final long serialVersionUID = 1;
 
   /*
@@ -200,16 +209,72 @@ public class SchemaImpl implements Schema
   public void setElement(Element element)
   {
     this.element = element;
+    this.elementSource = null;
+    this.elementRef = null;
   }
 
   /**
-   * Get the DOM Element that represents this schema element.
+   * Get the DOM Element that represents this schema element. If the
+   * schema was read lazily, the element is parsed again from its source
+   * document.
    *
    * @return the DOM element representing this schema
+   * @throws IllegalStateException if the element cannot be parsed again
    */
   public Element getElement()
   {
-    return element;
+    if (element != null || elementSource == null)
+    {
+      return element;
+    }
+
+    synchronized (this)
+    {
+      Element el = (elementRef != null) ? (Element)elementRef.get() : null;
+
+      if (el == null)
+      {
+        try
+        {
+          el = elementSource.load();
+        }
+        catch (WSDLException e)
+        {
+          throw new IllegalStateException("Unable to parse the schema " +
+                                          "element again from '" +
+                                          elementSource + "'.", e);
+        }
+
+        elementRef = new SoftReference(el);
+      }
+
+      return el;
+    }
+  }
+
+  /**
+   * Drop the DOM Element of this schema, and parse it again from the
+   * specified source whenever it is asked for. The element is only kept
+   * while memory allows.
+   *
+   * @param elementSource where the element can be found again
+   */
+  public void setElementSource(SchemaElementSource elementSource)
+  {
+    this.element = null;
+    this.elementSource = elementSource;
+    this.elementRef = null;
+  }
+
+  /**
+   * Get the source of the DOM Element of this schema, if it is read
+   * lazily.
+   *
+   * @return the source, or null if the element is kept
+   */
+  public SchemaElementSource getElementSource()
+  {
+    return elementSource;
   }
 
   /**
@@ -0,0 +1,29 @@
+/*
+ * (c) Copyright IBM Corp 2006
+ */
+
+package com.ibm.wsdl.factory;
+
+import javax.wsdl.xml.*;
+import com.ibm.wsdl.xml.*;
+
+/**
+ * A WSDLFactory whose readers build the WSDL model from a StAX event
+ * stream rather than from a DOM of the whole document. Select it using
+ * WSDLFactory.newInstance("com.ibm.wsdl.factory.StAXWSDLFactoryImpl"), or
+ * through the javax.wsdl.factory.WSDLFactory system property. Everything
+ * else is the same as WSDLFactoryImpl. Like StAXWSDLReaderImpl, it is
+ * only built by the stax profile of pom.xml.
+ *
+ * @see com.ibm.wsdl.xml.StAXWSDLReaderImpl
+ */
+public class StAXWSDLFactoryImpl extends WSDLFactoryImpl
+{
+  /**
+   * Create a new instance of a StAXWSDLReaderImpl.
+   */
+  public WSDLReader newWSDLReader()
+  {
+    return new StAXWSDLReaderImpl();
+  }
+}
@@ -21,6 +21,20 @@ import com.ibm.wsdl.xml.*;
  */
 public class WSDLFactoryImpl extends WSDLFactory
 {
+  /*
+    The populated registry that new populated registries share their
+    registrations with. It is never handed out, and it is frozen, so its
+    tables are only ever copied, never updated. Registries created from
+    it also share its compiled tables until they register something.
+  */
+  private static final PopulatedExtensionRegistry populatedRegistryTemplate =
+    new PopulatedExtensionRegistry();
+
+  static
+  {
+    populatedRegistryTemplate.freeze();
+  }
+
   /**
    * Create a new instance of a Definition, with an instance
    * of a PopulatedExtensionRegistry as its ExtensionRegistry.
@@ -58,9 +72,13 @@ public class WSDLFactoryImpl extends WSDLFactory
    * serializers/deserializers for the SOAP, HTTP and MIME
    * extensions. Java extensionTypes are also mapped for all
    * the SOAP, HTTP and MIME extensions.
+   * <p>
+   * The registrations are shared with a template registry until
+   * something is registered with the new instance, so creating
+   * a populated registry is cheap.
    */
   public ExtensionRegistry newPopulatedExtensionRegistry()
   {
-    return new PopulatedExtensionRegistry();
+    return new PopulatedExtensionRegistry(populatedRegistryTemplate);
   }
 }
\ No newline at end of file
@@ -0,0 +1,876 @@
+/*
+ * (c) Copyright IBM Corp 2006
+ */
+
+package com.ibm.wsdl.util;
+
+import java.lang.ref.Reference;
+import java.lang.reflect.*;
+import java.util.*;
+
+import javax.wsdl.Definition;
+import javax.wsdl.extensions.ExtensibilityElement;
+import javax.wsdl.extensions.ExtensionRegistry;
+import javax.wsdl.extensions.schema.Schema;
+import javax.wsdl.extensions.schema.SchemaReference;
+import javax.wsdl.factory.WSDLFactory;
+import javax.xml.namespace.QName;
+
+import org.w3c.dom.*;
+
+import com.ibm.wsdl.util.xml.DocumentBuilderPool;
+import com.ibm.wsdl.util.xml.QNamePool;
+
+/**
+ * Estimates the number of bytes of heap retained by a graph of objects,
+ * such as a Definition, and splits it into categories: the model
+ * objects themselves, the collections that hold them, strings, QNames,
+ * and DOM nodes, which are split further by what refers to them.
+ * <p>
+ * The size of each object is worked out from the fields declared by its
+ * class, assuming the layout used by HotSpot: a 12 byte object header
+ * and 4 byte references when compressed references are likely to be in
+ * use (a 64-bit VM with a heap under 32GB), 16 and 8 bytes on other
+ * 64-bit VMs, and sizes rounded up to a multiple of 8 bytes. The fields
+ * of WSDL4J's classes, and of other classes outside the JDK, are followed
+ * by reflection. The insides of JDK classes can't be relied upon to be
+ * accessible, so strings, collections, maps, QNames and DOM nodes are
+ * followed through their public interfaces instead, and the structures
+ * they are built from (hash tables, entries, backing arrays) are
+ * estimated from their sizes. Structures that can't be seen at all, such
+ * as the node tables of a deferred DOM, are left out, so the estimate is
+ * worth checking against a measured figure from time to time.
+ * <p>
+ * Each object is counted once, however often it is reached. Objects
+ * that are also reachable from elsewhere, such as pooled QNames and
+ * interned strings, are counted in full, so the estimate is an upper
+ * bound on what would be freed if the graph were discarded. Extension
+ * registries, factories, pools, classes and threads are never counted,
+ * and the referents of soft and weak references are not followed.
+ * <p>
+ * An estimator is not thread-safe, and the objects being measured must
+ * not be changed while it is walking them.
+ */
+public class FootprintEstimator
+{
+  /**
+   * Definitions, their components, extensibility elements, and other
+   * objects of the WSDL4J model.
+   */
+  public static final int MODEL = 0;
+
+  /**
+   * The maps and lists the model keeps its components in, with their
+   * tables, entries and backing arrays.
+   */
+  public static final int COLLECTIONS = 1;
+
+  /**
+   * Strings referred to by the model.
+   */
+  public static final int STRINGS = 2;
+
+  /**
+   * QNames referred to by the model. Their strings count as STRINGS.
+   */
+  public static final int QNAMES = 3;
+
+  /**
+   * The DOM elements of schemas, with their attributes, text and
+   * descendants.
+   */
+  public static final int DOM_SCHEMAS = 4;
+
+  /**
+   * The DOM elements of wsdl:documentation elements.
+   */
+  public static final int DOM_DOCUMENTATION = 5;
+
+  /**
+   * The DOM elements of unknown extensibility elements, and any other
+   * DOM nodes the model refers to.
+   */
+  public static final int DOM_EXTENSIONS = 6;
+
+  /**
+   * The rest of the DOM documents that the elements above belong to:
+   * every DOM node refers to its document, so the whole document is
+   * retained.
+   */
+  public static final int DOM_DOCUMENTS = 7;
+
+  /**
+   * Anything else.
+   */
+  public static final int OTHER = 8;
+
+  /**
+   * The number of categories.
+   */
+  public static final int CATEGORY_COUNT = 9;
+
+  private static final String[] CATEGORY_NAMES =
+  {
+    "model",
+    "collections",
+    "strings",
+    "qnames",
+    "domSchemas",
+    "domDocumentation",
+    "domExtensions",
+    "domDocuments",
+    "other"
+  };
+
+  private static final boolean IS_64_BIT;
+  private static final boolean COMPRESSED_REFERENCES;
+  private static final int HEADER_SIZE;
+  private static final int REFERENCE_SIZE;
+  private static final int ARRAY_HEADER_SIZE;
+  private static final boolean COMPACT_STRINGS;
+
+  static
+  {
+    String dataModel = System.getProperty("sun.arch.data.model");
+
+    IS_64_BIT = (dataModel != null)
+                ? dataModel.equals("64")
+                : System.getProperty("os.arch", "").indexOf("64") != -1;
+    COMPRESSED_REFERENCES = IS_64_BIT &&
+                            Runtime.getRuntime().maxMemory() < (32L << 30);
+    HEADER_SIZE = !IS_64_BIT ? 8 : COMPRESSED_REFERENCES ? 12 : 16;
+    REFERENCE_SIZE = (IS_64_BIT && !COMPRESSED_REFERENCES) ? 8 : 4;
+    ARRAY_HEADER_SIZE = HEADER_SIZE + 4;
+
+    boolean compactStrings = false;
+
+    try
+    {
+      compactStrings =
+        String.class.getDeclaredField("value").getType() == byte[].class;
+    }
+    catch (Exception e)
+    {
+      // Assume two bytes per character.
+    }
+
+    COMPACT_STRINGS = compactStrings;
+  }
+
+  private final long[] sizes = new long[CATEGORY_COUNT];
+  private final long[] counts = new long[CATEGORY_COUNT];
+  private final Map visited = new IdentityHashMap();
+  private final Map excluded = new IdentityHashMap();
+  private final Map roots = new IdentityHashMap();
+  private final Map classInfos = new HashMap();
+  private final List pending = new ArrayList();
+  private final List documents = new ArrayList();
+  private boolean includeReferenced = true;
+
+  /**
+   * Estimate the number of bytes retained by the specified object.
+   *
+   * @param root the object to measure, typically a Definition or Schema
+   * @return the estimated size in bytes
+   */
+  public static long estimate(Object root)
+  {
+    FootprintEstimator estimator = new FootprintEstimator();
+
+    estimator.add(root);
+
+    return estimator.getTotal();
+  }
+
+  /**
+   * Get the name of the specified category, e.g. "domSchemas".
+   */
+  public static String getCategoryName(int category)
+  {
+    return CATEGORY_NAMES[category];
+  }
+
+  /**
+   * Say whether definitions imported by the objects being measured, and
+   * schemas referenced by their schemas, are counted. They are by
+   * default. Turning this off helps when each document is measured on
+   * its own, e.g. to weigh the entries of a document cache.
+   */
+  public void setIncludeReferenced(boolean includeReferenced)
+  {
+    this.includeReferenced = includeReferenced;
+  }
+
+  public boolean getIncludeReferenced()
+  {
+    return includeReferenced;
+  }
+
+  /**
+   * Leave the specified object, and anything reachable only through it,
+   * out of the estimate. This must be called before the objects that
+   * refer to it are added.
+   */
+  public void exclude(Object obj)
+  {
+    excluded.put(obj, obj);
+  }
+
+  /**
+   * Add the objects retained by the specified object to the estimate.
+   * Objects already counted, e.g. those shared with an object added
+   * before, are not counted again.
+   */
+  public void add(Object root)
+  {
+    if (root == null)
+    {
+      return;
+    }
+
+    roots.put(root, root);
+    push(root, OTHER, DOM_EXTENSIONS);
+
+    // Walk everything else first, so that DOM nodes are attributed to
+    // what refers to them rather than to their documents.
+    while (!pending.isEmpty() || !documents.isEmpty())
+    {
+      while (!pending.isEmpty())
+      {
+        Pending next = (Pending)pending.remove(pending.size() - 1);
+
+        visit(next.object, next.category, next.domCategory);
+      }
+
+      if (!documents.isEmpty())
+      {
+        push(documents.remove(documents.size() - 1),
+             DOM_DOCUMENTS,
+             DOM_DOCUMENTS);
+      }
+    }
+  }
+
+  /**
+   * Get the estimated number of bytes in the specified category.
+   */
+  public long getSize(int category)
+  {
+    return sizes[category];
+  }
+
+  /**
+   * Get the number of objects counted in the specified category. The
+   * structures estimated from the sizes of collections, maps and
+   * strings are not counted as objects of their own.
+   */
+  public long getCount(int category)
+  {
+    return counts[category];
+  }
+
+  /**
+   * Get the estimated number of bytes in all the categories.
+   */
+  public long getTotal()
+  {
+    long total = 0;
+
+    for (int i = 0; i < CATEGORY_COUNT; i++)
+    {
+      total += sizes[i];
+    }
+
+    return total;
+  }
+
+  /**
+   * Get the estimated number of bytes of DOM nodes, in all the DOM
+   * categories.
+   */
+  public long getDOMSize()
+  {
+    return sizes[DOM_SCHEMAS] + sizes[DOM_DOCUMENTATION] +
+           sizes[DOM_EXTENSIONS] + sizes[DOM_DOCUMENTS];
+  }
+
+  private void push(Object obj, int category, int domCategory)
+  {
+    if (obj != null && !visited.containsKey(obj))
+    {
+      pending.add(new Pending(obj, category, domCategory));
+    }
+  }
+
+  private void count(int category, long size)
+  {
+    sizes[category] += size;
+    counts[category]++;
+  }
+
+  private void visit(Object obj, int category, int domCategory)
+  {
+    if (visited.containsKey(obj) || isExcluded(obj))
+    {
+      return;
+    }
+
+    visited.put(obj, obj);
+
+    Class cls = obj.getClass();
+
+    if (obj instanceof String)
+    {
+      count(isDOMCategory(category) ? category : STRINGS,
+            getStringSize((String)obj));
+    }
+    else if (obj instanceof Node)
+    {
+      visitNode((Node)obj, domCategory);
+    }
+    else if (cls.isArray())
+    {
+      visitArray(obj, category, domCategory);
+    }
+    else if (obj instanceof QName)
+    {
+      QName qname = (QName)obj;
+
+      count(QNAMES, getClassInfo(cls).size);
+      push(qname.getNamespaceURI(), QNAMES, domCategory);
+      push(qname.getLocalPart(), QNAMES, domCategory);
+      push(qname.getPrefix(), QNAMES, domCategory);
+    }
+    else if (obj instanceof Reference)
+    {
+      // The referent can be collected, so it is not retained.
+      count(OTHER, getClassInfo(cls).size);
+    }
+    else
+    {
+      ClassInfo info = getClassInfo(cls);
+      int objCategory = isModel(obj)
+                        ? MODEL
+                        : (obj instanceof Map || obj instanceof Collection)
+                          ? COLLECTIONS
+                          : OTHER;
+
+      count(objCategory, info.size);
+
+      if (obj instanceof Map)
+      {
+        visitMap((Map)obj, domCategory);
+      }
+      else if (obj instanceof Collection)
+      {
+        visitCollection((Collection)obj, domCategory);
+      }
+
+      for (int i = 0; i < info.references.length; i++)
+      {
+        Object value;
+
+        try
+        {
+          value = info.references[i].get(obj);
+        }
+        catch (IllegalAccessException e)
+        {
+          continue;
+        }
+
+        if (!includeReferenced
+            && obj instanceof SchemaReference
+            && value instanceof Schema)
+        {
+          continue;
+        }
+
+        push(value,
+             objCategory,
+             getDOMCategory(obj, info.references[i], domCategory));
+      }
+    }
+  }
+
+  private boolean isExcluded(Object obj)
+  {
+    return excluded.containsKey(obj)
+           || obj instanceof ExtensionRegistry
+           || obj instanceof WSDLFactory
+           || obj instanceof DocumentBuilderPool
+           || obj instanceof QNamePool
+           || obj instanceof Class
+           || obj instanceof ClassLoader
+           || obj instanceof Thread
+           || (!includeReferenced
+               && obj instanceof Definition
+               && !roots.containsKey(obj));
+  }
+
+  private static boolean isModel(Object obj)
+  {
+    String className = obj.getClass().getName();
+
+    return className.startsWith("com.ibm.wsdl.")
+           || className.startsWith("javax.wsdl.")
+           || obj instanceof ExtensibilityElement;
+  }
+
+  private static boolean isDOMCategory(int category)
+  {
+    return category >= DOM_SCHEMAS && category <= DOM_DOCUMENTS;
+  }
+
+  /*
+    DOM nodes referred to by a documentation element field count as
+    documentation, those referred to by a schema as schemas, and those
+    referred to by any other part of the model as extensions. Objects
+    outside the model pass on what they were given.
+  */
+  private static int getDOMCategory(Object obj, Field field, int domCategory)
+  {
+    if (!isModel(obj))
+    {
+      return domCategory;
+    }
+    else if (field.getName().equals("docEl"))
+    {
+      return DOM_DOCUMENTATION;
+    }
+    else if (obj instanceof Schema)
+    {
+      return DOM_SCHEMAS;
+    }
+    else
+    {
+      return DOM_EXTENSIONS;
+    }
+  }
+
+  private void visitNode(Node node, int domCategory)
+  {
+    count(domCategory, getClassInfo(node.getClass()).size);
+    push(node.getNodeName(), domCategory, domCategory);
+    push(node.getLocalName(), domCategory, domCategory);
+    push(node.getNamespaceURI(), domCategory, domCategory);
+
+    Document doc = node.getOwnerDocument();
+
+    if (doc != null && !visited.containsKey(doc))
+    {
+      documents.add(doc);
+    }
+
+    short nodeType = node.getNodeType();
+
+    if (nodeType == Node.ELEMENT_NODE)
+    {
+      // Check first, as getAttributes() may create an empty map.
+      if (((Element)node).hasAttributes())
+      {
+        NamedNodeMap attrs = node.getAttributes();
+        int length = attrs.getLength();
+
+        count(domCategory,
+              getClassInfo(attrs.getClass()).size +
+              getClassInfo(ArrayList.class).size +
+              getArraySize(REFERENCE_SIZE, length));
+
+        for (int i = 0; i < length; i++)
+        {
+          push(attrs.item(i), domCategory, domCategory);
+        }
+      }
+    }
+    else if (nodeType != Node.DOCUMENT_NODE
+             && nodeType != Node.DOCUMENT_FRAGMENT_NODE)
+    {
+      // Leave the children of attributes alone, as they may be created
+      // on demand.
+      push(node.getNodeValue(), domCategory, domCategory);
+
+      return;
+    }
+
+    for (Node child = node.getFirstChild();
+         child != null;
+         child = child.getNextSibling())
+    {
+      push(child, domCategory, domCategory);
+    }
+  }
+
+  private void visitArray(Object array, int category, int domCategory)
+  {
+    Class componentType = array.getClass().getComponentType();
+    int length = Array.getLength(array);
+
+    count(category, getArraySize(getFieldSize(componentType), length));
+
+    if (!componentType.isPrimitive())
+    {
+      for (int i = 0; i < length; i++)
+      {
+        push(Array.get(array, i), category, domCategory);
+      }
+    }
+  }
+
+  private void visitMap(Map map, int domCategory)
+  {
+    long internalSize = getInternalSize(map);
+
+    if (internalSize > 0)
+    {
+      sizes[COLLECTIONS] += internalSize;
+    }
+
+    // A map of some other kind that is built on fields that are
+    // followed anyway is left to them.
+    if (internalSize >= 0 || isSystemClass(map.getClass()))
+    {
+      Object[] entries = map.entrySet().toArray();
+
+      for (int i = 0; i < entries.length; i++)
+      {
+        Map.Entry entry = (Map.Entry)entries[i];
+
+        push(entry.getKey(), COLLECTIONS, domCategory);
+        push(entry.getValue(), COLLECTIONS, domCategory);
+      }
+    }
+  }
+
+  private void visitCollection(Collection collection, int domCategory)
+  {
+    long internalSize = getInternalSize(collection);
+
+    if (internalSize > 0)
+    {
+      sizes[COLLECTIONS] += internalSize;
+    }
+
+    if (internalSize >= 0 || isSystemClass(collection.getClass()))
+    {
+      Object[] elements = collection.toArray();
+
+      for (int i = 0; i < elements.length; i++)
+      {
+        push(elements[i], COLLECTIONS, domCategory);
+      }
+    }
+  }
+
+  /*
+    Estimate the size of the tables, entries and arrays behind a map,
+    or return -1 if it isn't one of the kinds known.
+  */
+  private long getInternalSize(Map map)
+  {
+    int size = map.size();
+
+    if (map instanceof IdentityHashMap)
+    {
+      return getArraySize(REFERENCE_SIZE, 2 * getCapacity(size, 32, 2, 3));
+    }
+    else if (map instanceof TreeMap)
+    {
+      return size * getEntrySize("java.util.TreeMap$Entry", 5);
+    }
+    else if (map instanceof LinkedHashMap)
+    {
+      return getHashTableSize(size, true) +
+             size * getEntrySize("java.util.LinkedHashMap$Entry", 5);
+    }
+    else if (map instanceof HashMap)
+    {
+      return getHashTableSize(size, true) +
+             size * getEntrySize("java.util.HashMap$Node", 3);
+    }
+    else if (map instanceof Hashtable)
+    {
+      return getHashTableSize(size, false) +
+             size * getEntrySize("java.util.Hashtable$Entry", 3);
+    }
+    else if (map.getClass().getName().equals(
+               "java.util.concurrent.ConcurrentHashMap"))
+    {
+      return getHashTableSize(size, true) +
+             size * getEntrySize("java.util.concurrent.ConcurrentHashMap$Node",
+                                 3);
+    }
+    else
+    {
+      return -1;
+    }
+  }
+
+  private long getInternalSize(Collection collection)
+  {
+    int size = collection.size();
+    String className = collection.getClass().getName();
+
+    if (collection instanceof Vector)
+    {
+      return getArraySize(REFERENCE_SIZE, Math.max(size, 10));
+    }
+    else if (collection instanceof ArrayList)
+    {
+      return (size > 0)
+             ? getArraySize(REFERENCE_SIZE, Math.max(size, 10))
+             : 0;
+    }
+    else if (collection instanceof LinkedList)
+    {
+      return size * getEntrySize("java.util.LinkedList$Node", 3);
+    }
+    else if (collection instanceof LinkedHashSet)
+    {
+      return getClassInfo(LinkedHashMap.class).size +
+             getHashTableSize(size, true) +
+             size * getEntrySize("java.util.LinkedHashMap$Entry", 5);
+    }
+    else if (collection instanceof HashSet)
+    {
+      return getClassInfo(HashMap.class).size +
+             getHashTableSize(size, true) +
+             size * getEntrySize("java.util.HashMap$Node", 3);
+    }
+    else if (collection instanceof TreeSet)
+    {
+      return getClassInfo(TreeMap.class).size +
+             size * getEntrySize("java.util.TreeMap$Entry", 5);
+    }
+    else if (className.equals("java.util.Arrays$ArrayList")
+             || className.equals(
+                  "java.util.concurrent.CopyOnWriteArrayList"))
+    {
+      return getArraySize(REFERENCE_SIZE, size);
+    }
+    else
+    {
+      return -1;
+    }
+  }
+
+  private static long getHashTableSize(int size, boolean lazy)
+  {
+    if (size == 0 && lazy)
+    {
+      return 0;
+    }
+
+    return getArraySize(REFERENCE_SIZE,
+                        getCapacity(size, lazy ? 16 : 11, 3, 4));
+  }
+
+  /*
+    Get the capacity of a table that starts at minCapacity and doubles
+    whenever it is more than loadNum/loadDenom full.
+  */
+  private static int getCapacity(int size,
+                                 int minCapacity,
+                                 int loadNum,
+                                 int loadDenom)
+  {
+    int capacity = minCapacity;
+
+    while ((long)capacity * loadNum / loadDenom < size)
+    {
+      capacity *= 2;
+    }
+
+    return capacity;
+  }
+
+  /*
+    Get the size of an entry of a JDK collection, or if the class can't
+    be found, of an object with the specified number of references and
+    an int.
+  */
+  private long getEntrySize(String className, int references)
+  {
+    try
+    {
+      return getClassInfo(Class.forName(className)).size;
+    }
+    catch (Throwable t)
+    {
+      return align(HEADER_SIZE + 4 + references * REFERENCE_SIZE);
+    }
+  }
+
+  private long getStringSize(String str)
+  {
+    int charSize = 2;
+
+    if (COMPACT_STRINGS)
+    {
+      charSize = 1;
+
+      for (int i = 0; i < str.length(); i++)
+      {
+        if (str.charAt(i) > 0xFF)
+        {
+          charSize = 2;
+          break;
+        }
+      }
+    }
+
+    return getClassInfo(String.class).size +
+           getArraySize(charSize, str.length());
+  }
+
+  private static long getArraySize(int elementSize, int length)
+  {
+    return align(ARRAY_HEADER_SIZE + (long)elementSize * length);
+  }
+
+  private static long align(long size)
+  {
+    return (size + 7) & ~7L;
+  }
+
+  private static int getFieldSize(Class type)
+  {
+    if (!type.isPrimitive())
+    {
+      return REFERENCE_SIZE;
+    }
+    else if (type == long.class || type == double.class)
+    {
+      return 8;
+    }
+    else if (type == int.class || type == float.class)
+    {
+      return 4;
+    }
+    else if (type == short.class || type == char.class)
+    {
+      return 2;
+    }
+    else
+    {
+      return 1;
+    }
+  }
+
+  /*
+    The fields of JDK classes are counted, but not followed.
+  */
+  private static boolean isSystemClass(Class cls)
+  {
+    String className = cls.getName();
+
+    return className.startsWith("java.")
+           || (className.startsWith("javax.")
+               && !className.startsWith("javax.wsdl."))
+           || className.startsWith("sun.")
+           || className.startsWith("com.sun.")
+           || className.startsWith("jdk.")
+           || className.startsWith("org.w3c.")
+           || className.startsWith("org.xml.");
+  }
+
+  private ClassInfo getClassInfo(Class cls)
+  {
+    ClassInfo info = (ClassInfo)classInfos.get(cls);
+
+    if (info == null)
+    {
+      long size = HEADER_SIZE;
+      List references = new ArrayList();
+
+      for (Class c = cls; c != null; c = c.getSuperclass())
+      {
+        Field[] fields;
+
+        try
+        {
+          fields = c.getDeclaredFields();
+        }
+        catch (SecurityException e)
+        {
+          continue;
+        }
+
+        boolean follow = !isSystemClass(c);
+
+        for (int i = 0; i < fields.length; i++)
+        {
+          if (Modifier.isStatic(fields[i].getModifiers()))
+          {
+            continue;
+          }
+
+          size += getFieldSize(fields[i].getType());
+
+          if (follow && !fields[i].getType().isPrimitive())
+          {
+            try
+            {
+              fields[i].setAccessible(true);
+              references.add(fields[i]);
+            }
+            catch (RuntimeException e)
+            {
+              // The field can't be followed.
+            }
+          }
+        }
+      }
+
+      info = new ClassInfo(align(size),
+                           (Field[])references.toArray(
+                             new Field[references.size()]));
+      classInfos.put(cls, info);
+    }
+
+    return info;
+  }
+
+  public String toString()
+  {
+    StringBuffer strBuf = new StringBuffer();
+
+    strBuf.append("FootprintEstimator:");
+
+    for (int i = 0; i < CATEGORY_COUNT; i++)
+    {
+      strBuf.append("\n" + CATEGORY_NAMES[i] + "=" + sizes[i] +
+                    " (" + counts[i] + " objects)");
+    }
+
+    strBuf.append("\ntotal=" + getTotal());
+
+    return strBuf.toString();
+  }
+
+  private static class ClassInfo
+  {
+    final long size;
+    final Field[] references;
+
+    ClassInfo(long size, Field[] references)
+    {
+      this.size = size;
+      this.references = references;
+    }
+  }
+
+  private static class Pending
+  {
+    final Object object;
+    final int category;
+    final int domCategory;
+
+    Pending(Object object, int category, int domCategory)
+    {
+      this.object = object;
+      this.category = category;
+      this.domCategory = domCategory;
+    }
+  }
+}
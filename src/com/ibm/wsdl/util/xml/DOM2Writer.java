@@ -129,11 +129,13 @@ public class DOM2Writer
   */
   public static void serializeAsXML(Node node, Map namespaces, Writer writer)
   {
-    ObjectRegistry namespaceStack = new ObjectRegistry(namespaces);
+    NamespaceStack namespaceStack = new NamespaceStack(namespaces);
 
-    namespaceStack.register("xml", NS_URI_XML);
+    namespaceStack.declare("xml", NS_URI_XML);
 
-    PrintWriter pw = new PrintWriter(writer);
+    PrintWriter pw = (writer instanceof PrintWriter)
+                     ? (PrintWriter)writer
+                     : new PrintWriter(writer);
     String javaEncoding = (writer instanceof OutputStreamWriter)
                 ? ((OutputStreamWriter) writer).getEncoding()
                 : null;
@@ -141,7 +143,7 @@ public class DOM2Writer
     print(node, namespaceStack, pw, java2XMLEncoding(javaEncoding));
   }
 
-  private static void print(Node node, ObjectRegistry namespaceStack,
+  private static void print(Node node, NamespaceStack namespaceStack,
                             PrintWriter out, String xmlEncoding)
   {
     if (node == null)
@@ -149,7 +151,6 @@ public class DOM2Writer
       return;
     }
 
-    boolean hasChildren = false;
     int type = node.getNodeType();
 
     switch (type)
@@ -178,35 +179,15 @@ public class DOM2Writer
 
       case Node.ELEMENT_NODE :
       {
-        namespaceStack = new ObjectRegistry(namespaceStack);
-
-        out.print('<' + node.getNodeName());
+        int mark = namespaceStack.mark();
+        String nodeName = node.getNodeName();
 
-        String elPrefix = node.getPrefix();
-        String elNamespaceURI = node.getNamespaceURI();
+        out.write('<');
+        out.write(nodeName);
 
-        if (elPrefix != null && elNamespaceURI != null)
+        if (!isDeclared(node, namespaceStack))
         {
-          boolean prefixIsDeclared = false;
-
-          try
-          {
-            String namespaceURI = (String)namespaceStack.lookup(elPrefix);
-
-            if (elNamespaceURI.equals(namespaceURI))
-            {
-              prefixIsDeclared = true;
-            }
-          }
-          catch (IllegalArgumentException e)
-          {
-            // ignore this and carry on
-          }
-
-          if (!prefixIsDeclared)
-          {
-            printNamespaceDecl(node, namespaceStack, out);
-          }
+          printNamespaceDecl((Element)node, node, namespaceStack, out);
         }
 
         NamedNodeMap attrs = node.getAttributes();
@@ -216,112 +197,90 @@ public class DOM2Writer
         {
           Attr attr = (Attr)attrs.item(i);
 
-          out.print(' ' + attr.getNodeName() +"=\"" +
-                    normalize(attr.getValue()) + '\"');
-
-          String attrPrefix = attr.getPrefix();
-          String attrNamespaceURI = attr.getNamespaceURI();
+          out.write(' ');
+          out.write(attr.getNodeName());
+          out.write("=\"");
+          printNormalized(attr.getValue(), out);
+          out.write('\"');
 
-          if (attrPrefix != null && attrNamespaceURI != null)
+          if (!isDeclared(attr, namespaceStack))
           {
-            boolean prefixIsDeclared = false;
-
-            try
-            {
-              String namespaceURI = (String)namespaceStack.lookup(attrPrefix);
-
-              if (attrNamespaceURI.equals(namespaceURI))
-              {
-                prefixIsDeclared = true;
-              }
-            }
-            catch (IllegalArgumentException e)
-            {
-              // ignore this and carry on
-            }
-
-            if (!prefixIsDeclared)
-            {
-              printNamespaceDecl(attr, namespaceStack, out);
-            }
+            printNamespaceDecl(attr.getOwnerElement(), attr,
+                               namespaceStack, out);
           }
         }
 
         Node child = node.getFirstChild();
         if (child != null)
         {
-          hasChildren = true;
-          out.print('>');
+          out.write('>');
           
           while (child != null) 
           {   
             print(child, namespaceStack, out, xmlEncoding);
             child = child.getNextSibling();
           }
+
+          out.write("</");
+          out.write(nodeName);
+          out.write('>');
         }
         else 
         {
-          hasChildren = false;
-          out.print("/>");
+          out.write("/>");
         }
+
+        namespaceStack.reset(mark);
         break;
       }
 
       case Node.ENTITY_REFERENCE_NODE :
       {
-        out.print('&');
-        out.print(node.getNodeName());
-        out.print(';');
+        out.write('&');
+        out.write(node.getNodeName());
+        out.write(';');
         break;
       }
 
       case Node.CDATA_SECTION_NODE :
       {
-        out.print("<![CDATA[");
+        out.write("<![CDATA[");
         out.print(node.getNodeValue());
-        out.print("]]>");
+        out.write("]]>");
         break;
       }
 
       case Node.TEXT_NODE :
       {
-        out.print(normalize(node.getNodeValue()));
+        printNormalized(node.getNodeValue(), out);
         break;
       }
 
       case Node.COMMENT_NODE :
       {
-        out.print("<!--");
+        out.write("<!--");
         out.print(node.getNodeValue());
-        out.print("-->");
+        out.write("-->");
         break;
       }
 
       case Node.PROCESSING_INSTRUCTION_NODE :
       {
-        out.print("<?");
-        out.print(node.getNodeName());
+        out.write("<?");
+        out.write(node.getNodeName());
 
         String data = node.getNodeValue();
 
         if (data != null && data.length() > 0)
         {
-          out.print(' ');
-          out.print(data);
+          out.write(' ');
+          out.write(data);
         }
 
         out.println("?>");
         break;
       }
     }
-
-    if (type == Node.ELEMENT_NODE && hasChildren == true)
-    {
-      out.print("</");
-      out.print(node.getNodeName());
-      out.print('>');
-      hasChildren = false;
-    }
   }
 
   public static String java2XMLEncoding(String javaEnc)
@@ -330,29 +289,22 @@ public class DOM2Writer
   }
 
   
-  private static void printNamespaceDecl(Node node,
-                                         ObjectRegistry namespaceStack,
-                                         PrintWriter out)
+  /*
+    Check whether the prefix of the node, if any, is declared with the
+    node's namespace.
+  */
+  private static boolean isDeclared(Node node, NamespaceStack namespaceStack)
   {
-    switch (node.getNodeType())
-    {
-      case Node.ATTRIBUTE_NODE :
-      {
-        printNamespaceDecl(((Attr)node).getOwnerElement(), node,
-                           namespaceStack, out);
-        break;
-      }
+    String prefix = node.getPrefix();
+    String namespaceURI = node.getNamespaceURI();
 
-      case Node.ELEMENT_NODE :
-      {
-        printNamespaceDecl((Element)node, node, namespaceStack, out);
-        break;
-      }
-    }
+    return prefix == null
+           || namespaceURI == null
+           || namespaceURI.equals(namespaceStack.getNamespaceURI(prefix));
   }
 
   private static void printNamespaceDecl(Element owner, Node node,
-                                         ObjectRegistry namespaceStack,
+                                         NamespaceStack namespaceStack,
                                          PrintWriter out)
   {
     String namespaceURI = node.getNamespaceURI();
@@ -362,7 +314,11 @@ public class DOM2Writer
     {
       if (DOMUtils.getAttributeNS(owner, NS_URI_XMLNS, prefix) == null)
       {
-        out.print(" xmlns:" + prefix + "=\"" + namespaceURI + '\"');
+        out.write(" xmlns:");
+        out.write(prefix);
+        out.write("=\"");
+        out.write(namespaceURI);
+        out.write('\"');
       }
     }
     else
@@ -371,68 +327,63 @@ public class DOM2Writer
       namespaceURI = node.getNodeValue();
     }
 
-    namespaceStack.register(prefix, namespaceURI);
+    namespaceStack.declare(prefix, namespaceURI);
   }
 
-  private static String normalize(String s)
+  /*
+    Print the string, escaping markup characters, and printing line
+    feeds not preceded by a carriage return as line separators.
+  */
+  private static void printNormalized(String s, PrintWriter out)
   {
-    StringBuffer str = new StringBuffer();
     int len = (s != null) ? s.length() : 0;
+    int start = 0;
 
     for (int i = 0; i < len; i++)
     {
       char ch = s.charAt(i);
+      String replacement;
 
       switch (ch)
       {
         case '<' :
         {
-          str.append("&lt;");
+          replacement = "&lt;";
           break;
         }
         case '>' :
         {
-          str.append("&gt;");
+          replacement = "&gt;";
           break;
         }
         case '&' :
         {
-          str.append("&amp;");
+          replacement = "&amp;";
           break;
         }
         case '"' :
         {
-          str.append("&quot;");
+          replacement = "&quot;";
           break;
         }
         case '\n' :
         {
-          if (i > 0)
-          {
-            char lastChar = str.charAt(str.length() - 1);
-
-            if (lastChar != '\r')
-            {
-              str.append(StringUtils.lineSeparator);
-            }
-            else
-            {
-              str.append('\n');
-            }
-          }
-          else
-          {
-            str.append(StringUtils.lineSeparator);
-          }
+          replacement = (i > 0 && s.charAt(i - 1) == '\r')
+                        ? "\n"
+                        : StringUtils.lineSeparator;
           break;
         }
         default :
         {
-          str.append(ch);
+          continue;
         }
       }
+
+      out.write(s, start, i - start);
+      out.write(replacement);
+      start = i + 1;
     }
 
-    return (str.toString());
+    out.write(s, start, len - start);
   }
-}
\ No newline at end of file
+}
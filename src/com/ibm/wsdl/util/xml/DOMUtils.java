@@ -298,7 +298,7 @@ public class DOMUtils {
     {
       registerUniquePrefix(prefix, namespaceURI, def);
 
-      return new QName(namespaceURI, localPart);
+      return QNameUtils.newQName(namespaceURI, localPart);
     }
     else
     {
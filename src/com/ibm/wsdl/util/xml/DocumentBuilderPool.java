@@ -0,0 +1,268 @@
+/*
+ * (c) Copyright IBM Corp 2006
+ */
+
+package com.ibm.wsdl.util.xml;
+
+import java.util.*;
+import javax.xml.parsers.*;
+import org.w3c.dom.*;
+import org.xml.sax.*;
+import javax.wsdl.*;
+
+/**
+ * A thread-safe pool of DocumentBuilders. Creating a DocumentBuilderFactory
+ * involves a service lookup, and creating a DocumentBuilder involves setting
+ * up a parser, so the pool keeps a bounded number of idle builders around
+ * and resets them before they are handed out again.
+ * <p>
+ * The pool is shared by WSDLReaderImpl and WSDLWriterImpl. A pool can be
+ * created for a particular DocumentBuilderFactory and set on the reader or
+ * writer; otherwise the default pool is used. Any factory supplied must be
+ * namespace aware.
+ */
+public class DocumentBuilderPool
+{
+  /**
+   * The maximum number of idle builders kept by the default pool.
+   */
+  public static final int DEFAULT_MAX_IDLE = 8;
+
+  private static DocumentBuilderPool defaultPool = null;
+
+  private final DocumentBuilderFactory factory;
+  private final int maxIdle;
+  private final LinkedList idleBuilders = new LinkedList();
+  private long hits = 0;
+  private long misses = 0;
+
+  /**
+   * Create a pool using a new namespace aware, non-validating
+   * DocumentBuilderFactory, keeping at most DEFAULT_MAX_IDLE idle builders.
+   */
+  public DocumentBuilderPool()
+  {
+    this(null, DEFAULT_MAX_IDLE);
+  }
+
+  /**
+   * Create a pool of builders produced by the specified factory.
+   *
+   * @param factory the factory used to create builders. If null, a new
+   * namespace aware, non-validating factory is used.
+   * @param maxIdle the maximum number of idle builders to keep. If 0,
+   * a new builder is created for every request.
+   */
+  public DocumentBuilderPool(DocumentBuilderFactory factory, int maxIdle)
+  {
+    if (maxIdle < 0)
+    {
+      throw new IllegalArgumentException("The maximum number of idle " +
+                                         "builders must not be negative.");
+    }
+
+    this.factory = (factory != null) ? factory : newDocumentBuilderFactory();
+    this.maxIdle = maxIdle;
+  }
+
+  /**
+   * Get the pool used by readers and writers that have not been given
+   * a pool of their own.
+   */
+  public static synchronized DocumentBuilderPool getDefaultPool()
+  {
+    if (defaultPool == null)
+    {
+      defaultPool = new DocumentBuilderPool();
+    }
+
+    return defaultPool;
+  }
+
+  /**
+   * Create a namespace aware, non-validating DocumentBuilderFactory,
+   * configured the way WSDL4J needs it.
+   */
+  public static DocumentBuilderFactory newDocumentBuilderFactory()
+  {
+    DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+
+    factory.setNamespaceAware(true);
+    factory.setValidating(false);
+
+    return factory;
+  }
+
+  public DocumentBuilderFactory getDocumentBuilderFactory()
+  {
+    return factory;
+  }
+
+  public int getMaxIdle()
+  {
+    return maxIdle;
+  }
+
+  /**
+   * Take a builder from the pool, creating a new one if none is idle.
+   * The builder should be handed back using release(DocumentBuilder).
+   */
+  public DocumentBuilder acquire() throws ParserConfigurationException
+  {
+    synchronized (this)
+    {
+      if (!idleBuilders.isEmpty())
+      {
+        hits++;
+
+        return (DocumentBuilder)idleBuilders.removeFirst();
+      }
+
+      misses++;
+    }
+
+    // DocumentBuilderFactory implementations are not required to be
+    // thread-safe.
+    synchronized (factory)
+    {
+      return factory.newDocumentBuilder();
+    }
+  }
+
+  /**
+   * Return a builder to the pool. The builder is reset before it is made
+   * available again; builders that cannot be reset are discarded.
+   */
+  public void release(DocumentBuilder builder)
+  {
+    if (builder == null || maxIdle == 0)
+    {
+      return;
+    }
+
+    try
+    {
+      builder.reset();
+    }
+    catch (UnsupportedOperationException e)
+    {
+      return;
+    }
+
+    synchronized (this)
+    {
+      if (idleBuilders.size() < maxIdle)
+      {
+        idleBuilders.addFirst(builder);
+      }
+    }
+  }
+
+  /**
+   * Parse the specified input using a pooled builder.
+   *
+   * @param inputSource the document to parse.
+   * @param desc a description of the document, used in error messages.
+   * @return the parsed document.
+   */
+  public Document parse(InputSource inputSource, String desc)
+    throws WSDLException
+  {
+    DocumentBuilder builder = null;
+
+    try
+    {
+      builder = acquire();
+
+      return builder.parse(inputSource);
+    }
+    catch (RuntimeException e)
+    {
+      throw e;
+    }
+    catch (Exception e)
+    {
+      throw new WSDLException(WSDLException.PARSER_ERROR,
+                              "Problem parsing '" + desc + "'.",
+                              e);
+    }
+    finally
+    {
+      release(builder);
+    }
+  }
+
+  /**
+   * Create a new, empty document using a pooled builder.
+   */
+  public Document newDocument() throws WSDLException
+  {
+    DocumentBuilder builder = null;
+
+    try
+    {
+      builder = acquire();
+
+      return builder.newDocument();
+    }
+    catch (ParserConfigurationException e)
+    {
+      throw new WSDLException(WSDLException.CONFIGURATION_ERROR,
+                              "Unable to create a DocumentBuilder.",
+                              e);
+    }
+    finally
+    {
+      release(builder);
+    }
+  }
+
+  /**
+   * Get the number of requests that were satisfied by an idle builder.
+   */
+  public synchronized long getHits()
+  {
+    return hits;
+  }
+
+  /**
+   * Get the number of requests that required a new builder.
+   */
+  public synchronized long getMisses()
+  {
+    return misses;
+  }
+
+  public synchronized int getIdleCount()
+  {
+    return idleBuilders.size();
+  }
+
+  /**
+   * Discard all idle builders and reset the hit and miss counters.
+   */
+  public synchronized void clear()
+  {
+    idleBuilders.clear();
+    hits = 0;
+    misses = 0;
+  }
+
+  public String toString()
+  {
+    StringBuffer strBuf = new StringBuffer();
+
+    strBuf.append("DocumentBuilderPool:");
+    strBuf.append("\nfactory=" + factory.getClass().getName());
+    strBuf.append("\nmaxIdle=" + maxIdle);
+
+    synchronized (this)
+    {
+      strBuf.append("\nidle=" + idleBuilders.size());
+      strBuf.append("\nhits=" + hits);
+      strBuf.append("\nmisses=" + misses);
+    }
+
+    return strBuf.toString();
+  }
+}
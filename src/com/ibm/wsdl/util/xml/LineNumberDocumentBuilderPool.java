@@ -0,0 +1,324 @@
+/*
+ * (c) Copyright IBM Corp 2006
+ */
+
+package com.ibm.wsdl.util.xml;
+
+import java.util.*;
+import javax.xml.parsers.*;
+import org.w3c.dom.*;
+import org.xml.sax.*;
+import org.xml.sax.ext.*;
+import org.xml.sax.helpers.*;
+import javax.wsdl.*;
+
+/**
+ * A DocumentBuilderPool that records where each element of the documents
+ * it parses starts. Documents are built from SAX events, and the line and
+ * column number reported by the parser at the end of each start tag are
+ * attached to the element as user data, where getLineNumber(Node) and
+ * getColumnNumber(Node) find them.
+ * <p>
+ * The documents are the same as the ones DocumentBuilderPool produces,
+ * except that they don't have a document type node.
+ */
+public class LineNumberDocumentBuilderPool extends DocumentBuilderPool
+{
+  private static final String POSITION_KEY = "com.ibm.wsdl.position";
+
+  private static final String NS_URI_XMLNS = "http://www.w3.org/2000/xmlns/";
+
+  private final SAXParserFactory saxFactory = newSAXParserFactory();
+  private final LinkedList idleReaders = new LinkedList();
+
+  public LineNumberDocumentBuilderPool()
+  {
+  }
+
+  /**
+   * @see DocumentBuilderPool#DocumentBuilderPool(DocumentBuilderFactory, int)
+   */
+  public LineNumberDocumentBuilderPool(DocumentBuilderFactory factory,
+                                       int maxIdle)
+  {
+    super(factory, maxIdle);
+  }
+
+  /**
+   * Get the line number of the end of the start tag of the specified
+   * element.
+   *
+   * @return the line number, or -1 if it wasn't recorded
+   */
+  public static int getLineNumber(Node node)
+  {
+    int[] position = getPosition(node);
+
+    return (position != null) ? position[0] : -1;
+  }
+
+  /**
+   * Get the column number of the end of the start tag of the specified
+   * element.
+   *
+   * @return the column number, or -1 if it wasn't recorded
+   */
+  public static int getColumnNumber(Node node)
+  {
+    int[] position = getPosition(node);
+
+    return (position != null) ? position[1] : -1;
+  }
+
+  private static int[] getPosition(Node node)
+  {
+    return (node != null && node.getNodeType() == Node.ELEMENT_NODE)
+           ? (int[])node.getUserData(POSITION_KEY)
+           : null;
+  }
+
+  private static SAXParserFactory newSAXParserFactory()
+  {
+    SAXParserFactory factory = SAXParserFactory.newInstance();
+
+    factory.setNamespaceAware(true);
+    factory.setValidating(false);
+
+    return factory;
+  }
+
+  /**
+   * Parse the specified input, recording the position of each element.
+   *
+   * @param inputSource the document to parse.
+   * @param desc a description of the document, used in error messages.
+   * @return the parsed document.
+   */
+  public Document parse(InputSource inputSource, String desc)
+    throws WSDLException
+  {
+    Document doc = newDocument();
+    XMLReader xmlReader = null;
+
+    try
+    {
+      xmlReader = acquireReader();
+
+      DOMBuilder builder = new DOMBuilder(doc);
+
+      xmlReader.setContentHandler(builder);
+      xmlReader.setProperty("http://xml.org/sax/properties/lexical-handler",
+                            builder);
+      xmlReader.parse(inputSource);
+
+      return doc;
+    }
+    catch (RuntimeException e)
+    {
+      throw e;
+    }
+    catch (Exception e)
+    {
+      throw new WSDLException(WSDLException.PARSER_ERROR,
+                              "Problem parsing '" + desc + "'.",
+                              e);
+    }
+    finally
+    {
+      releaseReader(xmlReader);
+    }
+  }
+
+  private XMLReader acquireReader() throws Exception
+  {
+    synchronized (this)
+    {
+      if (!idleReaders.isEmpty())
+      {
+        return (XMLReader)idleReaders.removeFirst();
+      }
+    }
+
+    XMLReader xmlReader;
+
+    synchronized (saxFactory)
+    {
+      xmlReader = saxFactory.newSAXParser().getXMLReader();
+    }
+
+    xmlReader.setFeature("http://xml.org/sax/features/namespace-prefixes",
+                         true);
+
+    return xmlReader;
+  }
+
+  private void releaseReader(XMLReader xmlReader)
+  {
+    if (xmlReader == null || getMaxIdle() == 0)
+    {
+      return;
+    }
+
+    // Don't keep the last document alive.
+    xmlReader.setContentHandler(null);
+
+    try
+    {
+      xmlReader.setProperty("http://xml.org/sax/properties/lexical-handler",
+                            null);
+    }
+    catch (SAXException e)
+    {
+      return;
+    }
+
+    synchronized (this)
+    {
+      if (idleReaders.size() < getMaxIdle())
+      {
+        idleReaders.addFirst(xmlReader);
+      }
+    }
+  }
+
+  public synchronized void clear()
+  {
+    super.clear();
+    idleReaders.clear();
+  }
+
+  /*
+    Builds a DOM from SAX events the same way a namespace aware
+    DocumentBuilder does.
+  */
+  private static class DOMBuilder extends DefaultHandler
+                                  implements LexicalHandler
+  {
+    private final Document doc;
+    private Node current;
+    private Locator locator = null;
+    private boolean inCDATA = false;
+    private boolean inDTD = false;
+
+    DOMBuilder(Document doc)
+    {
+      this.doc = doc;
+      this.current = doc;
+    }
+
+    public void setDocumentLocator(Locator locator)
+    {
+      this.locator = locator;
+    }
+
+    public void startElement(String uri, String localName, String qName,
+                             Attributes attributes)
+    {
+      Element el = doc.createElementNS(uri.length() > 0 ? uri : null, qName);
+      int len = attributes.getLength();
+
+      for (int i = 0; i < len; i++)
+      {
+        String attrName = attributes.getQName(i);
+        String attrURI = attributes.getURI(i);
+
+        if (attrName.startsWith("xmlns")
+            && (attrName.length() == 5 || attrName.charAt(5) == ':'))
+        {
+          attrURI = NS_URI_XMLNS;
+        }
+
+        el.setAttributeNS(attrURI.length() > 0 ? attrURI : null,
+                          attrName,
+                          attributes.getValue(i));
+      }
+
+      if (locator != null)
+      {
+        el.setUserData(POSITION_KEY,
+                       new int[]{locator.getLineNumber(),
+                                 locator.getColumnNumber()},
+                       null);
+      }
+
+      current.appendChild(el);
+      current = el;
+    }
+
+    public void endElement(String uri, String localName, String qName)
+    {
+      current = current.getParentNode();
+    }
+
+    public void characters(char[] ch, int start, int length)
+    {
+      if (current == doc)
+      {
+        return;
+      }
+
+      Node last = current.getLastChild();
+
+      // Inside a CDATA section, the last child is the section.
+      if (inCDATA || (last != null && last.getNodeType() == Node.TEXT_NODE))
+      {
+        ((CharacterData)last).appendData(new String(ch, start, length));
+      }
+      else
+      {
+        current.appendChild(doc.createTextNode(new String(ch, start, length)));
+      }
+    }
+
+    public void ignorableWhitespace(char[] ch, int start, int length)
+    {
+      characters(ch, start, length);
+    }
+
+    public void processingInstruction(String target, String data)
+    {
+      current.appendChild(doc.createProcessingInstruction(target, data));
+    }
+
+    public void startCDATA()
+    {
+      inCDATA = true;
+
+      // Adjacent CDATA sections are kept apart.
+      current.appendChild(doc.createCDATASection(""));
+    }
+
+    public void endCDATA()
+    {
+      inCDATA = false;
+    }
+
+    public void comment(char[] ch, int start, int length)
+    {
+      if (inDTD)
+      {
+        return;
+      }
+
+      current.appendChild(doc.createComment(new String(ch, start, length)));
+    }
+
+    public void startDTD(String name, String publicId, String systemId)
+    {
+      inDTD = true;
+    }
+
+    public void endDTD()
+    {
+      inDTD = false;
+    }
+
+    public void startEntity(String name)
+    {
+    }
+
+    public void endEntity(String name)
+    {
+    }
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * (c) Copyright IBM Corp 2006
+ */
+
+package com.ibm.wsdl.util.xml;
+
+import java.util.*;
+
+/**
+ * A stack of namespace declarations, used to track the prefixes in
+ * scope while walking a DOM. A scope is entered by calling mark(), and
+ * left by passing what it returned to reset(int); declarations made in
+ * between are forgotten. Looking up an undeclared prefix returns null.
+ *
+ * @see DOM2Writer
+ */
+public class NamespaceStack
+{
+  private String[] prefixes = new String[16];
+  private String[] namespaceURIs = new String[16];
+  private int size = 0;
+
+  public NamespaceStack()
+  {
+  }
+
+  /**
+   * Create a stack with the declarations in the specified map, which
+   * associates prefixes with namespace URIs.
+   */
+  public NamespaceStack(Map namespaces)
+  {
+    if (namespaces != null)
+    {
+      Iterator entryIterator = namespaces.entrySet().iterator();
+
+      while (entryIterator.hasNext())
+      {
+        Map.Entry entry = (Map.Entry)entryIterator.next();
+
+        declare((String)entry.getKey(), (String)entry.getValue());
+      }
+    }
+  }
+
+  /**
+   * Declare a prefix in the current scope. It hides any declaration of
+   * the same prefix made before.
+   */
+  public void declare(String prefix, String namespaceURI)
+  {
+    if (size == prefixes.length)
+    {
+      String[] newPrefixes = new String[size * 2];
+      String[] newNamespaceURIs = new String[size * 2];
+
+      System.arraycopy(prefixes, 0, newPrefixes, 0, size);
+      System.arraycopy(namespaceURIs, 0, newNamespaceURIs, 0, size);
+      prefixes = newPrefixes;
+      namespaceURIs = newNamespaceURIs;
+    }
+
+    prefixes[size] = prefix;
+    namespaceURIs[size] = namespaceURI;
+    size++;
+  }
+
+  /**
+   * Get the namespace URI the specified prefix is declared with.
+   *
+   * @return the namespace URI, or null if the prefix isn't declared
+   */
+  public String getNamespaceURI(String prefix)
+  {
+    for (int i = size - 1; i >= 0; i--)
+    {
+      if (prefix.equals(prefixes[i]))
+      {
+        return namespaceURIs[i];
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Mark the start of a new scope.
+   *
+   * @return the mark to pass to reset(int) when leaving the scope
+   */
+  public int mark()
+  {
+    return size;
+  }
+
+  /**
+   * Forget the declarations made since the specified mark.
+   */
+  public void reset(int mark)
+  {
+    for (int i = mark; i < size; i++)
+    {
+      prefixes[i] = null;
+      namespaceURIs[i] = null;
+    }
+
+    size = mark;
+  }
+}
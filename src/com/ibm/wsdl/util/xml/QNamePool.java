@@ -0,0 +1,346 @@
+/*
+ * (c) Copyright IBM Corp 2006
+ */
+
+package com.ibm.wsdl.util.xml;
+
+import java.lang.ref.*;
+import java.util.*;
+import javax.xml.namespace.*;
+
+/**
+ * A thread-safe pool of canonical QNames and namespace URIs. Reading a
+ * WSDL document creates a QName for almost every element, attribute and
+ * reference in it, and most of them are equal to ones created before.
+ * Interning them through a pool means equal QNames read from any number
+ * of documents share a single instance, as do the namespace URIs in them.
+ * <p>
+ * The pool only holds weak references, so entries that are no longer
+ * used anywhere else are reclaimed by the garbage collector. It is split
+ * into independently locked segments, so readers running at the same
+ * time seldom wait for each other.
+ * <p>
+ * QNameUtils.newQName(...) and DOMUtils.getQName(...), and therefore the
+ * readers and extension deserializers, only intern through the pool set
+ * for the current thread. Readers with the com.ibm.wsdl.internQNames
+ * feature set to true set their pool, or else the default pool, while
+ * reading; otherwise QNames are created as they always were.
+ */
+public class QNamePool
+{
+  private static final int SEGMENT_COUNT = 16;
+
+  private static volatile QNamePool defaultPool = new QNamePool();
+  private static final ThreadLocal threadPool = new ThreadLocal();
+
+  private final Segment[] segments = new Segment[SEGMENT_COUNT];
+
+  public QNamePool()
+  {
+    for (int i = 0; i < SEGMENT_COUNT; i++)
+    {
+      segments[i] = new Segment();
+    }
+  }
+
+  /**
+   * Get the pool shared by readers that intern QNames and haven't been
+   * given a pool of their own.
+   *
+   * @return the default pool, or null if there is none
+   */
+  public static QNamePool getDefaultPool()
+  {
+    return defaultPool;
+  }
+
+  /**
+   * Set the pool shared by readers that intern QNames and haven't been
+   * given a pool of their own. If null, those readers don't intern them.
+   */
+  public static void setDefaultPool(QNamePool pool)
+  {
+    defaultPool = pool;
+  }
+
+  /**
+   * Get the pool QNameUtils and DOMUtils use on the current thread.
+   *
+   * @return the pool, or null if QNames aren't being interned
+   */
+  public static QNamePool getThreadPool()
+  {
+    return (QNamePool)threadPool.get();
+  }
+
+  /**
+   * Set the pool QNameUtils and DOMUtils use on the current thread. If
+   * null, QNames created on the thread aren't interned.
+   *
+   * @return the pool that was set before
+   */
+  public static QNamePool setThreadPool(QNamePool pool)
+  {
+    QNamePool previousPool = (QNamePool)threadPool.get();
+
+    if (pool != null)
+    {
+      threadPool.set(pool);
+    }
+    else
+    {
+      threadPool.remove();
+    }
+
+    return previousPool;
+  }
+
+  /**
+   * Get the canonical QName with the specified namespace URI and local
+   * part, and no prefix.
+   */
+  public QName intern(String namespaceURI, String localPart)
+  {
+    QName qname = new QName(namespaceURI, localPart);
+    Segment segment = getSegment(qname.hashCode());
+    QName canonical;
+
+    synchronized (segment)
+    {
+      canonical = (QName)segment.get(segment.qnames, qname);
+
+      if (canonical != null)
+      {
+        segment.hits++;
+
+        return canonical;
+      }
+
+      segment.misses++;
+    }
+
+    // Interning the namespace URI may take another segment's lock.
+    String canonicalNamespaceURI = internNamespaceURI(qname.getNamespaceURI());
+
+    if (canonicalNamespaceURI != qname.getNamespaceURI())
+    {
+      qname = new QName(canonicalNamespaceURI, localPart);
+    }
+
+    synchronized (segment)
+    {
+      canonical = (QName)segment.get(segment.qnames, qname);
+
+      if (canonical != null)
+      {
+        return canonical;
+      }
+
+      segment.qnames.put(qname, new WeakReference(qname));
+
+      return qname;
+    }
+  }
+
+  /**
+   * Get the canonical string equal to the specified namespace URI.
+   */
+  public String internNamespaceURI(String namespaceURI)
+  {
+    if (namespaceURI == null || namespaceURI.length() == 0)
+    {
+      return namespaceURI;
+    }
+
+    Segment segment = getSegment(namespaceURI.hashCode());
+
+    synchronized (segment)
+    {
+      String canonical = (String)segment.get(segment.namespaceURIs,
+                                             namespaceURI);
+
+      if (canonical != null)
+      {
+        segment.namespaceHits++;
+
+        return canonical;
+      }
+
+      segment.namespaceMisses++;
+      segment.namespaceURIs.put(namespaceURI, new WeakReference(namespaceURI));
+
+      return namespaceURI;
+    }
+  }
+
+  private Segment getSegment(int hash)
+  {
+    return segments[(hash ^ (hash >>> 16)) & (SEGMENT_COUNT - 1)];
+  }
+
+  /**
+   * Get the number of QNames that were already in the pool when they
+   * were asked for. Each one is a duplicate the caller didn't keep.
+   */
+  public long getHits()
+  {
+    long hits = 0;
+
+    for (int i = 0; i < SEGMENT_COUNT; i++)
+    {
+      synchronized (segments[i])
+      {
+        hits += segments[i].hits;
+      }
+    }
+
+    return hits;
+  }
+
+  /**
+   * Get the number of QNames that were not in the pool when they were
+   * asked for.
+   */
+  public long getMisses()
+  {
+    long misses = 0;
+
+    for (int i = 0; i < SEGMENT_COUNT; i++)
+    {
+      synchronized (segments[i])
+      {
+        misses += segments[i].misses;
+      }
+    }
+
+    return misses;
+  }
+
+  /**
+   * Get the number of namespace URIs that were already in the pool when
+   * they were asked for.
+   */
+  public long getNamespaceHits()
+  {
+    long hits = 0;
+
+    for (int i = 0; i < SEGMENT_COUNT; i++)
+    {
+      synchronized (segments[i])
+      {
+        hits += segments[i].namespaceHits;
+      }
+    }
+
+    return hits;
+  }
+
+  /**
+   * Get the number of namespace URIs that were not in the pool when they
+   * were asked for.
+   */
+  public long getNamespaceMisses()
+  {
+    long misses = 0;
+
+    for (int i = 0; i < SEGMENT_COUNT; i++)
+    {
+      synchronized (segments[i])
+      {
+        misses += segments[i].namespaceMisses;
+      }
+    }
+
+    return misses;
+  }
+
+  /**
+   * Get the number of QNames currently in the pool.
+   */
+  public int size()
+  {
+    int size = 0;
+
+    for (int i = 0; i < SEGMENT_COUNT; i++)
+    {
+      synchronized (segments[i])
+      {
+        size += segments[i].qnames.size();
+      }
+    }
+
+    return size;
+  }
+
+  /**
+   * Get the number of namespace URIs currently in the pool.
+   */
+  public int getNamespaceCount()
+  {
+    int count = 0;
+
+    for (int i = 0; i < SEGMENT_COUNT; i++)
+    {
+      synchronized (segments[i])
+      {
+        count += segments[i].namespaceURIs.size();
+      }
+    }
+
+    return count;
+  }
+
+  /**
+   * Discard all entries and reset the statistics.
+   */
+  public void clear()
+  {
+    for (int i = 0; i < SEGMENT_COUNT; i++)
+    {
+      synchronized (segments[i])
+      {
+        segments[i].qnames.clear();
+        segments[i].namespaceURIs.clear();
+        segments[i].hits = 0;
+        segments[i].misses = 0;
+        segments[i].namespaceHits = 0;
+        segments[i].namespaceMisses = 0;
+      }
+    }
+  }
+
+  public String toString()
+  {
+    StringBuffer strBuf = new StringBuffer();
+
+    strBuf.append("QNamePool:");
+    strBuf.append("\nsize=" + size());
+    strBuf.append("\nhits=" + getHits());
+    strBuf.append("\nmisses=" + getMisses());
+    strBuf.append("\nnamespaceCount=" + getNamespaceCount());
+    strBuf.append("\nnamespaceHits=" + getNamespaceHits());
+    strBuf.append("\nnamespaceMisses=" + getNamespaceMisses());
+
+    return strBuf.toString();
+  }
+
+  private static class Segment
+  {
+    final Map qnames = new WeakHashMap();
+    final Map namespaceURIs = new WeakHashMap();
+    long hits = 0;
+    long misses = 0;
+    long namespaceHits = 0;
+    long namespaceMisses = 0;
+
+    /*
+      Get the entry equal to the key, if it hasn't been reclaimed.
+    */
+    Object get(Map entries, Object key)
+    {
+      Reference ref = (Reference)entries.get(key);
+
+      return (ref != null) ? ref.get() : null;
+    }
+  }
+}
@@ -18,11 +18,24 @@ public class QNameUtils
   {
     if (node != null)
     {
-      return new QName(node.getNamespaceURI(), node.getLocalName());
+      return newQName(node.getNamespaceURI(), node.getLocalName());
     }
     else
     {
       return new QName(null, null);
     }
   }
+
+  /**
+   * Get a QName with the specified namespace URI and local part, interned
+   * using the QNamePool set for the current thread if there is one.
+   */
+  public static QName newQName(String namespaceURI, String localPart)
+  {
+    QNamePool pool = QNamePool.getThreadPool();
+
+    return (pool != null)
+           ? pool.intern(namespaceURI, localPart)
+           : new QName(namespaceURI, localPart);
+  }
 }
\ No newline at end of file
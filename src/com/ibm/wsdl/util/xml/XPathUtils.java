@@ -4,7 +4,7 @@
 
 package com.ibm.wsdl.util.xml;
 
-import java.util.Vector;
+import java.util.*;
 import org.w3c.dom.*;
 
 /**
@@ -62,14 +62,17 @@ public class XPathUtils
     return (node != null ? node.getNodeType() : -1);
   }
 
-  private static String getXPathFromVector(Vector path)
+  /*
+    The path is in reverse order, starting with the node itself and
+    ending with the document.
+  */
+  private static String getXPathFromList(List path)
   {
-    StringBuffer strBuf = new StringBuffer();
-    int          length = path.size();
+    StringBuffer strBuf = new StringBuffer(16 * path.size());
 
-    for (int i = 0; i < length; i++)
+    for (int i = path.size() - 1; i >= 0; i--)
     {
-      Node   tempNode    = (Node)path.elementAt(i);
+      Node   tempNode    = (Node)path.get(i);
       short  nodeType    = getNodeType(tempNode);
       String targetValue = getValue(tempNode, nodeType);
       int    position    = 1;
@@ -97,7 +100,7 @@ public class XPathUtils
 
       if (!hasMatchingSiblings)
       {
-        tempNode = (Node)path.elementAt(i);
+        tempNode = (Node)path.get(i);
         tempNode = getNextTypedNode(tempNode, nodeType);
 
         while (!hasMatchingSiblings && tempNode != null)
@@ -137,25 +140,25 @@ public class XPathUtils
 
       if (step != null && step.length() > 0)
       {
-        strBuf.append('/' + step);
+        strBuf.append('/').append(step);
       }
 
       if (hasMatchingSiblings)
       {
-        strBuf.append("[" + position + "]");
+        strBuf.append('[').append(position).append(']');
       }
     }
 
     return strBuf.toString();
   }
 
-  private static Vector getVectorPathFromNode(Node node)
+  private static List getPathFromNode(Node node)
   {
-    Vector path = new Vector();
+    List path = new ArrayList(8);
 
     while (node != null)
     {
-      path.insertElementAt(node, 0);
+      path.add(node);
       node = node.getParentNode();
     }
 
@@ -184,7 +187,7 @@ public class XPathUtils
       case Node.ELEMENT_NODE :
       case Node.TEXT_NODE :
       case Node.PROCESSING_INSTRUCTION_NODE :
-        return getXPathFromVector(getVectorPathFromNode(node));
+        return getXPathFromList(getPathFromNode(node));
 
       case Node.DOCUMENT_NODE :
         return "/";
@@ -0,0 +1,740 @@
+/*
+ * (c) Copyright IBM Corp 2006
+ */
+
+package com.ibm.wsdl.xml;
+
+import java.io.*;
+import java.util.*;
+import org.w3c.dom.*;
+import org.xml.sax.*;
+import javax.wsdl.*;
+import javax.wsdl.extensions.*;
+import javax.xml.namespace.*;
+import com.ibm.wsdl.*;
+import com.ibm.wsdl.extensions.*;
+import com.ibm.wsdl.util.xml.*;
+
+/**
+ * An XMLSink that builds a DOM, resolving prefixes the way a parser
+ * would, so that the result is the same as parsing the printed
+ * document. Extensibility elements are added directly by serializers
+ * implementing DOMExtensionSerializer. What other serializers print is
+ * collected, and parsed all at once when the document is requested.
+ * <p>
+ * Markup printed by the printXXX methods of subclasses of WSDLWriterImpl
+ * may leave elements open, so once any is printed, the rest of the
+ * enclosing element is collected as text, and parsed with it.
+ *
+ * @see WSDLWriterImpl#getDocument(Definition)
+ */
+class DOMSink extends XMLSink
+{
+  private static final String NS_URI_XMLNS = "http://www.w3.org/2000/xmlns/";
+  private static final String NS_URI_XML =
+    "http://www.w3.org/XML/1998/namespace";
+  private static final String FRAGMENT_TAG_NAME = "fragment";
+
+  private final Document doc;
+  private final DocumentBuilderPool pool;
+  private Node current;
+
+  // The namespace declarations of each open element; null if none.
+  private final List scopes = new ArrayList();
+
+  private String pendingName = null;
+  private final List pendingAttrs = new ArrayList();
+  private StringWriter pendingText = null;
+
+  // Writes the rest of the current element to pendingText, once markup
+  // has been printed to the sink; depth is how many elements it has open.
+  private WriterSink textSink = null;
+  private int textDepth = 0;
+
+  // What the serializers printed, and where it goes.
+  private StringBuffer fragments = null;
+  private final List placeholders = new ArrayList();
+
+  DOMSink(Document doc, DocumentBuilderPool pool)
+  {
+    super(true);
+
+    Map rootScope = new HashMap();
+
+    rootScope.put("xml", NS_URI_XML);
+    rootScope.put("xmlns", NS_URI_XMLNS);
+
+    this.doc = doc;
+    this.pool = pool;
+    this.current = doc;
+    scopes.add(rootScope);
+  }
+
+  Document getDocument() throws WSDLException
+  {
+    flushPrinted();
+
+    if (textSink != null)
+    {
+      textSink.flush();
+      textSink = null;
+    }
+
+    flush();
+    parseFragments();
+
+    return doc;
+  }
+
+  void startElement(String name) throws WSDLException
+  {
+    flushPrinted();
+
+    if (textSink != null)
+    {
+      textSink.startElement(name);
+      textDepth++;
+      return;
+    }
+
+    flush();
+    pendingName = name;
+  }
+
+  void attribute(String name, String value) throws WSDLException
+  {
+    flushPrinted();
+
+    if (textSink != null)
+    {
+      textSink.attribute(name, value);
+      return;
+    }
+
+    pendingAttrs.add(name);
+    pendingAttrs.add(normalize(value, true));
+  }
+
+  void endElement(String name) throws WSDLException
+  {
+    flushPrinted();
+
+    if (textSink != null)
+    {
+      if (textDepth > 0)
+      {
+        textSink.endElement(name);
+        textDepth--;
+        return;
+      }
+
+      textSink.flush();
+      textSink = null;
+    }
+
+    flush();
+    current = current.getParentNode();
+    scopes.remove(scopes.size() - 1);
+  }
+
+  void characters(String text) throws WSDLException
+  {
+    flushPrinted();
+
+    if (textSink != null)
+    {
+      textSink.characters(text);
+      return;
+    }
+
+    flush();
+    appendText(current, text);
+  }
+
+  void cdata(String text) throws WSDLException
+  {
+    flushPrinted();
+
+    if (textSink != null)
+    {
+      textSink.cdata(text);
+      return;
+    }
+
+    flush();
+    current.appendChild(doc.createCDATASection(normalize(text, false)));
+  }
+
+  void comment(String text) throws WSDLException
+  {
+    flushPrinted();
+
+    if (textSink != null)
+    {
+      textSink.comment(text);
+      return;
+    }
+
+    flush();
+    current.appendChild(doc.createComment(normalize(text, false)));
+  }
+
+  void processingInstruction(String target, String data)
+    throws WSDLException
+  {
+    flushPrinted();
+
+    if (textSink != null)
+    {
+      textSink.processingInstruction(target, data);
+      return;
+    }
+
+    flush();
+    current.appendChild(doc.createProcessingInstruction(target, data));
+  }
+
+  void printed(String text) throws WSDLException
+  {
+    if (textSink == null
+        && pendingName != null
+        && isAttributes(text)
+        && addAttributes(text))
+    {
+      return;
+    }
+
+    if (textSink == null)
+    {
+      flushStartTag();
+
+      if (pendingText == null)
+      {
+        pendingText = new StringWriter();
+      }
+
+      textSink = new WriterSink(pendingText, true);
+      textDepth = 0;
+    }
+
+    textSink.printed(text);
+  }
+
+  void element(Element el, Map namespaces) throws WSDLException
+  {
+    flushPrinted();
+
+    if (textSink != null)
+    {
+      textSink.element(el, namespaces);
+      return;
+    }
+
+    super.element(el, namespaces);
+  }
+
+  void extension(ExtensionSerializer extSer,
+                 Class parentType,
+                 QName elementType,
+                 ExtensibilityElement ext,
+                 Definition def,
+                 ExtensionRegistry extReg)
+                   throws WSDLException
+  {
+    flushPrinted();
+
+    if (textSink != null)
+    {
+      textSink.extension(extSer, parentType, elementType, ext, def, extReg);
+    }
+    else if (extSer instanceof DOMExtensionSerializer)
+    {
+      flush();
+
+      Node lastChild = current.getLastChild();
+
+      ((DOMExtensionSerializer)extSer).marshall(parentType,
+                                                elementType,
+                                                ext,
+                                                (Element)current,
+                                                def,
+                                                extReg);
+      mergeText((lastChild != null) ? lastChild : current.getFirstChild());
+    }
+    else
+    {
+      extSer.marshall(parentType,
+                      elementType,
+                      ext,
+                      getPrintWriter(),
+                      def,
+                      extReg);
+
+      String text = takePrinted();
+
+      if (text != null)
+      {
+        flushStartTag();
+
+        if (pendingText == null)
+        {
+          pendingText = new StringWriter();
+        }
+
+        pendingText.write(text);
+      }
+    }
+  }
+
+  private void flush() throws WSDLException
+  {
+    flushText();
+    flushStartTag();
+  }
+
+  private void flushStartTag() throws WSDLException
+  {
+    if (pendingName == null)
+    {
+      return;
+    }
+
+    Map scope = null;
+
+    for (int i = 0; i < pendingAttrs.size(); i += 2)
+    {
+      String attrName = (String)pendingAttrs.get(i);
+
+      if (attrName.equals("xmlns") || attrName.startsWith("xmlns:"))
+      {
+        if (scope == null)
+        {
+          scope = new HashMap();
+        }
+
+        scope.put((attrName.length() > 5) ? attrName.substring(6) : "",
+                  pendingAttrs.get(i + 1));
+      }
+    }
+
+    scopes.add(scope);
+
+    try
+    {
+      Element el = doc.createElementNS(getNamespaceURI(pendingName, true),
+                                       pendingName);
+
+      for (int i = 0; i < pendingAttrs.size(); i += 2)
+      {
+        String attrName = (String)pendingAttrs.get(i);
+        String namespaceURI =
+          (attrName.equals("xmlns") || attrName.startsWith("xmlns:"))
+          ? NS_URI_XMLNS
+          : getNamespaceURI(attrName, false);
+
+        el.setAttributeNS(namespaceURI,
+                          attrName,
+                          (String)pendingAttrs.get(i + 1));
+      }
+
+      current.appendChild(el);
+      current = el;
+    }
+    catch (DOMException e)
+    {
+      throw new WSDLException(WSDLException.OTHER_ERROR,
+                              "Unable to create the element '" +
+                              pendingName + "'.",
+                              e);
+    }
+
+    pendingName = null;
+    pendingAttrs.clear();
+  }
+
+  /*
+    Keep what the serializers printed for the current element, with the
+    namespace declarations in scope, leaving a placeholder where it goes.
+  */
+  private void flushText()
+  {
+    if (pendingText == null)
+    {
+      return;
+    }
+
+    String text = pendingText.toString();
+
+    pendingText = null;
+
+    if (fragments == null)
+    {
+      fragments = new StringBuffer(text.length() + 256);
+      fragments.append('<').append(FRAGMENT_TAG_NAME).append('>');
+    }
+
+    Iterator entryIterator = getNamespacesInScope().entrySet().iterator();
+
+    fragments.append('<').append(FRAGMENT_TAG_NAME);
+
+    while (entryIterator.hasNext())
+    {
+      Map.Entry entry = (Map.Entry)entryIterator.next();
+      String prefix = (String)entry.getKey();
+
+      if (!prefix.equals("xml") && !prefix.equals("xmlns"))
+      {
+        fragments.append(' ').append(Constants.ATTR_XMLNS);
+
+        if (!prefix.equals(""))
+        {
+          fragments.append(':').append(prefix);
+        }
+
+        fragments.append("=\"")
+                 .append(DOMUtils.cleanString((String)entry.getValue()))
+                 .append('\"');
+      }
+    }
+
+    fragments.append('>').append(text);
+    fragments.append("</").append(FRAGMENT_TAG_NAME).append('>');
+
+    placeholders.add(current.appendChild(doc.createComment("")));
+  }
+
+  /*
+    Parse what the serializers printed, all at once, and replace the
+    placeholders with it.
+  */
+  private void parseFragments() throws WSDLException
+  {
+    if (fragments == null)
+    {
+      return;
+    }
+
+    fragments.append("</").append(FRAGMENT_TAG_NAME).append('>');
+
+    Document fragmentDoc =
+      pool.parse(new InputSource(new StringReader(fragments.toString())),
+                 "- WSDL Extensibility Elements -");
+    Node fragment = fragmentDoc.getDocumentElement().getFirstChild();
+
+    fragments = null;
+
+    for (int i = 0; i < placeholders.size(); i++)
+    {
+      Node placeholder = (Node)placeholders.get(i);
+      Node parent = placeholder.getParentNode();
+      Node first = placeholder.getPreviousSibling();
+
+      for (Node child = fragment.getFirstChild();
+           child != null;
+           child = child.getNextSibling())
+      {
+        // A parser drops the whitespace around the document element.
+        if (parent != doc || child.getNodeType() != Node.TEXT_NODE)
+        {
+          parent.insertBefore(doc.importNode(child, true), placeholder);
+        }
+      }
+
+      parent.removeChild(placeholder);
+      mergeText((first != null) ? first : parent.getFirstChild());
+      fragment = fragment.getNextSibling();
+    }
+
+    placeholders.clear();
+  }
+
+  /*
+    Add the attributes printed after the pending start tag, the way a
+    parser would. Returns false, adding none, if the text isn't only
+    well-formed attributes.
+  */
+  private boolean addAttributes(String text)
+  {
+    List attrs = new ArrayList();
+    int len = text.length();
+    int i = 0;
+
+    while (true)
+    {
+      int start = i;
+
+      while (i < len && isSpace(text.charAt(i)))
+      {
+        i++;
+      }
+
+      if (i == len)
+      {
+        break;
+      }
+
+      int nameStart = i;
+
+      while (i < len && isNameChar(text.charAt(i)))
+      {
+        i++;
+      }
+
+      if (start == nameStart || i == nameStart)
+      {
+        return false;
+      }
+
+      String name = text.substring(nameStart, i);
+
+      while (i < len && isSpace(text.charAt(i)))
+      {
+        i++;
+      }
+
+      if (i == len || text.charAt(i) != '=')
+      {
+        return false;
+      }
+
+      do
+      {
+        i++;
+      }
+      while (i < len && isSpace(text.charAt(i)));
+
+      char quote = (i < len) ? text.charAt(i) : 0;
+      int end = (quote == '\"' || quote == '\'')
+                ? text.indexOf(quote, i + 1)
+                : -1;
+      String value = (end != -1)
+                     ? decodeAttributeValue(text.substring(i + 1, end))
+                     : null;
+
+      if (value == null)
+      {
+        return false;
+      }
+
+      attrs.add(name);
+      attrs.add(value);
+      i = end + 1;
+    }
+
+    pendingAttrs.addAll(attrs);
+
+    return true;
+  }
+
+  /*
+    Replace references and normalize whitespace in an attribute value,
+    the same way a parser does. Returns null if the value is malformed.
+  */
+  private static String decodeAttributeValue(String value)
+  {
+    int len = value.length();
+    StringBuffer strBuf = new StringBuffer(len);
+
+    for (int i = 0; i < len; i++)
+    {
+      char ch = value.charAt(i);
+
+      if (ch == '&')
+      {
+        int end = value.indexOf(';', i);
+        String ref = (end != -1) ? value.substring(i + 1, end) : "";
+
+        try
+        {
+          if (ref.startsWith("#x"))
+          {
+            strBuf.appendCodePoint(Integer.parseInt(ref.substring(2), 16));
+          }
+          else if (ref.startsWith("#"))
+          {
+            strBuf.appendCodePoint(Integer.parseInt(ref.substring(1)));
+          }
+          else if (ref.equals("lt"))
+          {
+            strBuf.append('<');
+          }
+          else if (ref.equals("gt"))
+          {
+            strBuf.append('>');
+          }
+          else if (ref.equals("amp"))
+          {
+            strBuf.append('&');
+          }
+          else if (ref.equals("quot"))
+          {
+            strBuf.append('\"');
+          }
+          else if (ref.equals("apos"))
+          {
+            strBuf.append('\'');
+          }
+          else
+          {
+            return null;
+          }
+        }
+        catch (IllegalArgumentException e)
+        {
+          return null;
+        }
+
+        i = end;
+      }
+      else if (ch == '<')
+      {
+        return null;
+      }
+      else if (ch == '\r' || ch == '\n' || ch == '\t')
+      {
+        if (ch == '\r' && i + 1 < len && value.charAt(i + 1) == '\n')
+        {
+          i++;
+        }
+
+        strBuf.append(' ');
+      }
+      else
+      {
+        strBuf.append(ch);
+      }
+    }
+
+    return strBuf.toString();
+  }
+
+  /*
+    Parsers don't produce adjacent text nodes.
+  */
+  private void appendText(Node parent, String text)
+  {
+    text = normalize(text, false);
+
+    Node lastChild = parent.getLastChild();
+
+    if (lastChild != null && lastChild.getNodeType() == Node.TEXT_NODE)
+    {
+      ((Text)lastChild).appendData(text);
+    }
+    else if (parent != doc)
+    {
+      parent.appendChild(doc.createTextNode(text));
+    }
+  }
+
+  /*
+    Merge the adjacent text nodes from the specified one on.
+  */
+  private static void mergeText(Node node)
+  {
+    while (node != null)
+    {
+      Node next = node.getNextSibling();
+
+      if (next != null
+          && node.getNodeType() == Node.TEXT_NODE
+          && next.getNodeType() == Node.TEXT_NODE)
+      {
+        ((Text)node).appendData(next.getNodeValue());
+        node.getParentNode().removeChild(next);
+      }
+      else
+      {
+        node = next;
+      }
+    }
+  }
+
+  /*
+    Normalize line ends, and in attribute values, whitespace characters,
+    the same way a parser does.
+  */
+  private static String normalize(String value, boolean isAttribute)
+  {
+    if (value.indexOf('\r') == -1
+        && (!isAttribute
+            || (value.indexOf('\n') == -1 && value.indexOf('\t') == -1)))
+    {
+      return value;
+    }
+
+    StringBuffer strBuf = new StringBuffer(value.length());
+
+    for (int i = 0; i < value.length(); i++)
+    {
+      char ch = value.charAt(i);
+
+      if (ch == '\r')
+      {
+        if (i + 1 < value.length() && value.charAt(i + 1) == '\n')
+        {
+          i++;
+        }
+
+        ch = '\n';
+      }
+
+      strBuf.append((isAttribute && (ch == '\n' || ch == '\t')) ? ' ' : ch);
+    }
+
+    return strBuf.toString();
+  }
+
+  private String getNamespaceURI(String qualifiedName, boolean useDefault)
+    throws WSDLException
+  {
+    int index = qualifiedName.indexOf(':');
+
+    if (index == -1 && !useDefault)
+    {
+      return null;
+    }
+
+    String prefix = (index != -1) ? qualifiedName.substring(0, index) : "";
+
+    for (int i = scopes.size() - 1; i >= 0; i--)
+    {
+      Map scope = (Map)scopes.get(i);
+
+      if (scope != null && scope.containsKey(prefix))
+      {
+        String namespaceURI = (String)scope.get(prefix);
+
+        return (namespaceURI != null && namespaceURI.length() > 0)
+               ? namespaceURI
+               : null;
+      }
+    }
+
+    if (index == -1)
+    {
+      return null;
+    }
+
+    throw new WSDLException(WSDLException.UNBOUND_PREFIX,
+                            "Unable to determine namespace of '" +
+                            qualifiedName + "'.");
+  }
+
+  private Map getNamespacesInScope()
+  {
+    Map namespaces = new HashMap();
+
+    for (int i = 0; i < scopes.size(); i++)
+    {
+      Map scope = (Map)scopes.get(i);
+
+      if (scope != null)
+      {
+        namespaces.putAll(scope);
+      }
+    }
+
+    return namespaces;
+  }
+}
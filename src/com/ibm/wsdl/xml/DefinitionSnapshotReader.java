@@ -0,0 +1,573 @@
+/*
+ * (c) Copyright IBM Corp 2006
+ */
+
+package com.ibm.wsdl.xml;
+
+import java.io.*;
+import java.util.*;
+import org.w3c.dom.*;
+import javax.wsdl.*;
+import javax.wsdl.extensions.*;
+import javax.wsdl.extensions.schema.*;
+import javax.wsdl.factory.*;
+import javax.xml.namespace.*;
+import com.ibm.wsdl.extensions.schema.SchemaImpl;
+
+/**
+ * Restores definitions from snapshots written by DefinitionSnapshotWriter.
+ * The definitions are created using the factory of the reader, and the
+ * extension registry of the reader is set on each of them. DOM elements,
+ * such as documentation elements and the elements of schemas, are
+ * restored into a new document for each definition.
+ *
+ * @see DefinitionSnapshotWriter
+ */
+public class DefinitionSnapshotReader
+{
+  private ExtensionRegistry extReg = null;
+
+  // Looking up the factory costs more than restoring a small definition.
+  private WSDLFactory factory = null;
+
+  /**
+   * Set the factory used to create the definitions read. If null, as it
+   * is by default, the default WSDLFactory is used.
+   */
+  public synchronized void setFactory(WSDLFactory factory)
+  {
+    this.factory = factory;
+  }
+
+  /**
+   * Set the extension registry set on the definitions read, which is
+   * also used to deserialize the extensibility elements that the
+   * snapshot holds as XML. If null, as it is by default, a new populated
+   * extension registry is used for each snapshot.
+   */
+  public void setExtensionRegistry(ExtensionRegistry extReg)
+  {
+    this.extReg = extReg;
+  }
+
+  /**
+   * Get the extension registry set on the definitions read.
+   *
+   * @return the registry, or null if a new one is used for each snapshot
+   */
+  public ExtensionRegistry getExtensionRegistry()
+  {
+    return extReg;
+  }
+
+  /**
+   * Read a snapshot from the specified stream. The stream is read
+   * through a buffer, so it may be read past the end of the snapshot.
+   *
+   * @param in the stream to read from.
+   * @return the definition the snapshot was written from.
+   * @throws WSDLException with a fault code of PARSER_ERROR if the input
+   * isn't a snapshot of a version this class can read, or is corrupt
+   */
+  public Definition readSnapshot(InputStream in) throws WSDLException
+  {
+    WSDLFactory factory = getFactory();
+    ExtensionRegistry extReg = (this.extReg != null)
+                               ? this.extReg
+                               : factory.newPopulatedExtensionRegistry();
+
+    try
+    {
+      return readDefinition(new SnapshotInput(in), factory, extReg);
+    }
+    catch (IOException e)
+    {
+      throw new WSDLException(WSDLException.PARSER_ERROR,
+                              "Unable to read the snapshot.",
+                              e);
+    }
+    catch (ClassCastException e)
+    {
+      throw corrupt(e);
+    }
+    catch (IndexOutOfBoundsException e)
+    {
+      throw corrupt(e);
+    }
+    catch (NegativeArraySizeException e)
+    {
+      throw corrupt(e);
+    }
+    catch (DOMException e)
+    {
+      throw corrupt(e);
+    }
+  }
+
+  private synchronized WSDLFactory getFactory() throws WSDLException
+  {
+    if (factory == null)
+    {
+      factory = WSDLFactory.newInstance();
+    }
+
+    return factory;
+  }
+
+  private static WSDLException corrupt(Exception e)
+  {
+    return new WSDLException(WSDLException.PARSER_ERROR,
+                             "The snapshot is corrupt.",
+                             e);
+  }
+
+  private Definition readDefinition(SnapshotInput in,
+                                    WSDLFactory factory,
+                                    ExtensionRegistry extReg)
+                                      throws WSDLException, IOException
+  {
+    int ref = in.readReference();
+
+    if (ref != SnapshotOutput.REF_NEW)
+    {
+      return (Definition)in.getObject(ref);
+    }
+
+    Definition def = factory.newDefinition();
+    Document oldDoc = in.startDocument();
+
+    in.addObject(def);
+    def.setExtensionRegistry(extReg);
+    def.setDocumentBaseURI(in.readString());
+    def.setQName(in.readQName());
+    def.setTargetNamespace(in.readString());
+
+    int namespaceCount = in.readInt();
+
+    for (int i = 0; i < namespaceCount; i++)
+    {
+      String prefix = in.readString();
+
+      def.addNamespace(prefix, in.readString());
+    }
+
+    readWSDLElement(Definition.class, def, def, in);
+
+    int importCount = in.readInt();
+
+    for (int i = 0; i < importCount; i++)
+    {
+      Import importDef = def.createImport();
+
+      importDef.setNamespaceURI(in.readString());
+      importDef.setLocationURI(in.readString());
+      readWSDLElement(Import.class, importDef, def, in);
+      importDef.setDefinition(readDefinition(in, factory, extReg));
+      def.addImport(importDef);
+    }
+
+    if (in.readBoolean())
+    {
+      Types types = def.createTypes();
+
+      readWSDLElement(Types.class, types, def, in);
+      def.setTypes(types);
+    }
+
+    int messageCount = in.readInt();
+
+    for (int i = 0; i < messageCount; i++)
+    {
+      def.addMessage(readMessage(def, in));
+    }
+
+    int portTypeCount = in.readInt();
+
+    for (int i = 0; i < portTypeCount; i++)
+    {
+      def.addPortType(readPortType(def, in));
+    }
+
+    int bindingCount = in.readInt();
+
+    for (int i = 0; i < bindingCount; i++)
+    {
+      def.addBinding(readBinding(def, in));
+    }
+
+    int serviceCount = in.readInt();
+
+    for (int i = 0; i < serviceCount; i++)
+    {
+      def.addService(readService(def, in));
+    }
+
+    in.endDocument(oldDoc);
+
+    return def;
+  }
+
+  private Message readMessage(Definition def, SnapshotInput in)
+    throws WSDLException, IOException
+  {
+    int ref = in.readReference();
+
+    if (ref != SnapshotOutput.REF_NEW)
+    {
+      return (Message)in.getObject(ref);
+    }
+
+    Message message = def.createMessage();
+
+    in.addObject(message);
+    message.setQName(in.readQName());
+    message.setUndefined(in.readBoolean());
+    readWSDLElement(Message.class, message, def, in);
+
+    int partCount = in.readInt();
+
+    for (int i = 0; i < partCount; i++)
+    {
+      Part part = def.createPart();
+
+      part.setName(in.readString());
+      part.setElementName(in.readQName());
+      part.setTypeName(in.readQName());
+      readWSDLElement(Part.class, part, def, in);
+      message.addPart(part);
+    }
+
+    return message;
+  }
+
+  private PortType readPortType(Definition def, SnapshotInput in)
+    throws WSDLException, IOException
+  {
+    int ref = in.readReference();
+
+    if (ref != SnapshotOutput.REF_NEW)
+    {
+      return (PortType)in.getObject(ref);
+    }
+
+    PortType portType = def.createPortType();
+
+    in.addObject(portType);
+    portType.setQName(in.readQName());
+    portType.setUndefined(in.readBoolean());
+    readWSDLElement(PortType.class, portType, def, in);
+
+    int operationCount = in.readInt();
+
+    for (int i = 0; i < operationCount; i++)
+    {
+      portType.addOperation(readOperation(def, in));
+    }
+
+    return portType;
+  }
+
+  private Operation readOperation(Definition def, SnapshotInput in)
+    throws WSDLException, IOException
+  {
+    int ref = in.readReference();
+
+    if (ref != SnapshotOutput.REF_NEW)
+    {
+      return (Operation)in.getObject(ref);
+    }
+
+    Operation operation = def.createOperation();
+
+    in.addObject(operation);
+    operation.setName(in.readString());
+    operation.setStyle(
+      DefinitionSnapshotWriter.OPERATION_TYPES[in.readInt()]);
+    operation.setParameterOrdering(in.readStrings());
+    operation.setUndefined(in.readBoolean());
+    readWSDLElement(Operation.class, operation, def, in);
+
+    if (in.readBoolean())
+    {
+      Input input = def.createInput();
+
+      input.setName(in.readString());
+      input.setMessage(readMessage(def, in));
+      readWSDLElement(Input.class, input, def, in);
+      operation.setInput(input);
+    }
+
+    if (in.readBoolean())
+    {
+      Output output = def.createOutput();
+
+      output.setName(in.readString());
+      output.setMessage(readMessage(def, in));
+      readWSDLElement(Output.class, output, def, in);
+      operation.setOutput(output);
+    }
+
+    int faultCount = in.readInt();
+
+    for (int i = 0; i < faultCount; i++)
+    {
+      Fault fault = def.createFault();
+
+      fault.setName(in.readString());
+      fault.setMessage(readMessage(def, in));
+      readWSDLElement(Fault.class, fault, def, in);
+      operation.addFault(fault);
+    }
+
+    return operation;
+  }
+
+  private Binding readBinding(Definition def, SnapshotInput in)
+    throws WSDLException, IOException
+  {
+    int ref = in.readReference();
+
+    if (ref != SnapshotOutput.REF_NEW)
+    {
+      return (Binding)in.getObject(ref);
+    }
+
+    Binding binding = def.createBinding();
+
+    in.addObject(binding);
+    binding.setQName(in.readQName());
+    binding.setUndefined(in.readBoolean());
+    binding.setPortType(readPortType(def, in));
+    readWSDLElement(Binding.class, binding, def, in);
+
+    int bindingOperationCount = in.readInt();
+
+    for (int i = 0; i < bindingOperationCount; i++)
+    {
+      BindingOperation bindingOperation = def.createBindingOperation();
+
+      bindingOperation.setName(in.readString());
+      bindingOperation.setOperation(readOperation(def, in));
+      readWSDLElement(BindingOperation.class, bindingOperation, def, in);
+
+      if (in.readBoolean())
+      {
+        BindingInput bindingInput = def.createBindingInput();
+
+        bindingInput.setName(in.readString());
+        readWSDLElement(BindingInput.class, bindingInput, def, in);
+        bindingOperation.setBindingInput(bindingInput);
+      }
+
+      if (in.readBoolean())
+      {
+        BindingOutput bindingOutput = def.createBindingOutput();
+
+        bindingOutput.setName(in.readString());
+        readWSDLElement(BindingOutput.class, bindingOutput, def, in);
+        bindingOperation.setBindingOutput(bindingOutput);
+      }
+
+      int bindingFaultCount = in.readInt();
+
+      for (int j = 0; j < bindingFaultCount; j++)
+      {
+        BindingFault bindingFault = def.createBindingFault();
+
+        bindingFault.setName(in.readString());
+        readWSDLElement(BindingFault.class, bindingFault, def, in);
+        bindingOperation.addBindingFault(bindingFault);
+      }
+
+      binding.addBindingOperation(bindingOperation);
+    }
+
+    return binding;
+  }
+
+  private Service readService(Definition def, SnapshotInput in)
+    throws WSDLException, IOException
+  {
+    Service service = def.createService();
+
+    service.setQName(in.readQName());
+    readWSDLElement(Service.class, service, def, in);
+
+    int portCount = in.readInt();
+
+    for (int i = 0; i < portCount; i++)
+    {
+      Port port = def.createPort();
+
+      port.setName(in.readString());
+      port.setBinding(readBinding(def, in));
+      readWSDLElement(Port.class, port, def, in);
+      service.addPort(port);
+    }
+
+    return service;
+  }
+
+  private void readWSDLElement(Class parentType,
+                               WSDLElement wsdlElement,
+                               Definition def,
+                               SnapshotInput in)
+                                 throws WSDLException, IOException
+  {
+    wsdlElement.setDocumentationElement(in.readElement());
+
+    int extensionAttributeCount = in.readInt();
+
+    for (int i = 0; i < extensionAttributeCount; i++)
+    {
+      QName name = in.readQName();
+
+      wsdlElement.setExtensionAttribute(name, readExtensionAttributeValue(in));
+    }
+
+    int extElementCount = in.readInt();
+
+    for (int i = 0; i < extElementCount; i++)
+    {
+      wsdlElement.addExtensibilityElement(
+        readExtensibilityElement(parentType, def, in));
+    }
+  }
+
+  private Object readExtensionAttributeValue(SnapshotInput in)
+    throws IOException
+  {
+    int kind = in.readInt();
+
+    switch (kind)
+    {
+      case DefinitionSnapshotWriter.VALUE_STRING :
+      {
+        return in.readString();
+      }
+      case DefinitionSnapshotWriter.VALUE_QNAME :
+      {
+        return in.readQName();
+      }
+      case DefinitionSnapshotWriter.VALUE_LIST :
+      {
+        int size = in.readInt();
+        List values = new Vector(size);
+
+        for (int i = 0; i < size; i++)
+        {
+          values.add(readExtensionAttributeValue(in));
+        }
+
+        return values;
+      }
+      default :
+      {
+        throw new IOException("Unknown extension attribute value kind " +
+                              kind + ".");
+      }
+    }
+  }
+
+  private ExtensibilityElement readExtensibilityElement(Class parentType,
+                                                        Definition def,
+                                                        SnapshotInput in)
+                                                          throws WSDLException,
+                                                                 IOException
+  {
+    int kind = in.readInt();
+
+    switch (kind)
+    {
+      case SnapshotExtensions.KIND_UNKNOWN :
+      {
+        UnknownExtensibilityElement ext = new UnknownExtensibilityElement();
+
+        ext.setElementType(in.readQName());
+        ext.setRequired(in.readBooleanObject());
+        ext.setElement(in.readElement());
+
+        return ext;
+      }
+      case SnapshotExtensions.KIND_SCHEMA :
+      {
+        return readSchema(in);
+      }
+      case SnapshotExtensions.KIND_SERIALIZED :
+      {
+        QName elementType = in.readQName();
+        Element el = in.readElement();
+        ExtensionRegistry extReg = def.getExtensionRegistry();
+        ExtensionDeserializer extDS = extReg.queryDeserializer(parentType,
+                                                               elementType);
+
+        return extDS.unmarshall(parentType, elementType, el, def, extReg);
+      }
+      default :
+      {
+        return SnapshotExtensions.read(in, kind);
+      }
+    }
+  }
+
+  private Schema readSchema(SnapshotInput in)
+    throws WSDLException, IOException
+  {
+    int ref = in.readReference();
+
+    if (ref != SnapshotOutput.REF_NEW)
+    {
+      return (Schema)in.getObject(ref);
+    }
+
+    Schema schema = new SchemaImpl();
+
+    in.addObject(schema);
+    schema.setElementType(in.readQName());
+    schema.setRequired(in.readBooleanObject());
+    schema.setDocumentBaseURI(in.readString());
+    schema.setElement(in.readElement());
+
+    int schemaImportCount = in.readInt();
+
+    for (int i = 0; i < schemaImportCount; i++)
+    {
+      SchemaImport schemaImport = schema.createImport();
+
+      schemaImport.setNamespaceURI(in.readString());
+      readSchemaReference(schemaImport, in);
+      schema.addImport(schemaImport);
+    }
+
+    int includeCount = in.readInt();
+
+    for (int i = 0; i < includeCount; i++)
+    {
+      SchemaReference include = schema.createInclude();
+
+      readSchemaReference(include, in);
+      schema.addInclude(include);
+    }
+
+    int redefineCount = in.readInt();
+
+    for (int i = 0; i < redefineCount; i++)
+    {
+      SchemaReference redefine = schema.createRedefine();
+
+      readSchemaReference(redefine, in);
+      schema.addRedefine(redefine);
+    }
+
+    return schema;
+  }
+
+  private void readSchemaReference(SchemaReference schemaRef,
+                                   SnapshotInput in)
+                                     throws WSDLException, IOException
+  {
+    schemaRef.setId(in.readString());
+    schemaRef.setSchemaLocationURI(in.readString());
+    schemaRef.setReferencedSchema(readSchema(in));
+  }
+}
@@ -0,0 +1,639 @@
+/*
+ * (c) Copyright IBM Corp 2006
+ */
+
+package com.ibm.wsdl.xml;
+
+import java.io.*;
+import java.util.*;
+import org.w3c.dom.*;
+import org.xml.sax.*;
+import javax.wsdl.*;
+import javax.wsdl.extensions.*;
+import javax.wsdl.extensions.schema.*;
+import javax.xml.namespace.*;
+import com.ibm.wsdl.extensions.schema.SchemaImpl;
+import com.ibm.wsdl.util.xml.*;
+
+/**
+ * Writes definitions as snapshots, a compact binary form that
+ * DefinitionSnapshotReader restores much faster than a WSDL document
+ * can be parsed again. A snapshot holds the definition together with
+ * the definitions it imports, and keeps the objects they share shared.
+ * Strings and QNames are written once, and referred to by index after
+ * that.
+ * <p>
+ * The SOAP and SOAP 1.2 extensibility elements are written field by
+ * field. Schemas and unknown extensibility elements are written as
+ * their DOM elements, in a binary form. Other extensibility elements
+ * are written as the XML their serializers produce, in the same form,
+ * and are deserialized again when the snapshot is read; the extension
+ * registry used to read the snapshot must therefore know them.
+ * <p>
+ * Snapshots are versioned: one written by a different version of this
+ * class is rejected by the reader, rather than misread.
+ *
+ * @see DefinitionSnapshotReader
+ */
+public class DefinitionSnapshotWriter
+{
+  // The operation types, by their index in snapshots.
+  static final OperationType[] OPERATION_TYPES =
+  {
+    null,
+    OperationType.ONE_WAY,
+    OperationType.REQUEST_RESPONSE,
+    OperationType.SOLICIT_RESPONSE,
+    OperationType.NOTIFICATION
+  };
+
+  // The kinds of extension attribute values.
+  static final int VALUE_STRING = 0;
+  static final int VALUE_QNAME = 1;
+  static final int VALUE_LIST = 2;
+
+  private static final String FRAGMENT_TAG_NAME = "fragment";
+
+  /**
+   * Write a snapshot of the specified definition to the specified
+   * stream. The stream is flushed, but not closed.
+   *
+   * @param def the definition to write.
+   * @param out the stream to write to.
+   */
+  public void writeSnapshot(Definition def, OutputStream out)
+    throws WSDLException
+  {
+    try
+    {
+      SnapshotOutput snapshotOut = new SnapshotOutput(out);
+
+      writeDefinition(def, snapshotOut);
+      snapshotOut.flush();
+    }
+    catch (IOException e)
+    {
+      throw new WSDLException(WSDLException.OTHER_ERROR,
+                              "An error occurred writing the snapshot.",
+                              e);
+    }
+  }
+
+  private void writeDefinition(Definition def, SnapshotOutput out)
+    throws WSDLException, IOException
+  {
+    if (!out.writeReference(def))
+    {
+      return;
+    }
+
+    out.writeString(def.getDocumentBaseURI());
+    out.writeQName(def.getQName());
+    out.writeString(def.getTargetNamespace());
+
+    /*
+      Where a namespace has more than one prefix, the one getPrefix(...)
+      returns is the one that was associated first, so it is written
+      first.
+    */
+    Map namespaces = def.getNamespaces();
+    List laterEntries = new ArrayList();
+
+    out.writeInt(namespaces.size());
+
+    Iterator entryIterator = namespaces.entrySet().iterator();
+
+    while (entryIterator.hasNext())
+    {
+      Map.Entry entry = (Map.Entry)entryIterator.next();
+      String prefix = (String)entry.getKey();
+
+      if (prefix.equals(def.getPrefix((String)entry.getValue())))
+      {
+        out.writeString(prefix);
+        out.writeString((String)entry.getValue());
+      }
+      else
+      {
+        laterEntries.add(entry);
+      }
+    }
+
+    for (int i = 0; i < laterEntries.size(); i++)
+    {
+      Map.Entry entry = (Map.Entry)laterEntries.get(i);
+
+      out.writeString((String)entry.getKey());
+      out.writeString((String)entry.getValue());
+    }
+
+    writeWSDLElement(Definition.class, def, def, out);
+    writeImports(def, out);
+
+    Types types = def.getTypes();
+
+    out.writeBoolean(types != null);
+
+    if (types != null)
+    {
+      writeWSDLElement(Types.class, types, def, out);
+    }
+
+    Collection messages = def.getMessages().values();
+    Iterator messageIterator = messages.iterator();
+
+    out.writeInt(messages.size());
+
+    while (messageIterator.hasNext())
+    {
+      writeMessage((Message)messageIterator.next(), def, out);
+    }
+
+    Collection portTypes = def.getPortTypes().values();
+    Iterator portTypeIterator = portTypes.iterator();
+
+    out.writeInt(portTypes.size());
+
+    while (portTypeIterator.hasNext())
+    {
+      writePortType((PortType)portTypeIterator.next(), def, out);
+    }
+
+    Collection bindings = def.getBindings().values();
+    Iterator bindingIterator = bindings.iterator();
+
+    out.writeInt(bindings.size());
+
+    while (bindingIterator.hasNext())
+    {
+      writeBinding((Binding)bindingIterator.next(), def, out);
+    }
+
+    Collection services = def.getServices().values();
+    Iterator serviceIterator = services.iterator();
+
+    out.writeInt(services.size());
+
+    while (serviceIterator.hasNext())
+    {
+      writeService((Service)serviceIterator.next(), def, out);
+    }
+  }
+
+  private void writeImports(Definition def, SnapshotOutput out)
+    throws WSDLException, IOException
+  {
+    List imports = new ArrayList();
+    Iterator importListIterator = def.getImports().values().iterator();
+
+    while (importListIterator.hasNext())
+    {
+      imports.addAll((List)importListIterator.next());
+    }
+
+    out.writeInt(imports.size());
+
+    for (int i = 0; i < imports.size(); i++)
+    {
+      Import importDef = (Import)imports.get(i);
+
+      out.writeString(importDef.getNamespaceURI());
+      out.writeString(importDef.getLocationURI());
+      writeWSDLElement(Import.class, importDef, def, out);
+      writeDefinition(importDef.getDefinition(), out);
+    }
+  }
+
+  private void writeMessage(Message message,
+                            Definition def,
+                            SnapshotOutput out)
+                              throws WSDLException, IOException
+  {
+    if (!out.writeReference(message))
+    {
+      return;
+    }
+
+    out.writeQName(message.getQName());
+    out.writeBoolean(message.isUndefined());
+    writeWSDLElement(Message.class, message, def, out);
+
+    List parts = message.getOrderedParts(null);
+
+    out.writeInt(parts.size());
+
+    for (int i = 0; i < parts.size(); i++)
+    {
+      Part part = (Part)parts.get(i);
+
+      out.writeString(part.getName());
+      out.writeQName(part.getElementName());
+      out.writeQName(part.getTypeName());
+      writeWSDLElement(Part.class, part, def, out);
+    }
+  }
+
+  private void writePortType(PortType portType,
+                             Definition def,
+                             SnapshotOutput out)
+                               throws WSDLException, IOException
+  {
+    if (!out.writeReference(portType))
+    {
+      return;
+    }
+
+    out.writeQName(portType.getQName());
+    out.writeBoolean(portType.isUndefined());
+    writeWSDLElement(PortType.class, portType, def, out);
+
+    List operations = portType.getOperations();
+
+    out.writeInt(operations.size());
+
+    for (int i = 0; i < operations.size(); i++)
+    {
+      writeOperation((Operation)operations.get(i), def, out);
+    }
+  }
+
+  private void writeOperation(Operation operation,
+                              Definition def,
+                              SnapshotOutput out)
+                                throws WSDLException, IOException
+  {
+    if (!out.writeReference(operation))
+    {
+      return;
+    }
+
+    out.writeString(operation.getName());
+    out.writeInt(getOperationTypeIndex(operation.getStyle()));
+    out.writeStrings(operation.getParameterOrdering());
+    out.writeBoolean(operation.isUndefined());
+    writeWSDLElement(Operation.class, operation, def, out);
+
+    Input input = operation.getInput();
+
+    out.writeBoolean(input != null);
+
+    if (input != null)
+    {
+      out.writeString(input.getName());
+      writeMessage(input.getMessage(), def, out);
+      writeWSDLElement(Input.class, input, def, out);
+    }
+
+    Output output = operation.getOutput();
+
+    out.writeBoolean(output != null);
+
+    if (output != null)
+    {
+      out.writeString(output.getName());
+      writeMessage(output.getMessage(), def, out);
+      writeWSDLElement(Output.class, output, def, out);
+    }
+
+    Collection faults = operation.getFaults().values();
+    Iterator faultIterator = faults.iterator();
+
+    out.writeInt(faults.size());
+
+    while (faultIterator.hasNext())
+    {
+      Fault fault = (Fault)faultIterator.next();
+
+      out.writeString(fault.getName());
+      writeMessage(fault.getMessage(), def, out);
+      writeWSDLElement(Fault.class, fault, def, out);
+    }
+  }
+
+  private static int getOperationTypeIndex(OperationType style)
+  {
+    for (int i = 1; i < OPERATION_TYPES.length; i++)
+    {
+      if (OPERATION_TYPES[i].equals(style))
+      {
+        return i;
+      }
+    }
+
+    return 0;
+  }
+
+  private void writeBinding(Binding binding,
+                            Definition def,
+                            SnapshotOutput out)
+                              throws WSDLException, IOException
+  {
+    if (!out.writeReference(binding))
+    {
+      return;
+    }
+
+    out.writeQName(binding.getQName());
+    out.writeBoolean(binding.isUndefined());
+    writePortType(binding.getPortType(), def, out);
+    writeWSDLElement(Binding.class, binding, def, out);
+
+    List bindingOperations = binding.getBindingOperations();
+
+    out.writeInt(bindingOperations.size());
+
+    for (int i = 0; i < bindingOperations.size(); i++)
+    {
+      BindingOperation bindingOperation =
+        (BindingOperation)bindingOperations.get(i);
+
+      out.writeString(bindingOperation.getName());
+      writeOperation(bindingOperation.getOperation(), def, out);
+      writeWSDLElement(BindingOperation.class, bindingOperation, def, out);
+
+      BindingInput bindingInput = bindingOperation.getBindingInput();
+
+      out.writeBoolean(bindingInput != null);
+
+      if (bindingInput != null)
+      {
+        out.writeString(bindingInput.getName());
+        writeWSDLElement(BindingInput.class, bindingInput, def, out);
+      }
+
+      BindingOutput bindingOutput = bindingOperation.getBindingOutput();
+
+      out.writeBoolean(bindingOutput != null);
+
+      if (bindingOutput != null)
+      {
+        out.writeString(bindingOutput.getName());
+        writeWSDLElement(BindingOutput.class, bindingOutput, def, out);
+      }
+
+      Collection bindingFaults = bindingOperation.getBindingFaults().values();
+      Iterator bindingFaultIterator = bindingFaults.iterator();
+
+      out.writeInt(bindingFaults.size());
+
+      while (bindingFaultIterator.hasNext())
+      {
+        BindingFault bindingFault = (BindingFault)bindingFaultIterator.next();
+
+        out.writeString(bindingFault.getName());
+        writeWSDLElement(BindingFault.class, bindingFault, def, out);
+      }
+    }
+  }
+
+  private void writeService(Service service,
+                            Definition def,
+                            SnapshotOutput out)
+                              throws WSDLException, IOException
+  {
+    out.writeQName(service.getQName());
+    writeWSDLElement(Service.class, service, def, out);
+
+    Collection ports = service.getPorts().values();
+    Iterator portIterator = ports.iterator();
+
+    out.writeInt(ports.size());
+
+    while (portIterator.hasNext())
+    {
+      Port port = (Port)portIterator.next();
+
+      out.writeString(port.getName());
+      writeBinding(port.getBinding(), def, out);
+      writeWSDLElement(Port.class, port, def, out);
+    }
+  }
+
+  /*
+    Write what all WSDL elements have: the documentation element, the
+    extension attributes and the extensibility elements.
+  */
+  private void writeWSDLElement(Class parentType,
+                                WSDLElement wsdlElement,
+                                Definition def,
+                                SnapshotOutput out)
+                                  throws WSDLException, IOException
+  {
+    out.writeElement(wsdlElement.getDocumentationElement());
+    writeExtensionAttributes(wsdlElement.getExtensionAttributes(), out);
+
+    List extElements = wsdlElement.getExtensibilityElements();
+
+    out.writeInt(extElements.size());
+
+    for (int i = 0; i < extElements.size(); i++)
+    {
+      writeExtensibilityElement(parentType,
+                                (ExtensibilityElement)extElements.get(i),
+                                def,
+                                out);
+    }
+  }
+
+  private void writeExtensionAttributes(Map extensionAttributes,
+                                        SnapshotOutput out)
+                                          throws WSDLException, IOException
+  {
+    out.writeInt(extensionAttributes.size());
+
+    Iterator entryIterator = extensionAttributes.entrySet().iterator();
+
+    while (entryIterator.hasNext())
+    {
+      Map.Entry entry = (Map.Entry)entryIterator.next();
+
+      out.writeQName((QName)entry.getKey());
+      writeExtensionAttributeValue((QName)entry.getKey(),
+                                   entry.getValue(),
+                                   out);
+    }
+  }
+
+  private void writeExtensionAttributeValue(QName name,
+                                            Object value,
+                                            SnapshotOutput out)
+                                              throws WSDLException,
+                                                     IOException
+  {
+    if (value instanceof String)
+    {
+      out.writeInt(VALUE_STRING);
+      out.writeString((String)value);
+    }
+    else if (value instanceof QName)
+    {
+      out.writeInt(VALUE_QNAME);
+      out.writeQName((QName)value);
+    }
+    else if (value instanceof List)
+    {
+      List values = (List)value;
+
+      out.writeInt(VALUE_LIST);
+      out.writeInt(values.size());
+
+      for (int i = 0; i < values.size(); i++)
+      {
+        writeExtensionAttributeValue(name, values.get(i), out);
+      }
+    }
+    else
+    {
+      throw new WSDLException(WSDLException.OTHER_ERROR,
+                              "Unable to write the value of extension " +
+                              "attribute '" + name + "' to a snapshot, " +
+                              "its type is '" +
+                              (value != null
+                               ? value.getClass().getName()
+                               : null) +
+                              "'.");
+    }
+  }
+
+  private void writeExtensibilityElement(Class parentType,
+                                         ExtensibilityElement ext,
+                                         Definition def,
+                                         SnapshotOutput out)
+                                           throws WSDLException, IOException
+  {
+    int kind = SnapshotExtensions.getKind(ext);
+
+    if (kind != -1)
+    {
+      out.writeInt(kind);
+      SnapshotExtensions.write(out, kind, ext);
+    }
+    else if (ext.getClass() == UnknownExtensibilityElement.class)
+    {
+      out.writeInt(SnapshotExtensions.KIND_UNKNOWN);
+      out.writeQName(ext.getElementType());
+      out.writeBoolean(ext.getRequired());
+      out.writeElement(((UnknownExtensibilityElement)ext).getElement());
+    }
+    else if (ext.getClass() == SchemaImpl.class)
+    {
+      out.writeInt(SnapshotExtensions.KIND_SCHEMA);
+      writeSchema((Schema)ext, out);
+    }
+    else
+    {
+      out.writeInt(SnapshotExtensions.KIND_SERIALIZED);
+      out.writeQName(ext.getElementType());
+      out.writeElement(serialize(parentType, ext, def));
+    }
+  }
+
+  private void writeSchema(Schema schema, SnapshotOutput out)
+    throws IOException
+  {
+    if (!out.writeReference(schema))
+    {
+      return;
+    }
+
+    out.writeQName(schema.getElementType());
+    out.writeBoolean(schema.getRequired());
+    out.writeString(schema.getDocumentBaseURI());
+    out.writeElement(schema.getElement());
+
+    List schemaImports = new ArrayList();
+    Iterator importListIterator = schema.getImports().values().iterator();
+
+    while (importListIterator.hasNext())
+    {
+      schemaImports.addAll((List)importListIterator.next());
+    }
+
+    out.writeInt(schemaImports.size());
+
+    for (int i = 0; i < schemaImports.size(); i++)
+    {
+      SchemaImport schemaImport = (SchemaImport)schemaImports.get(i);
+
+      out.writeString(schemaImport.getNamespaceURI());
+      writeSchemaReference(schemaImport, out);
+    }
+
+    writeSchemaReferences(schema.getIncludes(), out);
+    writeSchemaReferences(schema.getRedefines(), out);
+  }
+
+  private void writeSchemaReferences(List schemaRefs, SnapshotOutput out)
+    throws IOException
+  {
+    out.writeInt(schemaRefs.size());
+
+    for (int i = 0; i < schemaRefs.size(); i++)
+    {
+      writeSchemaReference((SchemaReference)schemaRefs.get(i), out);
+    }
+  }
+
+  private void writeSchemaReference(SchemaReference schemaRef,
+                                    SnapshotOutput out)
+                                      throws IOException
+  {
+    out.writeString(schemaRef.getId());
+    out.writeString(schemaRef.getSchemaLocationURI());
+    writeSchema(schemaRef.getReferencedSchema(), out);
+  }
+
+  /*
+    Serialize the specified extensibility element using its serializer,
+    and parse the result, in the scope of the namespaces declared by the
+    definition.
+  */
+  private Element serialize(Class parentType,
+                            ExtensibilityElement ext,
+                            Definition def)
+                              throws WSDLException
+  {
+    ExtensionSerializer extSer =
+      WSDLWriterImpl.getExtensionSerializer(parentType, ext, def);
+    StringWriter strWriter = new StringWriter();
+    PrintWriter pw = new PrintWriter(strWriter);
+
+    pw.print("<" + FRAGMENT_TAG_NAME);
+
+    Iterator entryIterator = def.getNamespaces().entrySet().iterator();
+
+    while (entryIterator.hasNext())
+    {
+      Map.Entry entry = (Map.Entry)entryIterator.next();
+      String prefix = (String)entry.getKey();
+
+      pw.print(" xmlns" + (prefix.length() > 0 ? ":" + prefix : "") + "=\"" +
+               DOMUtils.cleanString((String)entry.getValue()) + "\"");
+    }
+
+    pw.print(">");
+    extSer.marshall(parentType,
+                    ext.getElementType(),
+                    ext,
+                    pw,
+                    def,
+                    def.getExtensionRegistry());
+    pw.print("</" + FRAGMENT_TAG_NAME + ">");
+    pw.flush();
+
+    Document doc = DocumentBuilderPool.getDefaultPool().parse(
+      new InputSource(new StringReader(strWriter.toString())),
+      "the serialized '" + ext.getElementType() + "' element");
+    Element el = DOMUtils.getFirstChildElement(doc.getDocumentElement());
+
+    if (el == null)
+    {
+      throw new WSDLException(WSDLException.OTHER_ERROR,
+                              "The serializer for the '" +
+                              ext.getElementType() + "' element didn't " +
+                              "write an element.");
+    }
+
+    return el;
+  }
+}
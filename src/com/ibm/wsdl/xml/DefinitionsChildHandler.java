@@ -0,0 +1,38 @@
+/*
+ * (c) Copyright IBM Corp 2006
+ */
+
+package com.ibm.wsdl.xml;
+
+import java.util.*;
+import org.w3c.dom.*;
+import javax.wsdl.*;
+
+/**
+ * Handles a particular kind of child element of &lt;wsdl:definitions&gt;.
+ * WSDLReaderImpl looks up the handler for each child element by the
+ * element's name, and reads elements it has no handler for as
+ * extensibility elements. Handlers for new top-level elements can be
+ * registered using WSDLReaderImpl.setDefinitionsChildHandler(...), and
+ * the handlers for the WSDL elements can be replaced the same way.
+ *
+ * @see WSDLReaderImpl#setDefinitionsChildHandler(javax.xml.namespace.QName,
+ * DefinitionsChildHandler)
+ */
+public interface DefinitionsChildHandler
+{
+  /**
+   * Read the specified child element into the definition.
+   *
+   * @param reader the reader reading the definition.
+   * @param el the child element.
+   * @param def the definition being read.
+   * @param importedDefs the definitions read so far, keyed by document
+   * base URI, as passed to WSDLReaderImpl.parseImport(...).
+   */
+  public void parse(WSDLReaderImpl reader,
+                    Element el,
+                    Definition def,
+                    Map importedDefs)
+                      throws WSDLException;
+}
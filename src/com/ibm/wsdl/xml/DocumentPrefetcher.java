@@ -0,0 +1,234 @@
+/*
+ * (c) Copyright IBM Corp 2006
+ */
+
+package com.ibm.wsdl.xml;
+
+import java.io.*;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+import org.w3c.dom.*;
+import org.xml.sax.*;
+
+import javax.xml.namespace.*;
+import com.ibm.wsdl.util.*;
+import com.ibm.wsdl.util.xml.*;
+import com.ibm.wsdl.extensions.schema.*;
+
+/**
+ * Fetches and parses documents on an Executor ahead of the time the
+ * reader asks for them. The reader still processes documents one at a
+ * time and in document order; only the retrieval and parsing of the
+ * documents overlaps.
+ * <p>
+ * A document that could not be prefetched is simply not available from
+ * take(String), so the reader falls back to retrieving it itself, and
+ * reports any problem exactly as it would without prefetching.
+ * <p>
+ * Schema documents can be prefetched along with the documents they
+ * reference through &lt;xsd:import&gt;, &lt;xsd:include&gt; and
+ * &lt;xsd:redefine&gt;, so an entire schema graph is retrieved at the
+ * same time while the reader is still wiring up the first few references.
+ * Each URL is only ever retrieved once for the lifetime of a prefetcher.
+ */
+class DocumentPrefetcher
+{
+  private final Executor executor;
+  private final DocumentBuilderPool pool;
+  private final WSDLDocumentCache cache;
+  private final ConcurrentMap pending = new ConcurrentHashMap();
+  private final ConcurrentMap started = new ConcurrentHashMap();
+  private volatile boolean discarded = false;
+
+  /**
+   * @param cache documents found in this cache are not prefetched. Can
+   * be null.
+   */
+  DocumentPrefetcher(Executor executor,
+                     DocumentBuilderPool pool,
+                     WSDLDocumentCache cache)
+  {
+    this.executor = executor;
+    this.pool = pool;
+    this.cache = cache;
+  }
+
+  /**
+   * Start retrieving and parsing the document at the specified URL,
+   * unless that has already been started.
+   */
+  void prefetch(URL url)
+  {
+    prefetch(url, null);
+  }
+
+  /**
+   * Start retrieving and parsing the schema document at the specified URL,
+   * followed by all the schema documents it references, directly or
+   * indirectly. Documents whose URLs are keys of the specified map of
+   * already-parsed schemas are not retrieved, nor are the documents they
+   * reference.
+   */
+  void prefetchSchema(URL url, Map parsedSchemas)
+  {
+    prefetch(url, parsedSchemas);
+  }
+
+  private void prefetch(final URL url, final Map parsedSchemas)
+  {
+    final String key = url.toString();
+
+    if (discarded
+        || (parsedSchemas != null && parsedSchemas.containsKey(key))
+        || (cache != null && cache.containsKey(key))
+        || started.putIfAbsent(key, Boolean.TRUE) != null)
+    {
+      return;
+    }
+
+    FutureTask task = new FutureTask(new Callable()
+    {
+      public Object call() throws Exception
+      {
+        Document doc = fetch(url, key);
+
+        if (parsedSchemas != null)
+        {
+          prefetchReferencedSchemas(url, doc, parsedSchemas);
+        }
+
+        return doc;
+      }
+    });
+
+    pending.put(key, task);
+
+    try
+    {
+      executor.execute(task);
+    }
+    catch (RejectedExecutionException e)
+    {
+      pending.remove(key);
+    }
+
+    if (discarded)
+    {
+      task.cancel(true);
+      pending.remove(key);
+    }
+  }
+
+  /*
+    Start retrieving the documents referenced by the specified schema
+    document. The locations are resolved the same way the reader resolves
+    them, so the keys match the ones the reader will ask for.
+  */
+  private void prefetchReferencedSchemas(URL contextURL,
+                                         Document doc,
+                                         Map parsedSchemas)
+  {
+    Element schemaEl = doc.getDocumentElement();
+
+    if (!SchemaConstants.XSD_QNAME_LIST.contains(QNameUtils.newQName(schemaEl)))
+    {
+      return;
+    }
+
+    Element tempEl = DOMUtils.getFirstChildElement(schemaEl);
+
+    for (; tempEl != null; tempEl = DOMUtils.getNextSiblingElement(tempEl))
+    {
+      QName tempElType = QNameUtils.newQName(tempEl);
+
+      if (SchemaConstants.XSD_IMPORT_QNAME_LIST.contains(tempElType)
+          || SchemaConstants.XSD_INCLUDE_QNAME_LIST.contains(tempElType)
+          || SchemaConstants.XSD_REDEFINE_QNAME_LIST.contains(tempElType))
+      {
+        String locationURI = DOMUtils.getAttribute(tempEl,
+          SchemaConstants.ATTR_SCHEMA_LOCATION);
+
+        if (locationURI != null)
+        {
+          try
+          {
+            prefetch(StringUtils.getURL(contextURL, locationURI),
+                     parsedSchemas);
+          }
+          catch (MalformedURLException e)
+          {
+            // The reader will report this.
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Take the prefetched document with the specified URL, waiting for it
+   * to be parsed if necessary.
+   *
+   * @return the document, or null if it was not prefetched or could not
+   * be retrieved or parsed
+   */
+  Document take(String key)
+  {
+    Future task = (Future)pending.remove(key);
+
+    if (task == null)
+    {
+      return null;
+    }
+
+    try
+    {
+      return (Document)task.get();
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+
+      return null;
+    }
+    catch (ExecutionException e)
+    {
+      return null;
+    }
+  }
+
+  /**
+   * Cancel the retrieval of any documents that have not been taken.
+   */
+  void discard()
+  {
+    discarded = true;
+
+    Iterator taskIterator = pending.values().iterator();
+
+    while (taskIterator.hasNext())
+    {
+      ((Future)taskIterator.next()).cancel(true);
+    }
+
+    pending.clear();
+  }
+
+  Document fetch(URL url, String key) throws Exception
+  {
+    InputStream inputStream = StringUtils.getContentAsInputStream(url);
+
+    try
+    {
+      InputSource inputSource = new InputSource(inputStream);
+
+      inputSource.setSystemId(key);
+
+      return pool.parse(inputSource, key);
+    }
+    finally
+    {
+      inputStream.close();
+    }
+  }
+}
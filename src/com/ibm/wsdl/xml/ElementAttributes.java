@@ -0,0 +1,45 @@
+/*
+ * (c) Copyright IBM Corp 2006
+ */
+
+package com.ibm.wsdl.xml;
+
+import javax.xml.namespace.*;
+
+/**
+ * The name and attributes of an element being read, and the namespace
+ * declarations in scope for it. The readers build the WSDL model from
+ * these, so WSDLReaderImpl and StAXWSDLReaderImpl share that code and
+ * only differ in how they walk a document. As in a DOM, namespace
+ * declarations are included among the attributes.
+ */
+interface ElementAttributes extends LocatedWSDLException.Source
+{
+  QName getName();
+
+  int getAttributeCount();
+
+  /**
+   * Get the namespace URI of the attribute at the specified index, or
+   * null if it has none.
+   */
+  String getAttributeNamespaceURI(int index);
+
+  String getAttributeLocalName(int index);
+
+  String getAttributePrefix(int index);
+
+  String getAttributeValue(int index);
+
+  /**
+   * Get the value of the attribute with the specified qualified name,
+   * or null if there is no such attribute.
+   */
+  String getAttribute(String qualifiedName);
+
+  /**
+   * Get the namespace URI bound to the prefix, or the default namespace
+   * if the prefix is null, or null if it isn't declared.
+   */
+  String getNamespaceURIFromPrefix(String prefix);
+}
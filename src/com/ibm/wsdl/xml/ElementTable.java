@@ -0,0 +1,72 @@
+/*
+ * (c) Copyright IBM Corp 2006
+ */
+
+package com.ibm.wsdl.xml;
+
+import java.util.*;
+import javax.xml.namespace.*;
+
+/**
+ * A map from element names to values, which is looked up using the
+ * namespace URI and local name of an element directly, so no QName has
+ * to be created for every element that is dispatched on.
+ */
+class ElementTable
+{
+  // Maps namespace URIs ("" for none) to maps from local names to values.
+  private final Map namespaces = new HashMap();
+
+  ElementTable()
+  {
+  }
+
+  ElementTable(ElementTable table)
+  {
+    Iterator entryIterator = table.namespaces.entrySet().iterator();
+
+    while (entryIterator.hasNext())
+    {
+      Map.Entry entry = (Map.Entry)entryIterator.next();
+
+      namespaces.put(entry.getKey(), new HashMap((Map)entry.getValue()));
+    }
+  }
+
+  Object get(String namespaceURI, String localName)
+  {
+    Map localNames = (Map)namespaces.get(namespaceURI != null
+                                         ? namespaceURI
+                                         : "");
+
+    return (localNames != null) ? localNames.get(localName) : null;
+  }
+
+  Object get(QName name)
+  {
+    return get(name.getNamespaceURI(), name.getLocalPart());
+  }
+
+  void put(QName name, Object value)
+  {
+    Map localNames = (Map)namespaces.get(name.getNamespaceURI());
+
+    if (localNames == null)
+    {
+      localNames = new HashMap();
+      namespaces.put(name.getNamespaceURI(), localNames);
+    }
+
+    localNames.put(name.getLocalPart(), value);
+  }
+
+  void remove(QName name)
+  {
+    Map localNames = (Map)namespaces.get(name.getNamespaceURI());
+
+    if (localNames != null)
+    {
+      localNames.remove(name.getLocalPart());
+    }
+  }
+}
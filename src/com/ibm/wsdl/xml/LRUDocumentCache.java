@@ -0,0 +1,343 @@
+/*
+ * (c) Copyright IBM Corp 2006
+ */
+
+package com.ibm.wsdl.xml;
+
+import java.io.*;
+import java.net.*;
+import java.util.*;
+
+/**
+ * A WSDLDocumentCache that evicts the least recently used documents once
+ * the total weight of the cached documents exceeds a maximum. By default
+ * every document weighs 1, so the maximum weight is simply the maximum
+ * number of documents; subclasses can override weigh(String, Object) to
+ * bound the cache some other way.
+ * <p>
+ * Documents read from file: URLs, or from jar: URLs referring to local
+ * jar files, can be validated: the last-modified time of the file is
+ * recorded when the document is cached, and the document is discarded if
+ * the file has changed by the time it is next requested. Other documents
+ * are assumed not to change.
+ */
+public class LRUDocumentCache implements WSDLDocumentCache
+{
+  /**
+   * The maximum weight used by the default constructor.
+   */
+  public static final long DEFAULT_MAX_WEIGHT = 256;
+
+  private final long maxWeight;
+  private final boolean validate;
+  private final LinkedHashMap entries = new LinkedHashMap(16, 0.75f, true);
+  private long weight = 0;
+  private long hits = 0;
+  private long misses = 0;
+  private long evictions = 0;
+  private long invalidations = 0;
+
+  /**
+   * Create a validating cache holding at most DEFAULT_MAX_WEIGHT
+   * documents.
+   */
+  public LRUDocumentCache()
+  {
+    this(DEFAULT_MAX_WEIGHT, true);
+  }
+
+  /**
+   * Create a cache.
+   *
+   * @param maxWeight the maximum total weight of the cached documents
+   * @param validate if true, documents read from local files are
+   * discarded when the files change
+   */
+  public LRUDocumentCache(long maxWeight, boolean validate)
+  {
+    if (maxWeight < 0)
+    {
+      throw new IllegalArgumentException("The maximum weight must not be " +
+                                         "negative.");
+    }
+
+    this.maxWeight = maxWeight;
+    this.validate = validate;
+  }
+
+  public long getMaxWeight()
+  {
+    return maxWeight;
+  }
+
+  public boolean isValidating()
+  {
+    return validate;
+  }
+
+  public Object get(String uri)
+  {
+    String key = canonicalize(uri);
+    Entry entry;
+
+    synchronized (this)
+    {
+      entry = (Entry)entries.get(key);
+
+      if (entry == null)
+      {
+        misses++;
+
+        return null;
+      }
+    }
+
+    // Check the file outside the lock.
+    if (validate
+        && entry.lastModified != 0
+        && entry.lastModified != getLastModified(key))
+    {
+      synchronized (this)
+      {
+        if (entries.get(key) == entry)
+        {
+          entries.remove(key);
+          weight -= entry.weight;
+          invalidations++;
+        }
+
+        misses++;
+      }
+
+      return null;
+    }
+
+    synchronized (this)
+    {
+      hits++;
+    }
+
+    return entry.document;
+  }
+
+  public synchronized boolean containsKey(String uri)
+  {
+    return entries.containsKey(canonicalize(uri));
+  }
+
+  public void put(String uri, Object document)
+  {
+    if (document == null)
+    {
+      throw new IllegalArgumentException("The document must not be null.");
+    }
+
+    String key = canonicalize(uri);
+    Entry entry = new Entry(document,
+                            weigh(key, document),
+                            validate ? getLastModified(key) : 0);
+
+    synchronized (this)
+    {
+      Entry oldEntry = (Entry)entries.remove(key);
+
+      if (oldEntry != null)
+      {
+        weight -= oldEntry.weight;
+      }
+
+      if (entry.weight > maxWeight)
+      {
+        return;
+      }
+
+      entries.put(key, entry);
+      weight += entry.weight;
+
+      Iterator entryIterator = entries.values().iterator();
+
+      while (weight > maxWeight && entryIterator.hasNext())
+      {
+        Entry eldest = (Entry)entryIterator.next();
+
+        entryIterator.remove();
+        weight -= eldest.weight;
+        evictions++;
+      }
+    }
+  }
+
+  public synchronized void remove(String uri)
+  {
+    Entry entry = (Entry)entries.remove(canonicalize(uri));
+
+    if (entry != null)
+    {
+      weight -= entry.weight;
+    }
+  }
+
+  /**
+   * Remove all cached documents. The statistics are not reset.
+   */
+  public synchronized void clear()
+  {
+    entries.clear();
+    weight = 0;
+  }
+
+  /**
+   * Get the number of requests that found a valid cached document.
+   */
+  public synchronized long getHits()
+  {
+    return hits;
+  }
+
+  /**
+   * Get the number of requests that did not find a valid cached document.
+   */
+  public synchronized long getMisses()
+  {
+    return misses;
+  }
+
+  /**
+   * Get the number of documents evicted to make room for others.
+   */
+  public synchronized long getEvictions()
+  {
+    return evictions;
+  }
+
+  /**
+   * Get the number of documents discarded because they had changed.
+   */
+  public synchronized long getInvalidations()
+  {
+    return invalidations;
+  }
+
+  public synchronized int getSize()
+  {
+    return entries.size();
+  }
+
+  public synchronized long getWeight()
+  {
+    return weight;
+  }
+
+  /**
+   * Reset the hit, miss, eviction and invalidation counters.
+   */
+  public synchronized void resetStatistics()
+  {
+    hits = 0;
+    misses = 0;
+    evictions = 0;
+    invalidations = 0;
+  }
+
+  /**
+   * Get the weight of the specified document. Documents heavier than the
+   * maximum weight are not cached. The default implementation returns 1.
+   * To bound the heap used by the cache, return an estimate from a
+   * com.ibm.wsdl.util.FootprintEstimator that doesn't include referenced
+   * documents, as those are cached separately.
+   *
+   * @param uri the canonical URI of the document
+   * @param document the javax.wsdl.Definition or
+   * javax.wsdl.extensions.schema.Schema to be cached
+   */
+  protected long weigh(String uri, Object document)
+  {
+    return 1;
+  }
+
+  /**
+   * Get the form of the specified URI used as the key of the cache. The
+   * default implementation removes redundant "." and ".." segments.
+   */
+  protected String canonicalize(String uri)
+  {
+    try
+    {
+      return new URI(uri).normalize().toString();
+    }
+    catch (URISyntaxException e)
+    {
+      return uri;
+    }
+  }
+
+  /*
+    Get the last-modified time of the local file the specified URI refers
+    to, or 0 if it does not refer to a local file or the time is unknown.
+  */
+  private static long getLastModified(String uri)
+  {
+    try
+    {
+      URL url = new URL(uri);
+
+      if ("jar".equals(url.getProtocol()))
+      {
+        URLConnection conn = url.openConnection();
+
+        if (!(conn instanceof JarURLConnection))
+        {
+          return 0;
+        }
+
+        url = ((JarURLConnection)conn).getJarFileURL();
+      }
+
+      if ("file".equals(url.getProtocol()))
+      {
+        return new File(new URI(url.toString())).lastModified();
+      }
+    }
+    catch (Exception e)
+    {
+      // The document cannot be validated.
+    }
+
+    return 0;
+  }
+
+  public String toString()
+  {
+    StringBuffer strBuf = new StringBuffer();
+
+    strBuf.append("LRUDocumentCache:");
+    strBuf.append("\nmaxWeight=" + maxWeight);
+    strBuf.append("\nvalidate=" + validate);
+
+    synchronized (this)
+    {
+      strBuf.append("\nsize=" + entries.size());
+      strBuf.append("\nweight=" + weight);
+      strBuf.append("\nhits=" + hits);
+      strBuf.append("\nmisses=" + misses);
+      strBuf.append("\nevictions=" + evictions);
+      strBuf.append("\ninvalidations=" + invalidations);
+    }
+
+    return strBuf.toString();
+  }
+
+  private static class Entry
+  {
+    final Object document;
+    final long weight;
+    final long lastModified;
+
+    Entry(Object document, long weight, long lastModified)
+    {
+      this.document = document;
+      this.weight = weight;
+      this.lastModified = lastModified;
+    }
+  }
+}
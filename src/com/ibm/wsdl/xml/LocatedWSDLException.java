@@ -0,0 +1,251 @@
+/*
+ * (c) Copyright IBM Corp 2006
+ */
+
+package com.ibm.wsdl.xml;
+
+import java.io.*;
+import java.util.*;
+import org.w3c.dom.*;
+import javax.wsdl.*;
+import com.ibm.wsdl.util.xml.*;
+
+/**
+ * A WSDLException that keeps a reference to where it occurred, and only
+ * builds the XPath expression returned by getLocation() when it is
+ * asked for. The readers throw these, so that failing to read a
+ * document doesn't cost more than it has to.
+ * <p>
+ * If the document was parsed with the com.ibm.wsdl.lineNumbers
+ * feature set to true, the line and column numbers of the element are
+ * also available, and are included in the message.
+ *
+ * @see WSDLReaderImpl#setFeature(String, boolean)
+ */
+public class LocatedWSDLException extends WSDLException
+{
+  public static final long serialVersionUID = 1;
+
+  /*
+    Something the location of an exception can be worked out from.
+  */
+  interface Source
+  {
+    String getXPath();
+
+    int getLineNumber();
+
+    int getColumnNumber();
+  }
+
+  // The sources of the steps of the location, outermost first.
+  private transient List sources = null;
+  private int lineNumber = -1;
+  private int columnNumber = -1;
+
+  /**
+   * Create an exception whose location will be set by the reader.
+   */
+  public LocatedWSDLException(String faultCode, String msg)
+  {
+    super(faultCode, msg);
+  }
+
+  /**
+   * Create an exception whose location will be set by the reader.
+   */
+  public LocatedWSDLException(String faultCode, String msg, Throwable t)
+  {
+    super(faultCode, msg, t);
+  }
+
+  /**
+   * Create an exception located at the specified node.
+   */
+  public LocatedWSDLException(String faultCode, String msg, Node node)
+  {
+    this(faultCode, msg, null, new NodeSource(node));
+  }
+
+  LocatedWSDLException(String faultCode,
+                       String msg,
+                       Throwable t,
+                       Source source)
+  {
+    super(faultCode, msg, t);
+    addSource(source);
+  }
+
+  /**
+   * Get the number of the line where the exception occurred, in the
+   * document containing the element the location ends with.
+   *
+   * @return the line number, or -1 if it isn't known
+   */
+  public int getLineNumber()
+  {
+    return lineNumber;
+  }
+
+  /**
+   * Get the number of the column where the exception occurred.
+   *
+   * @return the column number, or -1 if it isn't known
+   */
+  public int getColumnNumber()
+  {
+    return columnNumber;
+  }
+
+  public void setLocation(String location)
+  {
+    sources = null;
+    super.setLocation(location);
+  }
+
+  public String getLocation()
+  {
+    if (sources != null)
+    {
+      StringBuffer strBuf = new StringBuffer();
+
+      for (int i = 0; i < sources.size(); i++)
+      {
+        strBuf.append(((Source)sources.get(i)).getXPath());
+      }
+
+      String suffix = super.getLocation();
+
+      if (suffix != null)
+      {
+        strBuf.append(suffix);
+      }
+
+      setLocation(strBuf.toString());
+    }
+
+    return super.getLocation();
+  }
+
+  public String getMessage()
+  {
+    String location = getLocation();
+    String msg = super.getMessage();
+
+    if (lineNumber == -1)
+    {
+      return msg;
+    }
+
+    String head = "WSDLException" +
+                  ((location != null) ? " (at " + location + ")" : "");
+
+    return "WSDLException (at " +
+           ((location != null) ? location + ", " : "") +
+           "line " + lineNumber + ", column " + columnNumber + ")" +
+           msg.substring(head.length());
+  }
+
+  private void addSource(Source source)
+  {
+    if (sources == null)
+    {
+      // The first source is where the exception actually occurred.
+      if (super.getLocation() == null)
+      {
+        lineNumber = source.getLineNumber();
+        columnNumber = source.getColumnNumber();
+      }
+
+      sources = new ArrayList(4);
+    }
+
+    sources.add(0, source);
+  }
+
+  private boolean hasLocation()
+  {
+    return sources != null || super.getLocation() != null;
+  }
+
+  /**
+   * Set the location of the exception, if it doesn't have one yet.
+   */
+  static void setLocation(WSDLException e, Source source)
+  {
+    if (e instanceof LocatedWSDLException)
+    {
+      LocatedWSDLException locatedExc = (LocatedWSDLException)e;
+
+      if (!locatedExc.hasLocation())
+      {
+        locatedExc.addSource(source);
+      }
+    }
+    else if (e.getLocation() == null)
+    {
+      e.setLocation(source.getXPath());
+    }
+  }
+
+  static void setLocation(WSDLException e, Node node)
+  {
+    setLocation(e, new NodeSource(node));
+  }
+
+  /**
+   * Set the location of the exception, or if it already has one, which
+   * is relative to the specified source, prepend the source to it.
+   */
+  static void addLocation(WSDLException e, Source source)
+  {
+    if (e instanceof LocatedWSDLException)
+    {
+      ((LocatedWSDLException)e).addSource(source);
+    }
+    else if (e.getLocation() == null)
+    {
+      e.setLocation(source.getXPath());
+    }
+    else
+    {
+      e.setLocation(source.getXPath() + e.getLocation());
+    }
+  }
+
+  static void addLocation(WSDLException e, Node node)
+  {
+    addLocation(e, new NodeSource(node));
+  }
+
+  private void writeObject(ObjectOutputStream out) throws IOException
+  {
+    getLocation();
+    out.defaultWriteObject();
+  }
+
+  private static class NodeSource implements Source
+  {
+    private final Node node;
+
+    NodeSource(Node node)
+    {
+      this.node = node;
+    }
+
+    public String getXPath()
+    {
+      return XPathUtils.getXPathExprFromNode(node);
+    }
+
+    public int getLineNumber()
+    {
+      return LineNumberDocumentBuilderPool.getLineNumber(node);
+    }
+
+    public int getColumnNumber()
+    {
+      return LineNumberDocumentBuilderPool.getColumnNumber(node);
+    }
+  }
+}
@@ -0,0 +1,869 @@
+/*
+ * (c) Copyright IBM Corp 2006
+ */
+
+package com.ibm.wsdl.xml;
+
+import java.io.*;
+import java.lang.reflect.*;
+import java.net.*;
+import java.security.*;
+import java.util.*;
+import javax.wsdl.*;
+import javax.wsdl.extensions.*;
+import javax.wsdl.extensions.schema.*;
+import javax.wsdl.factory.*;
+
+/**
+ * A cache of compiled definitions kept in a directory, so that it
+ * survives restarts. When a reader that has one reads a WSDL document
+ * by its URI, it first looks for a snapshot of the definition read from
+ * that URI before, and only parses the document if there is none, or
+ * if any of the documents the definition was read from has changed
+ * since. After parsing, it stores a snapshot for the next time.
+ * <p>
+ * Each entry records the resolved URIs of all the documents the
+ * definition was read from: the WSDL document, the documents it
+ * imports, and the schema documents they reference. For each one, it
+ * also records a SHA-256 hash of the content, and the length and
+ * last-modified time of local files. A file whose length and
+ * last-modified time haven't changed is taken to be unchanged, unless
+ * the cache verifies content; otherwise, and for documents that aren't
+ * local files, the content is hashed again and compared.
+ * <p>
+ * Entries are written to a temporary file that is then renamed, so a
+ * reader never sees a partly written entry, and a crash leaves nothing
+ * behind but a temporary file, which is removed later. Where
+ * java.nio.file is available, the rename atomically replaces any
+ * earlier entry; otherwise, on platforms that can't rename over an
+ * existing file, the earlier entry is deleted first, and a reader that
+ * looks in between parses the document. Once the entries
+ * take up more than the maximum size, the least recently used ones are
+ * removed. An entry that can't be read, because it is corrupt or was
+ * written by another version of this class, is removed, and the
+ * document is parsed as if there had been none. Definitions that can't
+ * be written to a snapshot are simply not cached.
+ * <p>
+ * A cache can be set on any number of readers, on any number of
+ * threads, and processes can share a directory. Readers sharing a cache
+ * should be configured alike.
+ *
+ * @see WSDLReaderImpl#setDefinitionCache(PersistentDefinitionCache)
+ * @see DefinitionSnapshotWriter
+ */
+public class PersistentDefinitionCache
+{
+  /**
+   * The maximum size used by the single-argument constructor, 64MB.
+   */
+  public static final long DEFAULT_MAX_SIZE = 64L * 1024 * 1024;
+
+  private static final byte[] MAGIC = {'W', 'S', 'D', 'L', 'C', 'A', 'C', 'H'};
+  private static final int VERSION = 1;
+  private static final String ENTRY_SUFFIX = ".wsdlc";
+  private static final String TEMP_PREFIX = "wsdlc";
+  private static final String TEMP_SUFFIX = ".tmp";
+  private static final String DIGEST_ALGORITHM = "SHA-256";
+
+  // Temporary files older than this were left behind.
+  private static final long TEMP_FILE_MAX_AGE = 60 * 60 * 1000;
+
+  /*
+    Last-modified times may only have a resolution of seconds, so a file
+    changed within this long of being read might change again without its
+    time changing. Such files aren't cached.
+  */
+  private static final long MODIFICATION_GRANULARITY = 2000;
+
+  /*
+    Files.move(Path, Path, CopyOption...), File.toPath() and the options
+    for an atomic move that replaces the target, looked up by reflection
+    as java.nio.file may not be available. They are null if it isn't.
+  */
+  private static final Method ATOMIC_MOVE;
+  private static final Method TO_PATH;
+  private static final Object ATOMIC_MOVE_OPTIONS;
+
+  static
+  {
+    Method move = null;
+    Method toPath = null;
+    Object options = null;
+
+    try
+    {
+      Class pathClass = Class.forName("java.nio.file.Path");
+      Class optionClass = Class.forName("java.nio.file.CopyOption");
+      Class standardOptionClass =
+        Class.forName("java.nio.file.StandardCopyOption");
+
+      options = Array.newInstance(optionClass, 2);
+      Array.set(options, 0,
+                standardOptionClass.getField("ATOMIC_MOVE").get(null));
+      Array.set(options, 1,
+                standardOptionClass.getField("REPLACE_EXISTING").get(null));
+      move = Class.forName("java.nio.file.Files").getMethod(
+        "move", new Class[]{pathClass, pathClass, options.getClass()});
+      toPath = File.class.getMethod("toPath", new Class[0]);
+    }
+    catch (Exception e)
+    {
+      move = null;
+      toPath = null;
+      options = null;
+    }
+
+    ATOMIC_MOVE = move;
+    TO_PATH = toPath;
+    ATOMIC_MOVE_OPTIONS = options;
+  }
+
+  private final File directory;
+  private final long maxSize;
+  private final boolean verifyContent;
+  private long hits = 0;
+  private long misses = 0;
+  private long invalidations = 0;
+  private long evictions = 0;
+  private long failures = 0;
+
+  /**
+   * Create a cache in the specified directory, holding at most
+   * DEFAULT_MAX_SIZE bytes, that trusts the lengths and last-modified
+   * times of unchanged files.
+   */
+  public PersistentDefinitionCache(File directory)
+  {
+    this(directory, DEFAULT_MAX_SIZE, false);
+  }
+
+  /**
+   * Create a cache. The directory is created when the first entry is
+   * written to it.
+   *
+   * @param directory the directory to keep the entries in
+   * @param maxSize the maximum total size of the entries, in bytes
+   * @param verifyContent if true, the content of every document is
+   * hashed and compared whenever an entry is used, even if it is a file
+   * whose length and last-modified time haven't changed
+   */
+  public PersistentDefinitionCache(File directory,
+                                   long maxSize,
+                                   boolean verifyContent)
+  {
+    if (directory == null)
+    {
+      throw new IllegalArgumentException("The directory must not be null.");
+    }
+
+    if (maxSize < 0)
+    {
+      throw new IllegalArgumentException("The maximum size must not be " +
+                                         "negative.");
+    }
+
+    this.directory = directory;
+    this.maxSize = maxSize;
+    this.verifyContent = verifyContent;
+  }
+
+  public File getDirectory()
+  {
+    return directory;
+  }
+
+  public long getMaxSize()
+  {
+    return maxSize;
+  }
+
+  public boolean isVerifyingContent()
+  {
+    return verifyContent;
+  }
+
+  /**
+   * Get the definition cached under the specified key, if its entry is
+   * valid and none of its documents have changed.
+   *
+   * @param key the key, which identifies the document and the
+   * configuration of the reader
+   * @param factory the factory to create the definition with
+   * @param extReg the extension registry to set on the definitions, or
+   * null to use the factory's populated registry
+   * @return the definition, or null if there is none
+   */
+  Definition get(String key, WSDLFactory factory, ExtensionRegistry extReg)
+  {
+    File file = getEntryFile(key);
+    DataInputStream in;
+
+    try
+    {
+      in = new DataInputStream(
+        new BufferedInputStream(new FileInputStream(file)));
+    }
+    catch (FileNotFoundException e)
+    {
+      count(false, false);
+
+      return null;
+    }
+
+    boolean valid = false;
+
+    try
+    {
+      byte[] magic = new byte[MAGIC.length];
+
+      in.readFully(magic);
+
+      // An entry of another version has to go; so does one for another key.
+      if (!Arrays.equals(magic, MAGIC)
+          || in.readInt() != VERSION
+          || !key.equals(in.readUTF()))
+      {
+        count(false, true);
+
+        return null;
+      }
+
+      int sourceCount = in.readInt();
+
+      for (int i = 0; i < sourceCount; i++)
+      {
+        Source source = Source.read(in);
+
+        if (!isUnchanged(source))
+        {
+          count(false, true);
+
+          return null;
+        }
+      }
+
+      DefinitionSnapshotReader snapshotReader = new DefinitionSnapshotReader();
+
+      snapshotReader.setFactory(factory);
+      snapshotReader.setExtensionRegistry(extReg);
+
+      Definition def = snapshotReader.readSnapshot(in);
+
+      valid = true;
+
+      // Entries are evicted in order of last-modified time.
+      file.setLastModified(System.currentTimeMillis());
+      count(true, false);
+
+      return def;
+    }
+    catch (IOException e)
+    {
+      fail();
+
+      return null;
+    }
+    catch (WSDLException e)
+    {
+      fail();
+
+      return null;
+    }
+    finally
+    {
+      close(in);
+
+      if (!valid)
+      {
+        file.delete();
+      }
+    }
+  }
+
+  /**
+   * Cache the specified definition under the specified key.
+   *
+   * @param key the key, which identifies the document and the
+   * configuration of the reader
+   * @param def the definition
+   * @param readTime when the reader started reading the definition;
+   * documents changed after that may have been read before they changed
+   */
+  void put(String key, Definition def, long readTime)
+  {
+    List sourceURIs = getSourceURIs(def);
+    File tempFile = null;
+
+    try
+    {
+      List sources = new ArrayList();
+
+      for (int i = 0; i < sourceURIs.size(); i++)
+      {
+        Source source = Source.describe((String)sourceURIs.get(i));
+
+        if (source.lastModified + MODIFICATION_GRANULARITY > readTime)
+        {
+          return;
+        }
+
+        sources.add(source);
+      }
+
+      directory.mkdirs();
+      tempFile = File.createTempFile(TEMP_PREFIX, TEMP_SUFFIX, directory);
+
+      DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(new FileOutputStream(tempFile)));
+
+      try
+      {
+        out.write(MAGIC);
+        out.writeInt(VERSION);
+        out.writeUTF(key);
+        out.writeInt(sources.size());
+
+        for (int i = 0; i < sources.size(); i++)
+        {
+          ((Source)sources.get(i)).write(out);
+        }
+
+        new DefinitionSnapshotWriter().writeSnapshot(def, out);
+      }
+      finally
+      {
+        out.close();
+      }
+
+      replace(tempFile, getEntryFile(key));
+
+      tempFile = null;
+      trim();
+    }
+    catch (IOException e)
+    {
+      fail();
+    }
+    catch (WSDLException e)
+    {
+      fail();
+    }
+    finally
+    {
+      if (tempFile != null)
+      {
+        tempFile.delete();
+      }
+    }
+  }
+
+  /*
+    Rename the temporary file to the entry file, replacing any entry
+    already there. Where java.nio.file is available, the file is moved
+    atomically. Otherwise, if renaming over an existing file fails, as
+    it does on some platforms, the old entry is deleted first, and for a
+    moment there is no entry, so a reader parses the document instead.
+  */
+  private static void replace(File tempFile, File file) throws IOException
+  {
+    if (ATOMIC_MOVE != null)
+    {
+      try
+      {
+        Object[] noArgs = new Object[0];
+
+        ATOMIC_MOVE.invoke(null, new Object[]{TO_PATH.invoke(tempFile, noArgs),
+                                              TO_PATH.invoke(file, noArgs),
+                                              ATOMIC_MOVE_OPTIONS});
+        return;
+      }
+      catch (IllegalAccessException e)
+      {
+        // Fall back to renaming.
+      }
+      catch (InvocationTargetException e)
+      {
+        // The file system may not support atomic moves, so fall back
+        // to renaming.
+      }
+    }
+
+    if (!tempFile.renameTo(file))
+    {
+      file.delete();
+
+      if (!tempFile.renameTo(file))
+      {
+        throw new IOException("Unable to rename '" + tempFile +
+                              "' to '" + file + "'.");
+      }
+    }
+  }
+
+  /**
+   * Remove all entries from the directory. The statistics are not reset.
+   */
+  public void clear()
+  {
+    File[] files = directory.listFiles();
+
+    if (files != null)
+    {
+      for (int i = 0; i < files.length; i++)
+      {
+        if (isEntryFile(files[i]) || isTempFile(files[i]))
+        {
+          files[i].delete();
+        }
+      }
+    }
+  }
+
+  /**
+   * Get the number of reads that used a cached definition.
+   */
+  public synchronized long getHits()
+  {
+    return hits;
+  }
+
+  /**
+   * Get the number of reads that didn't find a usable cached definition.
+   */
+  public synchronized long getMisses()
+  {
+    return misses;
+  }
+
+  /**
+   * Get the number of entries removed because their documents had
+   * changed, or they were written by another version of this class.
+   */
+  public synchronized long getInvalidations()
+  {
+    return invalidations;
+  }
+
+  /**
+   * Get the number of entries removed to keep within the maximum size.
+   */
+  public synchronized long getEvictions()
+  {
+    return evictions;
+  }
+
+  /**
+   * Get the number of entries that couldn't be read or written.
+   */
+  public synchronized long getFailures()
+  {
+    return failures;
+  }
+
+  /**
+   * Reset the hit, miss, invalidation, eviction and failure counters.
+   */
+  public synchronized void resetStatistics()
+  {
+    hits = 0;
+    misses = 0;
+    invalidations = 0;
+    evictions = 0;
+    failures = 0;
+  }
+
+  private synchronized void count(boolean hit, boolean invalidated)
+  {
+    if (hit)
+    {
+      hits++;
+    }
+    else
+    {
+      misses++;
+    }
+
+    if (invalidated)
+    {
+      invalidations++;
+    }
+  }
+
+  private synchronized void fail()
+  {
+    failures++;
+  }
+
+  /*
+    Remove the least recently used entries until the rest fit, and any
+    temporary files that were left behind.
+  */
+  private void trim()
+  {
+    File[] files = directory.listFiles();
+
+    if (files == null)
+    {
+      return;
+    }
+
+    List entryFiles = new ArrayList();
+    long size = 0;
+    long now = System.currentTimeMillis();
+
+    for (int i = 0; i < files.length; i++)
+    {
+      if (isEntryFile(files[i]))
+      {
+        entryFiles.add(new Object[]{files[i],
+                                    new Long(files[i].lastModified())});
+        size += files[i].length();
+      }
+      else if (isTempFile(files[i])
+               && files[i].lastModified() + TEMP_FILE_MAX_AGE < now)
+      {
+        files[i].delete();
+      }
+    }
+
+    if (size <= maxSize)
+    {
+      return;
+    }
+
+    // The times are read once, as they may change while sorting.
+    Collections.sort(entryFiles, new Comparator()
+      {
+        public int compare(Object o1, Object o2)
+        {
+          long time1 = ((Long)((Object[])o1)[1]).longValue();
+          long time2 = ((Long)((Object[])o2)[1]).longValue();
+
+          return (time1 < time2) ? -1 : ((time1 == time2) ? 0 : 1);
+        }
+      });
+
+    for (int i = 0; i < entryFiles.size() && size > maxSize; i++)
+    {
+      File file = (File)((Object[])entryFiles.get(i))[0];
+      long length = file.length();
+
+      if (file.delete())
+      {
+        size -= length;
+
+        synchronized (this)
+        {
+          evictions++;
+        }
+      }
+    }
+  }
+
+  private File getEntryFile(String key)
+  {
+    try
+    {
+      return new File(directory, toHex(digest(key.getBytes("UTF-8"))) +
+                                 ENTRY_SUFFIX);
+    }
+    catch (UnsupportedEncodingException e)
+    {
+      throw new IllegalStateException(e.toString());
+    }
+  }
+
+  private static boolean isEntryFile(File file)
+  {
+    return file.getName().endsWith(ENTRY_SUFFIX);
+  }
+
+  private static boolean isTempFile(File file)
+  {
+    return file.getName().startsWith(TEMP_PREFIX)
+           && file.getName().endsWith(TEMP_SUFFIX);
+  }
+
+  private boolean isUnchanged(Source source)
+  {
+    File file = getLocalFile(source.uri);
+
+    if (file != null)
+    {
+      if (file.length() != source.length)
+      {
+        return false;
+      }
+      else if (!verifyContent && file.lastModified() == source.lastModified)
+      {
+        return true;
+      }
+    }
+
+    try
+    {
+      return Arrays.equals(digest(source.uri), source.digest);
+    }
+    catch (IOException e)
+    {
+      return false;
+    }
+  }
+
+  /*
+    Get the URIs of the documents the definition was read from.
+  */
+  private static List getSourceURIs(Definition def)
+  {
+    Set sourceURIs = new LinkedHashSet();
+
+    addSourceURIs(def, sourceURIs, new IdentityHashMap());
+
+    return new ArrayList(sourceURIs);
+  }
+
+  private static void addSourceURIs(Definition def,
+                                    Set sourceURIs,
+                                    Map visited)
+  {
+    if (def == null || visited.put(def, def) != null)
+    {
+      return;
+    }
+
+    if (def.getDocumentBaseURI() != null)
+    {
+      sourceURIs.add(def.getDocumentBaseURI());
+    }
+
+    Iterator importListIterator = def.getImports().values().iterator();
+
+    while (importListIterator.hasNext())
+    {
+      List imports = (List)importListIterator.next();
+
+      for (int i = 0; i < imports.size(); i++)
+      {
+        addSourceURIs(((Import)imports.get(i)).getDefinition(),
+                      sourceURIs,
+                      visited);
+      }
+    }
+
+    Types types = def.getTypes();
+
+    if (types != null)
+    {
+      List extElements = types.getExtensibilityElements();
+
+      for (int i = 0; i < extElements.size(); i++)
+      {
+        if (extElements.get(i) instanceof Schema)
+        {
+          addSourceURIs((Schema)extElements.get(i), sourceURIs, visited);
+        }
+      }
+    }
+  }
+
+  private static void addSourceURIs(Schema schema,
+                                    Set sourceURIs,
+                                    Map visited)
+  {
+    if (schema == null || visited.put(schema, schema) != null)
+    {
+      return;
+    }
+
+    if (schema.getDocumentBaseURI() != null)
+    {
+      sourceURIs.add(schema.getDocumentBaseURI());
+    }
+
+    List schemaRefs = new ArrayList();
+    Iterator importListIterator = schema.getImports().values().iterator();
+
+    while (importListIterator.hasNext())
+    {
+      schemaRefs.addAll((List)importListIterator.next());
+    }
+
+    schemaRefs.addAll(schema.getIncludes());
+    schemaRefs.addAll(schema.getRedefines());
+
+    for (int i = 0; i < schemaRefs.size(); i++)
+    {
+      addSourceURIs(((SchemaReference)schemaRefs.get(i)).getReferencedSchema(),
+                    sourceURIs,
+                    visited);
+    }
+  }
+
+  /*
+    Get the local file the specified URI refers to, or null if it doesn't
+    refer to one.
+  */
+  private static File getLocalFile(String uri)
+  {
+    try
+    {
+      URL url = new URL(uri);
+
+      if ("file".equals(url.getProtocol()))
+      {
+        try
+        {
+          return new File(new URI(uri));
+        }
+        catch (URISyntaxException e)
+        {
+          // File.toURL() doesn't escape anything.
+          return new File(url.getPath());
+        }
+      }
+    }
+    catch (Exception e)
+    {
+      // Not a local file.
+    }
+
+    return null;
+  }
+
+  private static byte[] digest(String uri) throws IOException
+  {
+    MessageDigest digest = newDigest();
+    InputStream in = new URL(uri).openStream();
+
+    try
+    {
+      byte[] buf = new byte[8192];
+
+      for (int len = in.read(buf); len != -1; len = in.read(buf))
+      {
+        digest.update(buf, 0, len);
+      }
+    }
+    finally
+    {
+      in.close();
+    }
+
+    return digest.digest();
+  }
+
+  private static byte[] digest(byte[] bytes)
+  {
+    return newDigest().digest(bytes);
+  }
+
+  private static MessageDigest newDigest()
+  {
+    try
+    {
+      return MessageDigest.getInstance(DIGEST_ALGORITHM);
+    }
+    catch (NoSuchAlgorithmException e)
+    {
+      // Every Java platform has to support SHA-256.
+      throw new IllegalStateException(e.toString());
+    }
+  }
+
+  private static String toHex(byte[] bytes)
+  {
+    StringBuffer strBuf = new StringBuffer(bytes.length * 2);
+
+    for (int i = 0; i < bytes.length; i++)
+    {
+      strBuf.append(Character.forDigit((bytes[i] >> 4) & 0xF, 16));
+      strBuf.append(Character.forDigit(bytes[i] & 0xF, 16));
+    }
+
+    return strBuf.toString();
+  }
+
+  private static void close(InputStream in)
+  {
+    try
+    {
+      in.close();
+    }
+    catch (IOException e)
+    {
+      // Nothing was written, so nothing can be lost.
+    }
+  }
+
+  public String toString()
+  {
+    StringBuffer strBuf = new StringBuffer();
+
+    strBuf.append("PersistentDefinitionCache:");
+    strBuf.append("\ndirectory=" + directory);
+    strBuf.append("\nmaxSize=" + maxSize);
+    strBuf.append("\nverifyContent=" + verifyContent);
+
+    synchronized (this)
+    {
+      strBuf.append("\nhits=" + hits);
+      strBuf.append("\nmisses=" + misses);
+      strBuf.append("\ninvalidations=" + invalidations);
+      strBuf.append("\nevictions=" + evictions);
+      strBuf.append("\nfailures=" + failures);
+    }
+
+    return strBuf.toString();
+  }
+
+  /*
+    A document a definition was read from, as it was when it was read.
+  */
+  private static class Source
+  {
+    final String uri;
+    final long length;
+    final long lastModified;
+    final byte[] digest;
+
+    Source(String uri, long length, long lastModified, byte[] digest)
+    {
+      this.uri = uri;
+      this.length = length;
+      this.lastModified = lastModified;
+      this.digest = digest;
+    }
+
+    static Source describe(String uri) throws IOException
+    {
+      File file = getLocalFile(uri);
+
+      // The time is taken first, so a change while hashing shows.
+      long lastModified = (file != null) ? file.lastModified() : 0;
+      long length = (file != null) ? file.length() : -1;
+
+      return new Source(uri, length, lastModified, digest(uri));
+    }
+
+    static Source read(DataInputStream in) throws IOException
+    {
+      String uri = in.readUTF();
+      long length = in.readLong();
+      long lastModified = in.readLong();
+      byte[] digest = new byte[in.readUnsignedByte()];
+
+      in.readFully(digest);
+
+      return new Source(uri, length, lastModified, digest);
+    }
+
+    void write(DataOutputStream out) throws IOException
+    {
+      out.writeUTF(uri);
+      out.writeLong(length);
+      out.writeLong(lastModified);
+      out.writeByte(digest.length);
+      out.write(digest);
+    }
+  }
+}
@@ -0,0 +1,445 @@
+/*
+ * (c) Copyright IBM Corp 2006
+ */
+
+package com.ibm.wsdl.xml;
+
+import java.io.*;
+import java.util.*;
+import javax.wsdl.extensions.*;
+import javax.wsdl.extensions.soap.*;
+import javax.wsdl.extensions.soap12.*;
+import com.ibm.wsdl.extensions.soap.*;
+import com.ibm.wsdl.extensions.soap12.*;
+
+/**
+ * Writes and reads the SOAP 1.1 and SOAP 1.2 extensibility elements
+ * field by field, so that restoring them from a snapshot neither builds
+ * nor deserializes any DOM. Only instances of exactly the classes the
+ * extension registry creates are written this way; any other class may
+ * hold more than its interface tells.
+ *
+ * @see DefinitionSnapshotWriter
+ */
+class SnapshotExtensions
+{
+  // The kinds that aren't listed below.
+  static final int KIND_UNKNOWN = 0;
+  static final int KIND_SCHEMA = 1;
+  static final int KIND_SERIALIZED = 2;
+
+  private static final Class[] CLASSES =
+  {
+    SOAPAddressImpl.class,
+    SOAPBindingImpl.class,
+    SOAPBodyImpl.class,
+    SOAPFaultImpl.class,
+    SOAPHeaderImpl.class,
+    SOAPOperationImpl.class,
+    SOAP12AddressImpl.class,
+    SOAP12BindingImpl.class,
+    SOAP12BodyImpl.class,
+    SOAP12FaultImpl.class,
+    SOAP12HeaderImpl.class,
+    SOAP12OperationImpl.class
+  };
+
+  private static final int FIRST_KIND = 3;
+
+  private static final int SOAP_ADDRESS = FIRST_KIND;
+  private static final int SOAP_BINDING = FIRST_KIND + 1;
+  private static final int SOAP_BODY = FIRST_KIND + 2;
+  private static final int SOAP_FAULT = FIRST_KIND + 3;
+  private static final int SOAP_HEADER = FIRST_KIND + 4;
+  private static final int SOAP_OPERATION = FIRST_KIND + 5;
+  private static final int SOAP12_ADDRESS = FIRST_KIND + 6;
+  private static final int SOAP12_BINDING = FIRST_KIND + 7;
+  private static final int SOAP12_BODY = FIRST_KIND + 8;
+  private static final int SOAP12_FAULT = FIRST_KIND + 9;
+  private static final int SOAP12_HEADER = FIRST_KIND + 10;
+  private static final int SOAP12_OPERATION = FIRST_KIND + 11;
+
+  private static final Map KINDS = new HashMap();
+
+  static
+  {
+    for (int i = 0; i < CLASSES.length; i++)
+    {
+      KINDS.put(CLASSES[i], new Integer(FIRST_KIND + i));
+    }
+  }
+
+  /**
+   * Get the kind the specified element is written as by this class.
+   *
+   * @return the kind, or -1 if the element can't be written by this class
+   */
+  static int getKind(ExtensibilityElement ext)
+  {
+    Integer kind = (Integer)KINDS.get(ext.getClass());
+
+    if (kind == null)
+    {
+      return -1;
+    }
+
+    // The header faults must be written field by field as well.
+    List headerFaults = null;
+    Class headerFaultClass = null;
+
+    if (kind.intValue() == SOAP_HEADER)
+    {
+      headerFaults = ((SOAPHeader)ext).getSOAPHeaderFaults();
+      headerFaultClass = SOAPHeaderFaultImpl.class;
+    }
+    else if (kind.intValue() == SOAP12_HEADER)
+    {
+      headerFaults = ((SOAP12Header)ext).getSOAP12HeaderFaults();
+      headerFaultClass = SOAP12HeaderFaultImpl.class;
+    }
+
+    if (headerFaults != null)
+    {
+      for (int i = 0; i < headerFaults.size(); i++)
+      {
+        if (headerFaults.get(i).getClass() != headerFaultClass)
+        {
+          return -1;
+        }
+      }
+    }
+
+    return kind.intValue();
+  }
+
+  static void write(SnapshotOutput out, int kind, ExtensibilityElement ext)
+    throws IOException
+  {
+    out.writeQName(ext.getElementType());
+    out.writeBoolean(ext.getRequired());
+
+    switch (kind)
+    {
+      case SOAP_ADDRESS :
+      {
+        out.writeString(((SOAPAddress)ext).getLocationURI());
+        break;
+      }
+      case SOAP_BINDING :
+      {
+        SOAPBinding soapBinding = (SOAPBinding)ext;
+
+        out.writeString(soapBinding.getStyle());
+        out.writeString(soapBinding.getTransportURI());
+        break;
+      }
+      case SOAP_BODY :
+      {
+        SOAPBody soapBody = (SOAPBody)ext;
+
+        out.writeStrings(soapBody.getParts());
+        out.writeString(soapBody.getUse());
+        out.writeStrings(soapBody.getEncodingStyles());
+        out.writeString(soapBody.getNamespaceURI());
+        break;
+      }
+      case SOAP_FAULT :
+      {
+        SOAPFault soapFault = (SOAPFault)ext;
+
+        out.writeString(soapFault.getName());
+        out.writeString(soapFault.getUse());
+        out.writeStrings(soapFault.getEncodingStyles());
+        out.writeString(soapFault.getNamespaceURI());
+        break;
+      }
+      case SOAP_HEADER :
+      {
+        SOAPHeader soapHeader = (SOAPHeader)ext;
+        List soapHeaderFaults = soapHeader.getSOAPHeaderFaults();
+
+        out.writeQName(soapHeader.getMessage());
+        out.writeString(soapHeader.getPart());
+        out.writeString(soapHeader.getUse());
+        out.writeStrings(soapHeader.getEncodingStyles());
+        out.writeString(soapHeader.getNamespaceURI());
+        out.writeInt(soapHeaderFaults.size());
+
+        for (int i = 0; i < soapHeaderFaults.size(); i++)
+        {
+          SOAPHeaderFault soapHeaderFault =
+            (SOAPHeaderFault)soapHeaderFaults.get(i);
+
+          out.writeQName(soapHeaderFault.getElementType());
+          out.writeBoolean(soapHeaderFault.getRequired());
+          out.writeQName(soapHeaderFault.getMessage());
+          out.writeString(soapHeaderFault.getPart());
+          out.writeString(soapHeaderFault.getUse());
+          out.writeStrings(soapHeaderFault.getEncodingStyles());
+          out.writeString(soapHeaderFault.getNamespaceURI());
+        }
+        break;
+      }
+      case SOAP_OPERATION :
+      {
+        SOAPOperation soapOperation = (SOAPOperation)ext;
+
+        out.writeString(soapOperation.getSoapActionURI());
+        out.writeString(soapOperation.getStyle());
+        break;
+      }
+      case SOAP12_ADDRESS :
+      {
+        out.writeString(((SOAP12Address)ext).getLocationURI());
+        break;
+      }
+      case SOAP12_BINDING :
+      {
+        SOAP12Binding soapBinding = (SOAP12Binding)ext;
+
+        out.writeString(soapBinding.getStyle());
+        out.writeString(soapBinding.getTransportURI());
+        break;
+      }
+      case SOAP12_BODY :
+      {
+        SOAP12Body soapBody = (SOAP12Body)ext;
+
+        out.writeStrings(soapBody.getParts());
+        out.writeString(soapBody.getUse());
+        out.writeString(soapBody.getEncodingStyle());
+        out.writeString(soapBody.getNamespaceURI());
+        break;
+      }
+      case SOAP12_FAULT :
+      {
+        SOAP12Fault soapFault = (SOAP12Fault)ext;
+
+        out.writeString(soapFault.getName());
+        out.writeString(soapFault.getUse());
+        out.writeString(soapFault.getEncodingStyle());
+        out.writeString(soapFault.getNamespaceURI());
+        break;
+      }
+      case SOAP12_HEADER :
+      {
+        SOAP12Header soapHeader = (SOAP12Header)ext;
+        List soapHeaderFaults = soapHeader.getSOAP12HeaderFaults();
+
+        out.writeQName(soapHeader.getMessage());
+        out.writeString(soapHeader.getPart());
+        out.writeString(soapHeader.getUse());
+        out.writeString(soapHeader.getEncodingStyle());
+        out.writeString(soapHeader.getNamespaceURI());
+        out.writeInt(soapHeaderFaults.size());
+
+        for (int i = 0; i < soapHeaderFaults.size(); i++)
+        {
+          SOAP12HeaderFault soapHeaderFault =
+            (SOAP12HeaderFault)soapHeaderFaults.get(i);
+
+          out.writeQName(soapHeaderFault.getElementType());
+          out.writeBoolean(soapHeaderFault.getRequired());
+          out.writeQName(soapHeaderFault.getMessage());
+          out.writeString(soapHeaderFault.getPart());
+          out.writeString(soapHeaderFault.getUse());
+          out.writeString(soapHeaderFault.getEncodingStyle());
+          out.writeString(soapHeaderFault.getNamespaceURI());
+        }
+        break;
+      }
+      case SOAP12_OPERATION :
+      {
+        SOAP12Operation soapOperation = (SOAP12Operation)ext;
+
+        out.writeString(soapOperation.getSoapActionURI());
+        out.writeBoolean(soapOperation.getSoapActionRequired());
+        out.writeString(soapOperation.getStyle());
+        break;
+      }
+    }
+  }
+
+  static ExtensibilityElement read(SnapshotInput in, int kind)
+    throws IOException
+  {
+    ExtensibilityElement ext;
+
+    switch (kind)
+    {
+      case SOAP_ADDRESS :
+      {
+        ext = new SOAPAddressImpl();
+        readHead(in, ext);
+        ((SOAPAddress)ext).setLocationURI(in.readString());
+        break;
+      }
+      case SOAP_BINDING :
+      {
+        SOAPBinding soapBinding = new SOAPBindingImpl();
+
+        ext = soapBinding;
+        readHead(in, ext);
+        soapBinding.setStyle(in.readString());
+        soapBinding.setTransportURI(in.readString());
+        break;
+      }
+      case SOAP_BODY :
+      {
+        SOAPBody soapBody = new SOAPBodyImpl();
+
+        ext = soapBody;
+        readHead(in, ext);
+        soapBody.setParts(in.readStrings());
+        soapBody.setUse(in.readString());
+        soapBody.setEncodingStyles(in.readStrings());
+        soapBody.setNamespaceURI(in.readString());
+        break;
+      }
+      case SOAP_FAULT :
+      {
+        SOAPFault soapFault = new SOAPFaultImpl();
+
+        ext = soapFault;
+        readHead(in, ext);
+        soapFault.setName(in.readString());
+        soapFault.setUse(in.readString());
+        soapFault.setEncodingStyles(in.readStrings());
+        soapFault.setNamespaceURI(in.readString());
+        break;
+      }
+      case SOAP_HEADER :
+      {
+        SOAPHeader soapHeader = new SOAPHeaderImpl();
+
+        ext = soapHeader;
+        readHead(in, ext);
+        soapHeader.setMessage(in.readQName());
+        soapHeader.setPart(in.readString());
+        soapHeader.setUse(in.readString());
+        soapHeader.setEncodingStyles(in.readStrings());
+        soapHeader.setNamespaceURI(in.readString());
+
+        int soapHeaderFaultCount = in.readInt();
+
+        for (int i = 0; i < soapHeaderFaultCount; i++)
+        {
+          SOAPHeaderFault soapHeaderFault = new SOAPHeaderFaultImpl();
+
+          readHead(in, soapHeaderFault);
+          soapHeaderFault.setMessage(in.readQName());
+          soapHeaderFault.setPart(in.readString());
+          soapHeaderFault.setUse(in.readString());
+          soapHeaderFault.setEncodingStyles(in.readStrings());
+          soapHeaderFault.setNamespaceURI(in.readString());
+          soapHeader.addSOAPHeaderFault(soapHeaderFault);
+        }
+        break;
+      }
+      case SOAP_OPERATION :
+      {
+        SOAPOperation soapOperation = new SOAPOperationImpl();
+
+        ext = soapOperation;
+        readHead(in, ext);
+        soapOperation.setSoapActionURI(in.readString());
+        soapOperation.setStyle(in.readString());
+        break;
+      }
+      case SOAP12_ADDRESS :
+      {
+        ext = new SOAP12AddressImpl();
+        readHead(in, ext);
+        ((SOAP12Address)ext).setLocationURI(in.readString());
+        break;
+      }
+      case SOAP12_BINDING :
+      {
+        SOAP12Binding soapBinding = new SOAP12BindingImpl();
+
+        ext = soapBinding;
+        readHead(in, ext);
+        soapBinding.setStyle(in.readString());
+        soapBinding.setTransportURI(in.readString());
+        break;
+      }
+      case SOAP12_BODY :
+      {
+        SOAP12Body soapBody = new SOAP12BodyImpl();
+
+        ext = soapBody;
+        readHead(in, ext);
+        soapBody.setParts(in.readStrings());
+        soapBody.setUse(in.readString());
+        soapBody.setEncodingStyle(in.readString());
+        soapBody.setNamespaceURI(in.readString());
+        break;
+      }
+      case SOAP12_FAULT :
+      {
+        SOAP12Fault soapFault = new SOAP12FaultImpl();
+
+        ext = soapFault;
+        readHead(in, ext);
+        soapFault.setName(in.readString());
+        soapFault.setUse(in.readString());
+        soapFault.setEncodingStyle(in.readString());
+        soapFault.setNamespaceURI(in.readString());
+        break;
+      }
+      case SOAP12_HEADER :
+      {
+        SOAP12Header soapHeader = new SOAP12HeaderImpl();
+
+        ext = soapHeader;
+        readHead(in, ext);
+        soapHeader.setMessage(in.readQName());
+        soapHeader.setPart(in.readString());
+        soapHeader.setUse(in.readString());
+        soapHeader.setEncodingStyle(in.readString());
+        soapHeader.setNamespaceURI(in.readString());
+
+        int soapHeaderFaultCount = in.readInt();
+
+        for (int i = 0; i < soapHeaderFaultCount; i++)
+        {
+          SOAP12HeaderFault soapHeaderFault = new SOAP12HeaderFaultImpl();
+
+          readHead(in, soapHeaderFault);
+          soapHeaderFault.setMessage(in.readQName());
+          soapHeaderFault.setPart(in.readString());
+          soapHeaderFault.setUse(in.readString());
+          soapHeaderFault.setEncodingStyle(in.readString());
+          soapHeaderFault.setNamespaceURI(in.readString());
+          soapHeader.addSOAP12HeaderFault(soapHeaderFault);
+        }
+        break;
+      }
+      case SOAP12_OPERATION :
+      {
+        SOAP12Operation soapOperation = new SOAP12OperationImpl();
+
+        ext = soapOperation;
+        readHead(in, ext);
+        soapOperation.setSoapActionURI(in.readString());
+        soapOperation.setSoapActionRequired(in.readBooleanObject());
+        soapOperation.setStyle(in.readString());
+        break;
+      }
+      default :
+      {
+        throw new IOException("Unknown extensibility element kind " + kind +
+                              ".");
+      }
+    }
+
+    return ext;
+  }
+
+  private static void readHead(SnapshotInput in, ExtensibilityElement ext)
+    throws IOException
+  {
+    ext.setElementType(in.readQName());
+    ext.setRequired(in.readBooleanObject());
+  }
+}
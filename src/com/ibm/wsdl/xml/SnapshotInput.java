@@ -0,0 +1,313 @@
+/*
+ * (c) Copyright IBM Corp 2006
+ */
+
+package com.ibm.wsdl.xml;
+
+import java.io.*;
+import java.util.*;
+import org.w3c.dom.*;
+import javax.wsdl.*;
+import javax.xml.namespace.*;
+import com.ibm.wsdl.util.xml.*;
+
+/**
+ * Reads what SnapshotOutput wrote. Strings and QNames are read into
+ * tables as they are first seen; namespace URIs and QNames without a
+ * prefix are interned the same way the readers intern them.
+ *
+ * @see DefinitionSnapshotReader
+ * @see SnapshotOutput
+ */
+class SnapshotInput
+{
+  private static final String SNAPSHOT_ROOT = "snapshot";
+  private static final String NS_URI_XMLNS = "http://www.w3.org/2000/xmlns/";
+
+  private final DataInputStream in;
+  private final List strings = new ArrayList();
+  private final List qnames = new ArrayList();
+  private final List objects = new ArrayList();
+
+  // The document elements are restored into, until a new one is needed.
+  private Document doc = null;
+
+  SnapshotInput(InputStream in) throws IOException, WSDLException
+  {
+    this.in = new DataInputStream(new BufferedInputStream(in));
+
+    byte[] magic = new byte[SnapshotOutput.MAGIC.length];
+
+    this.in.readFully(magic);
+
+    if (!Arrays.equals(magic, SnapshotOutput.MAGIC))
+    {
+      throw new WSDLException(WSDLException.PARSER_ERROR,
+                              "The input is not a definition snapshot.");
+    }
+
+    int version = readInt();
+
+    if (version != SnapshotOutput.VERSION)
+    {
+      throw new WSDLException(WSDLException.PARSER_ERROR,
+                              "Unsupported definition snapshot version " +
+                              version + ", expected version " +
+                              SnapshotOutput.VERSION + ".");
+    }
+  }
+
+  int readInt() throws IOException
+  {
+    int value = 0;
+
+    for (int shift = 0; shift < 32; shift += 7)
+    {
+      int b = in.readUnsignedByte();
+
+      value |= (b & 0x7F) << shift;
+
+      if ((b & 0x80) == 0)
+      {
+        return value;
+      }
+    }
+
+    throw new IOException("Malformed integer.");
+  }
+
+  boolean readBoolean() throws IOException
+  {
+    return in.readUnsignedByte() != 0;
+  }
+
+  Boolean readBooleanObject() throws IOException
+  {
+    switch (in.readUnsignedByte())
+    {
+      case 0 :
+        return null;
+      case 1 :
+        return Boolean.FALSE;
+      default :
+        return Boolean.TRUE;
+    }
+  }
+
+  String readString() throws IOException
+  {
+    int ref = readInt();
+
+    if (ref == SnapshotOutput.REF_NULL)
+    {
+      return null;
+    }
+    else if (ref != SnapshotOutput.REF_NEW)
+    {
+      return (String)strings.get(ref - SnapshotOutput.REF_FIRST_INDEX);
+    }
+
+    byte[] bytes = new byte[readInt()];
+
+    in.readFully(bytes);
+
+    String str = new String(bytes, "UTF-8");
+
+    strings.add(str);
+
+    return str;
+  }
+
+  List readStrings() throws IOException
+  {
+    int size = readInt() - 1;
+
+    if (size < 0)
+    {
+      return null;
+    }
+
+    List strs = new Vector(size);
+
+    for (int i = 0; i < size; i++)
+    {
+      strs.add(readString());
+    }
+
+    return strs;
+  }
+
+  QName readQName() throws IOException
+  {
+    int ref = readInt();
+
+    if (ref == SnapshotOutput.REF_NULL)
+    {
+      return null;
+    }
+    else if (ref != SnapshotOutput.REF_NEW)
+    {
+      return (QName)qnames.get(ref - SnapshotOutput.REF_FIRST_INDEX);
+    }
+
+    String namespaceURI = readString();
+    String localPart = readString();
+    String prefix = readString();
+    QName qname = (prefix == null || prefix.length() == 0)
+                  ? QNameUtils.newQName(namespaceURI, localPart)
+                  : new QName(namespaceURI, localPart, prefix);
+
+    qnames.add(qname);
+
+    return qname;
+  }
+
+  /**
+   * Read a reference to a shared object.
+   *
+   * @return SnapshotOutput.REF_NULL, SnapshotOutput.REF_NEW if the
+   * object itself follows, in which case the caller must create it and
+   * pass it to addObject(...) before reading anything else, or a value
+   * to pass to getObject(...)
+   */
+  int readReference() throws IOException
+  {
+    return readInt();
+  }
+
+  Object getObject(int ref)
+  {
+    return (ref == SnapshotOutput.REF_NULL)
+           ? null
+           : objects.get(ref - SnapshotOutput.REF_FIRST_INDEX);
+  }
+
+  void addObject(Object obj)
+  {
+    objects.add(obj);
+  }
+
+  /**
+   * Start restoring elements into a new document, so that elements
+   * belonging to different definitions don't share one.
+   *
+   * @return the document used until now, to pass to endDocument(...)
+   */
+  Document startDocument()
+  {
+    Document oldDoc = doc;
+
+    doc = null;
+
+    return oldDoc;
+  }
+
+  void endDocument(Document oldDoc)
+  {
+    doc = oldDoc;
+  }
+
+  /**
+   * Read an element written by SnapshotOutput.writeElement(...). The
+   * element is restored below an element with the name of its original
+   * parent, which has the namespace declarations that were in scope.
+   */
+  Element readElement() throws IOException, WSDLException
+  {
+    if (!readBoolean())
+    {
+      return null;
+    }
+
+    if (doc == null)
+    {
+      doc = DocumentBuilderPool.getDefaultPool().newDocument();
+      doc.appendChild(doc.createElementNS(null, SNAPSHOT_ROOT));
+    }
+
+    String parentNamespaceURI = readString();
+    String parentName = readString();
+    Element parent = doc.createElementNS(parentNamespaceURI,
+                                         (parentName != null)
+                                         ? parentName
+                                         : SNAPSHOT_ROOT);
+    int declarationCount = readInt();
+
+    for (int i = 0; i < declarationCount; i++)
+    {
+      String name = readString();
+      String value = readString();
+
+      parent.setAttributeNS(NS_URI_XMLNS, name, value);
+    }
+
+    doc.getDocumentElement().appendChild(parent);
+
+    if (readInt() != SnapshotOutput.NODE_ELEMENT)
+    {
+      throw new IOException("Malformed element.");
+    }
+
+    return (Element)readElementNode(parent);
+  }
+
+  private Node readElementNode(Node parent) throws IOException
+  {
+    Element el = doc.createElementNS(readString(), readString());
+    int attrCount = readInt();
+
+    for (int i = 0; i < attrCount; i++)
+    {
+      String namespaceURI = readString();
+      String name = readString();
+      String value = readString();
+
+      el.setAttributeNS(namespaceURI, name, value);
+    }
+
+    parent.appendChild(el);
+
+    for (int kind = readInt();
+         kind != SnapshotOutput.NODE_END;
+         kind = readInt())
+    {
+      switch (kind)
+      {
+        case SnapshotOutput.NODE_ELEMENT :
+        {
+          readElementNode(el);
+          break;
+        }
+        case SnapshotOutput.NODE_TEXT :
+        {
+          el.appendChild(doc.createTextNode(readString()));
+          break;
+        }
+        case SnapshotOutput.NODE_CDATA :
+        {
+          el.appendChild(doc.createCDATASection(readString()));
+          break;
+        }
+        case SnapshotOutput.NODE_COMMENT :
+        {
+          el.appendChild(doc.createComment(readString()));
+          break;
+        }
+        case SnapshotOutput.NODE_PI :
+        {
+          String target = readString();
+
+          el.appendChild(doc.createProcessingInstruction(target,
+                                                         readString()));
+          break;
+        }
+        default :
+        {
+          throw new IOException("Malformed element.");
+        }
+      }
+    }
+
+    return el;
+  }
+}
@@ -0,0 +1,314 @@
+/*
+ * (c) Copyright IBM Corp 2006
+ */
+
+package com.ibm.wsdl.xml;
+
+import java.io.*;
+import java.util.*;
+import org.w3c.dom.*;
+import javax.xml.namespace.*;
+
+/**
+ * The low-level encoding of definition snapshots. Integers are written
+ * as variable-length unsigned numbers. Strings and QNames are written
+ * once, and referred to by their index in a table afterwards. Model
+ * objects that can be reached more than once are written where they are
+ * first reached, and referred to by their index afterwards, the same way.
+ * DOM elements are written as a tree of nodes, together with the names
+ * of their parent element and the namespaces declared above them.
+ *
+ * @see DefinitionSnapshotWriter
+ * @see SnapshotInput
+ */
+class SnapshotOutput
+{
+  static final byte[] MAGIC = {'W', 'S', 'D', 'L', 'S', 'N', 'A', 'P'};
+  static final int VERSION = 1;
+
+  // References to strings, QNames and shared objects.
+  static final int REF_NULL = 0;
+  static final int REF_NEW = 1;
+  static final int REF_FIRST_INDEX = 2;
+
+  // Kinds of DOM nodes.
+  static final int NODE_END = 0;
+  static final int NODE_ELEMENT = 1;
+  static final int NODE_TEXT = 2;
+  static final int NODE_CDATA = 3;
+  static final int NODE_COMMENT = 4;
+  static final int NODE_PI = 5;
+
+  private static final String NS_URI_XMLNS = "http://www.w3.org/2000/xmlns/";
+
+  private final DataOutputStream out;
+  private final Map strings = new HashMap();
+  private final Map qnames = new HashMap();
+  private final Map objects = new IdentityHashMap();
+
+  SnapshotOutput(OutputStream out) throws IOException
+  {
+    this.out = new DataOutputStream(new BufferedOutputStream(out));
+    this.out.write(MAGIC);
+    writeInt(VERSION);
+  }
+
+  void flush() throws IOException
+  {
+    out.flush();
+  }
+
+  void writeInt(int value) throws IOException
+  {
+    while ((value & ~0x7F) != 0)
+    {
+      out.write((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+
+    out.write(value);
+  }
+
+  void writeBoolean(boolean value) throws IOException
+  {
+    out.write(value ? 1 : 0);
+  }
+
+  /*
+    Written as 0 for null, 1 for false and 2 for true.
+  */
+  void writeBoolean(Boolean value) throws IOException
+  {
+    out.write((value == null) ? 0 : (value.booleanValue() ? 2 : 1));
+  }
+
+  void writeString(String str) throws IOException
+  {
+    if (str == null)
+    {
+      writeInt(REF_NULL);
+      return;
+    }
+
+    Integer index = (Integer)strings.get(str);
+
+    if (index != null)
+    {
+      writeInt(index.intValue() + REF_FIRST_INDEX);
+      return;
+    }
+
+    byte[] bytes = str.getBytes("UTF-8");
+
+    strings.put(str, new Integer(strings.size()));
+    writeInt(REF_NEW);
+    writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  void writeStrings(List strs) throws IOException
+  {
+    if (strs == null)
+    {
+      writeInt(0);
+      return;
+    }
+
+    writeInt(strs.size() + 1);
+
+    for (int i = 0; i < strs.size(); i++)
+    {
+      writeString((String)strs.get(i));
+    }
+  }
+
+  void writeQName(QName qname) throws IOException
+  {
+    if (qname == null)
+    {
+      writeInt(REF_NULL);
+      return;
+    }
+
+    // QName.equals(...) ignores prefixes, so they are part of the key.
+    List key = Arrays.asList(new Object[]{qname, qname.getPrefix()});
+    Integer index = (Integer)qnames.get(key);
+
+    if (index != null)
+    {
+      writeInt(index.intValue() + REF_FIRST_INDEX);
+      return;
+    }
+
+    qnames.put(key, new Integer(qnames.size()));
+    writeInt(REF_NEW);
+    writeString(qname.getNamespaceURI());
+    writeString(qname.getLocalPart());
+    writeString(qname.getPrefix());
+  }
+
+  /**
+   * Write a reference to the specified object.
+   *
+   * @return true if this is the first reference to the object, in which
+   * case the caller must write the object itself next
+   */
+  boolean writeReference(Object obj) throws IOException
+  {
+    if (obj == null)
+    {
+      writeInt(REF_NULL);
+      return false;
+    }
+
+    Integer index = (Integer)objects.get(obj);
+
+    if (index != null)
+    {
+      writeInt(index.intValue() + REF_FIRST_INDEX);
+      return false;
+    }
+
+    objects.put(obj, new Integer(objects.size()));
+    writeInt(REF_NEW);
+
+    return true;
+  }
+
+  /**
+   * Write the specified element, and what is needed to put it back in
+   * the same context: the name of its parent element, and the namespace
+   * declarations in scope from above it.
+   */
+  void writeElement(Element el) throws IOException
+  {
+    if (el == null)
+    {
+      writeBoolean(false);
+      return;
+    }
+
+    writeBoolean(true);
+
+    Node parent = el.getParentNode();
+    boolean hasParentElement = parent != null
+                               && parent.getNodeType() == Node.ELEMENT_NODE;
+
+    writeString(hasParentElement ? parent.getNamespaceURI() : null);
+    writeString(hasParentElement ? parent.getNodeName() : null);
+
+    // The nearest declaration of each prefix is the one in scope.
+    Map declarations = new LinkedHashMap();
+
+    while (parent != null && parent.getNodeType() == Node.ELEMENT_NODE)
+    {
+      NamedNodeMap attrs = parent.getAttributes();
+
+      for (int i = 0; i < attrs.getLength(); i++)
+      {
+        Attr attr = (Attr)attrs.item(i);
+
+        if (isNamespaceDeclaration(attr)
+            && !declarations.containsKey(attr.getName()))
+        {
+          declarations.put(attr.getName(), attr.getValue());
+        }
+      }
+
+      parent = parent.getParentNode();
+    }
+
+    writeInt(declarations.size());
+
+    Iterator entryIterator = declarations.entrySet().iterator();
+
+    while (entryIterator.hasNext())
+    {
+      Map.Entry entry = (Map.Entry)entryIterator.next();
+
+      writeString((String)entry.getKey());
+      writeString((String)entry.getValue());
+    }
+
+    writeNode(el);
+  }
+
+  private static boolean isNamespaceDeclaration(Attr attr)
+  {
+    String name = attr.getName();
+
+    return NS_URI_XMLNS.equals(attr.getNamespaceURI())
+           || name.equals("xmlns")
+           || name.startsWith("xmlns:");
+  }
+
+  private void writeNode(Node node) throws IOException
+  {
+    switch (node.getNodeType())
+    {
+      case Node.ELEMENT_NODE :
+      {
+        NamedNodeMap attrs = node.getAttributes();
+
+        writeInt(NODE_ELEMENT);
+        writeString(node.getNamespaceURI());
+        writeString(node.getNodeName());
+        writeInt(attrs.getLength());
+
+        for (int i = 0; i < attrs.getLength(); i++)
+        {
+          Attr attr = (Attr)attrs.item(i);
+
+          writeString(attr.getNamespaceURI());
+          writeString(attr.getName());
+          writeString(attr.getValue());
+        }
+
+        writeChildren(node);
+        writeInt(NODE_END);
+        break;
+      }
+      case Node.TEXT_NODE :
+      {
+        writeInt(NODE_TEXT);
+        writeString(node.getNodeValue());
+        break;
+      }
+      case Node.CDATA_SECTION_NODE :
+      {
+        writeInt(NODE_CDATA);
+        writeString(node.getNodeValue());
+        break;
+      }
+      case Node.COMMENT_NODE :
+      {
+        writeInt(NODE_COMMENT);
+        writeString(node.getNodeValue());
+        break;
+      }
+      case Node.PROCESSING_INSTRUCTION_NODE :
+      {
+        writeInt(NODE_PI);
+        writeString(((ProcessingInstruction)node).getTarget());
+        writeString(((ProcessingInstruction)node).getData());
+        break;
+      }
+      case Node.ENTITY_REFERENCE_NODE :
+      {
+        // Written as what it expands to.
+        writeChildren(node);
+        break;
+      }
+    }
+  }
+
+  private void writeChildren(Node node) throws IOException
+  {
+    for (Node child = node.getFirstChild();
+         child != null;
+         child = child.getNextSibling())
+    {
+      writeNode(child);
+    }
+  }
+}
@@ -0,0 +1,1564 @@
+/*
+ * (c) Copyright IBM Corp 2006
+ */
+
+package com.ibm.wsdl.xml;
+
+import java.io.*;
+import java.util.*;
+import javax.xml.namespace.*;
+import javax.xml.stream.*;
+import org.w3c.dom.*;
+import org.xml.sax.*;
+import javax.wsdl.*;
+
+import com.ibm.wsdl.*;
+import com.ibm.wsdl.util.*;
+import com.ibm.wsdl.util.xml.*;
+import com.ibm.wsdl.extensions.schema.SchemaConstants;
+
+/**
+ * A WSDLReader that builds the WSDL model directly from the events of a
+ * javax.xml.stream.XMLStreamReader, instead of parsing each document into
+ * a DOM first. DOM elements are only created for the parts of a document
+ * the model keeps as DOM: inline schemas, documentation elements and
+ * extensibility elements, which are handed to the registered
+ * ExtensionDeserializers exactly as WSDLReaderImpl hands them over. Each of
+ * those fragments hangs below attribute-only copies of its WSDL ancestors,
+ * so in-scope namespace declarations can still be looked up through
+ * getParentNode().
+ * <p>
+ * Documents are only read this way when the reader retrieves them itself:
+ * readWSDL(...) variants that are given an Element or a Document read
+ * that DOM exactly as WSDLReaderImpl does, so the DOM-based parseXXX(...)
+ * methods, and subclasses overriding them, only apply to such a DOM.
+ * Documents the DOM imports are read from a stream, unless the
+ * com.ibm.wsdl.parallelImports feature had them prefetched as DOMs.
+ * Documents referenced by schemas are also still parsed into DOMs, since
+ * schemas are kept as DOM anyway. Both readers build the model from the
+ * names and attributes of the elements with the same code.
+ * <p>
+ * The javax.xml.stream API is only part of the JDK from Java 6, so this
+ * reader and StAXWSDLFactoryImpl, which creates it, are left out of the
+ * default build, which targets Java 5. Build with the stax profile of
+ * pom.xml (mvn -Pstax) to include them.
+ *
+ * @see com.ibm.wsdl.factory.StAXWSDLFactoryImpl
+ */
+public class StAXWSDLReaderImpl extends WSDLReaderImpl
+{
+  // The JDK's StAX implementation only reports CDATA sections as such
+  // when asked to.
+  private static final String PROPERTY_REPORT_CDATA =
+    "http://java.sun.com/xml/stream/properties/report-cdata-event";
+
+  // Shared by readers that have not been given a factory of their own.
+  private static XMLInputFactory defaultInputFactory = null;
+
+  protected XMLInputFactory inputFactory = null;
+
+  /**
+   * Set the XMLInputFactory used to create the stream readers. The
+   * factory must be namespace aware and replace entity references.
+   * If none is set, a factory shared by all readers is used.
+   */
+  public void setXMLInputFactory(XMLInputFactory inputFactory)
+  {
+    this.inputFactory = inputFactory;
+  }
+
+  /**
+   * Get the XMLInputFactory used to create the stream readers.
+   */
+  public XMLInputFactory getXMLInputFactory()
+  {
+    return (inputFactory != null) ? inputFactory : getDefaultInputFactory();
+  }
+
+  private static synchronized XMLInputFactory getDefaultInputFactory()
+  {
+    if (defaultInputFactory == null)
+    {
+      XMLInputFactory factory = XMLInputFactory.newInstance();
+
+      factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+      factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.FALSE);
+
+      if (factory.isPropertySupported(PROPERTY_REPORT_CDATA))
+      {
+        factory.setProperty(PROPERTY_REPORT_CDATA, Boolean.TRUE);
+      }
+
+      defaultInputFactory = factory;
+    }
+
+    return defaultInputFactory;
+  }
+
+  /*
+    Read a document the reader retrieved itself from the URI.
+  */
+  Definition readRetrievedDocument(String uri, InputSource inputSource)
+    throws WSDLException
+  {
+    return readWSDL(uri, inputSource, uri);
+  }
+
+  /**
+   * Read a WSDL document into a WSDL definition.
+   *
+   * @param documentBaseURI the document base URI of the WSDL definition
+   * described by the document. Will be set as the documentBaseURI
+   * of the returned Definition. Can be null, in which case it
+   * will be ignored.
+   * @param inputSource an InputSource pointing to the
+   * WSDL document, an XML document obeying the WSDL schema.
+   * @return the definition described in the document pointed to
+   * by the InputSource.
+   */
+  public Definition readWSDL(String documentBaseURI, InputSource inputSource)
+    throws WSDLException
+  {
+    return readWSDL(documentBaseURI, inputSource, null);
+  }
+
+  /*
+    Read a WSDL document. The sourceURI is the URI the reader retrieved
+    the document from itself, if it did.
+  */
+  private Definition readWSDL(String documentBaseURI,
+                              InputSource inputSource,
+                              String sourceURI)
+                                throws WSDLException
+  {
+    String location = (inputSource.getSystemId() != null ?
+                       inputSource.getSystemId() : "- WSDL Document -");
+    QNamePool previousPool = startInterning();
+
+    try
+    {
+      ParseState state = openDocument(inputSource, location, sourceURI);
+
+      try
+      {
+        Definition def = parseDefinitions(state, documentBaseURI, null);
+
+        state.finish();
+
+        return def;
+      }
+      finally
+      {
+        state.close();
+      }
+    }
+    finally
+    {
+      QNamePool.setThreadPool(previousPool);
+    }
+  }
+
+  private Definition parseDefinitions(ParseState state,
+                                      String documentBaseURI,
+                                      Map importedDefs)
+                                        throws WSDLException
+  {
+    ElementFrame defFrame = state.startElement();
+
+    if (importedDefs == null)
+    {
+      importedDefs = new Hashtable();
+    }
+
+    Definition def = createDefinition(defFrame, documentBaseURI, importedDefs);
+
+    while (state.nextChildElement())
+    {
+      String namespaceURI = state.getNamespaceURI();
+      String localName = state.getLocalName();
+      DefinitionsChildHandler handler =
+        getDefinitionsChildHandler(namespaceURI, localName);
+
+      // The default handlers are replaced by reading from the stream.
+      int kind = isDefaultDefinitionsChildHandler(handler,
+                                                  namespaceURI,
+                                                  localName)
+                 ? getElementKind(namespaceURI, localName)
+                 : ELEM_OTHER;
+
+      if (kind == ELEM_IMPORT)
+      {
+        def.addImport(parseImport(state, def, importedDefs));
+      }
+      else if (kind == ELEM_DOCUMENTATION)
+      {
+        def.setDocumentationElement(state.readFragment());
+      }
+      else if (kind == ELEM_TYPES)
+      {
+        def.setTypes(parseTypes(state, def));
+      }
+      else if (kind == ELEM_MESSAGE)
+      {
+        def.addMessage(parseMessage(state, def));
+      }
+      else if (kind == ELEM_PORT_TYPE)
+      {
+        def.addPortType(parsePortType(state, def));
+      }
+      else if (kind == ELEM_BINDING)
+      {
+        def.addBinding(parseBinding(state, def));
+      }
+      else if (kind == ELEM_SERVICE)
+      {
+        def.addService(parseService(state, def));
+      }
+      else if (handler != null)
+      {
+        handler.parse(this, state.readFragment(), def, importedDefs);
+      }
+      else
+      {
+        def.addExtensibilityElement(
+          parseExtensibilityElement(Definition.class, state.readFragment(), def));
+      }
+    }
+
+    parseExtensibilityAttributes(defFrame, Definition.class, def, def);
+    state.endElement();
+
+    return def;
+  }
+
+  private Import parseImport(ParseState state,
+                             Definition def,
+                             Map importedDefs)
+                               throws WSDLException
+  {
+    ElementFrame importFrame = state.startElement();
+    Import importDef = createImport(importFrame, def);
+
+    try
+    {
+      if (importDef.getLocationURI() != null && importDocuments)
+      {
+        Definition importedDef =
+          getImportedDefinition(importDef.getLocationURI(), def, importedDefs);
+
+        if (importedDef != null)
+        {
+          importDef.setDefinition(importedDef);
+        }
+      }
+    }
+    catch (WSDLException e)
+    {
+      //If definitions are being parsed recursively for nested imports
+      //the exception location must be built up recursively too so
+      //prepend this element to exception location.
+      LocatedWSDLException.addLocation(e, importFrame);
+
+      throw e;
+    }
+
+    //register any NS decls with the Definition
+    registerNSDeclarations(importFrame, def);
+
+    while (state.nextChildElement())
+    {
+      if (state.getElementKind() == ELEM_DOCUMENTATION)
+      {
+        importDef.setDocumentationElement(state.readFragment());
+      }
+      else
+      {
+        importDef.addExtensibilityElement(
+          parseExtensibilityElement(Import.class, state.readFragment(), def));
+      }
+    }
+
+    parseExtensibilityAttributes(importFrame, Import.class, importDef, def);
+    state.endElement();
+
+    return importDef;
+  }
+
+  /*
+    Read a wsdl:imported document from the stream. As with WSDLReaderImpl,
+    WSDL documents and schema documents are read and anything else is
+    ignored. A document prefetched as a DOM, when a DOM given to the
+    reader imports it, is read by WSDLReaderImpl.
+  */
+  Definition readImportedDocument(InputSource inputSource,
+                                  Document prefetchedDoc,
+                                  String sourceURI,
+                                  String urlString,
+                                  String locationURI,
+                                  String contextURI,
+                                  Map importedDefs)
+                                    throws WSDLException
+  {
+    if (prefetchedDoc != null)
+    {
+      return super.readImportedDocument(inputSource,
+                                        prefetchedDoc,
+                                        sourceURI,
+                                        urlString,
+                                        locationURI,
+                                        contextURI,
+                                        importedDefs);
+    }
+
+    ParseState state = openDocument(inputSource,
+                                    inputSource.getSystemId(),
+                                    sourceURI);
+
+    try
+    {
+      if (state.matches(Constants.Q_ELEM_DEFINITIONS))
+      {
+        if (verbose)
+        {
+          System.out.println("Retrieving document at '" + locationURI +
+                             "'" +
+                             (contextURI == null
+                              ? "."
+                              : ", relative to '" + contextURI + "'."));
+        }
+
+        Definition importedDef = parseDefinitions(state,
+                                                  urlString,
+                                                  importedDefs);
+
+        state.finish();
+
+        return importedDef;
+      }
+      else if (SchemaConstants.XSD_QNAME_LIST.contains(state.getName()))
+      {
+        if (verbose)
+        {
+          System.out.println("Retrieving schema wsdl:imported from '" +
+                             locationURI + "'" +
+                             (contextURI == null
+                              ? "."
+                              : ", relative to '" + contextURI + "'."));
+        }
+
+        Definition importedDef = createSchemaDefinition(urlString,
+                                                        state.readFragment());
+
+        state.finish();
+
+        return importedDef;
+      }
+
+      return null;
+    }
+    finally
+    {
+      state.close();
+    }
+  }
+
+  private Types parseTypes(ParseState state, Definition def)
+    throws WSDLException
+  {
+    ElementFrame typesFrame = state.startElement();
+    Types types = createTypes(typesFrame, def);
+
+    while (state.nextChildElement())
+    {
+      if (state.getElementKind() == ELEM_DOCUMENTATION)
+      {
+        types.setDocumentationElement(state.readFragment());
+      }
+      else if ((SchemaConstants.XSD_QNAME_LIST).contains(state.getName()))
+      {
+        if (parseSchema)
+        {
+          //the element qname indicates it is a schema.
+          types.addExtensibilityElement(
+            parseSchema(Types.class, state.readFragment(), def));
+        }
+        else
+        {
+          types.addExtensibilityElement(
+            parseExtensibilityElementAsDefaultExtensiblityElement(
+              Types.class, state.readFragment(), def));
+        }
+      }
+      else
+      {
+        types.addExtensibilityElement(
+          parseExtensibilityElement(Types.class, state.readFragment(), def));
+      }
+    }
+
+    parseExtensibilityAttributes(typesFrame, Types.class, types, def);
+    state.endElement();
+
+    return types;
+  }
+
+  private Binding parseBinding(ParseState state, Definition def)
+    throws WSDLException
+  {
+    ElementFrame bindingFrame = state.startElement();
+    PortType portType = getReferencedPortType(bindingFrame, def);
+    Binding binding = createBinding(bindingFrame, portType, def);
+
+    while (state.nextChildElement())
+    {
+      int kind = state.getElementKind();
+
+      if (kind == ELEM_DOCUMENTATION)
+      {
+        binding.setDocumentationElement(state.readFragment());
+      }
+      else if (kind == ELEM_OPERATION)
+      {
+        binding.addBindingOperation(parseBindingOperation(state,
+                                                          portType,
+                                                          def));
+      }
+      else
+      {
+        binding.addExtensibilityElement(parseExtensibilityElement(
+          Binding.class, state.readFragment(), def));
+      }
+    }
+
+    parseExtensibilityAttributes(bindingFrame, Binding.class, binding, def);
+    state.endElement();
+
+    return binding;
+  }
+
+  private BindingOperation parseBindingOperation(ParseState state,
+                                                 PortType portType,
+                                                 Definition def)
+                                                   throws WSDLException
+  {
+    ElementFrame bindingOperationFrame = state.startElement();
+    BindingOperation bindingOperation =
+      createBindingOperation(bindingOperationFrame, def);
+
+    while (state.nextChildElement())
+    {
+      int kind = state.getElementKind();
+
+      if (kind == ELEM_DOCUMENTATION)
+      {
+        bindingOperation.setDocumentationElement(state.readFragment());
+      }
+      else if (kind == ELEM_INPUT)
+      {
+        bindingOperation.setBindingInput(parseBindingInput(state, def));
+      }
+      else if (kind == ELEM_OUTPUT)
+      {
+        bindingOperation.setBindingOutput(parseBindingOutput(state, def));
+      }
+      else if (kind == ELEM_FAULT)
+      {
+        bindingOperation.addBindingFault(parseBindingFault(state, def));
+      }
+      else
+      {
+        bindingOperation.addExtensibilityElement(
+          parseExtensibilityElement(BindingOperation.class,
+                                    state.readFragment(),
+                                    def));
+      }
+    }
+
+    if (portType != null)
+    {
+      resolveOperation(bindingOperation, portType, def);
+    }
+
+    parseExtensibilityAttributes(bindingOperationFrame,
+                                 BindingOperation.class,
+                                 bindingOperation,
+                                 def);
+    state.endElement();
+
+    return bindingOperation;
+  }
+
+  private BindingInput parseBindingInput(ParseState state, Definition def)
+    throws WSDLException
+  {
+    ElementFrame bindingInputFrame = state.startElement();
+    BindingInput bindingInput = createBindingInput(bindingInputFrame, def);
+
+    while (state.nextChildElement())
+    {
+      if (state.getElementKind() == ELEM_DOCUMENTATION)
+      {
+        bindingInput.setDocumentationElement(state.readFragment());
+      }
+      else
+      {
+        bindingInput.addExtensibilityElement(
+          parseExtensibilityElement(BindingInput.class,
+                                    state.readFragment(),
+                                    def));
+      }
+    }
+
+    parseExtensibilityAttributes(bindingInputFrame,
+                                 BindingInput.class,
+                                 bindingInput,
+                                 def);
+    state.endElement();
+
+    return bindingInput;
+  }
+
+  private BindingOutput parseBindingOutput(ParseState state, Definition def)
+    throws WSDLException
+  {
+    ElementFrame bindingOutputFrame = state.startElement();
+    BindingOutput bindingOutput = createBindingOutput(bindingOutputFrame, def);
+
+    while (state.nextChildElement())
+    {
+      if (state.getElementKind() == ELEM_DOCUMENTATION)
+      {
+        bindingOutput.setDocumentationElement(state.readFragment());
+      }
+      else
+      {
+        bindingOutput.addExtensibilityElement(
+          parseExtensibilityElement(BindingOutput.class,
+                                    state.readFragment(),
+                                    def));
+      }
+    }
+
+    parseExtensibilityAttributes(bindingOutputFrame,
+                                 BindingOutput.class,
+                                 bindingOutput,
+                                 def);
+    state.endElement();
+
+    return bindingOutput;
+  }
+
+  private BindingFault parseBindingFault(ParseState state, Definition def)
+    throws WSDLException
+  {
+    ElementFrame bindingFaultFrame = state.startElement();
+    BindingFault bindingFault = createBindingFault(bindingFaultFrame, def);
+
+    while (state.nextChildElement())
+    {
+      if (state.getElementKind() == ELEM_DOCUMENTATION)
+      {
+        bindingFault.setDocumentationElement(state.readFragment());
+      }
+      else
+      {
+        bindingFault.addExtensibilityElement(
+          parseExtensibilityElement(BindingFault.class,
+                                    state.readFragment(),
+                                    def));
+      }
+    }
+
+    parseExtensibilityAttributes(bindingFaultFrame,
+                                 BindingFault.class,
+                                 bindingFault,
+                                 def);
+    state.endElement();
+
+    return bindingFault;
+  }
+
+  private Message parseMessage(ParseState state, Definition def)
+    throws WSDLException
+  {
+    ElementFrame msgFrame = state.startElement();
+    Message msg = createMessage(msgFrame, def);
+
+    while (state.nextChildElement())
+    {
+      int kind = state.getElementKind();
+
+      if (kind == ELEM_DOCUMENTATION)
+      {
+        msg.setDocumentationElement(state.readFragment());
+      }
+      else if (kind == ELEM_PART)
+      {
+        msg.addPart(parsePart(state, def));
+      }
+      else
+      {
+        msg.addExtensibilityElement(
+          parseExtensibilityElement(Message.class, state.readFragment(), def));
+      }
+    }
+
+    parseExtensibilityAttributes(msgFrame, Message.class, msg, def);
+    state.endElement();
+
+    return msg;
+  }
+
+  private Part parsePart(ParseState state, Definition def)
+    throws WSDLException
+  {
+    ElementFrame partFrame = state.startElement();
+    Part part = createPart(partFrame, def);
+
+    while (state.nextChildElement())
+    {
+      if (state.getElementKind() == ELEM_DOCUMENTATION)
+      {
+        part.setDocumentationElement(state.readFragment());
+      }
+      else
+      {
+        part.addExtensibilityElement(
+          parseExtensibilityElement(Part.class, state.readFragment(), def));
+      }
+    }
+
+    parseExtensibilityAttributes(partFrame, Part.class, part, def);
+    state.endElement();
+
+    return part;
+  }
+
+  private PortType parsePortType(ParseState state, Definition def)
+    throws WSDLException
+  {
+    ElementFrame portTypeFrame = state.startElement();
+    PortType portType = createPortType(portTypeFrame, def);
+
+    while (state.nextChildElement())
+    {
+      int kind = state.getElementKind();
+
+      if (kind == ELEM_DOCUMENTATION)
+      {
+        portType.setDocumentationElement(state.readFragment());
+      }
+      else if (kind == ELEM_OPERATION)
+      {
+        Operation op = parseOperation(state, portType, def);
+
+        if (op != null)
+        {
+          portType.addOperation(op);
+        }
+      }
+      else
+      {
+        portType.addExtensibilityElement(
+          parseExtensibilityElement(PortType.class, state.readFragment(), def));
+      }
+    }
+
+    parseExtensibilityAttributes(portTypeFrame, PortType.class, portType, def);
+    state.endElement();
+
+    return portType;
+  }
+
+  private Operation parseOperation(ParseState state,
+                                   PortType portType,
+                                   Definition def)
+                                     throws WSDLException
+  {
+    ElementFrame opFrame = state.startElement();
+
+    //register any NS decls with the Definition
+    registerNSDeclarations(opFrame, def);
+
+    List messageOrder = new Vector();
+    Element docEl = null;
+    Input input = null;
+    Output output = null;
+    List faults = new Vector();
+    List extElements = new Vector();
+
+    while (state.nextChildElement())
+    {
+      int kind = state.getElementKind();
+
+      if (kind == ELEM_DOCUMENTATION)
+      {
+        docEl = state.readFragment();
+      }
+      else if (kind == ELEM_INPUT)
+      {
+        input = parseInput(state, def);
+        messageOrder.add(Constants.ELEM_INPUT);
+      }
+      else if (kind == ELEM_OUTPUT)
+      {
+        output = parseOutput(state, def);
+        messageOrder.add(Constants.ELEM_OUTPUT);
+      }
+      else if (kind == ELEM_FAULT)
+      {
+        faults.add(parseFault(state, def));
+      }
+      else
+      {
+        extElements.add(
+            parseExtensibilityElement(Operation.class, state.readFragment(), def));
+      }
+    }
+
+    Operation op = getUndefinedOperation(opFrame, input, output, portType);
+    boolean retrieved = (op != null);
+
+    if (!retrieved)
+    {
+      op = createOperation(opFrame, def);
+    }
+
+    setOperationContent(op,
+                        opFrame,
+                        docEl,
+                        input,
+                        output,
+                        faults,
+                        extElements,
+                        messageOrder);
+    parseExtensibilityAttributes(opFrame, Operation.class, op, def);
+    state.endElement();
+
+    if (retrieved)
+    {
+      op = null;
+    }
+
+    return op;
+  }
+
+  private Service parseService(ParseState state, Definition def)
+    throws WSDLException
+  {
+    ElementFrame serviceFrame = state.startElement();
+    Service service = createService(serviceFrame, def);
+
+    while (state.nextChildElement())
+    {
+      int kind = state.getElementKind();
+
+      if (kind == ELEM_DOCUMENTATION)
+      {
+        service.setDocumentationElement(state.readFragment());
+      }
+      else if (kind == ELEM_PORT)
+      {
+        service.addPort(parsePort(state, def));
+      }
+      else
+      {
+        service.addExtensibilityElement(
+          parseExtensibilityElement(Service.class, state.readFragment(), def));
+      }
+    }
+
+    parseExtensibilityAttributes(serviceFrame, Service.class, service, def);
+    state.endElement();
+
+    return service;
+  }
+
+  private Port parsePort(ParseState state, Definition def)
+    throws WSDLException
+  {
+    ElementFrame portFrame = state.startElement();
+    Port port = createPort(portFrame, def);
+
+    while (state.nextChildElement())
+    {
+      if (state.getElementKind() == ELEM_DOCUMENTATION)
+      {
+        port.setDocumentationElement(state.readFragment());
+      }
+      else
+      {
+        port.addExtensibilityElement(
+          parseExtensibilityElement(Port.class, state.readFragment(), def));
+      }
+    }
+
+    parseExtensibilityAttributes(portFrame, Port.class, port, def);
+    state.endElement();
+
+    return port;
+  }
+
+  private Input parseInput(ParseState state, Definition def)
+    throws WSDLException
+  {
+    ElementFrame inputFrame = state.startElement();
+    Input input = createInput(inputFrame, def);
+
+    while (state.nextChildElement())
+    {
+      if (state.getElementKind() == ELEM_DOCUMENTATION)
+      {
+        input.setDocumentationElement(state.readFragment());
+      }
+      else
+      {
+        input.addExtensibilityElement(
+          parseExtensibilityElement(Input.class, state.readFragment(), def));
+      }
+    }
+
+    parseExtensibilityAttributes(inputFrame, Input.class, input, def);
+    state.endElement();
+
+    return input;
+  }
+
+  private Output parseOutput(ParseState state, Definition def)
+    throws WSDLException
+  {
+    ElementFrame outputFrame = state.startElement();
+    Output output = createOutput(outputFrame, def);
+
+    while (state.nextChildElement())
+    {
+      if (state.getElementKind() == ELEM_DOCUMENTATION)
+      {
+        output.setDocumentationElement(state.readFragment());
+      }
+      else
+      {
+        output.addExtensibilityElement(
+          parseExtensibilityElement(Output.class, state.readFragment(), def));
+      }
+    }
+
+    parseExtensibilityAttributes(outputFrame, Output.class, output, def);
+    state.endElement();
+
+    return output;
+  }
+
+  private Fault parseFault(ParseState state, Definition def)
+    throws WSDLException
+  {
+    ElementFrame faultFrame = state.startElement();
+    Fault fault = createFault(faultFrame, def);
+
+    while (state.nextChildElement())
+    {
+      if (state.getElementKind() == ELEM_DOCUMENTATION)
+      {
+        fault.setDocumentationElement(state.readFragment());
+      }
+      else
+      {
+        fault.addExtensibilityElement(
+            parseExtensibilityElement(Fault.class, state.readFragment(), def));
+      }
+    }
+
+    parseExtensibilityAttributes(faultFrame, Fault.class, fault, def);
+    state.endElement();
+
+    return fault;
+  }
+
+  /*
+    Open the specified document and move to its document element.
+  */
+  private ParseState openDocument(InputSource inputSource,
+                                  String desc,
+                                  String sourceURI)
+                                    throws WSDLException
+  {
+    String systemId = inputSource.getSystemId();
+    InputStream openedStream = null;
+    XMLStreamReader reader = null;
+
+    try
+    {
+      XMLInputFactory factory = getXMLInputFactory();
+
+      if (inputSource.getCharacterStream() == null
+          && inputSource.getByteStream() == null)
+      {
+        if (systemId == null)
+        {
+          throw new WSDLException(WSDLException.PARSER_ERROR,
+                                  "Problem parsing '" + desc + "'.");
+        }
+
+        openedStream =
+          StringUtils.getContentAsInputStream(StringUtils.getURL(null,
+                                                                 systemId));
+      }
+
+      // XMLInputFactory implementations are not required to be
+      // thread-safe.
+      synchronized (factory)
+      {
+        if (inputSource.getCharacterStream() != null)
+        {
+          reader = factory.createXMLStreamReader(systemId,
+                                                 inputSource.getCharacterStream());
+        }
+        else
+        {
+          InputStream inputStream = (openedStream != null)
+                                    ? openedStream
+                                    : inputSource.getByteStream();
+
+          reader = (inputSource.getEncoding() != null)
+                   ? factory.createXMLStreamReader(
+                       systemId,
+                       new InputStreamReader(inputStream,
+                                             inputSource.getEncoding()))
+                   : factory.createXMLStreamReader(systemId, inputStream);
+        }
+      }
+
+      ParseState state = new ParseState(reader,
+                                        openedStream,
+                                        systemId,
+                                        desc,
+                                        sourceURI);
+
+      while (reader.getEventType() != XMLStreamConstants.START_ELEMENT)
+      {
+        state.next();
+      }
+
+      return state;
+    }
+    catch (WSDLException e)
+    {
+      closeQuietly(reader, openedStream);
+
+      throw e;
+    }
+    catch (RuntimeException e)
+    {
+      closeQuietly(reader, openedStream);
+
+      throw e;
+    }
+    catch (Exception e)
+    {
+      closeQuietly(reader, openedStream);
+
+      throw new WSDLException(WSDLException.PARSER_ERROR,
+                              "Problem parsing '" + desc + "'.",
+                              e);
+    }
+  }
+
+  private static void closeQuietly(XMLStreamReader reader,
+                                   InputStream inputStream)
+  {
+    try
+    {
+      if (reader != null)
+      {
+        reader.close();
+      }
+
+      if (inputStream != null)
+      {
+        inputStream.close();
+      }
+    }
+    catch (Exception e)
+    {
+      // Nothing more can be done.
+    }
+  }
+
+  /*
+    The position of the stream reader within a document, along with the
+    WSDL elements that are currently open and the DOM the fragments are
+    added to.
+  */
+  private class ParseState
+  {
+    final XMLStreamReader reader;
+    final InputStream openedStream;
+    final String systemId;
+    final String desc;
+    final String sourceURI;
+    Document document = null;
+    ElementFrame current = null;
+    int childPosition = 1;
+    int childIndex = 0;
+
+    ParseState(XMLStreamReader reader,
+               InputStream openedStream,
+               String systemId,
+               String desc,
+               String sourceURI)
+    {
+      this.reader = reader;
+      this.openedStream = openedStream;
+      this.systemId = systemId;
+      this.desc = desc;
+      this.sourceURI = sourceURI;
+    }
+
+    int next() throws WSDLException
+    {
+      try
+      {
+        return reader.next();
+      }
+      catch (XMLStreamException e)
+      {
+        throw new WSDLException(WSDLException.PARSER_ERROR,
+                                "Problem parsing '" + desc + "'.",
+                                e);
+      }
+    }
+
+    QName getName()
+    {
+      return reader.getName();
+    }
+
+    String getNamespaceURI()
+    {
+      return reader.getNamespaceURI();
+    }
+
+    String getLocalName()
+    {
+      return reader.getLocalName();
+    }
+
+    /*
+      Get the kind of WSDL element the reader is on.
+    */
+    int getElementKind()
+    {
+      return WSDLReaderImpl.getElementKind(reader.getNamespaceURI(),
+                                           reader.getLocalName());
+    }
+
+    boolean matches(QName qname)
+    {
+      String namespaceURI = reader.getNamespaceURI();
+
+      return qname.getLocalPart().equals(reader.getLocalName())
+             && qname.getNamespaceURI().equals(namespaceURI != null
+                                               ? namespaceURI
+                                               : "");
+    }
+
+    /*
+      Move to the next child element of the current element. Returns
+      false, leaving the reader on the end tag, if there are no more.
+    */
+    boolean nextChildElement() throws WSDLException
+    {
+      while (true)
+      {
+        int eventType = next();
+
+        if (eventType == XMLStreamConstants.START_ELEMENT)
+        {
+          childPosition = current.nextChildPosition(getTagName(reader));
+          childIndex = current.childElementCount++;
+
+          return true;
+        }
+        else if (eventType == XMLStreamConstants.END_ELEMENT)
+        {
+          return false;
+        }
+      }
+    }
+
+    /*
+      Open the WSDL element the reader is on.
+    */
+    ElementFrame startElement()
+    {
+      current = new ElementFrame(current, reader, childPosition, childIndex);
+
+      if (lineNumbers)
+      {
+        Location location = reader.getLocation();
+
+        current.lineNumber = location.getLineNumber();
+        current.columnNumber = location.getColumnNumber();
+      }
+
+      childPosition = 1;
+      childIndex = 0;
+
+      return current;
+    }
+
+    /*
+      Close the current WSDL element, whose end tag the reader is on.
+    */
+    void endElement()
+    {
+      current = current.parent;
+    }
+
+    Document getDocument() throws WSDLException
+    {
+      if (document == null)
+      {
+        DocumentBuilderPool pool = poolDocumentBuilders
+                                   ? getDocumentBuilderPool()
+                                   : new DocumentBuilderPool(null, 0);
+
+        document = pool.newDocument();
+
+        if (systemId != null)
+        {
+          document.setDocumentURI(systemId);
+        }
+
+        if (sourceURI != null)
+        {
+          setSourceURI(document, sourceURI);
+        }
+      }
+
+      return document;
+    }
+
+    /*
+      Get the DOM element standing in for the specified WSDL element,
+      creating it and its ancestors if necessary.
+    */
+    Node getNode(ElementFrame frame) throws WSDLException
+    {
+      if (frame == null)
+      {
+        return getDocument();
+      }
+
+      if (frame.element == null)
+      {
+        Node parentNode = getNode(frame.parent);
+        Element el = getDocument().createElementNS(frame.namespaceURI,
+                                                   frame.tagName);
+
+        for (int i = 0; i < frame.attributes.length; i++)
+        {
+          AttributeInfo attr = frame.attributes[i];
+
+          el.setAttributeNS(attr.namespaceURI, attr.qualifiedName, attr.value);
+        }
+
+        parentNode.appendChild(el);
+        setElementIndex(el, frame.index);
+        frame.element = el;
+      }
+
+      return frame.element;
+    }
+
+    /*
+      Copy the element the reader is on into the DOM, below the current
+      WSDL element, leaving the reader on its end tag.
+    */
+    Element readFragment() throws WSDLException
+    {
+      Document doc = getDocument();
+      Node parentNode = getNode(current);
+      Element fragment = null;
+      int depth = 0;
+      int eventType = reader.getEventType();
+
+      while (true)
+      {
+        switch (eventType)
+        {
+          case XMLStreamConstants.START_ELEMENT :
+          {
+            Element el = createElement(doc);
+
+            parentNode.appendChild(el);
+            parentNode = el;
+            depth++;
+
+            if (fragment == null)
+            {
+              setElementIndex(el, childIndex);
+              fragment = el;
+            }
+
+            break;
+          }
+          case XMLStreamConstants.END_ELEMENT :
+          {
+            if (--depth == 0)
+            {
+              return fragment;
+            }
+
+            parentNode = parentNode.getParentNode();
+
+            break;
+          }
+          case XMLStreamConstants.CHARACTERS :
+          case XMLStreamConstants.SPACE :
+          case XMLStreamConstants.ENTITY_REFERENCE :
+          {
+            Node lastChild = parentNode.getLastChild();
+            String text = reader.getText();
+
+            // The DOM parser never produces adjacent text nodes.
+            if (lastChild != null
+                && lastChild.getNodeType() == Node.TEXT_NODE)
+            {
+              ((Text)lastChild).appendData(text);
+            }
+            else
+            {
+              parentNode.appendChild(doc.createTextNode(text));
+            }
+
+            break;
+          }
+          case XMLStreamConstants.CDATA :
+          {
+            parentNode.appendChild(doc.createCDATASection(reader.getText()));
+
+            break;
+          }
+          case XMLStreamConstants.COMMENT :
+          {
+            parentNode.appendChild(doc.createComment(reader.getText()));
+
+            break;
+          }
+          case XMLStreamConstants.PROCESSING_INSTRUCTION :
+          {
+            parentNode.appendChild(
+              doc.createProcessingInstruction(reader.getPITarget(),
+                                              reader.getPIData()));
+
+            break;
+          }
+          default :
+          {
+            break;
+          }
+        }
+
+        eventType = next();
+      }
+    }
+
+    private Element createElement(Document doc)
+    {
+      String namespaceURI = reader.getNamespaceURI();
+      Element el = doc.createElementNS((namespaceURI != null
+                                        && namespaceURI.length() > 0)
+                                       ? namespaceURI
+                                       : null,
+                                       getTagName(reader));
+      int nsCount = reader.getNamespaceCount();
+
+      for (int i = 0; i < nsCount; i++)
+      {
+        String prefix = reader.getNamespacePrefix(i);
+        String uri = reader.getNamespaceURI(i);
+
+        el.setAttributeNS(Constants.NS_URI_XMLNS,
+                          (prefix != null && prefix.length() > 0)
+                          ? Constants.ATTR_XMLNS + ":" + prefix
+                          : Constants.ATTR_XMLNS,
+                          (uri != null) ? uri : "");
+      }
+
+      int attrCount = reader.getAttributeCount();
+
+      for (int i = 0; i < attrCount; i++)
+      {
+        AttributeInfo attr = new AttributeInfo(reader, i);
+
+        el.setAttributeNS(attr.namespaceURI, attr.qualifiedName, attr.value);
+      }
+
+      return el;
+    }
+
+    /*
+      Read the rest of the document, so it is checked for well-formedness
+      just as a DOM parser would.
+    */
+    void finish() throws WSDLException
+    {
+      while (reader.getEventType() != XMLStreamConstants.END_DOCUMENT)
+      {
+        next();
+      }
+    }
+
+    /*
+      Record the index of an element among the child elements of its parent
+      in the document, since its DOM siblings are not all created.
+    */
+    void setElementIndex(Element el, int index)
+    {
+      if (lazySchemas)
+      {
+        el.setUserData(ELEMENT_INDEX_KEY, new Integer(index), null);
+      }
+    }
+
+    void close()
+    {
+      closeQuietly(reader, openedStream);
+    }
+  }
+
+  private static String getTagName(XMLStreamReader reader)
+  {
+    String prefix = reader.getPrefix();
+
+    return (prefix != null && prefix.length() > 0)
+           ? prefix + ":" + reader.getLocalName()
+           : reader.getLocalName();
+  }
+
+  /*
+    An open WSDL element: its name and attributes, including namespace
+    declarations, and the DOM element standing in for it once one of its
+    descendants has been copied into the DOM.
+  */
+  private static class ElementFrame implements ElementAttributes
+  {
+    // Orders attributes the way DOM parsers do, so extension attributes
+    // and namespace declarations are processed in the same order.
+    private static final Comparator ATTRIBUTE_ORDER = new Comparator()
+    {
+      public int compare(Object o1, Object o2)
+      {
+        return ((AttributeInfo)o1).qualifiedName.compareTo(
+          ((AttributeInfo)o2).qualifiedName);
+      }
+    };
+
+    final ElementFrame parent;
+    final QName name;
+    final String namespaceURI;
+    final String tagName;
+    final AttributeInfo[] attributes;
+    final int position;
+    final int index;
+    Map childCounts = null;
+    int childElementCount = 0;
+    Element element = null;
+    int lineNumber = -1;
+    int columnNumber = -1;
+
+    ElementFrame(ElementFrame parent,
+                 XMLStreamReader reader,
+                 int position,
+                 int index)
+    {
+      String elNamespaceURI = reader.getNamespaceURI();
+
+      this.parent = parent;
+      this.namespaceURI = (elNamespaceURI != null
+                           && elNamespaceURI.length() > 0)
+                          ? elNamespaceURI
+                          : null;
+      this.name = QNameUtils.newQName(namespaceURI, reader.getLocalName());
+      this.tagName = getTagName(reader);
+      this.position = position;
+      this.index = index;
+
+      int nsCount = reader.getNamespaceCount();
+      int attrCount = reader.getAttributeCount();
+
+      attributes = new AttributeInfo[nsCount + attrCount];
+
+      for (int i = 0; i < nsCount; i++)
+      {
+        attributes[i] = new AttributeInfo(reader.getNamespacePrefix(i),
+                                          reader.getNamespaceURI(i));
+      }
+
+      for (int i = 0; i < attrCount; i++)
+      {
+        attributes[nsCount + i] = new AttributeInfo(reader, i);
+      }
+
+      if (attributes.length > 1)
+      {
+        Arrays.sort(attributes, ATTRIBUTE_ORDER);
+      }
+    }
+
+    public QName getName()
+    {
+      return name;
+    }
+
+    public int getAttributeCount()
+    {
+      return attributes.length;
+    }
+
+    public String getAttributeNamespaceURI(int index)
+    {
+      return attributes[index].namespaceURI;
+    }
+
+    public String getAttributeLocalName(int index)
+    {
+      return attributes[index].localName;
+    }
+
+    public String getAttributePrefix(int index)
+    {
+      return attributes[index].prefix;
+    }
+
+    public String getAttributeValue(int index)
+    {
+      return attributes[index].value;
+    }
+
+    /*
+      Equivalent to DOMUtils.getAttribute(Element, String).
+    */
+    public String getAttribute(String qualifiedName)
+    {
+      for (int i = 0; i < attributes.length; i++)
+      {
+        if (attributes[i].qualifiedName.equals(qualifiedName))
+        {
+          return attributes[i].value;
+        }
+      }
+
+      return null;
+    }
+
+    /*
+      Equivalent to DOMUtils.getNamespaceURIFromPrefix(Node, String).
+    */
+    public String getNamespaceURIFromPrefix(String prefix)
+    {
+      for (ElementFrame frame = this; frame != null; frame = frame.parent)
+      {
+        for (int i = 0; i < frame.attributes.length; i++)
+        {
+          AttributeInfo attr = frame.attributes[i];
+
+          if (prefix == null
+              ? attr.qualifiedName.equals(Constants.ATTR_XMLNS)
+              : (Constants.NS_URI_XMLNS.equals(attr.namespaceURI)
+                 && prefix.equals(attr.localName)))
+          {
+            return attr.value;
+          }
+        }
+      }
+
+      return null;
+    }
+
+    /*
+      Record a child element with the specified tag name, returning its
+      position among the children with that name.
+    */
+    int nextChildPosition(String childTagName)
+    {
+      if (childCounts == null)
+      {
+        childCounts = new HashMap();
+      }
+
+      Integer count = (Integer)childCounts.get(childTagName);
+      int childPosition = (count != null) ? count.intValue() + 1 : 1;
+
+      childCounts.put(childTagName, new Integer(childPosition));
+
+      return childPosition;
+    }
+
+    /*
+      Build the location reported in WSDLExceptions. Unlike
+      XPathUtils.getXPathExprFromNode(Node), the position is left out
+      of the first element with a particular name, since the elements
+      following it have not been read yet.
+    */
+    public String getXPath()
+    {
+      String step = "/" + tagName + (position > 1 ? "[" + position + "]" : "");
+
+      return (parent != null) ? parent.getXPath() + step : step;
+    }
+
+    public int getLineNumber()
+    {
+      return lineNumber;
+    }
+
+    public int getColumnNumber()
+    {
+      return columnNumber;
+    }
+  }
+
+  private static class AttributeInfo
+  {
+    final String namespaceURI;
+    final String localName;
+    final String prefix;
+    final String qualifiedName;
+    final String value;
+
+    // A namespace declaration.
+    AttributeInfo(String declaredPrefix, String declaredURI)
+    {
+      boolean isDefault = (declaredPrefix == null
+                           || declaredPrefix.length() == 0);
+
+      namespaceURI = Constants.NS_URI_XMLNS;
+      localName = isDefault ? Constants.ATTR_XMLNS : declaredPrefix;
+      prefix = isDefault ? null : Constants.ATTR_XMLNS;
+      qualifiedName = isDefault
+                      ? Constants.ATTR_XMLNS
+                      : Constants.ATTR_XMLNS + ":" + declaredPrefix;
+      value = (declaredURI != null) ? declaredURI : "";
+    }
+
+    // The attribute at the specified index of the current element.
+    AttributeInfo(XMLStreamReader reader, int index)
+    {
+      String attrNamespaceURI = reader.getAttributeNamespace(index);
+      String attrPrefix = reader.getAttributePrefix(index);
+
+      namespaceURI = (attrNamespaceURI != null
+                      && attrNamespaceURI.length() > 0)
+                     ? attrNamespaceURI
+                     : null;
+      localName = reader.getAttributeLocalName(index);
+      prefix = (attrPrefix != null && attrPrefix.length() > 0)
+               ? attrPrefix
+               : null;
+      qualifiedName = (prefix != null) ? prefix + ":" + localName : localName;
+      value = reader.getAttributeValue(index);
+    }
+  }
+}
@@ -0,0 +1,172 @@
+/*
+ * (c) Copyright IBM Corp 2006
+ */
+
+package com.ibm.wsdl.xml;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+
+/**
+ * A Writer that encodes characters as UTF-8 into a buffer of its own,
+ * and writes the buffer to an OutputStream or a WritableByteChannel
+ * when it is full or flushed. It produces the same bytes as an
+ * OutputStreamWriter using UTF-8, without an encoder or a lock of its
+ * own. Unpaired surrogates are written as '?', as is a high surrogate
+ * still waiting for its low surrogate when the writer is flushed.
+ * <p>
+ * Instances are not thread-safe.
+ */
+class UTF8Writer extends Writer
+{
+  private static final int BUFFER_SIZE = 8192;
+
+  private final OutputStream out;
+  private final WritableByteChannel channel;
+  private final byte[] buf = new byte[BUFFER_SIZE];
+  private final ByteBuffer byteBuf;
+  private int count = 0;
+
+  // A high surrogate that ended the last write, if any.
+  private char highSurrogate = 0;
+
+  UTF8Writer(OutputStream out)
+  {
+    this.out = out;
+    this.channel = null;
+    this.byteBuf = null;
+  }
+
+  UTF8Writer(WritableByteChannel channel)
+  {
+    this.out = null;
+    this.channel = channel;
+    this.byteBuf = ByteBuffer.wrap(buf);
+  }
+
+  public void write(int c) throws IOException
+  {
+    encode((char)c);
+  }
+
+  public void write(char[] cbuf, int off, int len) throws IOException
+  {
+    for (int i = off; i < off + len; i++)
+    {
+      encode(cbuf[i]);
+    }
+  }
+
+  public void write(String str, int off, int len) throws IOException
+  {
+    for (int i = off; i < off + len; i++)
+    {
+      encode(str.charAt(i));
+    }
+  }
+
+  private void encode(char c) throws IOException
+  {
+    if (count > BUFFER_SIZE - 4)
+    {
+      flushBuffer();
+    }
+
+    if (highSurrogate != 0)
+    {
+      char high = highSurrogate;
+
+      highSurrogate = 0;
+
+      if (c >= '\uDC00' && c <= '\uDFFF')
+      {
+        int codePoint = ((high - 0xD800) << 10) + (c - 0xDC00) + 0x10000;
+
+        buf[count++] = (byte)(0xF0 | (codePoint >> 18));
+        buf[count++] = (byte)(0x80 | ((codePoint >> 12) & 0x3F));
+        buf[count++] = (byte)(0x80 | ((codePoint >> 6) & 0x3F));
+        buf[count++] = (byte)(0x80 | (codePoint & 0x3F));
+        return;
+      }
+
+      // An unpaired surrogate can't be encoded.
+      buf[count++] = (byte)'?';
+      encode(c);
+      return;
+    }
+
+    if (c < 0x80)
+    {
+      buf[count++] = (byte)c;
+    }
+    else if (c < 0x800)
+    {
+      buf[count++] = (byte)(0xC0 | (c >> 6));
+      buf[count++] = (byte)(0x80 | (c & 0x3F));
+    }
+    else if (c >= '\uD800' && c <= '\uDBFF')
+    {
+      highSurrogate = c;
+    }
+    else if (c >= '\uDC00' && c <= '\uDFFF')
+    {
+      buf[count++] = (byte)'?';
+    }
+    else
+    {
+      buf[count++] = (byte)(0xE0 | (c >> 12));
+      buf[count++] = (byte)(0x80 | ((c >> 6) & 0x3F));
+      buf[count++] = (byte)(0x80 | (c & 0x3F));
+    }
+  }
+
+  private void flushBuffer() throws IOException
+  {
+    if (count == 0)
+    {
+      return;
+    }
+
+    if (out != null)
+    {
+      out.write(buf, 0, count);
+    }
+    else
+    {
+      byteBuf.clear();
+      byteBuf.limit(count);
+
+      while (byteBuf.hasRemaining())
+      {
+        channel.write(byteBuf);
+      }
+    }
+
+    count = 0;
+  }
+
+  public void flush() throws IOException
+  {
+    if (highSurrogate != 0)
+    {
+      highSurrogate = 0;
+      buf[count++] = (byte)'?';
+    }
+
+    flushBuffer();
+
+    if (out != null)
+    {
+      out.flush();
+    }
+  }
+
+  /**
+   * Flush this writer. The stream or channel isn't closed.
+   */
+  public void close() throws IOException
+  {
+    flush();
+  }
+}
@@ -0,0 +1,58 @@
+/*
+ * (c) Copyright IBM Corp 2006
+ */
+
+package com.ibm.wsdl.xml;
+
+/**
+ * A cache of the documents read by WSDLReaderImpl, keyed by the resolved
+ * URI of each document. A cache can be set on any number of readers,
+ * which may be used on different threads, so implementations must be
+ * thread-safe.
+ * <p>
+ * The reader caches the Definitions of imported WSDL documents and the
+ * Schemas of referenced schema documents. The document being read itself
+ * is never cached, and nothing is cached when reading through a
+ * WSDLLocator. Since cached objects are shared by every Definition that
+ * refers to them, they should be treated as read-only, and readers
+ * sharing a cache should be configured alike.
+ *
+ * @see WSDLReaderImpl#setDocumentCache(WSDLDocumentCache)
+ * @see LRUDocumentCache
+ */
+public interface WSDLDocumentCache
+{
+  /**
+   * Get the document cached for the specified URI.
+   *
+   * @param uri the resolved URI of the document
+   * @return the cached javax.wsdl.Definition or
+   * javax.wsdl.extensions.schema.Schema, or null if none is cached
+   */
+  public Object get(String uri);
+
+  /**
+   * Check whether a document is cached for the specified URI, without
+   * affecting any statistics the cache keeps.
+   */
+  public boolean containsKey(String uri);
+
+  /**
+   * Cache the specified document.
+   *
+   * @param uri the resolved URI of the document
+   * @param document the javax.wsdl.Definition or
+   * javax.wsdl.extensions.schema.Schema read from that URI
+   */
+  public void put(String uri, Object document);
+
+  /**
+   * Remove the document cached for the specified URI, if any.
+   */
+  public void remove(String uri);
+
+  /**
+   * Remove all cached documents.
+   */
+  public void clear();
+}
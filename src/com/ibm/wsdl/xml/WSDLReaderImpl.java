@@ -7,6 +7,7 @@ package com.ibm.wsdl.xml;
 import java.io.*;
 import java.net.*;
 import java.util.*;
+import java.util.concurrent.*;
 import javax.xml.namespace.*;
 import javax.xml.parsers.*;
 import org.w3c.dom.*;
@@ -23,6 +24,8 @@ import com.ibm.wsdl.util.xml.*;
 import javax.wsdl.extensions.schema.Schema;
 import javax.wsdl.extensions.schema.SchemaReference;
 import com.ibm.wsdl.extensions.schema.SchemaConstants;
+import com.ibm.wsdl.extensions.schema.SchemaElementSource;
+import com.ibm.wsdl.extensions.schema.SchemaImpl;
 
 
 /**
@@ -46,14 +49,173 @@ public class WSDLReaderImpl implements WSDLReader
   private static final List STYLE_NOTIFICATION =
     Arrays.asList(new String[]{Constants.ELEM_OUTPUT});
 
+  // The kinds of WSDL element, used to dispatch on child elements.
+  static final int ELEM_OTHER = 0;
+  static final int ELEM_DEFINITIONS = 1;
+  static final int ELEM_IMPORT = 2;
+  static final int ELEM_DOCUMENTATION = 3;
+  static final int ELEM_TYPES = 4;
+  static final int ELEM_MESSAGE = 5;
+  static final int ELEM_PART = 6;
+  static final int ELEM_PORT_TYPE = 7;
+  static final int ELEM_OPERATION = 8;
+  static final int ELEM_INPUT = 9;
+  static final int ELEM_OUTPUT = 10;
+  static final int ELEM_FAULT = 11;
+  static final int ELEM_BINDING = 12;
+  static final int ELEM_SERVICE = 13;
+  static final int ELEM_PORT = 14;
+
+  private static final ElementTable ELEMENT_KINDS = new ElementTable();
+
+  static
+  {
+    ELEMENT_KINDS.put(Constants.Q_ELEM_DEFINITIONS,
+                      new Integer(ELEM_DEFINITIONS));
+    ELEMENT_KINDS.put(Constants.Q_ELEM_IMPORT, new Integer(ELEM_IMPORT));
+    ELEMENT_KINDS.put(Constants.Q_ELEM_DOCUMENTATION,
+                      new Integer(ELEM_DOCUMENTATION));
+    ELEMENT_KINDS.put(Constants.Q_ELEM_TYPES, new Integer(ELEM_TYPES));
+    ELEMENT_KINDS.put(Constants.Q_ELEM_MESSAGE, new Integer(ELEM_MESSAGE));
+    ELEMENT_KINDS.put(Constants.Q_ELEM_PART, new Integer(ELEM_PART));
+    ELEMENT_KINDS.put(Constants.Q_ELEM_PORT_TYPE, new Integer(ELEM_PORT_TYPE));
+    ELEMENT_KINDS.put(Constants.Q_ELEM_OPERATION, new Integer(ELEM_OPERATION));
+    ELEMENT_KINDS.put(Constants.Q_ELEM_INPUT, new Integer(ELEM_INPUT));
+    ELEMENT_KINDS.put(Constants.Q_ELEM_OUTPUT, new Integer(ELEM_OUTPUT));
+    ELEMENT_KINDS.put(Constants.Q_ELEM_FAULT, new Integer(ELEM_FAULT));
+    ELEMENT_KINDS.put(Constants.Q_ELEM_BINDING, new Integer(ELEM_BINDING));
+    ELEMENT_KINDS.put(Constants.Q_ELEM_SERVICE, new Integer(ELEM_SERVICE));
+    ELEMENT_KINDS.put(Constants.Q_ELEM_PORT, new Integer(ELEM_PORT));
+  }
+
+  // The handlers for the children of <wsdl:definitions> that readers use
+  // unless they are given others.
+  private static final ElementTable DEFAULT_DEFINITIONS_CHILD_HANDLERS =
+    new ElementTable();
+
+  static
+  {
+    DEFAULT_DEFINITIONS_CHILD_HANDLERS.put(Constants.Q_ELEM_IMPORT,
+      new DefinitionsChildHandler()
+      {
+        public void parse(WSDLReaderImpl reader,
+                          Element el,
+                          Definition def,
+                          Map importedDefs) throws WSDLException
+        {
+          def.addImport(reader.parseImport(el, def, importedDefs));
+        }
+      });
+    DEFAULT_DEFINITIONS_CHILD_HANDLERS.put(Constants.Q_ELEM_DOCUMENTATION,
+      new DefinitionsChildHandler()
+      {
+        public void parse(WSDLReaderImpl reader,
+                          Element el,
+                          Definition def,
+                          Map importedDefs)
+        {
+          def.setDocumentationElement(el);
+        }
+      });
+    DEFAULT_DEFINITIONS_CHILD_HANDLERS.put(Constants.Q_ELEM_TYPES,
+      new DefinitionsChildHandler()
+      {
+        public void parse(WSDLReaderImpl reader,
+                          Element el,
+                          Definition def,
+                          Map importedDefs) throws WSDLException
+        {
+          def.setTypes(reader.parseTypes(el, def));
+        }
+      });
+    DEFAULT_DEFINITIONS_CHILD_HANDLERS.put(Constants.Q_ELEM_MESSAGE,
+      new DefinitionsChildHandler()
+      {
+        public void parse(WSDLReaderImpl reader,
+                          Element el,
+                          Definition def,
+                          Map importedDefs) throws WSDLException
+        {
+          def.addMessage(reader.parseMessage(el, def));
+        }
+      });
+    DEFAULT_DEFINITIONS_CHILD_HANDLERS.put(Constants.Q_ELEM_PORT_TYPE,
+      new DefinitionsChildHandler()
+      {
+        public void parse(WSDLReaderImpl reader,
+                          Element el,
+                          Definition def,
+                          Map importedDefs) throws WSDLException
+        {
+          def.addPortType(reader.parsePortType(el, def));
+        }
+      });
+    DEFAULT_DEFINITIONS_CHILD_HANDLERS.put(Constants.Q_ELEM_BINDING,
+      new DefinitionsChildHandler()
+      {
+        public void parse(WSDLReaderImpl reader,
+                          Element el,
+                          Definition def,
+                          Map importedDefs) throws WSDLException
+        {
+          def.addBinding(reader.parseBinding(el, def));
+        }
+      });
+    DEFAULT_DEFINITIONS_CHILD_HANDLERS.put(Constants.Q_ELEM_SERVICE,
+      new DefinitionsChildHandler()
+      {
+        public void parse(WSDLReaderImpl reader,
+                          Element el,
+                          Definition def,
+                          Map importedDefs) throws WSDLException
+        {
+          def.addService(reader.parseService(el, def));
+        }
+      });
+  }
+
   protected boolean verbose = true;
   protected boolean importDocuments = true;
   protected boolean parseSchema = true;
+  protected boolean poolDocumentBuilders = true;
+  protected DocumentBuilderPool documentBuilderPool = null;
+  protected boolean parallelImports = false;
+  protected boolean parallelSchemas = false;
+  protected boolean lazySchemas = false;
+  protected boolean lineNumbers = false;
+  protected boolean internQNames = false;
+  protected QNamePool qnamePool = null;
+  protected Executor importExecutor = null;
+  protected WSDLDocumentCache documentCache = null;
+  protected PersistentDefinitionCache definitionCache = null;
+
+  // Shared by readers that have not been given an executor of their own.
+  private static Executor defaultImportExecutor = null;
+
+  // Used to parse documents when the line numbers feature is set.
+  private LineNumberDocumentBuilderPool lineNumberPool = null;
+
+  // The handlers set using setDefinitionsChildHandler(...), together
+  // with the default ones, or null if none have been set.
+  private ElementTable definitionsChildHandlers = null;
+
+  // Whether any handler other than the default one has been set, in
+  // which case definitions aren't cached, as the handlers can't be
+  // told apart in the key.
+  private boolean customDefinitionsChildHandlers = false;
+
+  // Only set while a document is being read with prefetching enabled.
+  private DocumentPrefetcher prefetcher = null;
   protected ExtensionRegistry extReg = null;
   protected String factoryImplName = null;
   protected WSDLLocator loc = null;
   protected WSDLFactory factory = null;
   
+  // The user data keys recording where the DOM of a lazily read schema
+  // can be found again.
+  static final String SOURCE_URI_KEY = "com.ibm.wsdl.sourceURI";
+  static final String ELEMENT_INDEX_KEY = "com.ibm.wsdl.elementIndex";
+
   //Contains all schemas used by this wsdl, either in-line or nested 
   //via wsdl imports or schema imports, includes or redefines
   protected Map allSchemas = new Hashtable();
@@ -91,6 +253,68 @@ public class WSDLReaderImpl implements WSDLReader
    *         files. Setting this feature to false will prevent the schemas being parsed.</td>
    *     <td><center>true</center></td>
    *   </tr>
+   *   <tr>
+   *     <td><center>com.ibm.wsdl.poolDocumentBuilders</center></td>
+   *     <td>If set to true, documents will be parsed using DocumentBuilders
+   *         taken from a DocumentBuilderPool, either the one set using
+   *         setDocumentBuilderPool(...) or the default pool. If set to false,
+   *         a new DocumentBuilderFactory and DocumentBuilder will be created
+   *         for every document.</td>
+   *     <td><center>true</center></td>
+   *   </tr>
+   *   <tr>
+   *     <td><center>com.ibm.wsdl.parallelImports</center></td>
+   *     <td>If set to true, all the documents imported by a
+   *         &lt;wsdl:definitions&gt; element are retrieved and parsed at the
+   *         same time, using the executor set using setImportExecutor(...).
+   *         The imports are still processed in document order. This
+   *         feature has no effect when reading through a WSDLLocator.</td>
+   *     <td><center>false</center></td>
+   *   </tr>
+   *   <tr>
+   *     <td><center>com.ibm.wsdl.parallelSchemas</center></td>
+   *     <td>If set to true, all the schema documents referenced directly or
+   *         indirectly by a schema through &lt;xsd:import&gt;,
+   *         &lt;xsd:include&gt; or &lt;xsd:redefine&gt; are retrieved and
+   *         parsed at the same time, using the executor set using
+   *         setImportExecutor(...). The references are still resolved in
+   *         document order, so the resulting schemas are the same as when
+   *         this feature is off. This feature has no effect when reading
+   *         through a WSDLLocator.</td>
+   *     <td><center>false</center></td>
+   *   </tr>
+   *   <tr>
+   *     <td><center>com.ibm.wsdl.lazySchemas</center></td>
+   *     <td>If set to true, the DOM elements of schemas in documents the
+   *         reader retrieved itself are not kept once the schemas have
+   *         been read. Schema.getElement() parses the element again from
+   *         its document the first time it is called, and only keeps it
+   *         as long as memory allows. The schema elements are removed from
+   *         the DOMs of those documents. This feature has no effect on
+   *         documents read through a WSDLLocator or passed to the reader
+   *         as an InputSource, a Document or an Element.</td>
+   *     <td><center>false</center></td>
+   *   </tr>
+   *   <tr>
+   *     <td><center>com.ibm.wsdl.lineNumbers</center></td>
+   *     <td>If set to true, the line and column number of each element
+   *         are recorded as documents are parsed, and the
+   *         LocatedWSDLExceptions thrown by the reader report the line and
+   *         column where the problem is. This feature has no effect on
+   *         documents passed to the reader as a Document or an
+   *         Element.</td>
+   *     <td><center>false</center></td>
+   *   </tr>
+   *   <tr>
+   *     <td><center>com.ibm.wsdl.internQNames</center></td>
+   *     <td>If set to true, the QNames created while reading, by the
+   *         reader and by extension deserializers using QNameUtils or
+   *         DOMUtils, are interned in a QNamePool, either the one set
+   *         using setQNamePool(...) or the default pool, so that equal
+   *         QNames read from any number of documents share a single
+   *         instance.</td>
+   *     <td><center>false</center></td>
+   *   </tr>
    * </table>
    * <p>
    * All feature names must be fully-qualified, Java package style. All
@@ -124,6 +348,30 @@ public class WSDLReaderImpl implements WSDLReader
     {
       parseSchema = value;
     }
+    else if (name.equals(Constants.FEATURE_POOL_DOCUMENT_BUILDERS))
+    {
+      poolDocumentBuilders = value;
+    }
+    else if (name.equals(Constants.FEATURE_PARALLEL_IMPORTS))
+    {
+      parallelImports = value;
+    }
+    else if (name.equals(Constants.FEATURE_PARALLEL_SCHEMAS))
+    {
+      parallelSchemas = value;
+    }
+    else if (name.equals(Constants.FEATURE_LAZY_SCHEMAS))
+    {
+      lazySchemas = value;
+    }
+    else if (name.equals(Constants.FEATURE_LINE_NUMBERS))
+    {
+      lineNumbers = value;
+    }
+    else if (name.equals(Constants.FEATURE_INTERN_QNAMES))
+    {
+      internQNames = value;
+    }
     else
     {
       throw new IllegalArgumentException("Feature name '" + name +
@@ -154,6 +402,30 @@ public class WSDLReaderImpl implements WSDLReader
     {
       return importDocuments;
     }
+    else if (name.equals(Constants.FEATURE_POOL_DOCUMENT_BUILDERS))
+    {
+      return poolDocumentBuilders;
+    }
+    else if (name.equals(Constants.FEATURE_PARALLEL_IMPORTS))
+    {
+      return parallelImports;
+    }
+    else if (name.equals(Constants.FEATURE_PARALLEL_SCHEMAS))
+    {
+      return parallelSchemas;
+    }
+    else if (name.equals(Constants.FEATURE_LAZY_SCHEMAS))
+    {
+      return lazySchemas;
+    }
+    else if (name.equals(Constants.FEATURE_LINE_NUMBERS))
+    {
+      return lineNumbers;
+    }
+    else if (name.equals(Constants.FEATURE_INTERN_QNAMES))
+    {
+      return internQNames;
+    }
     else
     {
       throw new IllegalArgumentException("Feature name '" + name +
@@ -201,6 +473,285 @@ public class WSDLReaderImpl implements WSDLReader
     return factory;
   }
 
+  /**
+   * Set the pool of DocumentBuilders used to parse WSDL and schema
+   * documents. This is only used when the com.ibm.wsdl.poolDocumentBuilders
+   * feature is set to true. Default is null, in which case the default
+   * pool is used.
+   *
+   * @param pool the pool of DocumentBuilders to use
+   */
+  public void setDocumentBuilderPool(DocumentBuilderPool pool)
+  {
+    documentBuilderPool = pool;
+  }
+
+  /**
+   * Get the pool of DocumentBuilders used to parse WSDL and schema
+   * documents.
+   *
+   * @return the pool set using setDocumentBuilderPool(...), or the
+   * default pool if none has been set
+   */
+  public DocumentBuilderPool getDocumentBuilderPool()
+  {
+    return (documentBuilderPool != null)
+           ? documentBuilderPool
+           : DocumentBuilderPool.getDefaultPool();
+  }
+
+  /**
+   * Set the pool the QNames created while reading are interned in. This
+   * is only used when the com.ibm.wsdl.internQNames feature is set to
+   * true. Default is null, in which case the default pool is used.
+   *
+   * @param pool the pool to intern QNames in
+   */
+  public void setQNamePool(QNamePool pool)
+  {
+    qnamePool = pool;
+  }
+
+  /**
+   * Get the pool the QNames created while reading are interned in.
+   *
+   * @return the pool set using setQNamePool(...), or the default pool if
+   * none has been set
+   */
+  public QNamePool getQNamePool()
+  {
+    return (qnamePool != null) ? qnamePool : QNamePool.getDefaultPool();
+  }
+
+  /**
+   * Set the executor used to retrieve and parse imported documents when
+   * the com.ibm.wsdl.parallelImports or com.ibm.wsdl.parallelSchemas
+   * feature is set to true. Default is
+   * null, in which case a shared pool of daemon threads is used.
+   *
+   * @param executor the executor to use
+   */
+  public void setImportExecutor(Executor executor)
+  {
+    importExecutor = executor;
+  }
+
+  /**
+   * Get the executor used to retrieve and parse imported documents.
+   *
+   * @return the executor set using setImportExecutor(...), or the shared
+   * executor if none has been set
+   */
+  public Executor getImportExecutor()
+  {
+    return (importExecutor != null)
+           ? importExecutor
+           : getDefaultImportExecutor();
+  }
+
+  /**
+   * Set the cache used to share the definitions of imported WSDL documents
+   * and the schemas of referenced schema documents between reads, and
+   * between readers. Default is null, in which case every read retrieves
+   * and parses all the documents it needs.
+   *
+   * @param cache the cache to use
+   * @see WSDLDocumentCache
+   */
+  public void setDocumentCache(WSDLDocumentCache cache)
+  {
+    documentCache = cache;
+  }
+
+  /**
+   * Get the cache set using setDocumentCache(...).
+   */
+  public WSDLDocumentCache getDocumentCache()
+  {
+    return documentCache;
+  }
+
+  /**
+   * Set the cache used to keep compiled definitions on disk. When one is
+   * set, reading a WSDL document by its URI uses the definition cached
+   * for that URI, unless any of the documents it was read from has
+   * changed, and caches the definitions it parses. Readers that have
+   * handlers set using setDefinitionsChildHandler(...) don't use the
+   * cache. Default is null, in which case every read parses the document.
+   *
+   * @param cache the cache to use
+   * @see PersistentDefinitionCache
+   */
+  public void setDefinitionCache(PersistentDefinitionCache cache)
+  {
+    definitionCache = cache;
+  }
+
+  /**
+   * Get the cache set using setDefinitionCache(...).
+   */
+  public PersistentDefinitionCache getDefinitionCache()
+  {
+    return definitionCache;
+  }
+
+  /*
+    Get the definition cached for the document at the specified URL, if
+    there is a definition cache, and the definition is still valid.
+  */
+  Definition getCachedDefinition(URL url) throws WSDLException
+  {
+    if (definitionCache == null || customDefinitionsChildHandlers)
+    {
+      return null;
+    }
+
+    QNamePool previousPool = startInterning();
+
+    try
+    {
+      return definitionCache.get(getDefinitionCacheKey(url),
+                                 getWSDLFactory(),
+                                 extReg);
+    }
+    finally
+    {
+      QNamePool.setThreadPool(previousPool);
+    }
+  }
+
+  /*
+    Cache the definition read from the document at the specified URL, if
+    there is a definition cache. The startTime is when reading started.
+  */
+  void cacheDefinition(URL url, Definition def, long startTime)
+  {
+    if (definitionCache != null && !customDefinitionsChildHandlers)
+    {
+      definitionCache.put(getDefinitionCacheKey(url), def, startTime);
+    }
+  }
+
+  /*
+    The features that change the definition read are part of the key,
+    so that readers configured differently can share a cache. Readers
+    with handlers of their own for the children of <wsdl:definitions>
+    don't use the cache at all.
+  */
+  private String getDefinitionCacheKey(URL url)
+  {
+    return url.toString() +
+           "\n" + getClass().getName() +
+           "\n" + factoryImplName +
+           "\nimportDocuments=" + importDocuments +
+           "\nparseSchema=" + parseSchema +
+           "\nlazySchemas=" + lazySchemas;
+  }
+
+  /**
+   * Set the handler used to read the child elements of
+   * &lt;wsdl:definitions&gt; with the specified name. Handlers can be set
+   * for new kinds of top-level element, or to replace the handlers for
+   * the elements defined by WSDL. Elements without a handler are read
+   * as extensibility elements.
+   *
+   * @param elementType the name of the element
+   * @param handler the handler to use, or null to remove the handler for
+   * the element
+   */
+  public void setDefinitionsChildHandler(QName elementType,
+                                         DefinitionsChildHandler handler)
+  {
+    if (definitionsChildHandlers == null)
+    {
+      definitionsChildHandlers =
+        new ElementTable(DEFAULT_DEFINITIONS_CHILD_HANDLERS);
+    }
+
+    if (handler != DEFAULT_DEFINITIONS_CHILD_HANDLERS.get(elementType))
+    {
+      customDefinitionsChildHandlers = true;
+    }
+
+    if (handler != null)
+    {
+      definitionsChildHandlers.put(elementType, handler);
+    }
+    else
+    {
+      definitionsChildHandlers.remove(elementType);
+    }
+  }
+
+  /**
+   * Get the handler used to read the child elements of
+   * &lt;wsdl:definitions&gt; with the specified name.
+   *
+   * @return the handler, or null if the elements are read as
+   * extensibility elements
+   */
+  public DefinitionsChildHandler getDefinitionsChildHandler(QName elementType)
+  {
+    return getDefinitionsChildHandler(elementType.getNamespaceURI(),
+                                      elementType.getLocalPart());
+  }
+
+  DefinitionsChildHandler getDefinitionsChildHandler(String namespaceURI,
+                                                     String localName)
+  {
+    ElementTable handlers = (definitionsChildHandlers != null)
+                            ? definitionsChildHandlers
+                            : DEFAULT_DEFINITIONS_CHILD_HANDLERS;
+
+    return (DefinitionsChildHandler)handlers.get(namespaceURI, localName);
+  }
+
+  /*
+    Check whether the handler is the default one for the element, which
+    the StAX reader replaces with its own parsing.
+  */
+  static boolean isDefaultDefinitionsChildHandler(
+    DefinitionsChildHandler handler, String namespaceURI, String localName)
+  {
+    return handler == DEFAULT_DEFINITIONS_CHILD_HANDLERS.get(namespaceURI,
+                                                             localName);
+  }
+
+  static int getElementKind(String namespaceURI, String localName)
+  {
+    Integer kind = (Integer)ELEMENT_KINDS.get(namespaceURI, localName);
+
+    return (kind != null) ? kind.intValue() : ELEM_OTHER;
+  }
+
+  private static int getElementKind(Element el)
+  {
+    return getElementKind(el.getNamespaceURI(), el.getLocalName());
+  }
+
+  private static synchronized Executor getDefaultImportExecutor()
+  {
+    if (defaultImportExecutor == null)
+    {
+      int threads = Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+
+      defaultImportExecutor = Executors.newFixedThreadPool(threads,
+        new ThreadFactory()
+        {
+          public Thread newThread(Runnable r)
+          {
+            Thread thread = new Thread(r, "WSDL4J import prefetcher");
+
+            thread.setDaemon(true);
+
+            return thread;
+          }
+        });
+    }
+
+    return defaultImportExecutor;
+  }
+
   /**
    * Set a different factory implementation to use for
    * creating definitions when reading WSDL documents.
@@ -245,95 +796,31 @@ public class WSDLReaderImpl implements WSDLReader
                                         Map importedDefs)
                                           throws WSDLException
   {
-    checkElementName(defEl, Constants.Q_ELEM_DEFINITIONS);
-
-    WSDLFactory factory = getWSDLFactory();
-    Definition def = factory.newDefinition();
-
-    if (extReg != null)
-    {
-      def.setExtensionRegistry(extReg);
-    }
-
-    String name = DOMUtils.getAttribute(defEl, Constants.ATTR_NAME);
-    String targetNamespace = DOMUtils.getAttribute(defEl,
-                                             Constants.ATTR_TARGET_NAMESPACE);
-    NamedNodeMap attrs = defEl.getAttributes();
-
     if (importedDefs == null)
     {
       importedDefs = new Hashtable();
     }
-    
-    if (documentBaseURI != null)
-    {
-      def.setDocumentBaseURI(documentBaseURI);
-      importedDefs.put(documentBaseURI, def);
-    }
-
-    if (name != null)
-    {
-      def.setQName(new QName(targetNamespace, name));
-    }
-
-    if (targetNamespace != null)
-    {
-      def.setTargetNamespace(targetNamespace);
-    }
 
-    int size = attrs.getLength();
+    Definition def = createDefinition(new DOMElementAttributes(defEl),
+                                      documentBaseURI,
+                                      importedDefs);
 
-    for (int i = 0; i < size; i++)
+    if (prefetcher != null && parallelImports && importDocuments && loc == null)
     {
-      Attr attr = (Attr)attrs.item(i);
-      String namespaceURI = attr.getNamespaceURI();
-      String localPart = attr.getLocalName();
-      String value = attr.getValue();
-
-      if (namespaceURI != null && namespaceURI.equals(Constants.NS_URI_XMLNS))
-      {
-        if (localPart != null && !localPart.equals(Constants.ATTR_XMLNS))
-        {
-          def.addNamespace(localPart, value);
-        }
-        else
-        {
-          def.addNamespace(null, value);
-        }
-      }
+      prefetchImports(defEl, def, importedDefs);
     }
 
     Element tempEl = DOMUtils.getFirstChildElement(defEl);
 
     while (tempEl != null)
     {
-      if (QNameUtils.matches(Constants.Q_ELEM_IMPORT, tempEl))
-      {
-        def.addImport(parseImport(tempEl, def, importedDefs));
-      }
-      else if (QNameUtils.matches(Constants.Q_ELEM_DOCUMENTATION, tempEl))
-      {
-        def.setDocumentationElement(tempEl);
-      }
-      else if (QNameUtils.matches(Constants.Q_ELEM_TYPES, tempEl))
-      {
-        def.setTypes(parseTypes(tempEl, def));
-      }
-      else if (QNameUtils.matches(Constants.Q_ELEM_MESSAGE, tempEl))
-      {
-        def.addMessage(parseMessage(tempEl, def));
-      }
-      else if (QNameUtils.matches(Constants.Q_ELEM_PORT_TYPE, tempEl))
-      {
-        def.addPortType(parsePortType(tempEl, def));
-      }
-      else if (QNameUtils.matches(Constants.Q_ELEM_BINDING, tempEl))
-      {
-        def.addBinding(parseBinding(tempEl, def));
-      }
-      else if (QNameUtils.matches(Constants.Q_ELEM_SERVICE, tempEl))
+      DefinitionsChildHandler handler =
+        getDefinitionsChildHandler(tempEl.getNamespaceURI(),
+                                   tempEl.getLocalName());
+
+      if (handler != null)
       {
-        def.addService(parseService(tempEl, def));
+        handler.parse(this, tempEl, def, importedDefs);
       }
       else
       {
@@ -349,222 +836,98 @@ public class WSDLReaderImpl implements WSDLReader
     return def;
   }
 
-  protected Import parseImport(Element importEl,
+  /*
+    Start retrieving the documents imported by the specified definitions
+    element, so they are ready by the time parseImport(...) needs them.
+  */
+  private void prefetchImports(Element defEl,
                                Definition def,
                                Map importedDefs)
-                                 throws WSDLException
   {
-    Import importDef = def.createImport();
+    String contextURI = def.getDocumentBaseURI();
+    URL contextURL = null;
 
     try
     {
-      String namespaceURI = DOMUtils.getAttribute(importEl,
-                                                  Constants.ATTR_NAMESPACE);
-      String locationURI = DOMUtils.getAttribute(importEl,
-                                                 Constants.ATTR_LOCATION);
-      String contextURI = null;
+      contextURL = (contextURI != null)
+                   ? StringUtils.getURL(null, contextURI)
+                   : null;
+    }
+    catch (MalformedURLException e)
+    {
+      return;
+    }
 
-      if (namespaceURI != null)
-      {
-        importDef.setNamespaceURI(namespaceURI);
-      }
+    Element tempEl = DOMUtils.getFirstChildElement(defEl);
 
-      if (locationURI != null)
+    while (tempEl != null)
+    {
+      if (getElementKind(tempEl) == ELEM_IMPORT)
       {
-        importDef.setLocationURI(locationURI);
+        String locationURI = DOMUtils.getAttribute(tempEl,
+                                                   Constants.ATTR_LOCATION);
 
-        if (importDocuments)
+        if (locationURI != null)
         {
           try
           {
-            contextURI = def.getDocumentBaseURI();
-            Definition importedDef = null;
-            InputStream inputStream = null;
-            InputSource inputSource = null;
-            URL url = null;
+            URL url = StringUtils.getURL(contextURL, locationURI);
 
-            if (loc != null)
+            if (!importedDefs.containsKey(url.toString()))
             {
-              inputSource = loc.getImportInputSource(contextURI, locationURI);
-
-              /*
-                We now have available the latest import URI. This might
-                differ from the locationURI so check the importedDefs for it
-                since it is this that we pass as the documentBaseURI later.
-              */
-              String liu = loc.getLatestImportURI();
-
-              importedDef = (Definition)importedDefs.get(liu);
-              
-              inputSource.setSystemId(liu);
+              prefetcher.prefetch(url);
             }
-            else
-            {
-              URL contextURL = (contextURI != null)
-                               ? StringUtils.getURL(null, contextURI)
-                               : null;
-
-              url = StringUtils.getURL(contextURL, locationURI);
-              importedDef = (Definition)importedDefs.get(url.toString());
-
-              if (importedDef == null)
-              {
-                inputStream = StringUtils.getContentAsInputStream(url);
-
-                if (inputStream != null)
-                {
-                  inputSource = new InputSource(inputStream);
-                  inputSource.setSystemId(url.toString());
-                }
-              }
-            }
-
-            if (importedDef == null)
-            {
-              if (inputSource == null)
-              {
-                throw new WSDLException(WSDLException.OTHER_ERROR,
-                                        "Unable to locate imported document " +
-                                        "at '" + locationURI + "'" +
-                                        (contextURI == null
-                                         ? "."
-                                         : ", relative to '" + contextURI +
-                                         "'."));
-              }
-
-              Document doc = getDocument(inputSource, inputSource.getSystemId());
-
-              if (inputStream != null)
-              {
-                inputStream.close();
-              }
-
-              Element documentElement = doc.getDocumentElement();
-
-              /*
-                Check if it's a wsdl document.
-                If it's not, don't retrieve and process it.
-                This should later be extended to allow other types of
-                documents to be retrieved and processed, such as schema
-                documents (".xsd"), etc...
-              */
-              if (QNameUtils.matches(Constants.Q_ELEM_DEFINITIONS,
-                                     documentElement))
-              {
-                if (verbose)
-                {
-                  System.out.println("Retrieving document at '" + locationURI +
-                                     "'" +
-                                     (contextURI == null
-                                      ? "."
-                                      : ", relative to '" + contextURI + "'."));
-                }
-
-                String urlString =
-                  (loc != null)
-                  ? loc.getLatestImportURI()
-                  : (url != null)
-                    ? url.toString()
-                    : locationURI;
-
-                importedDef = readWSDL(urlString,
-                                       documentElement,
-                                       importedDefs);
-              }
-              else
-              {
-                QName docElementQName = QNameUtils.newQName(documentElement);
-
-                if (SchemaConstants.XSD_QNAME_LIST.contains(docElementQName))
-                {
-                  if (verbose)
-                  {
-                    System.out.println("Retrieving schema wsdl:imported from '" + locationURI +
-                                       "'" +
-                                       (contextURI == null
-                                        ? "."
-                                        : ", relative to '" + contextURI + "'."));
-                  }
-                    
-                  WSDLFactory factory = getWSDLFactory();
-
-                  importedDef = factory.newDefinition();
-
-                  if (extReg != null)
-                  {
-                    importedDef.setExtensionRegistry(extReg);
-                  }
-
-                  String urlString =
-                    (loc != null)
-                    ? loc.getLatestImportURI()
-                    : (url != null)
-                      ? url.toString()
-                      : locationURI;
-
-                  importedDef.setDocumentBaseURI(urlString);
-
-                  Types types = importedDef.createTypes();
-                  types.addExtensibilityElement(
-                      parseSchema(Types.class, documentElement, importedDef));
-                  importedDef.setTypes(types);
-                }
-              }
-            }
-
-            if (importedDef != null)
-            {
-              importDef.setDefinition(importedDef);
-            }
-          }
-          catch (WSDLException e)
-          {
-           throw e;
-          }
-          catch (RuntimeException e)
-          {
-            throw e;
           }
-          catch (Exception e)
+          catch (MalformedURLException e)
           {
-            throw new WSDLException(WSDLException.OTHER_ERROR,
-                                    "Unable to resolve imported document at '" +
-                                    locationURI + 
-                                    (contextURI == null 
-                                    ? "'." : "', relative to '" + contextURI + "'")
-                                    , e);
+            // parseImport(...) will report this.
           }
-        } //end importDocs
-      } //end locationURI
-      
+        }
+      }
+
+      tempEl = DOMUtils.getNextSiblingElement(tempEl);
     }
-    catch (WSDLException e)
+  }
+
+  protected Import parseImport(Element importEl,
+                               Definition def,
+                               Map importedDefs)
+                                 throws WSDLException
+  {
+    ElementAttributes importAttrs = new DOMElementAttributes(importEl);
+    Import importDef = createImport(importAttrs, def);
+
+    try
     {
-      if (e.getLocation() == null)
+      if (importDef.getLocationURI() != null && importDocuments)
       {
-        e.setLocation(XPathUtils.getXPathExprFromNode(importEl));
-      }
-      else
-      {
-        //If definitions are being parsed recursively for nested imports
-        //the exception location must be built up recursively too so
-        //prepend this element's xpath to exception location.
-        String loc = XPathUtils.getXPathExprFromNode(importEl) + e.getLocation();
-        e.setLocation(loc);
+        Definition importedDef =
+          getImportedDefinition(importDef.getLocationURI(), def, importedDefs);
+
+        if (importedDef != null)
+        {
+          importDef.setDefinition(importedDef);
+        }
       }
+    }
+    catch (WSDLException e)
+    {
+      //If definitions are being parsed recursively for nested imports
+      //the exception location must be built up recursively too so
+      //prepend this element to exception location.
+      LocatedWSDLException.addLocation(e, importEl);
 
-	  throw e; 
-	}
+      throw e;
+    }
 
     //register any NS decls with the Definition
-    NamedNodeMap attrs = importEl.getAttributes();
-    registerNSDeclarations(attrs, def);
+    registerNSDeclarations(importAttrs, def);
 
     Element tempEl = DOMUtils.getFirstChildElement(importEl);
 
     while (tempEl != null)
     {
-      if (QNameUtils.matches(Constants.Q_ELEM_DOCUMENTATION, tempEl))
+      if (getElementKind(tempEl) == ELEM_DOCUMENTATION)
       {
         importDef.setDocumentationElement(tempEl);
       }
@@ -583,22 +946,246 @@ public class WSDLReaderImpl implements WSDLReader
     
   }
 
-  protected Types parseTypes(Element typesEl, Definition def)
+  /*
+    Get the definition imported from the location, relative to the
+    document base URI of the importing definition. It is looked up among
+    the definitions read so far and in the document cache before the
+    document is retrieved and read with readImportedDocument(...).
+  */
+  Definition getImportedDefinition(String locationURI,
+                                   Definition def,
+                                   Map importedDefs)
+                                     throws WSDLException
+  {
+    String contextURI = def.getDocumentBaseURI();
+
+    try
+    {
+      Definition importedDef = null;
+      InputStream inputStream = null;
+      InputSource inputSource = null;
+      URL url = null;
+      Document prefetchedDoc = null;
+
+      if (loc != null)
+      {
+        inputSource = loc.getImportInputSource(contextURI, locationURI);
+
+        /*
+          We now have available the latest import URI. This might
+          differ from the locationURI so check the importedDefs for it
+          since it is this that we pass as the documentBaseURI later.
+        */
+        String liu = loc.getLatestImportURI();
+
+        importedDef = (Definition)importedDefs.get(liu);
+
+        inputSource.setSystemId(liu);
+      }
+      else
+      {
+        URL contextURL = (contextURI != null)
+                         ? StringUtils.getURL(null, contextURI)
+                         : null;
+
+        url = StringUtils.getURL(contextURL, locationURI);
+        importedDef = (Definition)importedDefs.get(url.toString());
+
+        if (importedDef == null && documentCache != null)
+        {
+          importedDef = getCachedDefinition(url.toString());
+
+          if (importedDef != null)
+          {
+            registerImportedDefinitions(url.toString(),
+                                        importedDef,
+                                        importedDefs);
+          }
+        }
+
+        if (importedDef == null && prefetcher != null)
+        {
+          prefetchedDoc = prefetcher.take(url.toString());
+        }
+
+        if (importedDef == null && prefetchedDoc == null)
+        {
+          inputStream = StringUtils.getContentAsInputStream(url);
+
+          if (inputStream != null)
+          {
+            inputSource = new InputSource(inputStream);
+            inputSource.setSystemId(url.toString());
+          }
+        }
+      }
+
+      if (importedDef == null)
+      {
+        if (inputSource == null && prefetchedDoc == null)
+        {
+          throw new LocatedWSDLException(WSDLException.OTHER_ERROR,
+                                         "Unable to locate imported document " +
+                                         "at '" + locationURI + "'" +
+                                         (contextURI == null
+                                          ? "."
+                                          : ", relative to '" + contextURI +
+                                          "'."));
+        }
+
+        String urlString =
+          (loc != null)
+          ? loc.getLatestImportURI()
+          : (url != null)
+            ? url.toString()
+            : locationURI;
+
+        try
+        {
+          importedDef = readImportedDocument(inputSource,
+                                             prefetchedDoc,
+                                             (loc == null)
+                                             ? url.toString()
+                                             : null,
+                                             urlString,
+                                             locationURI,
+                                             contextURI,
+                                             importedDefs);
+        }
+        finally
+        {
+          if (inputStream != null)
+          {
+            inputStream.close();
+          }
+        }
+
+        if (importedDef != null && documentCache != null && url != null)
+        {
+          documentCache.put(url.toString(), importedDef);
+        }
+      }
+
+      return importedDef;
+    }
+    catch (WSDLException e)
+    {
+      throw e;
+    }
+    catch (RuntimeException e)
+    {
+      throw e;
+    }
+    catch (Exception e)
+    {
+      throw new LocatedWSDLException(WSDLException.OTHER_ERROR,
+                                     "Unable to resolve imported document at '" +
+                                     locationURI + 
+                                     (contextURI == null 
+                                     ? "'." : "', relative to '" + contextURI + "'")
+                                     , e);
+    }
+  }
+
+  /*
+    Read a wsdl:imported document, or the DOM prefetched for it. The
+    sourceURI is the URI the reader retrieved the document from itself,
+    if it did. Only WSDL documents and schema documents are read, and
+    null is returned for anything else. This should later be extended
+    to allow other types of documents to be retrieved and processed.
+  */
+  Definition readImportedDocument(InputSource inputSource,
+                                  Document prefetchedDoc,
+                                  String sourceURI,
+                                  String urlString,
+                                  String locationURI,
+                                  String contextURI,
+                                  Map importedDefs)
+                                    throws WSDLException
+  {
+    Document doc = (prefetchedDoc != null)
+                   ? prefetchedDoc
+                   : getDocument(inputSource, inputSource.getSystemId());
+
+    if (sourceURI != null)
+    {
+      setSourceURI(doc, sourceURI);
+    }
+
+    Element documentElement = doc.getDocumentElement();
+
+    if (QNameUtils.matches(Constants.Q_ELEM_DEFINITIONS, documentElement))
+    {
+      if (verbose)
+      {
+        System.out.println("Retrieving document at '" + locationURI +
+                           "'" +
+                           (contextURI == null
+                            ? "."
+                            : ", relative to '" + contextURI + "'."));
+      }
+
+      return readWSDL(urlString, documentElement, importedDefs);
+    }
+    else if (SchemaConstants.XSD_QNAME_LIST.contains(
+               QNameUtils.newQName(documentElement)))
+    {
+      if (verbose)
+      {
+        System.out.println("Retrieving schema wsdl:imported from '" + locationURI +
+                           "'" +
+                           (contextURI == null
+                            ? "."
+                            : ", relative to '" + contextURI + "'."));
+      }
+
+      return createSchemaDefinition(urlString, documentElement);
+    }
+
+    return null;
+  }
+
+  /*
+    Create the definition standing in for a schema document that is
+    wsdl:imported, whose types hold the schema.
+  */
+  Definition createSchemaDefinition(String documentBaseURI, Element schemaEl)
     throws WSDLException
   {
-    //register any NS decls with the Definition
-    NamedNodeMap attrs = typesEl.getAttributes();
-    registerNSDeclarations(attrs, def);
+    WSDLFactory factory = getWSDLFactory();
+    Definition importedDef = factory.newDefinition();
+
+    if (extReg != null)
+    {
+      importedDef.setExtensionRegistry(extReg);
+    }
+
+    importedDef.setDocumentBaseURI(documentBaseURI);
 
-    Types types = def.createTypes();
+    Types types = importedDef.createTypes();
+    types.addExtensibilityElement(
+        parseSchema(Types.class, schemaEl, importedDef));
+    importedDef.setTypes(types);
+
+    return importedDef;
+  }
+
+  protected Types parseTypes(Element typesEl, Definition def)
+    throws WSDLException
+  {
+    Types types = createTypes(new DOMElementAttributes(typesEl), def);
     Element tempEl = DOMUtils.getFirstChildElement(typesEl);
     QName tempElType;
+    int index = 0;
 
     while (tempEl != null)
     {
       tempElType = QNameUtils.newQName(tempEl);
-      
-      if (QNameUtils.matches(Constants.Q_ELEM_DOCUMENTATION, tempEl))
+
+      // Lazily read schemas are removed from the document.
+      Element nextEl = DOMUtils.getNextSiblingElement(tempEl);
+
+      if (getElementKind(tempEl) == ELEM_DOCUMENTATION)
       {
         types.setDocumentationElement(tempEl);
       }
@@ -606,6 +1193,13 @@ public class WSDLReaderImpl implements WSDLReader
       {
         if (parseSchema)
         {
+          // Record the position of the schema, as it can't be worked out
+          // from the siblings left once earlier schemas are removed.
+          if (lazySchemas)
+          {
+            tempEl.setUserData(ELEMENT_INDEX_KEY, new Integer(index), null);
+          }
+
       	  //the element qname indicates it is a schema.
           types.addExtensibilityElement(
             parseSchema(Types.class, tempEl, def));
@@ -621,7 +1215,8 @@ public class WSDLReaderImpl implements WSDLReader
           parseExtensibilityElement(Types.class, tempEl, def));
       }
 
-      tempEl = DOMUtils.getNextSiblingElement(tempEl);
+      tempEl = nextEl;
+      index++;
     }
 
     parseExtensibilityAttributes(typesEl, Types.class, types, def);
@@ -643,7 +1238,7 @@ public class WSDLReaderImpl implements WSDLReader
 
   	  if (extReg == null)
   	  {
-  	    throw new WSDLException(WSDLException.CONFIGURATION_ERROR,
+  	    throw new LocatedWSDLException(WSDLException.CONFIGURATION_ERROR,
   	                            "No ExtensionRegistry set for this " +
   	                            "Definition, so unable to deserialize " +
   	                            "a '" + elementType + "' element in the " +
@@ -655,10 +1250,7 @@ public class WSDLReaderImpl implements WSDLReader
   	}
   	catch (WSDLException e)
   	{
-      if (e.getLocation() == null)
-      {
-        e.setLocation(XPathUtils.getXPathExprFromNode(el));
-      }
+      LocatedWSDLException.setLocation(e, el);
        
   	  throw e;
   	}
@@ -729,6 +1321,11 @@ public class WSDLReaderImpl implements WSDLReader
   	
   	  allSchemaRefs.addAll(schema.getIncludes());
   	  allSchemaRefs.addAll(schema.getRedefines());
+
+  	  if (prefetcher != null && parallelSchemas && loc == null)
+  	  {
+  	    prefetchSchemas(schema, allSchemaRefs);
+  	  }
   	      
   	  //Then, retrieve the schema referred to by each schema reference. If the 
   	  //schema has been read in previously, use the existing schema object. 
@@ -761,6 +1358,7 @@ public class WSDLReaderImpl implements WSDLReader
   	  	      
   	      InputStream inputStream = null;
   	      InputSource inputSource = null;
+  	      Document prefetchedDoc = null;
   	  	      
   	      //This is the child schema referred to by the schemaReference
   	      Schema referencedSchema = null;
@@ -776,7 +1374,7 @@ public class WSDLReaderImpl implements WSDLReader
   	    
   	  	    if (inputSource == null)
   	  	    {
-  	  	      throw new WSDLException(WSDLException.OTHER_ERROR,
+  	  	      throw new LocatedWSDLException(WSDLException.OTHER_ERROR,
   	                    "Unable to locate with a locator "
                         + "the schema referenced at '"
   	  	                + schemaRef.getSchemaLocationURI() 
@@ -799,7 +1397,22 @@ public class WSDLReaderImpl implements WSDLReader
     	    //if a schema from this location has been retrieved previously, use it.
   	  	    referencedSchema = (Schema) this.allSchemas.get(location);
 
-  	  	    if (referencedSchema == null)
+  	  	    if (referencedSchema == null && documentCache != null)
+  	  	    {
+  	  	      referencedSchema = getCachedSchema(location);
+
+  	  	      if (referencedSchema != null)
+  	  	      {
+  	  	        registerSchemas(location, referencedSchema);
+  	  	      }
+  	  	    }
+
+  	  	    if (referencedSchema == null && prefetcher != null)
+  	  	    {
+  	  	      prefetchedDoc = prefetcher.take(location);
+  	  	    }
+
+  	  	    if (referencedSchema == null && prefetchedDoc == null)
   	  	    {
   	  	      // We haven't read this schema in before so do it now
               inputStream = StringUtils.getContentAsInputStream(url);
@@ -811,7 +1424,7 @@ public class WSDLReaderImpl implements WSDLReader
             
               if (inputSource == null)
               {
-                throw new WSDLException(WSDLException.OTHER_ERROR,
+                throw new LocatedWSDLException(WSDLException.OTHER_ERROR,
   	  	                  "Unable to locate with a url "
   	                      + "the document referenced at '"
   	                      + schemaRef.getSchemaLocationURI()
@@ -826,8 +1439,18 @@ public class WSDLReaderImpl implements WSDLReader
   	      // If we have not previously read the schema, get its DOM element now.
   	      if (referencedSchema == null)
   	      {
-  	        inputSource.setSystemId(location);
-  	  	    Document doc = getDocument(inputSource, location);
+  	  	    Document doc = prefetchedDoc;
+
+  	  	    if (doc == null)
+  	  	    {
+  	          inputSource.setSystemId(location);
+  	  	      doc = getDocument(inputSource, location);
+  	  	    }
+
+  	  	    if (loc == null)
+  	  	    {
+  	  	      setSourceURI(doc, location);
+  	  	    }
 
   	  	    if (inputStream != null)
   	  	    {
@@ -865,6 +1488,11 @@ public class WSDLReaderImpl implements WSDLReader
   	  	                                               documentElement, 
   	  	                                               dummyDef,
   	  	                                               extReg);
+
+  	  	      if (documentCache != null && loc == null)
+  	  	      {
+  	  	        documentCache.put(location, referencedSchema);
+  	  	      }
   	  	    }
   	  	
   	      } //end if referencedSchema
@@ -881,7 +1509,7 @@ public class WSDLReaderImpl implements WSDLReader
             }
   	    catch (Exception e)
   	    {
-              throw new WSDLException(WSDLException.OTHER_ERROR,
+              throw new LocatedWSDLException(WSDLException.OTHER_ERROR,
   	                "An error occurred trying to resolve schema referenced at '" 
   	  	            + schemaRef.getSchemaLocationURI() 
   	  	            + "'"
@@ -892,150 +1520,321 @@ public class WSDLReaderImpl implements WSDLReader
   	    
   	  } //end while loop
 
+  	  if (lazySchemas && schema instanceof SchemaImpl)
+  	  {
+  	    setElementSource((SchemaImpl)schema, el);
+  	  }
+
   	  return schema;
 
 	}
 	catch (WSDLException e)
 	{
-      if (e.getLocation() == null)
-      {
-        e.setLocation(XPathUtils.getXPathExprFromNode(el));
-      }
-      else
-      {
-        //If this method has been called recursively for nested schemas
-        //the exception location must be built up recursively too so
-        //prepend this element's xpath to exception location.
-        String loc = XPathUtils.getXPathExprFromNode(el) + e.getLocation();
-        e.setLocation(loc);
-      }
+      //If this method has been called recursively for nested schemas
+      //the exception location must be built up recursively too so
+      //prepend this element to exception location.
+      LocatedWSDLException.addLocation(e, el);
 
 	  throw e; 
 	}
   	
   }
 
+  /*
+    Record the URI a document the reader retrieved itself was read from,
+    so the schemas in it can be read lazily.
+  */
+  void setSourceURI(Document doc, String uri)
+  {
+    if (lazySchemas)
+    {
+      doc.setUserData(SOURCE_URI_KEY, uri, null);
+    }
+  }
 
-  protected Binding parseBinding(Element bindingEl, Definition def)
-    throws WSDLException
+  /*
+    Let go of the DOM element of a schema that can be parsed again from
+    the document it was read from. The element is removed from the
+    document too, so that other elements of the document kept by the
+    Definition do not keep it alive either.
+  */
+  private void setElementSource(SchemaImpl schema, Element el)
   {
-    Binding binding = null;
-    
-    List remainingAttrs = DOMUtils.getAttributes(bindingEl);
-    String name = DOMUtils.getAttribute(bindingEl, Constants.ATTR_NAME, remainingAttrs);
-    QName portTypeName = getQualifiedAttributeValue(bindingEl,
-                                                    Constants.ATTR_TYPE,
-                                                    Constants.ELEM_BINDING,
-                                                    def,
-                                                    remainingAttrs);
-        
-    PortType portType = null;
+    Document doc = el.getOwnerDocument();
+    String uri = (String)doc.getUserData(SOURCE_URI_KEY);
+    int[] path = (uri != null) ? getElementPath(el) : null;
 
-    if (name != null)
+    if (path == null)
     {
-      QName bindingName = new QName(def.getTargetNamespace(), name);
+      return;
+    }
 
-      binding = def.getBinding(bindingName);
+    schema.setElementSource(new SchemaElementSource(uri,
+                                                    path,
+                                                    getParsingPool()));
+    el.getParentNode().removeChild(el);
+  }
 
-      if (binding == null)
-      {
-        binding = def.createBinding();
-        binding.setQName(bindingName);
-      }
+  /*
+    Get the position of the specified element within its document, as
+    expected by SchemaElementSource, or null if it is not in the document.
+  */
+  private static int[] getElementPath(Element el)
+  {
+    int depth = 0;
+    Node tempNode = el;
+
+    while (tempNode.getParentNode() != null
+           && tempNode.getParentNode().getNodeType() == Node.ELEMENT_NODE)
+    {
+      tempNode = tempNode.getParentNode();
+      depth++;
     }
-    else
+
+    if (tempNode != el.getOwnerDocument().getDocumentElement())
     {
-      binding = def.createBinding();
+      return null;
     }
 
-    // Whether it was retrieved or created, the definition has been found.
-    binding.setUndefined(false);
+    int[] path = new int[depth];
+
+    tempNode = el;
 
-    if (portTypeName != null)
+    for (int i = depth - 1; i >= 0; i--)
     {
-      portType = def.getPortType(portTypeName);
+      path[i] = getElementIndex((Element)tempNode);
+      tempNode = tempNode.getParentNode();
+    }
 
-      if (portType == null)
-      {
-        portType = def.createPortType();
-        portType.setQName(portTypeName);
-        def.addPortType(portType);
-      }
+    return path;
+  }
 
-      binding.setPortType(portType);
-    }
+  /*
+    Get the index of the specified element among the child elements of its
+    parent. Readers that only build parts of a document record the index
+    as user data.
+  */
+  private static int getElementIndex(Element el)
+  {
+    Integer index = (Integer)el.getUserData(ELEMENT_INDEX_KEY);
 
-    //register any NS decls with the Definition
-    NamedNodeMap attrs = bindingEl.getAttributes();
-    registerNSDeclarations(attrs, def);
+    if (index != null)
+    {
+      return index.intValue();
+    }
 
-    Element tempEl = DOMUtils.getFirstChildElement(bindingEl);
+    int count = 0;
 
-    while (tempEl != null)
+    for (Node tempNode = el.getPreviousSibling();
+         tempNode != null;
+         tempNode = tempNode.getPreviousSibling())
     {
-      if (QNameUtils.matches(Constants.Q_ELEM_DOCUMENTATION, tempEl))
-      {
-        binding.setDocumentationElement(tempEl);
-      }
-      else if (QNameUtils.matches(Constants.Q_ELEM_OPERATION, tempEl))
-      {
-        binding.addBindingOperation(parseBindingOperation(tempEl,
-                                                          portType,
-                                                          def));
-      }
-      else
+      if (tempNode.getNodeType() == Node.ELEMENT_NODE)
       {
-        binding.addExtensibilityElement(parseExtensibilityElement(
-          Binding.class, tempEl, def));
+        count++;
       }
-
-      tempEl = DOMUtils.getNextSiblingElement(tempEl);
     }
 
-    parseExtensibilityAttributes(bindingEl, Binding.class, binding, def);
-    
-    return binding;
+    return count;
   }
 
-  protected BindingOperation parseBindingOperation(
-    Element bindingOperationEl,
-    PortType portType,
-    Definition def)
-      throws WSDLException
+  /*
+    Record a cached definition, and the definitions it imports, as having
+    been read, so any further imports of the same documents share them
+    exactly as they would have without the cache.
+  */
+  static void registerImportedDefinitions(String uri,
+                                          Definition def,
+                                          Map importedDefs)
   {
-    BindingOperation bindingOperation = def.createBindingOperation();
-    
-    List remainingAttrs = DOMUtils.getAttributes(bindingOperationEl);
-    String name = DOMUtils.getAttribute(bindingOperationEl,
-                                        Constants.ATTR_NAME,
-                                        remainingAttrs);
-    
-    if (name != null)
+    if (importedDefs.containsKey(uri))
     {
-      bindingOperation.setName(name);
+      return;
     }
 
-    //register any NS decls with the Definition
-    NamedNodeMap attrs = bindingOperationEl.getAttributes();
-    registerNSDeclarations(attrs, def);
+    importedDefs.put(uri, def);
+
+    Iterator importListIterator = def.getImports().values().iterator();
+
+    while (importListIterator.hasNext())
+    {
+      Iterator importIterator = ((List)importListIterator.next()).iterator();
+
+      while (importIterator.hasNext())
+      {
+        Definition importedDef = ((Import)importIterator.next()).getDefinition();
+
+        if (importedDef != null && importedDef.getDocumentBaseURI() != null)
+        {
+          registerImportedDefinitions(importedDef.getDocumentBaseURI(),
+                                      importedDef,
+                                      importedDefs);
+        }
+      }
+    }
+  }
+
+  /*
+    Record a cached schema, and the schemas it references, as having been
+    read.
+  */
+  private void registerSchemas(String uri, Schema schema)
+  {
+    if (allSchemas.containsKey(uri))
+    {
+      return;
+    }
+
+    allSchemas.put(uri, schema);
+
+    List schemaRefs = new ArrayList();
+    Iterator importListIterator = schema.getImports().values().iterator();
+
+    while (importListIterator.hasNext())
+    {
+      schemaRefs.addAll((Collection)importListIterator.next());
+    }
+
+    schemaRefs.addAll(schema.getIncludes());
+    schemaRefs.addAll(schema.getRedefines());
+
+    Iterator schemaRefIterator = schemaRefs.iterator();
+
+    while (schemaRefIterator.hasNext())
+    {
+      Schema referencedSchema =
+        ((SchemaReference)schemaRefIterator.next()).getReferencedSchema();
+
+      if (referencedSchema != null
+          && referencedSchema.getDocumentBaseURI() != null)
+      {
+        registerSchemas(referencedSchema.getDocumentBaseURI(),
+                        referencedSchema);
+      }
+    }
+  }
+
+  Definition getCachedDefinition(String uri)
+  {
+    Object document = documentCache.get(uri);
+
+    return (document instanceof Definition) ? (Definition)document : null;
+  }
+
+  private Schema getCachedSchema(String uri)
+  {
+    Object document = documentCache.get(uri);
+
+    return (document instanceof Schema) ? (Schema)document : null;
+  }
+
+  /*
+    Start retrieving the schema documents referenced by the specified
+    schema, along with the documents they in turn reference, so they are
+    ready by the time parseSchema(...) needs them.
+  */
+  private void prefetchSchemas(Schema schema, List schemaRefs)
+  {
+    String contextURI = schema.getDocumentBaseURI();
+    URL contextURL = null;
+
+    try
+    {
+      contextURL = (contextURI != null)
+                   ? StringUtils.getURL(null, contextURI)
+                   : null;
+    }
+    catch (MalformedURLException e)
+    {
+      return;
+    }
+
+    Iterator schemaRefIterator = schemaRefs.iterator();
+
+    while (schemaRefIterator.hasNext())
+    {
+      SchemaReference schemaRef = (SchemaReference)schemaRefIterator.next();
+      String locationURI = schemaRef.getSchemaLocationURI();
+
+      if (locationURI != null)
+      {
+        try
+        {
+          prefetcher.prefetchSchema(StringUtils.getURL(contextURL, locationURI),
+                                    allSchemas);
+        }
+        catch (MalformedURLException e)
+        {
+          // parseSchema(...) will report this.
+        }
+      }
+    }
+  }
+
+  protected Binding parseBinding(Element bindingEl, Definition def)
+    throws WSDLException
+  {
+    ElementAttributes bindingAttrs = new DOMElementAttributes(bindingEl);
+    PortType portType = getReferencedPortType(bindingAttrs, def);
+    Binding binding = createBinding(bindingAttrs, portType, def);
+
+    Element tempEl = DOMUtils.getFirstChildElement(bindingEl);
+
+    while (tempEl != null)
+    {
+      int kind = getElementKind(tempEl);
+
+      if (kind == ELEM_DOCUMENTATION)
+      {
+        binding.setDocumentationElement(tempEl);
+      }
+      else if (kind == ELEM_OPERATION)
+      {
+        binding.addBindingOperation(parseBindingOperation(tempEl,
+                                                          portType,
+                                                          def));
+      }
+      else
+      {
+        binding.addExtensibilityElement(parseExtensibilityElement(
+          Binding.class, tempEl, def));
+      }
+
+      tempEl = DOMUtils.getNextSiblingElement(tempEl);
+    }
+
+    parseExtensibilityAttributes(bindingEl, Binding.class, binding, def);
+    
+    return binding;
+  }
 
+  protected BindingOperation parseBindingOperation(
+    Element bindingOperationEl,
+    PortType portType,
+    Definition def)
+      throws WSDLException
+  {
+    BindingOperation bindingOperation =
+      createBindingOperation(new DOMElementAttributes(bindingOperationEl), def);
     Element tempEl = DOMUtils.getFirstChildElement(bindingOperationEl);
 
     while (tempEl != null)
     {
-      if (QNameUtils.matches(Constants.Q_ELEM_DOCUMENTATION, tempEl))
+      int kind = getElementKind(tempEl);
+
+      if (kind == ELEM_DOCUMENTATION)
       {
         bindingOperation.setDocumentationElement(tempEl);
       }
-      else if (QNameUtils.matches(Constants.Q_ELEM_INPUT, tempEl))
+      else if (kind == ELEM_INPUT)
       {
         bindingOperation.setBindingInput(parseBindingInput(tempEl, def));
       }
-      else if (QNameUtils.matches(Constants.Q_ELEM_OUTPUT, tempEl))
+      else if (kind == ELEM_OUTPUT)
       {
         bindingOperation.setBindingOutput(parseBindingOutput(tempEl, def));
       }
-      else if (QNameUtils.matches(Constants.Q_ELEM_FAULT, tempEl))
+      else if (kind == ELEM_FAULT)
       {
         bindingOperation.addBindingFault(parseBindingFault(tempEl, def));
       }
@@ -1050,63 +1849,7 @@ public class WSDLReaderImpl implements WSDLReader
 
     if (portType != null)
     {
-      BindingInput bindingInput = bindingOperation.getBindingInput();
-      BindingOutput bindingOutput = bindingOperation.getBindingOutput();
-      String inputName = (bindingInput != null 
-              ? (bindingInput.getName() != null ? bindingInput.getName() : Constants.NONE)
-              : null);
-      String outputName = (bindingOutput != null 
-              ? (bindingOutput.getName() != null ? bindingOutput.getName() : Constants.NONE) 
-              : null);
-      Operation op = portType.getOperation(name, inputName, outputName);
-      
-      /*
-       * If the bindingOp input or output message names are null we will search first
-       * for a porttypeOp with corresponding unnamed input or output messages (using  
-       * Constants.NONE for inputName or outputName, as above). 
-       * However, input and output message names need not be used at all if operation 
-       * overloading is not used, so if no match was found we will try again ignoring 
-       * these unnamed messages from the search criteria (i.e. using null instead of 
-       * Constants.NONE for inputName or outputName).
-       */
-      
-      if(op == null)
-      {
-        if(Constants.NONE.equals(inputName) && Constants.NONE.equals(outputName))
-        {
-          //There was no porttype op with unnamed input and output messages,
-          //so ignore input and output name and search on the op name only.
-          op = portType.getOperation(name, null, null);
-        }
-        else if(Constants.NONE.equals(inputName))
-        {
-          //There was no porttype op with an unnamed input message,
-          //so ignore input name and search on the op name and output name only.
-          op = portType.getOperation(name, null, outputName);
-        }
-        else if(Constants.NONE.equals(outputName))
-        {
-          //There was no porttype op with an unnamed output message,
-          //so ignore output name and search on the op name and input name only.
-          op = portType.getOperation(name, inputName, null);
-        }
-      }
-
-      if (op == null)
-      {
-        Input input = def.createInput();
-        Output output = def.createOutput();
-
-        op = def.createOperation();
-        op.setName(name);
-        input.setName(inputName);
-        output.setName(outputName);
-        op.setInput(input);
-        op.setOutput(output);
-        portType.addOperation(op);
-      }
-
-      bindingOperation.setOperation(op);
+      resolveOperation(bindingOperation, portType, def);
     }
 
     parseExtensibilityAttributes(bindingOperationEl, BindingOperation.class, bindingOperation, def);
@@ -1118,27 +1861,13 @@ public class WSDLReaderImpl implements WSDLReader
                                            Definition def)
                                              throws WSDLException
   {
-    BindingInput bindingInput = def.createBindingInput();
-    
-    List remainingAttrs = DOMUtils.getAttributes(bindingInputEl);
-    String name = DOMUtils.getAttribute(bindingInputEl,
-                                        Constants.ATTR_NAME,
-                                        remainingAttrs);
-    
-    if (name != null)
-    {
-      bindingInput.setName(name);
-    }
-
-    //register any NS decls with the Definition
-    NamedNodeMap attrs = bindingInputEl.getAttributes();
-    registerNSDeclarations(attrs, def);
-
+    BindingInput bindingInput =
+      createBindingInput(new DOMElementAttributes(bindingInputEl), def);
     Element tempEl = DOMUtils.getFirstChildElement(bindingInputEl);
 
     while (tempEl != null)
     {
-      if (QNameUtils.matches(Constants.Q_ELEM_DOCUMENTATION, tempEl))
+      if (getElementKind(tempEl) == ELEM_DOCUMENTATION)
       {
         bindingInput.setDocumentationElement(tempEl);
       }
@@ -1160,27 +1889,13 @@ public class WSDLReaderImpl implements WSDLReader
                                              Definition def)
                                                throws WSDLException
   {
-    BindingOutput bindingOutput = def.createBindingOutput();
-    
-    List remainingAttrs = DOMUtils.getAttributes(bindingOutputEl);
-    String name = DOMUtils.getAttribute(bindingOutputEl,
-                                        Constants.ATTR_NAME,
-                                        remainingAttrs);
-    
-    if (name != null)
-    {
-      bindingOutput.setName(name);
-    }
-
-    //register any NS decls with the Definition
-    NamedNodeMap attrs = bindingOutputEl.getAttributes();
-    registerNSDeclarations(attrs, def);
-
+    BindingOutput bindingOutput =
+      createBindingOutput(new DOMElementAttributes(bindingOutputEl), def);
     Element tempEl = DOMUtils.getFirstChildElement(bindingOutputEl);
 
     while (tempEl != null)
     {
-      if (QNameUtils.matches(Constants.Q_ELEM_DOCUMENTATION, tempEl))
+      if (getElementKind(tempEl) == ELEM_DOCUMENTATION)
       {
         bindingOutput.setDocumentationElement(tempEl);
       }
@@ -1202,27 +1917,13 @@ public class WSDLReaderImpl implements WSDLReader
                                            Definition def)
                                              throws WSDLException
   {
-    BindingFault bindingFault = def.createBindingFault();
-    
-    List remainingAttrs = DOMUtils.getAttributes(bindingFaultEl);
-    String name = DOMUtils.getAttribute(bindingFaultEl,
-                                        Constants.ATTR_NAME,
-                                        remainingAttrs);
-    
-    if (name != null)
-    {
-      bindingFault.setName(name);
-    }
-
-    //register any NS decls with the Definition
-    NamedNodeMap attrs = bindingFaultEl.getAttributes();
-    registerNSDeclarations(attrs, def);
-
+    BindingFault bindingFault =
+      createBindingFault(new DOMElementAttributes(bindingFaultEl), def);
     Element tempEl = DOMUtils.getFirstChildElement(bindingFaultEl);
 
     while (tempEl != null)
     {
-      if (QNameUtils.matches(Constants.Q_ELEM_DOCUMENTATION, tempEl))
+      if (getElementKind(tempEl) == ELEM_DOCUMENTATION)
       {
         bindingFault.setDocumentationElement(tempEl);
       }
@@ -1243,44 +1944,18 @@ public class WSDLReaderImpl implements WSDLReader
   protected Message parseMessage(Element msgEl, Definition def)
     throws WSDLException
   {
-    Message msg = null;
-    
-    List remainingAttrs = DOMUtils.getAttributes(msgEl);
-    String name = DOMUtils.getAttribute(msgEl, Constants.ATTR_NAME, remainingAttrs);
-    
-    if (name != null)
-    {
-      QName messageName = new QName(def.getTargetNamespace(), name);
-
-      msg = def.getMessage(messageName);
-
-      if (msg == null)
-      {
-        msg = def.createMessage();
-        msg.setQName(messageName);
-      }
-    }
-    else
-    {
-      msg = def.createMessage();
-    }
-
-    // Whether it was retrieved or created, the definition has been found.
-    msg.setUndefined(false);
-
-    //register any NS decls with the Definition
-    NamedNodeMap attrs = msgEl.getAttributes();
-    registerNSDeclarations(attrs, def);
-
+    Message msg = createMessage(new DOMElementAttributes(msgEl), def);
     Element tempEl = DOMUtils.getFirstChildElement(msgEl);
 
     while (tempEl != null)
     {
-      if (QNameUtils.matches(Constants.Q_ELEM_DOCUMENTATION, tempEl))
+      int kind = getElementKind(tempEl);
+
+      if (kind == ELEM_DOCUMENTATION)
       {
         msg.setDocumentationElement(tempEl);
       }
-      else if (QNameUtils.matches(Constants.Q_ELEM_PART, tempEl))
+      else if (kind == ELEM_PART)
       {
         msg.addPart(parsePart(tempEl, def));
       }
@@ -1301,41 +1976,12 @@ public class WSDLReaderImpl implements WSDLReader
   protected Part parsePart(Element partEl, Definition def)
     throws WSDLException
   {
-    Part part = def.createPart();
-    String name = DOMUtils.getAttribute(partEl, Constants.ATTR_NAME);
-    QName elementName = getQualifiedAttributeValue(partEl,
-                                                   Constants.ATTR_ELEMENT,
-                                                   Constants.ELEM_MESSAGE,
-                                                   def);
-    QName typeName = getQualifiedAttributeValue(partEl,
-                                                Constants.ATTR_TYPE,
-                                                Constants.ELEM_MESSAGE,
-                                                def);
-
-    if (name != null)
-    {
-      part.setName(name);
-    }
-
-    if (elementName != null)
-    {
-      part.setElementName(elementName);
-    }
-
-    if (typeName != null)
-    {
-      part.setTypeName(typeName);
-    }
-
-    //register any NS decls with the Definition
-    NamedNodeMap attrs = partEl.getAttributes();
-    registerNSDeclarations(attrs, def);
-
+    Part part = createPart(new DOMElementAttributes(partEl), def);
     Element tempEl = DOMUtils.getFirstChildElement(partEl);
 
     while (tempEl != null)
     {
-      if (QNameUtils.matches(Constants.Q_ELEM_DOCUMENTATION, tempEl))
+      if (getElementKind(tempEl) == ELEM_DOCUMENTATION)
       {
         part.setDocumentationElement(tempEl);
       }
@@ -1358,20 +2004,48 @@ public class WSDLReaderImpl implements WSDLReader
                                               AttributeExtensible attrExt,
                                               Definition def)
                                                 throws WSDLException
+  {
+    parseExtensibilityAttributes(new DOMElementAttributes(el),
+                                 parentType,
+                                 attrExt,
+                                 def);
+  }
+
+  protected Object parseExtensibilityAttribute(Element el,
+                                               int attrType,
+                                               String attrValue,
+                                               Definition def)
+                                                 throws WSDLException
+  {
+    return parseAttributeValue(new DOMElementAttributes(el),
+                               attrType,
+                               attrValue,
+                               def);
+  }
+
+  /*
+    Parse the extension attributes of an element, however it is being
+    read. The values of a DOM element's attributes are still parsed by
+    parseExtensibilityAttribute(Element, ...), as subclasses may have
+    overridden it.
+  */
+  void parseExtensibilityAttributes(ElementAttributes el,
+                                    Class parentType,
+                                    AttributeExtensible attrExt,
+                                    Definition def)
+                                      throws WSDLException
   {
     if (attrExt == null) return;
     
     List nativeAttributeNames = attrExt.getNativeAttributeNames();
-    NamedNodeMap nodeMap = el.getAttributes();
-    int length = nodeMap.getLength();
+    int length = el.getAttributeCount();
 
     for (int i = 0; i < length; i++)
     {
-      Attr attribute = (Attr)nodeMap.item(i);
-      String localName = attribute.getLocalName();
-      String namespaceURI = attribute.getNamespaceURI();
-      String prefix = attribute.getPrefix();
-      QName qname = new QName(namespaceURI, localName);
+      String localName = el.getAttributeLocalName(i);
+      String namespaceURI = el.getAttributeNamespaceURI(i);
+      String prefix = el.getAttributePrefix(i);
+      QName qname = QNameUtils.newQName(namespaceURI, localName);
 
       if (namespaceURI != null && !namespaceURI.equals(Constants.NS_URI_WSDL))
       {
@@ -1379,7 +2053,7 @@ public class WSDLReaderImpl implements WSDLReader
         {
           DOMUtils.registerUniquePrefix(prefix, namespaceURI, def);
 
-          String strValue = attribute.getValue();
+          String strValue = el.getAttributeValue(i);
           int attrType = AttributeExtensible.NO_DECLARED_TYPE;
           ExtensionRegistry extReg = def.getExtensionRegistry();
 
@@ -1388,37 +2062,41 @@ public class WSDLReaderImpl implements WSDLReader
             attrType = extReg.queryExtensionAttributeType(parentType, qname);
           }
 
-          Object val = parseExtensibilityAttribute(el, attrType, strValue, def);
+          Object val = (el instanceof DOMElementAttributes)
+                       ? parseExtensibilityAttribute(
+                           ((DOMElementAttributes)el).getElement(),
+                           attrType,
+                           strValue,
+                           def)
+                       : parseAttributeValue(el, attrType, strValue, def);
 
           attrExt.setExtensionAttribute(qname, val);
         }
       }
       else if (!nativeAttributeNames.contains(localName))
       {
-        WSDLException wsdlExc = new WSDLException(WSDLException.INVALID_WSDL,
-                                                  "Encountered illegal " +
-                                                  "extension attribute '" +
-                                                  qname + "'. Extension " +
-                                                  "attributes must be in " +
-                                                  "a namespace other than " +
-                                                  "WSDL's.");
-
-        wsdlExc.setLocation(XPathUtils.getXPathExprFromNode(el));
-
-        throw wsdlExc;
+        throw new LocatedWSDLException(WSDLException.INVALID_WSDL,
+                                       "Encountered illegal " +
+                                       "extension attribute '" +
+                                       qname + "'. Extension " +
+                                       "attributes must be in " +
+                                       "a namespace other than " +
+                                       "WSDL's.",
+                                       null,
+                                       el);
       }
     }
   }
 
-  protected Object parseExtensibilityAttribute(Element el,
-                                               int attrType,
-                                               String attrValue,
-                                               Definition def)
-                                                 throws WSDLException
+  private static Object parseAttributeValue(ElementAttributes el,
+                                            int attrType,
+                                            String attrValue,
+                                            Definition def)
+                                              throws WSDLException
   {
     if (attrType == AttributeExtensible.QNAME_TYPE)
     {
-      return DOMUtils.getQName(attrValue, el, def);
+      return getQName(attrValue, el, def);
     }
     else if (attrType == AttributeExtensible.LIST_OF_STRINGS_TYPE)
     {
@@ -1433,7 +2111,7 @@ public class WSDLReaderImpl implements WSDLReader
       for (int i = 0; i < size; i++)
       {
         String str = (String)oldList.get(i);
-        QName qValue = DOMUtils.getQName(str, el, def);
+        QName qValue = getQName(str, el, def);
 
         newList.add(qValue);
       }
@@ -1450,7 +2128,7 @@ public class WSDLReaderImpl implements WSDLReader
 
       try
       {
-        qValue = DOMUtils.getQName(attrValue, el, def);
+        qValue = getQName(attrValue, el, def);
       }
       catch (WSDLException e)
       {
@@ -1464,42 +2142,19 @@ public class WSDLReaderImpl implements WSDLReader
   protected PortType parsePortType(Element portTypeEl, Definition def)
     throws WSDLException
   {
-    PortType portType = null;
-    String name = DOMUtils.getAttribute(portTypeEl, Constants.ATTR_NAME);
-
-    if (name != null)
-    {
-      QName portTypeName = new QName(def.getTargetNamespace(), name);
-
-      portType = def.getPortType(portTypeName);
-
-      if (portType == null)
-      {
-        portType = def.createPortType();
-        portType.setQName(portTypeName);
-      }
-    }
-    else
-    {
-      portType = def.createPortType();
-    }
-
-    // Whether it was retrieved or created, the definition has been found.
-    portType.setUndefined(false);
-
-    //register any NS decls with the Definition
-    NamedNodeMap attrs = portTypeEl.getAttributes();
-    registerNSDeclarations(attrs, def);
-
+    PortType portType =
+      createPortType(new DOMElementAttributes(portTypeEl), def);
     Element tempEl = DOMUtils.getFirstChildElement(portTypeEl);
 
     while (tempEl != null)
     {
-      if (QNameUtils.matches(Constants.Q_ELEM_DOCUMENTATION, tempEl))
+      int kind = getElementKind(tempEl);
+
+      if (kind == ELEM_DOCUMENTATION)
       {
         portType.setDocumentationElement(tempEl);
       }
-      else if (QNameUtils.matches(Constants.Q_ELEM_OPERATION, tempEl))
+      else if (kind == ELEM_OPERATION)
       {
         Operation op = parseOperation(tempEl, portType, def);
 
@@ -1527,17 +2182,10 @@ public class WSDLReaderImpl implements WSDLReader
                                      Definition def)
                                        throws WSDLException
   {
-    Operation op = null;
-    
-    List remainingAttrs = DOMUtils.getAttributes(opEl);
-    String name = DOMUtils.getAttribute(opEl, Constants.ATTR_NAME, remainingAttrs);
-    String parameterOrderStr = DOMUtils.getAttribute(opEl,
-                                                     Constants.ATTR_PARAMETER_ORDER,
-                                                     remainingAttrs);
-        
+    ElementAttributes opAttrs = new DOMElementAttributes(opEl);
+
     //register any NS decls with the Definition
-    NamedNodeMap attrs = opEl.getAttributes();
-    registerNSDeclarations(attrs, def);
+    registerNSDeclarations(opAttrs, def);
 
     Element tempEl = DOMUtils.getFirstChildElement(opEl);
     List messageOrder = new Vector();
@@ -1546,25 +2194,26 @@ public class WSDLReaderImpl implements WSDLReader
     Output output = null;
     List faults = new Vector();
     List extElements = new Vector();
-    boolean retrieved = true;
 
     while (tempEl != null)
     {
-      if (QNameUtils.matches(Constants.Q_ELEM_DOCUMENTATION, tempEl))
+      int kind = getElementKind(tempEl);
+
+      if (kind == ELEM_DOCUMENTATION)
       {
         docEl = tempEl;
       }
-      else if (QNameUtils.matches(Constants.Q_ELEM_INPUT, tempEl))
+      else if (kind == ELEM_INPUT)
       {
         input = parseInput(tempEl, def);
         messageOrder.add(Constants.ELEM_INPUT);
       }
-      else if (QNameUtils.matches(Constants.Q_ELEM_OUTPUT, tempEl))
+      else if (kind == ELEM_OUTPUT)
       {
         output = parseOutput(tempEl, def);
         messageOrder.add(Constants.ELEM_OUTPUT);
       }
-      else if (QNameUtils.matches(Constants.Q_ELEM_FAULT, tempEl))
+      else if (kind == ELEM_FAULT)
       {
         faults.add(parseFault(tempEl, def));
       }
@@ -1577,141 +2226,28 @@ public class WSDLReaderImpl implements WSDLReader
       tempEl = DOMUtils.getNextSiblingElement(tempEl);
     }
 
-    if (name != null)
+    Operation op = getUndefinedOperation(opAttrs, input, output, portType);
+    boolean retrieved = (op != null);
+
+    if (!retrieved)
     {
-      String inputName = (input != null 
-              ? (input.getName() != null ? input.getName() : Constants.NONE) 
-              : null);
-      String outputName = (output != null 
-              ? (output.getName() != null ? output.getName() : Constants.NONE) 
-              : null);
+      op = createOperation(opAttrs, def);
+    }
 
-      op = portType.getOperation(name, inputName, outputName);
-
-      if (op != null && !op.isUndefined())
-      {
-        op = null;
-      }
-
-      if (op != null)
-      {
-        if (inputName == null)
-        {
-          Input tempIn = op.getInput();
-
-          if (tempIn != null)
-          {
-            if (tempIn.getName() != null)
-            {
-              op = null;
-            }
-          }
-        }
-      }
-
-      if (op != null)
-      {
-        if (outputName == null)
-        {
-          Output tempOut = op.getOutput();
-
-          if (tempOut != null)
-          {
-            if (tempOut.getName() != null)
-            {
-              op = null;
-            }
-          }
-        }
-      }
-
-      if (op == null)
-      {
-        op = def.createOperation();
-        op.setName(name);
-        retrieved = false;
-      }
-    }
-    else
-    {
-      op = def.createOperation();
-      retrieved = false;
-    }
-
-    // Whether it was retrieved or created, the definition has been found.
-    op.setUndefined(false);
-
-    if (parameterOrderStr != null)
-    {
-      op.setParameterOrdering(StringUtils.parseNMTokens(parameterOrderStr));
-    }
-
-    if (docEl != null)
-    {
-      op.setDocumentationElement(docEl);
-    }
-
-    if (input != null)
-    {
-      op.setInput(input);
-    }
-
-    if (output != null)
-    {
-      op.setOutput(output);
-    }
-
-    if (faults.size() > 0)
-    {
-      Iterator faultIterator = faults.iterator();
-
-      while (faultIterator.hasNext())
-      {
-        op.addFault((Fault)faultIterator.next());
-      }
-    }
-
-    if (extElements.size() > 0)
-    {
-      Iterator eeIterator = extElements.iterator();
-      
-      while (eeIterator.hasNext())
-      {
-        op.addExtensibilityElement(
-            (ExtensibilityElement) eeIterator.next() );
-      }
-    }
-    
-    OperationType style = null;
-
-    if (messageOrder.equals(STYLE_ONE_WAY))
-    {
-      style = OperationType.ONE_WAY;
-    }
-    else if (messageOrder.equals(STYLE_REQUEST_RESPONSE))
-    {
-      style = OperationType.REQUEST_RESPONSE;
-    }
-    else if (messageOrder.equals(STYLE_SOLICIT_RESPONSE))
-    {
-      style = OperationType.SOLICIT_RESPONSE;
-    }
-    else if (messageOrder.equals(STYLE_NOTIFICATION))
-    {
-      style = OperationType.NOTIFICATION;
-    }
-
-    if (style != null)
-    {
-      op.setStyle(style);
-    }
-
-    parseExtensibilityAttributes(opEl, Operation.class, op, def);
-    
-    if (retrieved)
-    {
-      op = null;
-    }
+    setOperationContent(op,
+                        opAttrs,
+                        docEl,
+                        input,
+                        output,
+                        faults,
+                        extElements,
+                        messageOrder);
+    parseExtensibilityAttributes(opEl, Operation.class, op, def);
+    
+    if (retrieved)
+    {
+      op = null;
+    }
 
     return op;
   }
@@ -1719,29 +2255,18 @@ public class WSDLReaderImpl implements WSDLReader
   protected Service parseService(Element serviceEl, Definition def)
     throws WSDLException
   {
-    Service service = def.createService();
-    
-    List remainingAttrs = DOMUtils.getAttributes(serviceEl);
-    String name = DOMUtils.getAttribute(serviceEl, Constants.ATTR_NAME, remainingAttrs);
-    
-    if (name != null)
-    {
-      service.setQName(new QName(def.getTargetNamespace(), name));
-    }
-
-    //register any NS decls with the Definition
-    NamedNodeMap attrs = serviceEl.getAttributes();
-    registerNSDeclarations(attrs, def);
-
+    Service service = createService(new DOMElementAttributes(serviceEl), def);
     Element tempEl = DOMUtils.getFirstChildElement(serviceEl);
 
     while (tempEl != null)
     {
-      if (QNameUtils.matches(Constants.Q_ELEM_DOCUMENTATION, tempEl))
+      int kind = getElementKind(tempEl);
+
+      if (kind == ELEM_DOCUMENTATION)
       {
         service.setDocumentationElement(tempEl);
       }
-      else if (QNameUtils.matches(Constants.Q_ELEM_PORT, tempEl))
+      else if (kind == ELEM_PORT)
       {
         service.addPort(parsePort(tempEl, def));
       }
@@ -1762,44 +2287,12 @@ public class WSDLReaderImpl implements WSDLReader
   protected Port parsePort(Element portEl, Definition def)
     throws WSDLException
   {
-    Port port = def.createPort();
-    
-    List remainingAttrs = DOMUtils.getAttributes(portEl);
-    String name = DOMUtils.getAttribute(portEl, Constants.ATTR_NAME, remainingAttrs);
-    QName bindingStr = getQualifiedAttributeValue(portEl,
-                                                  Constants.ATTR_BINDING,
-                                                  Constants.ELEM_PORT,
-                                                  def,
-                                                  remainingAttrs);
-    
-    if (name != null)
-    {
-      port.setName(name);
-    }
-
-    if (bindingStr != null)
-    {
-      Binding binding = def.getBinding(bindingStr);
-
-      if (binding == null)
-      {
-        binding = def.createBinding();
-        binding.setQName(bindingStr);
-        def.addBinding(binding);
-      }
-
-      port.setBinding(binding);
-    }
-
-    //register any NS decls with the Definition
-    NamedNodeMap attrs = portEl.getAttributes();
-    registerNSDeclarations(attrs, def);
-
+    Port port = createPort(new DOMElementAttributes(portEl), def);
     Element tempEl = DOMUtils.getFirstChildElement(portEl);
 
     while (tempEl != null)
     {
-      if (QNameUtils.matches(Constants.Q_ELEM_DOCUMENTATION, tempEl))
+      if (getElementKind(tempEl) == ELEM_DOCUMENTATION)
       {
         port.setDocumentationElement(tempEl);
       }
@@ -1832,7 +2325,7 @@ public class WSDLReaderImpl implements WSDLReader
     {
       if (namespaceURI == null || namespaceURI.equals(Constants.NS_URI_WSDL))
       {
-        throw new WSDLException(WSDLException.INVALID_WSDL,
+        throw new LocatedWSDLException(WSDLException.INVALID_WSDL,
                   "Encountered illegal extension element '" +
                   elementType + 
                   "' in the context of a '" +
@@ -1845,95 +2338,778 @@ public class WSDLReaderImpl implements WSDLReader
 
       if (extReg == null)
       {
-        throw new WSDLException(WSDLException.CONFIGURATION_ERROR,
-                                "No ExtensionRegistry set for this " +
-                                "Definition, so unable to deserialize " +
-                                "a '" + elementType + "' element in the " +
-                                "context of a '" + parentType.getName() +
-                                "'.");
+        throw new LocatedWSDLException(WSDLException.CONFIGURATION_ERROR,
+                                       "No ExtensionRegistry set for this " +
+                                       "Definition, so unable to deserialize " +
+                                       "a '" + elementType + "' element in the " +
+                                       "context of a '" + parentType.getName() +
+                                       "'.");
       }
 
       ExtensionDeserializer extDS = extReg.queryDeserializer(parentType,
                                                              elementType);
-      NamedNodeMap attrs = el.getAttributes();
-      registerNSDeclarations(attrs, def);
+      registerNSDeclarations(new DOMElementAttributes(el), def);
       
       return extDS.unmarshall(parentType, elementType, el, def, extReg);
     }
     catch (WSDLException e)
     {
-      if (e.getLocation() == null)
+      LocatedWSDLException.setLocation(e, el);
+
+      throw e;
+    }
+  }
+
+  /**
+   * Parse the element using the ExtensionRegistry default deserializer instead using the one
+   * registered. The default deserializer will create an UnknownExtensibilityElement from the element. 
+   * @param parentType
+   * @param el
+   * @param def
+   * @return An instance of the default ExtensibilityElement as registered with the ExtensionRegistry 
+   * @throws WSDLException
+   */
+  protected ExtensibilityElement parseExtensibilityElementAsDefaultExtensiblityElement(
+      Class parentType, Element el, Definition def) throws WSDLException
+  {
+    QName elementType = QNameUtils.newQName(el);
+
+    String namespaceURI = el.getNamespaceURI();
+
+    try
+    {
+      if (namespaceURI == null || namespaceURI.equals(Constants.NS_URI_WSDL))
+      {
+        throw new LocatedWSDLException(WSDLException.INVALID_WSDL,
+                   "Encountered illegal extension element '" + elementType
+                       + "' in the context of a '" + parentType.getName()
+                       + "'. Extension elements must be in "
+                       + "a namespace other than WSDL's.");
+      }
+
+      ExtensionRegistry extReg = def.getExtensionRegistry();
+
+      if (extReg == null)
+      {
+        throw new LocatedWSDLException(WSDLException.CONFIGURATION_ERROR,
+                   "No ExtensionRegistry set for this "
+                       + "Definition, so unable to deserialize " + "a '" + elementType
+                       + "' element in the " + "context of a '" + parentType.getName()
+                       + "'.");
+      }
+
+      ExtensionDeserializer extDS = extReg.getDefaultDeserializer();
+      
+      registerNSDeclarations(new DOMElementAttributes(el), def);
+      
+      return extDS.unmarshall(parentType, elementType, el, def, extReg);
+    } catch (WSDLException e)
+    {
+      LocatedWSDLException.setLocation(e, el);
+
+      throw e;
+    }
+  }
+  
+  protected Input parseInput(Element inputEl, Definition def)
+    throws WSDLException
+  {
+    Input input = createInput(new DOMElementAttributes(inputEl), def);
+    Element tempEl = DOMUtils.getFirstChildElement(inputEl);
+
+    while (tempEl != null)
+    {
+      if (getElementKind(tempEl) == ELEM_DOCUMENTATION)
       {
-        e.setLocation(XPathUtils.getXPathExprFromNode(el));
+        input.setDocumentationElement(tempEl);
+      }
+      else
+      {
+        input.addExtensibilityElement(
+          parseExtensibilityElement(Input.class, tempEl, def));
+      }
+
+      tempEl = DOMUtils.getNextSiblingElement(tempEl);
+    }
+
+    parseExtensibilityAttributes(inputEl, Input.class, input, def);
+
+    return input;
+  }
+
+  protected Output parseOutput(Element outputEl, Definition def)
+    throws WSDLException
+  {
+    Output output = createOutput(new DOMElementAttributes(outputEl), def);
+    Element tempEl = DOMUtils.getFirstChildElement(outputEl);
+
+    while (tempEl != null)
+    {
+      if (getElementKind(tempEl) == ELEM_DOCUMENTATION)
+      {
+        output.setDocumentationElement(tempEl);
+      }
+      else
+      {
+        output.addExtensibilityElement(
+          parseExtensibilityElement(Output.class, tempEl, def));
+      }
+
+      tempEl = DOMUtils.getNextSiblingElement(tempEl);
+    }
+
+    parseExtensibilityAttributes(outputEl, Output.class, output, def);
+
+    return output;
+  }
+
+  protected Fault parseFault(Element faultEl, Definition def)
+    throws WSDLException
+  {
+    Fault fault = createFault(new DOMElementAttributes(faultEl), def);
+    Element tempEl = DOMUtils.getFirstChildElement(faultEl);
+
+    while (tempEl != null)
+    {
+      if (getElementKind(tempEl) == ELEM_DOCUMENTATION)
+      {
+        fault.setDocumentationElement(tempEl);
+      }
+      else
+      {
+        fault.addExtensibilityElement(
+            parseExtensibilityElement(Fault.class, tempEl, def));
       }
 
-      throw e;
+      tempEl = DOMUtils.getNextSiblingElement(tempEl);
+    }
+
+    parseExtensibilityAttributes(faultEl, Fault.class, fault, def);
+
+    return fault;
+  }
+
+  /*
+    Create the definition read from the definitions element, setting its
+    name, target namespace and namespaces, and add it to the definitions
+    read so far under its document base URI.
+  */
+  Definition createDefinition(ElementAttributes defEl,
+                              String documentBaseURI,
+                              Map importedDefs)
+                                throws WSDLException
+  {
+    checkElementName(defEl, Constants.Q_ELEM_DEFINITIONS);
+
+    WSDLFactory factory = getWSDLFactory();
+    Definition def = factory.newDefinition();
+
+    if (extReg != null)
+    {
+      def.setExtensionRegistry(extReg);
+    }
+
+    String name = defEl.getAttribute(Constants.ATTR_NAME);
+    String targetNamespace = defEl.getAttribute(Constants.ATTR_TARGET_NAMESPACE);
+
+    if (documentBaseURI != null)
+    {
+      def.setDocumentBaseURI(documentBaseURI);
+      importedDefs.put(documentBaseURI, def);
+    }
+
+    if (name != null)
+    {
+      def.setQName(QNameUtils.newQName(targetNamespace, name));
+    }
+
+    if (targetNamespace != null)
+    {
+      def.setTargetNamespace(targetNamespace);
+    }
+
+    int size = defEl.getAttributeCount();
+
+    for (int i = 0; i < size; i++)
+    {
+      String namespaceURI = defEl.getAttributeNamespaceURI(i);
+      String localPart = defEl.getAttributeLocalName(i);
+      String value = defEl.getAttributeValue(i);
+
+      if (namespaceURI != null && namespaceURI.equals(Constants.NS_URI_XMLNS))
+      {
+        if (localPart != null && !localPart.equals(Constants.ATTR_XMLNS))
+        {
+          def.addNamespace(localPart, value);
+        }
+        else
+        {
+          def.addNamespace(null, value);
+        }
+      }
+    }
+
+    return def;
+  }
+
+  /*
+    The createXXX(ElementAttributes, ...) methods below build the parts
+    of the model from the attributes of the elements defining them, and
+    are shared by the DOM and StAX readers. Each registers the namespaces
+    declared on the element with the definition; the children and
+    extension attributes of the element are left to the reader.
+  */
+
+  static Import createImport(ElementAttributes importEl, Definition def)
+  {
+    Import importDef = def.createImport();
+    String namespaceURI = importEl.getAttribute(Constants.ATTR_NAMESPACE);
+    String locationURI = importEl.getAttribute(Constants.ATTR_LOCATION);
+
+    if (namespaceURI != null)
+    {
+      importDef.setNamespaceURI(namespaceURI);
+    }
+
+    if (locationURI != null)
+    {
+      importDef.setLocationURI(locationURI);
+    }
+
+    return importDef;
+  }
+
+  static Types createTypes(ElementAttributes typesEl, Definition def)
+  {
+    //register any NS decls with the Definition
+    registerNSDeclarations(typesEl, def);
+
+    return def.createTypes();
+  }
+
+  /*
+    Get the port type named by the type attribute of a binding, adding
+    an undefined one to the definition if it hasn't been read yet.
+  */
+  static PortType getReferencedPortType(ElementAttributes bindingEl,
+                                        Definition def)
+                                          throws WSDLException
+  {
+    QName portTypeName = getQualifiedAttributeValue(bindingEl,
+                                                    Constants.ATTR_TYPE,
+                                                    def);
+
+    if (portTypeName == null)
+    {
+      return null;
+    }
+
+    PortType portType = def.getPortType(portTypeName);
+
+    if (portType == null)
+    {
+      portType = def.createPortType();
+      portType.setQName(portTypeName);
+      def.addPortType(portType);
+    }
+
+    return portType;
+  }
+
+  static Binding createBinding(ElementAttributes bindingEl,
+                               PortType portType,
+                               Definition def)
+  {
+    Binding binding = null;
+    String name = bindingEl.getAttribute(Constants.ATTR_NAME);
+
+    if (name != null)
+    {
+      QName bindingName = QNameUtils.newQName(def.getTargetNamespace(), name);
+
+      binding = def.getBinding(bindingName);
+
+      if (binding == null)
+      {
+        binding = def.createBinding();
+        binding.setQName(bindingName);
+      }
+    }
+    else
+    {
+      binding = def.createBinding();
+    }
+
+    // Whether it was retrieved or created, the definition has been found.
+    binding.setUndefined(false);
+
+    if (portType != null)
+    {
+      binding.setPortType(portType);
+    }
+
+    //register any NS decls with the Definition
+    registerNSDeclarations(bindingEl, def);
+
+    return binding;
+  }
+
+  static BindingOperation createBindingOperation(
+    ElementAttributes bindingOperationEl,
+    Definition def)
+  {
+    BindingOperation bindingOperation = def.createBindingOperation();
+    String name = bindingOperationEl.getAttribute(Constants.ATTR_NAME);
+
+    if (name != null)
+    {
+      bindingOperation.setName(name);
+    }
+
+    //register any NS decls with the Definition
+    registerNSDeclarations(bindingOperationEl, def);
+
+    return bindingOperation;
+  }
+
+  /*
+    Set the operation of the port type that the binding operation binds,
+    once its input and output have been read, adding an undefined one to
+    the port type if there is none.
+  */
+  static void resolveOperation(BindingOperation bindingOperation,
+                               PortType portType,
+                               Definition def)
+  {
+    String name = bindingOperation.getName();
+    BindingInput bindingInput = bindingOperation.getBindingInput();
+    BindingOutput bindingOutput = bindingOperation.getBindingOutput();
+    String inputName = (bindingInput != null 
+            ? (bindingInput.getName() != null ? bindingInput.getName() : Constants.NONE)
+            : null);
+    String outputName = (bindingOutput != null 
+            ? (bindingOutput.getName() != null ? bindingOutput.getName() : Constants.NONE) 
+            : null);
+    Operation op = portType.getOperation(name, inputName, outputName);
+    
+    /*
+     * If the bindingOp input or output message names are null we will search first
+     * for a porttypeOp with corresponding unnamed input or output messages (using  
+     * Constants.NONE for inputName or outputName, as above). 
+     * However, input and output message names need not be used at all if operation 
+     * overloading is not used, so if no match was found we will try again ignoring 
+     * these unnamed messages from the search criteria (i.e. using null instead of 
+     * Constants.NONE for inputName or outputName).
+     */
+    
+    if(op == null)
+    {
+      if(Constants.NONE.equals(inputName) && Constants.NONE.equals(outputName))
+      {
+        //There was no porttype op with unnamed input and output messages,
+        //so ignore input and output name and search on the op name only.
+        op = portType.getOperation(name, null, null);
+      }
+      else if(Constants.NONE.equals(inputName))
+      {
+        //There was no porttype op with an unnamed input message,
+        //so ignore input name and search on the op name and output name only.
+        op = portType.getOperation(name, null, outputName);
+      }
+      else if(Constants.NONE.equals(outputName))
+      {
+        //There was no porttype op with an unnamed output message,
+        //so ignore output name and search on the op name and input name only.
+        op = portType.getOperation(name, inputName, null);
+      }
+    }
+
+    if (op == null)
+    {
+      Input input = def.createInput();
+      Output output = def.createOutput();
+
+      op = def.createOperation();
+      op.setName(name);
+      input.setName(inputName);
+      output.setName(outputName);
+      op.setInput(input);
+      op.setOutput(output);
+      portType.addOperation(op);
+    }
+
+    bindingOperation.setOperation(op);
+  }
+
+  static BindingInput createBindingInput(ElementAttributes bindingInputEl,
+                                         Definition def)
+  {
+    BindingInput bindingInput = def.createBindingInput();
+    String name = bindingInputEl.getAttribute(Constants.ATTR_NAME);
+
+    if (name != null)
+    {
+      bindingInput.setName(name);
+    }
+
+    //register any NS decls with the Definition
+    registerNSDeclarations(bindingInputEl, def);
+
+    return bindingInput;
+  }
+
+  static BindingOutput createBindingOutput(ElementAttributes bindingOutputEl,
+                                           Definition def)
+  {
+    BindingOutput bindingOutput = def.createBindingOutput();
+    String name = bindingOutputEl.getAttribute(Constants.ATTR_NAME);
+
+    if (name != null)
+    {
+      bindingOutput.setName(name);
+    }
+
+    //register any NS decls with the Definition
+    registerNSDeclarations(bindingOutputEl, def);
+
+    return bindingOutput;
+  }
+
+  static BindingFault createBindingFault(ElementAttributes bindingFaultEl,
+                                         Definition def)
+  {
+    BindingFault bindingFault = def.createBindingFault();
+    String name = bindingFaultEl.getAttribute(Constants.ATTR_NAME);
+
+    if (name != null)
+    {
+      bindingFault.setName(name);
+    }
+
+    //register any NS decls with the Definition
+    registerNSDeclarations(bindingFaultEl, def);
+
+    return bindingFault;
+  }
+
+  static Message createMessage(ElementAttributes msgEl, Definition def)
+  {
+    Message msg = null;
+    String name = msgEl.getAttribute(Constants.ATTR_NAME);
+
+    if (name != null)
+    {
+      QName messageName = QNameUtils.newQName(def.getTargetNamespace(), name);
+
+      msg = def.getMessage(messageName);
+
+      if (msg == null)
+      {
+        msg = def.createMessage();
+        msg.setQName(messageName);
+      }
+    }
+    else
+    {
+      msg = def.createMessage();
+    }
+
+    // Whether it was retrieved or created, the definition has been found.
+    msg.setUndefined(false);
+
+    //register any NS decls with the Definition
+    registerNSDeclarations(msgEl, def);
+
+    return msg;
+  }
+
+  static Part createPart(ElementAttributes partEl, Definition def)
+    throws WSDLException
+  {
+    Part part = def.createPart();
+    String name = partEl.getAttribute(Constants.ATTR_NAME);
+    QName elementName = getQualifiedAttributeValue(partEl,
+                                                   Constants.ATTR_ELEMENT,
+                                                   def);
+    QName typeName = getQualifiedAttributeValue(partEl,
+                                                Constants.ATTR_TYPE,
+                                                def);
+
+    if (name != null)
+    {
+      part.setName(name);
+    }
+
+    if (elementName != null)
+    {
+      part.setElementName(elementName);
+    }
+
+    if (typeName != null)
+    {
+      part.setTypeName(typeName);
+    }
+
+    //register any NS decls with the Definition
+    registerNSDeclarations(partEl, def);
+
+    return part;
+  }
+
+  static PortType createPortType(ElementAttributes portTypeEl, Definition def)
+  {
+    PortType portType = null;
+    String name = portTypeEl.getAttribute(Constants.ATTR_NAME);
+
+    if (name != null)
+    {
+      QName portTypeName = QNameUtils.newQName(def.getTargetNamespace(), name);
+
+      portType = def.getPortType(portTypeName);
+
+      if (portType == null)
+      {
+        portType = def.createPortType();
+        portType.setQName(portTypeName);
+      }
+    }
+    else
+    {
+      portType = def.createPortType();
+    }
+
+    // Whether it was retrieved or created, the definition has been found.
+    portType.setUndefined(false);
+
+    //register any NS decls with the Definition
+    registerNSDeclarations(portTypeEl, def);
+
+    return portType;
+  }
+
+  /*
+    Get the operation of the port type that was referenced by a binding
+    before the element defining it was read, and that the element with
+    the specified input and output now defines. Returns null if there is
+    none, in which case a new operation should be created.
+  */
+  static Operation getUndefinedOperation(ElementAttributes opEl,
+                                         Input input,
+                                         Output output,
+                                         PortType portType)
+  {
+    String name = opEl.getAttribute(Constants.ATTR_NAME);
+
+    if (name == null)
+    {
+      return null;
+    }
+
+    String inputName = (input != null 
+            ? (input.getName() != null ? input.getName() : Constants.NONE) 
+            : null);
+    String outputName = (output != null 
+            ? (output.getName() != null ? output.getName() : Constants.NONE) 
+            : null);
+    Operation op = portType.getOperation(name, inputName, outputName);
+
+    if (op != null && !op.isUndefined())
+    {
+      op = null;
+    }
+
+    if (op != null)
+    {
+      if (inputName == null)
+      {
+        Input tempIn = op.getInput();
+
+        if (tempIn != null)
+        {
+          if (tempIn.getName() != null)
+          {
+            op = null;
+          }
+        }
+      }
+    }
+
+    if (op != null)
+    {
+      if (outputName == null)
+      {
+        Output tempOut = op.getOutput();
+
+        if (tempOut != null)
+        {
+          if (tempOut.getName() != null)
+          {
+            op = null;
+          }
+        }
+      }
+    }
+
+    return op;
+  }
+
+  static Operation createOperation(ElementAttributes opEl, Definition def)
+  {
+    Operation op = def.createOperation();
+    String name = opEl.getAttribute(Constants.ATTR_NAME);
+
+    if (name != null)
+    {
+      op.setName(name);
+    }
+
+    return op;
+  }
+
+  /*
+    Fill in an operation, whether it was retrieved or created, with what
+    was read from its element. The messageOrder lists the input and
+    output elements in the order they appeared, and determines the style
+    of the operation.
+  */
+  static void setOperationContent(Operation op,
+                                  ElementAttributes opEl,
+                                  Element docEl,
+                                  Input input,
+                                  Output output,
+                                  List faults,
+                                  List extElements,
+                                  List messageOrder)
+  {
+    String parameterOrderStr =
+      opEl.getAttribute(Constants.ATTR_PARAMETER_ORDER);
+
+    // Whether it was retrieved or created, the definition has been found.
+    op.setUndefined(false);
+
+    if (parameterOrderStr != null)
+    {
+      op.setParameterOrdering(StringUtils.parseNMTokens(parameterOrderStr));
+    }
+
+    if (docEl != null)
+    {
+      op.setDocumentationElement(docEl);
+    }
+
+    if (input != null)
+    {
+      op.setInput(input);
+    }
+
+    if (output != null)
+    {
+      op.setOutput(output);
+    }
+
+    if (faults.size() > 0)
+    {
+      Iterator faultIterator = faults.iterator();
+
+      while (faultIterator.hasNext())
+      {
+        op.addFault((Fault)faultIterator.next());
+      }
+    }
+
+    if (extElements.size() > 0)
+    {
+      Iterator eeIterator = extElements.iterator();
+      
+      while (eeIterator.hasNext())
+      {
+        op.addExtensibilityElement(
+            (ExtensibilityElement) eeIterator.next() );
+      }
+    }
+    
+    OperationType style = null;
+
+    if (messageOrder.equals(STYLE_ONE_WAY))
+    {
+      style = OperationType.ONE_WAY;
+    }
+    else if (messageOrder.equals(STYLE_REQUEST_RESPONSE))
+    {
+      style = OperationType.REQUEST_RESPONSE;
+    }
+    else if (messageOrder.equals(STYLE_SOLICIT_RESPONSE))
+    {
+      style = OperationType.SOLICIT_RESPONSE;
+    }
+    else if (messageOrder.equals(STYLE_NOTIFICATION))
+    {
+      style = OperationType.NOTIFICATION;
+    }
+
+    if (style != null)
+    {
+      op.setStyle(style);
     }
   }
 
-  /**
-   * Parse the element using the ExtensionRegistry default deserializer instead using the one
-   * registered. The default deserializer will create an UnknownExtensibilityElement from the element. 
-   * @param parentType
-   * @param el
-   * @param def
-   * @return An instance of the default ExtensibilityElement as registered with the ExtensionRegistry 
-   * @throws WSDLException
-   */
-  protected ExtensibilityElement parseExtensibilityElementAsDefaultExtensiblityElement(
-      Class parentType, Element el, Definition def) throws WSDLException
+  static Service createService(ElementAttributes serviceEl, Definition def)
   {
-    QName elementType = QNameUtils.newQName(el);
-
-    String namespaceURI = el.getNamespaceURI();
+    Service service = def.createService();
+    String name = serviceEl.getAttribute(Constants.ATTR_NAME);
 
-    try
+    if (name != null)
     {
-      if (namespaceURI == null || namespaceURI.equals(Constants.NS_URI_WSDL))
-      {
-        throw new WSDLException(WSDLException.INVALID_WSDL,
-            "Encountered illegal extension element '" + elementType
-                + "' in the context of a '" + parentType.getName()
-                + "'. Extension elements must be in "
-                + "a namespace other than WSDL's.");
-      }
+      service.setQName(QNameUtils.newQName(def.getTargetNamespace(), name));
+    }
 
-      ExtensionRegistry extReg = def.getExtensionRegistry();
+    //register any NS decls with the Definition
+    registerNSDeclarations(serviceEl, def);
 
-      if (extReg == null)
-      {
-        throw new WSDLException(WSDLException.CONFIGURATION_ERROR,
-            "No ExtensionRegistry set for this "
-                + "Definition, so unable to deserialize " + "a '" + elementType
-                + "' element in the " + "context of a '" + parentType.getName()
-                + "'.");
-      }
+    return service;
+  }
 
-      ExtensionDeserializer extDS = extReg.getDefaultDeserializer();
-      
-      NamedNodeMap attrs = el.getAttributes();
-      registerNSDeclarations(attrs, def);
-      
-      return extDS.unmarshall(parentType, elementType, el, def, extReg);
-    } catch (WSDLException e)
+  static Port createPort(ElementAttributes portEl, Definition def)
+    throws WSDLException
+  {
+    Port port = def.createPort();
+    String name = portEl.getAttribute(Constants.ATTR_NAME);
+    QName bindingStr = getQualifiedAttributeValue(portEl,
+                                                  Constants.ATTR_BINDING,
+                                                  def);
+
+    if (name != null)
+    {
+      port.setName(name);
+    }
+
+    if (bindingStr != null)
     {
-      if (e.getLocation() == null)
+      Binding binding = def.getBinding(bindingStr);
+
+      if (binding == null)
       {
-        e.setLocation(XPathUtils.getXPathExprFromNode(el));
+        binding = def.createBinding();
+        binding.setQName(bindingStr);
+        def.addBinding(binding);
       }
 
-      throw e;
+      port.setBinding(binding);
     }
+
+    //register any NS decls with the Definition
+    registerNSDeclarations(portEl, def);
+
+    return port;
   }
-  
-  protected Input parseInput(Element inputEl, Definition def)
+
+  static Input createInput(ElementAttributes inputEl, Definition def)
     throws WSDLException
   {
     Input input = def.createInput();
-    String name = DOMUtils.getAttribute(inputEl, Constants.ATTR_NAME);
+    String name = inputEl.getAttribute(Constants.ATTR_NAME);
     QName messageName = getQualifiedAttributeValue(inputEl,
                                                    Constants.ATTR_MESSAGE,
-                                                   Constants.ELEM_INPUT,
                                                    def);
 
     if (name != null)
@@ -1943,52 +3119,22 @@ public class WSDLReaderImpl implements WSDLReader
 
     if (messageName != null)
     {
-      Message message = def.getMessage(messageName);
-
-      if (message == null)
-      {
-        message = def.createMessage();
-        message.setQName(messageName);
-        def.addMessage(message);
-      }
-
-      input.setMessage(message);
+      input.setMessage(getReferencedMessage(messageName, def));
     }
 
     //register any NS decls with the Definition
-    NamedNodeMap attrs = inputEl.getAttributes();
-    registerNSDeclarations(attrs, def);
-
-    Element tempEl = DOMUtils.getFirstChildElement(inputEl);
-
-    while (tempEl != null)
-    {
-      if (QNameUtils.matches(Constants.Q_ELEM_DOCUMENTATION, tempEl))
-      {
-        input.setDocumentationElement(tempEl);
-      }
-      else
-      {
-        input.addExtensibilityElement(
-          parseExtensibilityElement(Input.class, tempEl, def));
-      }
-
-      tempEl = DOMUtils.getNextSiblingElement(tempEl);
-    }
-
-    parseExtensibilityAttributes(inputEl, Input.class, input, def);
+    registerNSDeclarations(inputEl, def);
 
     return input;
   }
 
-  protected Output parseOutput(Element outputEl, Definition def)
+  static Output createOutput(ElementAttributes outputEl, Definition def)
     throws WSDLException
   {
     Output output = def.createOutput();
-    String name = DOMUtils.getAttribute(outputEl, Constants.ATTR_NAME);
+    String name = outputEl.getAttribute(Constants.ATTR_NAME);
     QName messageName = getQualifiedAttributeValue(outputEl,
                                                    Constants.ATTR_MESSAGE,
-                                                   Constants.ELEM_OUTPUT,
                                                    def);
 
     if (name != null)
@@ -1998,52 +3144,22 @@ public class WSDLReaderImpl implements WSDLReader
 
     if (messageName != null)
     {
-      Message message = def.getMessage(messageName);
-
-      if (message == null)
-      {
-        message = def.createMessage();
-        message.setQName(messageName);
-        def.addMessage(message);
-      }
-
-      output.setMessage(message);
+      output.setMessage(getReferencedMessage(messageName, def));
     }
 
     //register any NS decls with the Definition
-    NamedNodeMap attrs = outputEl.getAttributes();
-    registerNSDeclarations(attrs, def);
-
-    Element tempEl = DOMUtils.getFirstChildElement(outputEl);
-
-    while (tempEl != null)
-    {
-      if (QNameUtils.matches(Constants.Q_ELEM_DOCUMENTATION, tempEl))
-      {
-        output.setDocumentationElement(tempEl);
-      }
-      else
-      {
-        output.addExtensibilityElement(
-          parseExtensibilityElement(Output.class, tempEl, def));
-      }
-
-      tempEl = DOMUtils.getNextSiblingElement(tempEl);
-    }
-
-    parseExtensibilityAttributes(outputEl, Output.class, output, def);
+    registerNSDeclarations(outputEl, def);
 
     return output;
   }
 
-  protected Fault parseFault(Element faultEl, Definition def)
+  static Fault createFault(ElementAttributes faultEl, Definition def)
     throws WSDLException
   {
     Fault fault = def.createFault();
-    String name = DOMUtils.getAttribute(faultEl, Constants.ATTR_NAME);
+    String name = faultEl.getAttribute(Constants.ATTR_NAME);
     QName messageName = getQualifiedAttributeValue(faultEl,
                                                    Constants.ATTR_MESSAGE,
-                                                   Constants.ELEM_FAULT,
                                                    def);
 
     if (name != null)
@@ -2053,68 +3169,58 @@ public class WSDLReaderImpl implements WSDLReader
 
     if (messageName != null)
     {
-      Message message = def.getMessage(messageName);
-
-      if (message == null)
-      {
-        message = def.createMessage();
-        message.setQName(messageName);
-        def.addMessage(message);
-      }
-
-      fault.setMessage(message);
+      fault.setMessage(getReferencedMessage(messageName, def));
     }
 
     //register any NS decls with the Definition
-    NamedNodeMap attrs = faultEl.getAttributes();
-    registerNSDeclarations(attrs, def);
+    registerNSDeclarations(faultEl, def);
 
-    Element tempEl = DOMUtils.getFirstChildElement(faultEl);
+    return fault;
+  }
 
-    while (tempEl != null)
-    {
-      if (QNameUtils.matches(Constants.Q_ELEM_DOCUMENTATION, tempEl))
-      {
-        fault.setDocumentationElement(tempEl);
-      }
-      else
-      {
-        fault.addExtensibilityElement(
-            parseExtensibilityElement(Fault.class, tempEl, def));
-      }
+  /*
+    Get the message with the specified name, adding an undefined one to
+    the definition if it hasn't been read yet.
+  */
+  private static Message getReferencedMessage(QName messageName,
+                                              Definition def)
+  {
+    Message message = def.getMessage(messageName);
 
-      tempEl = DOMUtils.getNextSiblingElement(tempEl);
+    if (message == null)
+    {
+      message = def.createMessage();
+      message.setQName(messageName);
+      def.addMessage(message);
     }
 
-    parseExtensibilityAttributes(faultEl, Fault.class, fault, def);
-
-    return fault;
+    return message;
   }
 
-  /**
-   * This method should be used for elements that support extension
-   * attributes because it does not track unexpected remaining attributes.
-   */
-  private static QName getQualifiedAttributeValue(Element el,
+  /*
+    Get the value of a qualified attribute. A value without a prefix,
+    when no default namespace is declared, is taken to be in no namespace.
+  */
+  private static QName getQualifiedAttributeValue(ElementAttributes el,
                                                   String attrName,
-                                                  String elDesc,
                                                   Definition def)
                                                     throws WSDLException
   {
+    String attrValue = el.getAttribute(attrName);
+
+    if (attrValue == null)
+    {
+      return null;
+    }
+
     try
     {
-      return DOMUtils.getQualifiedAttributeValue(el,
-                                                 attrName,
-                                                 elDesc,
-                                                 false,
-                                                 def);
+      return getQName(attrValue, el, def);
     }
     catch (WSDLException e)
     {
       if (e.getFaultCode().equals(WSDLException.NO_PREFIX_SPECIFIED))
       {
-        String attrValue = DOMUtils.getAttribute(el, attrName);
-
         return new QName(attrValue);
       }
       else
@@ -2123,94 +3229,102 @@ public class WSDLReaderImpl implements WSDLReader
       }
     }
   }
-  
-  /**
-   * This method should be used for elements that do not support extension
-   * attributes because it tracks unexpected remaining attributes.
-   */
-  private static QName getQualifiedAttributeValue(Element el,
-                                                  String attrName,
-                                                  String elDesc,
-                                                  Definition def,
-                                                  List remainingAttrs)
-                                                    throws WSDLException
+
+  /*
+    Equivalent to DOMUtils.getQName(...), for an element however it is
+    being read.
+  */
+  private static QName getQName(String prefixedValue,
+                                ElementAttributes el,
+                                Definition def)
+                                  throws WSDLException
   {
-    try
+    int    index        = prefixedValue.indexOf(':');
+    String prefix       = (index != -1)
+                          ? prefixedValue.substring(0, index)
+                          : null;
+    String localPart    = prefixedValue.substring(index + 1);
+    String namespaceURI = el.getNamespaceURIFromPrefix(prefix);
+
+    if (namespaceURI != null)
     {
-      return DOMUtils.getQualifiedAttributeValue(el,
-                                                 attrName,
-                                                 elDesc,
-                                                 false,
-                                                 def,
-                                                 remainingAttrs);
+      DOMUtils.registerUniquePrefix(prefix, namespaceURI, def);
+
+      return QNameUtils.newQName(namespaceURI, localPart);
     }
-    catch (WSDLException e)
+    else
     {
-      if (e.getFaultCode().equals(WSDLException.NO_PREFIX_SPECIFIED))
-      {
-        String attrValue = DOMUtils.getAttribute(el, attrName, remainingAttrs);
+      String faultCode = (prefix == null)
+                         ? WSDLException.NO_PREFIX_SPECIFIED
+                         : WSDLException.UNBOUND_PREFIX;
 
-        return new QName(attrValue);
-      }
-      else
-      {
-        throw e;
-      }
+      throw new LocatedWSDLException(faultCode,
+                                     "Unable to determine " +
+                                     "namespace of '" +
+                                     prefixedValue + "'.",
+                                     null,
+                                     el);
     }
   }
 
-  private static void checkElementName(Element el, QName qname)
+  static void checkElementName(ElementAttributes el, QName qname)
     throws WSDLException
   {
-    if (!QNameUtils.matches(qname, el))
+    if (!qname.equals(el.getName()))
     {
-      WSDLException wsdlExc = new WSDLException(WSDLException.INVALID_WSDL,
-                                                "Expected element '" +
-                                                qname + "'.");
-
-      wsdlExc.setLocation(XPathUtils.getXPathExprFromNode(el));
-
-      throw wsdlExc;
+      throw new LocatedWSDLException(WSDLException.INVALID_WSDL,
+                                     "Expected element '" + qname + "'.",
+                                     null,
+                                     el);
     }
   }
 
-  private static Document getDocument(InputSource inputSource,
-                                      String desc) throws WSDLException
+  private Document getDocument(InputSource inputSource,
+                               String desc) throws WSDLException
   {
-    DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-
-    factory.setNamespaceAware(true);
-    factory.setValidating(false);
+    return getParsingPool().parse(inputSource, desc);
+  }
 
-    try
+  /*
+    Get the pool to parse documents with, given the current features.
+  */
+  private DocumentBuilderPool getParsingPool()
+  {
+    if (!poolDocumentBuilders)
     {
-      DocumentBuilder builder = factory.newDocumentBuilder();
-      Document doc = builder.parse(inputSource);
-
-      return doc;
+      return lineNumbers
+             ? new LineNumberDocumentBuilderPool(null, 0)
+             : new DocumentBuilderPool(null, 0);
     }
-    catch (RuntimeException e)
+
+    DocumentBuilderPool pool = getDocumentBuilderPool();
+
+    if (!lineNumbers || pool instanceof LineNumberDocumentBuilderPool)
     {
-      throw e;
+      return pool;
     }
-    catch (Exception e)
+
+    if (lineNumberPool == null
+        || lineNumberPool.getDocumentBuilderFactory()
+           != pool.getDocumentBuilderFactory())
     {
-      throw new WSDLException(WSDLException.PARSER_ERROR,
-                                "Problem parsing '" + desc + "'.",
-                                e);
+      lineNumberPool =
+        new LineNumberDocumentBuilderPool(pool.getDocumentBuilderFactory(),
+                                          pool.getMaxIdle());
     }
+
+    return lineNumberPool;
   }
 
-  private static void registerNSDeclarations(NamedNodeMap attrs, Definition def)
+  static void registerNSDeclarations(ElementAttributes el, Definition def)
   {
-      int size = attrs.getLength();
+      int size = el.getAttributeCount();
 
       for (int i = 0; i < size; i++)
       {
-        Attr attr = (Attr)attrs.item(i);
-        String namespaceURI = attr.getNamespaceURI();
-        String localPart = attr.getLocalName();
-        String value = attr.getValue();
+        String namespaceURI = el.getAttributeNamespaceURI(i);
+        String localPart = el.getAttributeLocalName(i);
+        String value = el.getAttributeValue(i);
 
         if (namespaceURI != null && namespaceURI.equals(Constants.NS_URI_XMLNS))
         {
@@ -2267,14 +3381,28 @@ public class WSDLReaderImpl implements WSDLReader
                        ? StringUtils.getURL(null, contextURI)
                        : null;
       URL url = StringUtils.getURL(contextURL, wsdlURI);
+      Definition def = getCachedDefinition(url);
+
+      if (def != null)
+      {
+        return def;
+      }
+
+      long startTime = System.currentTimeMillis();
       InputStream inputStream = StringUtils.getContentAsInputStream(url);
-      InputSource inputSource = new InputSource(inputStream);
-      inputSource.setSystemId(url.toString());
-      Document doc = getDocument(inputSource, url.toString());
 
-      inputStream.close();
+      try
+      {
+        InputSource inputSource = new InputSource(inputStream);
+        inputSource.setSystemId(url.toString());
+        def = readRetrievedDocument(url.toString(), inputSource);
+      }
+      finally
+      {
+        inputStream.close();
+      }
 
-      Definition def = readWSDL(url.toString(), doc);
+      cacheDefinition(url, def, startTime);
 
       return def;
     }
@@ -2298,6 +3426,19 @@ public class WSDLReaderImpl implements WSDLReader
     }
   }
 
+  /*
+    Read a document the reader retrieved itself from the URI.
+  */
+  Definition readRetrievedDocument(String uri, InputSource inputSource)
+    throws WSDLException
+  {
+    Document doc = getDocument(inputSource, uri);
+
+    setSourceURI(doc, uri);
+
+    return readWSDL(uri, doc);
+  }
+
   /**
    * Read the specified &lt;wsdl:definitions&gt; element into a WSDL
    * definition.
@@ -2349,7 +3490,53 @@ public class WSDLReaderImpl implements WSDLReader
                                 Map importedDefs)
                                   throws WSDLException
   {
-    return parseDefinitions(documentBaseURI, definitionsElement, importedDefs);
+    QNamePool previousPool = startInterning();
+
+    try
+    {
+      return readDefinitions(documentBaseURI, definitionsElement, importedDefs);
+    }
+    finally
+    {
+      QNamePool.setThreadPool(previousPool);
+    }
+  }
+
+  /*
+    Set the pool QNames are interned in while reading on this thread, or
+    none if they aren't to be. Returns the pool to set again afterwards.
+  */
+  QNamePool startInterning()
+  {
+    return QNamePool.setThreadPool(internQNames ? getQNamePool() : null);
+  }
+
+  private Definition readDefinitions(String documentBaseURI,
+                                     Element definitionsElement,
+                                     Map importedDefs)
+                                       throws WSDLException
+  {
+    if (importedDefs != null
+        || prefetcher != null
+        || !(parallelImports || parallelSchemas))
+    {
+      return parseDefinitions(documentBaseURI, definitionsElement, importedDefs);
+    }
+
+    // Reading a new top-level document, so prefetch its imports and schemas.
+    prefetcher = new DocumentPrefetcher(getImportExecutor(),
+                                        getParsingPool(),
+                                        documentCache);
+
+    try
+    {
+      return parseDefinitions(documentBaseURI, definitionsElement, importedDefs);
+    }
+    finally
+    {
+      prefetcher.discard();
+      prefetcher = null;
+    }
   }
 
   /**
@@ -2427,4 +3614,79 @@ public class WSDLReaderImpl implements WSDLReader
       this.loc = null;
     }
   }
+
+  /*
+    The name and attributes of a DOM element.
+  */
+  private static class DOMElementAttributes implements ElementAttributes
+  {
+    private final Element el;
+    private final NamedNodeMap attrs;
+
+    DOMElementAttributes(Element el)
+    {
+      this.el = el;
+      this.attrs = el.getAttributes();
+    }
+
+    Element getElement()
+    {
+      return el;
+    }
+
+    public QName getName()
+    {
+      return QNameUtils.newQName(el);
+    }
+
+    public int getAttributeCount()
+    {
+      return attrs.getLength();
+    }
+
+    public String getAttributeNamespaceURI(int index)
+    {
+      return attrs.item(index).getNamespaceURI();
+    }
+
+    public String getAttributeLocalName(int index)
+    {
+      return attrs.item(index).getLocalName();
+    }
+
+    public String getAttributePrefix(int index)
+    {
+      return attrs.item(index).getPrefix();
+    }
+
+    public String getAttributeValue(int index)
+    {
+      return ((Attr)attrs.item(index)).getValue();
+    }
+
+    public String getAttribute(String qualifiedName)
+    {
+      return DOMUtils.getAttribute(el, qualifiedName);
+    }
+
+    public String getNamespaceURIFromPrefix(String prefix)
+    {
+      return DOMUtils.getNamespaceURIFromPrefix(el, prefix);
+    }
+
+    public String getXPath()
+    {
+      return XPathUtils.getXPathExprFromNode(el);
+    }
+
+    public int getLineNumber()
+    {
+      return LineNumberDocumentBuilderPool.getLineNumber(el);
+    }
+
+    public int getColumnNumber()
+    {
+      return LineNumberDocumentBuilderPool.getColumnNumber(el);
+    }
+  }
 }
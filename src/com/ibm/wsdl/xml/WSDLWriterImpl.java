@@ -5,6 +5,7 @@
 package com.ibm.wsdl.xml;
 
 import java.io.*;
+import java.nio.channels.*;
 import java.util.*;
 import javax.xml.namespace.*;
 import javax.xml.parsers.*;
@@ -15,6 +16,7 @@ import javax.wsdl.extensions.*;
 import javax.wsdl.factory.*;
 import javax.wsdl.xml.*;
 import com.ibm.wsdl.*;
+import com.ibm.wsdl.extensions.schema.*;
 import com.ibm.wsdl.util.*;
 import com.ibm.wsdl.util.xml.*;
 
@@ -28,11 +30,42 @@ import com.ibm.wsdl.util.xml.*;
  */
 public class WSDLWriterImpl implements WSDLWriter
 {
+  protected boolean poolDocumentBuilders = true;
+  protected boolean prettyPrint = true;
+  protected DocumentBuilderPool documentBuilderPool = null;
+
   /**
    * Sets the specified feature to the specified value.
    * <p>
    * There are no minimum features that must be supported.
    * <p>
+   * The supported features are:
+   * <p>
+   * <table border=1>
+   *   <tr>
+   *     <th>Name</th>
+   *     <th>Description</th>
+   *     <th>Default Value</th>
+   *   </tr>
+   *   <tr>
+   *     <td><center>com.ibm.wsdl.poolDocumentBuilders</center></td>
+   *     <td>If set to true, getDocument(Definition) will use DocumentBuilders
+   *         taken from a DocumentBuilderPool, either the one set using
+   *         setDocumentBuilderPool(...) or the default pool.</td>
+   *     <td><center>true</center></td>
+   *   </tr>
+   *   <tr>
+   *     <td><center>com.ibm.wsdl.prettyPrint</center></td>
+   *     <td>If set to true, writeWSDL(...) indents the elements and puts
+   *         each on a line of its own. If set to false, it writes no
+   *         whitespace between them, and elements with no content are
+   *         written as empty-element tags. Whitespace between the markup
+   *         printed by extension serializers, or by the printXXX methods
+   *         of subclasses, is left out too.</td>
+   *     <td><center>true</center></td>
+   *   </tr>
+   * </table>
+   * <p>
    * All feature names must be fully-qualified, Java package style. All
    * names starting with javax.wsdl. are reserved for features defined
    * by the JWSDL specification. It is recommended that implementation-
@@ -51,6 +84,15 @@ public class WSDLWriterImpl implements WSDLWriter
     {
       throw new IllegalArgumentException("Feature name must not be null.");
     }
+
+    if (name.equals(Constants.FEATURE_POOL_DOCUMENT_BUILDERS))
+    {
+      poolDocumentBuilders = value;
+    }
+    else if (name.equals(Constants.FEATURE_PRETTY_PRINT))
+    {
+      prettyPrint = value;
+    }
     else
     {
       throw new IllegalArgumentException("Feature name '" + name +
@@ -72,6 +114,15 @@ public class WSDLWriterImpl implements WSDLWriter
     {
       throw new IllegalArgumentException("Feature name must not be null.");
     }
+
+    if (name.equals(Constants.FEATURE_POOL_DOCUMENT_BUILDERS))
+    {
+      return poolDocumentBuilders;
+    }
+    else if (name.equals(Constants.FEATURE_PRETTY_PRINT))
+    {
+      return prettyPrint;
+    }
     else
     {
       throw new IllegalArgumentException("Feature name '" + name +
@@ -79,6 +130,30 @@ public class WSDLWriterImpl implements WSDLWriter
     }
   }
 
+  /**
+   * Set the pool of DocumentBuilders used by getDocument(Definition).
+   * Default is null, in which case the default pool is used.
+   *
+   * @param pool the pool of DocumentBuilders to use
+   */
+  public void setDocumentBuilderPool(DocumentBuilderPool pool)
+  {
+    documentBuilderPool = pool;
+  }
+
+  /**
+   * Get the pool of DocumentBuilders used by getDocument(Definition).
+   *
+   * @return the pool set using setDocumentBuilderPool(...), or the
+   * default pool if none has been set
+   */
+  public DocumentBuilderPool getDocumentBuilderPool()
+  {
+    return (documentBuilderPool != null)
+           ? documentBuilderPool
+           : DocumentBuilderPool.getDefaultPool();
+  }
+
   protected void printDefinition(Definition def, PrintWriter pw)
     throws WSDLException
   {
@@ -100,12 +175,10 @@ public class WSDLWriterImpl implements WSDLWriter
       def.addNamespace(prefix, Constants.NS_URI_WSDL);
     }
 
-    String tagName =
-      DOMUtils.getQualifiedValue(Constants.NS_URI_WSDL,
-                                 Constants.ELEM_DEFINITIONS,
-                                 def);
+    XMLSink sink = XMLSink.getSink(pw);
+    String tagName = getTagName(Constants.ELEM_DEFINITIONS, def);
 
-    pw.print('<' + tagName);
+    sink.startElement(tagName);
 
     QName name = def.getQName();
     String targetNamespace = def.getTargetNamespace();
@@ -113,18 +186,16 @@ public class WSDLWriterImpl implements WSDLWriter
 
     if (name != null)
     {
-      DOMUtils.printAttribute(Constants.ATTR_NAME, name.getLocalPart(), pw);
+      attribute(sink, Constants.ATTR_NAME, name.getLocalPart());
     }
 
-    DOMUtils.printAttribute(Constants.ATTR_TARGET_NAMESPACE,
-                            targetNamespace,
-                            pw);
+    attribute(sink, Constants.ATTR_TARGET_NAMESPACE, targetNamespace);
 
     printExtensibilityAttributes(Definition.class, def, def, pw);
     
     printNamespaceDeclarations(namespaces, pw);
 
-    pw.println('>');
+    newline(sink);
 
     printDocumentation(def.getDocumentationElement(), def, pw);
     printImports(def.getImports(), def, pw);
@@ -138,7 +209,8 @@ public class WSDLWriterImpl implements WSDLWriter
 
     printExtensibilityElements(Definition.class, extElements, def, pw);
 
-    pw.println("</" + tagName + '>');
+    sink.endElement(tagName);
+    newline(sink);
 
     pw.flush();
   }
@@ -150,30 +222,26 @@ public class WSDLWriterImpl implements WSDLWriter
   {
     if (services != null)
     {
-      String tagName =
-        DOMUtils.getQualifiedValue(Constants.NS_URI_WSDL,
-                                   Constants.ELEM_SERVICE,
-                                   def);
+      XMLSink sink = XMLSink.getSink(pw);
+      String tagName = getTagName(Constants.ELEM_SERVICE, def);
       Iterator serviceIterator = services.values().iterator();
 
       while (serviceIterator.hasNext())
       {
         Service service = (Service)serviceIterator.next();
 
-        pw.print("  <" + tagName);
+        startElement(sink, "  ", tagName);
 
         QName name = service.getQName();
 
         if (name != null)
         {
-          DOMUtils.printAttribute(Constants.ATTR_NAME,
-                                  name.getLocalPart(),
-                                  pw);
+          attribute(sink, Constants.ATTR_NAME, name.getLocalPart());
         }
 
         printExtensibilityAttributes(Service.class, service, def, pw);
         
-        pw.println('>');
+        newline(sink);
 
         printDocumentation(service.getDocumentationElement(), def, pw);
         printPorts(service.getPorts(), def, pw);
@@ -182,7 +250,7 @@ public class WSDLWriterImpl implements WSDLWriter
 
         printExtensibilityElements(Service.class, extElements, def, pw);
 
-        pw.println("  </" + tagName + '>');
+        endElement(sink, "  ", tagName);
       }
     }
   }
@@ -192,33 +260,28 @@ public class WSDLWriterImpl implements WSDLWriter
   {
     if (ports != null)
     {
-      String tagName =
-        DOMUtils.getQualifiedValue(Constants.NS_URI_WSDL,
-                                   Constants.ELEM_PORT,
-                                   def);
+      XMLSink sink = XMLSink.getSink(pw);
+      String tagName = getTagName(Constants.ELEM_PORT, def);
       Iterator portIterator = ports.values().iterator();
 
       while (portIterator.hasNext())
       {
         Port port = (Port)portIterator.next();
 
-        pw.print("    <" + tagName);
+        startElement(sink, "    ", tagName);
 
-        DOMUtils.printAttribute(Constants.ATTR_NAME, port.getName(), pw);
+        attribute(sink, Constants.ATTR_NAME, port.getName());
 
         Binding binding = port.getBinding();
 
         if (binding != null)
         {
-          DOMUtils.printQualifiedAttribute(Constants.ATTR_BINDING,
-                                           binding.getQName(),
-                                           def,
-                                           pw);
+          attribute(sink, Constants.ATTR_BINDING, binding.getQName(), def);
         }
 
         printExtensibilityAttributes(Port.class, port, def, pw);
         
-        pw.println('>');
+        newline(sink);
 
         printDocumentation(port.getDocumentationElement(), def, pw);
 
@@ -226,7 +289,7 @@ public class WSDLWriterImpl implements WSDLWriter
 
         printExtensibilityElements(Port.class, extElements, def, pw);
 
-        pw.println("    </" + tagName + '>');
+        endElement(sink, "    ", tagName);
       }
     }
   }
@@ -238,10 +301,8 @@ public class WSDLWriterImpl implements WSDLWriter
   {
     if (bindings != null)
     {
-      String tagName =
-        DOMUtils.getQualifiedValue(Constants.NS_URI_WSDL,
-                                   Constants.ELEM_BINDING,
-                                   def);
+      XMLSink sink = XMLSink.getSink(pw);
+      String tagName = getTagName(Constants.ELEM_BINDING, def);
       Iterator bindingIterator = bindings.values().iterator();
 
       while (bindingIterator.hasNext())
@@ -250,28 +311,23 @@ public class WSDLWriterImpl implements WSDLWriter
 
         if (!binding.isUndefined())
         {
-          pw.print("  <" + tagName);
+          startElement(sink, "  ", tagName);
 
           QName name = binding.getQName();
 
           if (name != null)
           {
-            DOMUtils.printAttribute(Constants.ATTR_NAME,
-                                    name.getLocalPart(),
-                                    pw);
+            attribute(sink, Constants.ATTR_NAME, name.getLocalPart());
           }
 
           PortType portType = binding.getPortType();
 
           if (portType != null)
           {
-            DOMUtils.printQualifiedAttribute(Constants.ATTR_TYPE,
-                                             portType.getQName(),
-                                             def,
-                                             pw);
+            attribute(sink, Constants.ATTR_TYPE, portType.getQName(), def);
           }
 
-          pw.println('>');
+          newline(sink);
 
           printDocumentation(binding.getDocumentationElement(), def, pw);
 
@@ -281,7 +337,7 @@ public class WSDLWriterImpl implements WSDLWriter
 
           printBindingOperations(binding.getBindingOperations(), def, pw);
 
-          pw.println("  </" + tagName + '>');
+          endElement(sink, "  ", tagName);
         }
       }
     }
@@ -294,10 +350,8 @@ public class WSDLWriterImpl implements WSDLWriter
   {
     if (bindingOperations != null)
     {
-      String tagName =
-        DOMUtils.getQualifiedValue(Constants.NS_URI_WSDL,
-                                   Constants.ELEM_OPERATION,
-                                   def);
+      XMLSink sink = XMLSink.getSink(pw);
+      String tagName = getTagName(Constants.ELEM_OPERATION, def);
       Iterator bindingOperationIterator = bindingOperations.iterator();
 
       while (bindingOperationIterator.hasNext())
@@ -305,15 +359,13 @@ public class WSDLWriterImpl implements WSDLWriter
         BindingOperation bindingOperation =
           (BindingOperation)bindingOperationIterator.next();
 
-        pw.print("    <" + tagName);
+        startElement(sink, "    ", tagName);
 
-        DOMUtils.printAttribute(Constants.ATTR_NAME,
-                                bindingOperation.getName(),
-                                pw);
+        attribute(sink, Constants.ATTR_NAME, bindingOperation.getName());
         
         printExtensibilityAttributes(BindingOperation.class, bindingOperation, def, pw);
 
-        pw.println('>');
+        newline(sink);
 
         printDocumentation(bindingOperation.getDocumentationElement(), def, pw);
 
@@ -328,7 +380,7 @@ public class WSDLWriterImpl implements WSDLWriter
         printBindingOutput(bindingOperation.getBindingOutput(), def, pw);
         printBindingFaults(bindingOperation.getBindingFaults(), def, pw);
 
-        pw.println("    </" + tagName + '>');
+        endElement(sink, "    ", tagName);
       }
     }
   }
@@ -340,20 +392,16 @@ public class WSDLWriterImpl implements WSDLWriter
   {
     if (bindingInput != null)
     {
-      String tagName =
-        DOMUtils.getQualifiedValue(Constants.NS_URI_WSDL,
-                                   Constants.ELEM_INPUT,
-                                   def);
+      XMLSink sink = XMLSink.getSink(pw);
+      String tagName = getTagName(Constants.ELEM_INPUT, def);
 
-      pw.print("      <" + tagName);
+      startElement(sink, "      ", tagName);
 
-      DOMUtils.printAttribute(Constants.ATTR_NAME,
-                              bindingInput.getName(),
-                              pw);
+      attribute(sink, Constants.ATTR_NAME, bindingInput.getName());
 
       printExtensibilityAttributes(BindingInput.class, bindingInput, def, pw);
       
-      pw.println('>');
+      newline(sink);
 
       printDocumentation(bindingInput.getDocumentationElement(), def, pw);
 
@@ -361,7 +409,7 @@ public class WSDLWriterImpl implements WSDLWriter
 
       printExtensibilityElements(BindingInput.class, extElements, def, pw);
 
-      pw.println("      </" + tagName + '>');
+      endElement(sink, "      ", tagName);
     }
   }
 
@@ -372,18 +420,14 @@ public class WSDLWriterImpl implements WSDLWriter
   {
     if (bindingOutput != null)
     {
-      String tagName =
-        DOMUtils.getQualifiedValue(Constants.NS_URI_WSDL,
-                                   Constants.ELEM_OUTPUT,
-                                   def);
+      XMLSink sink = XMLSink.getSink(pw);
+      String tagName = getTagName(Constants.ELEM_OUTPUT, def);
 
-      pw.print("      <" + tagName);
+      startElement(sink, "      ", tagName);
 
-      DOMUtils.printAttribute(Constants.ATTR_NAME,
-                              bindingOutput.getName(),
-                              pw);
+      attribute(sink, Constants.ATTR_NAME, bindingOutput.getName());
 
-      pw.println('>');
+      newline(sink);
 
       printDocumentation(bindingOutput.getDocumentationElement(), def, pw);
 
@@ -391,7 +435,7 @@ public class WSDLWriterImpl implements WSDLWriter
 
       printExtensibilityElements(BindingOutput.class, extElements, def, pw);
 
-      pw.println("      </" + tagName + '>');
+      endElement(sink, "      ", tagName);
     }
   }
 
@@ -402,25 +446,21 @@ public class WSDLWriterImpl implements WSDLWriter
   {
     if (bindingFaults != null)
     {
-      String tagName =
-        DOMUtils.getQualifiedValue(Constants.NS_URI_WSDL,
-                                   Constants.ELEM_FAULT,
-                                   def);
+      XMLSink sink = XMLSink.getSink(pw);
+      String tagName = getTagName(Constants.ELEM_FAULT, def);
       Iterator bindingFaultIterator = bindingFaults.values().iterator();
 
       while (bindingFaultIterator.hasNext())
       {
         BindingFault bindingFault = (BindingFault)bindingFaultIterator.next();
 
-        pw.print("      <" + tagName);
+        startElement(sink, "      ", tagName);
 
-        DOMUtils.printAttribute(Constants.ATTR_NAME,
-                                bindingFault.getName(),
-                                pw);
+        attribute(sink, Constants.ATTR_NAME, bindingFault.getName());
         
         printExtensibilityAttributes(BindingFault.class, bindingFault, def, pw);
 
-        pw.println('>');
+        newline(sink);
 
         printDocumentation(bindingFault.getDocumentationElement(), def, pw);
 
@@ -428,7 +468,7 @@ public class WSDLWriterImpl implements WSDLWriter
 
         printExtensibilityElements(BindingFault.class, extElements, def, pw);
 
-        pw.println("      </" + tagName + '>');
+        endElement(sink, "      ", tagName);
       }
     }
   }
@@ -440,10 +480,8 @@ public class WSDLWriterImpl implements WSDLWriter
   {
     if (portTypes != null)
     {
-      String tagName =
-        DOMUtils.getQualifiedValue(Constants.NS_URI_WSDL,
-                                   Constants.ELEM_PORT_TYPE,
-                                   def);
+      XMLSink sink = XMLSink.getSink(pw);
+      String tagName = getTagName(Constants.ELEM_PORT_TYPE, def);
       Iterator portTypeIterator = portTypes.values().iterator();
 
       while (portTypeIterator.hasNext())
@@ -452,20 +490,18 @@ public class WSDLWriterImpl implements WSDLWriter
 
         if (!portType.isUndefined())
         {
-          pw.print("  <" + tagName);
+          startElement(sink, "  ", tagName);
 
           QName name = portType.getQName();
 
           if (name != null)
           {
-            DOMUtils.printAttribute(Constants.ATTR_NAME,
-                                    name.getLocalPart(),
-                                    pw);
+            attribute(sink, Constants.ATTR_NAME, name.getLocalPart());
           }
 
           printExtensibilityAttributes(PortType.class, portType, def, pw);
 
-          pw.println('>');
+          newline(sink);
 
           printDocumentation(portType.getDocumentationElement(), def, pw);
           printOperations(portType.getOperations(), def, pw);
@@ -473,7 +509,7 @@ public class WSDLWriterImpl implements WSDLWriter
           List extElements = portType.getExtensibilityElements();
           printExtensibilityElements(PortType.class, extElements, def, pw);
           
-          pw.println("  </" + tagName + '>');
+          endElement(sink, "  ", tagName);
         }
       }
     }
@@ -486,10 +522,8 @@ public class WSDLWriterImpl implements WSDLWriter
   {
     if (operations != null)
     {
-      String tagName =
-        DOMUtils.getQualifiedValue(Constants.NS_URI_WSDL,
-                                   Constants.ELEM_OPERATION,
-                                   def);
+      XMLSink sink = XMLSink.getSink(pw);
+      String tagName = getTagName(Constants.ELEM_OPERATION, def);
       Iterator operationIterator = operations.iterator();
 
       while (operationIterator.hasNext())
@@ -498,18 +532,15 @@ public class WSDLWriterImpl implements WSDLWriter
 
         if (!operation.isUndefined())
         {
-          pw.print("    <" + tagName);
+          startElement(sink, "    ", tagName);
 
-          DOMUtils.printAttribute(Constants.ATTR_NAME,
-                                  operation.getName(),
-                                  pw);
-          DOMUtils.printAttribute(Constants.ATTR_PARAMETER_ORDER,
-                   StringUtils.getNMTokens(operation.getParameterOrdering()),
-                   pw);
+          attribute(sink, Constants.ATTR_NAME, operation.getName());
+          attribute(sink, Constants.ATTR_PARAMETER_ORDER,
+                    StringUtils.getNMTokens(operation.getParameterOrdering()));
 
           printExtensibilityAttributes(Operation.class, operation, def, pw);
           
-          pw.println('>');
+          newline(sink);
 
           printDocumentation(operation.getDocumentationElement(), def, pw);
 
@@ -541,7 +572,7 @@ public class WSDLWriterImpl implements WSDLWriter
           
           printExtensibilityElements(Operation.class, extElements, def, pw);
 
-          pw.println("    </" + tagName + '>');
+          endElement(sink, "    ", tagName);
         }
       }
     }
@@ -554,28 +585,23 @@ public class WSDLWriterImpl implements WSDLWriter
   {
     if (input != null)
     {
-      String tagName =
-        DOMUtils.getQualifiedValue(Constants.NS_URI_WSDL,
-                                   Constants.ELEM_INPUT,
-                                   def);
+      XMLSink sink = XMLSink.getSink(pw);
+      String tagName = getTagName(Constants.ELEM_INPUT, def);
 
-      pw.print("      <" + tagName);
+      startElement(sink, "      ", tagName);
 
-      DOMUtils.printAttribute(Constants.ATTR_NAME, input.getName(), pw);
+      attribute(sink, Constants.ATTR_NAME, input.getName());
 
       Message message = input.getMessage();
 
       if (message != null)
       {
-        DOMUtils.printQualifiedAttribute(Constants.ATTR_MESSAGE,
-                                         message.getQName(),
-                                         def,
-                                         pw);
+        attribute(sink, Constants.ATTR_MESSAGE, message.getQName(), def);
       }
 
       printExtensibilityAttributes(Input.class, input, def, pw);
 
-      pw.println('>');
+      newline(sink);
 
       printDocumentation(input.getDocumentationElement(), def, pw);
 
@@ -583,7 +609,7 @@ public class WSDLWriterImpl implements WSDLWriter
 
       printExtensibilityElements(Input.class, extElements, def, pw);
 
-      pw.println("    </" + tagName + '>');
+      endElement(sink, "    ", tagName);
     }
   }
 
@@ -594,28 +620,23 @@ public class WSDLWriterImpl implements WSDLWriter
   {
     if (output != null)
     {
-      String tagName =
-        DOMUtils.getQualifiedValue(Constants.NS_URI_WSDL,
-                                   Constants.ELEM_OUTPUT,
-                                   def);
+      XMLSink sink = XMLSink.getSink(pw);
+      String tagName = getTagName(Constants.ELEM_OUTPUT, def);
 
-      pw.print("      <" + tagName);
+      startElement(sink, "      ", tagName);
 
-      DOMUtils.printAttribute(Constants.ATTR_NAME, output.getName(), pw);
+      attribute(sink, Constants.ATTR_NAME, output.getName());
 
       Message message = output.getMessage();
 
       if (message != null)
       {
-        DOMUtils.printQualifiedAttribute(Constants.ATTR_MESSAGE,
-                                         message.getQName(),
-                                         def,
-                                         pw);
+        attribute(sink, Constants.ATTR_MESSAGE, message.getQName(), def);
       }
 
       printExtensibilityAttributes(Output.class, output, def, pw);
 
-      pw.println('>');
+      newline(sink);
 
       printDocumentation(output.getDocumentationElement(), def, pw);
 
@@ -623,7 +644,7 @@ public class WSDLWriterImpl implements WSDLWriter
 
       printExtensibilityElements(Output.class, extElements, def, pw);
 
-      pw.println("    </" + tagName + '>');
+      endElement(sink, "    ", tagName);
     }
   }
 
@@ -634,33 +655,28 @@ public class WSDLWriterImpl implements WSDLWriter
   {
     if (faults != null)
     {
-      String tagName =
-        DOMUtils.getQualifiedValue(Constants.NS_URI_WSDL,
-                                   Constants.ELEM_FAULT,
-                                   def);
+      XMLSink sink = XMLSink.getSink(pw);
+      String tagName = getTagName(Constants.ELEM_FAULT, def);
       Iterator faultIterator = faults.values().iterator();
 
       while (faultIterator.hasNext())
       {
         Fault fault = (Fault)faultIterator.next();
 
-        pw.print("      <" + tagName);
+        startElement(sink, "      ", tagName);
 
-        DOMUtils.printAttribute(Constants.ATTR_NAME, fault.getName(), pw);
+        attribute(sink, Constants.ATTR_NAME, fault.getName());
 
         Message message = fault.getMessage();
 
         if (message != null)
         {
-          DOMUtils.printQualifiedAttribute(Constants.ATTR_MESSAGE,
-                                           message.getQName(),
-                                           def,
-                                           pw);
+          attribute(sink, Constants.ATTR_MESSAGE, message.getQName(), def);
         }
 
         printExtensibilityAttributes(Fault.class, fault, def, pw);
 
-        pw.println('>');
+        newline(sink);
 
         printDocumentation(fault.getDocumentationElement(), def, pw);
 
@@ -668,7 +684,7 @@ public class WSDLWriterImpl implements WSDLWriter
 
         printExtensibilityElements(Fault.class, extElements, def, pw);
 
-        pw.println("    </" + tagName + '>');
+        endElement(sink, "    ", tagName);
       }
     }
   }
@@ -680,10 +696,8 @@ public class WSDLWriterImpl implements WSDLWriter
   {
     if (messages != null)
     {
-      String tagName =
-        DOMUtils.getQualifiedValue(Constants.NS_URI_WSDL,
-                                   Constants.ELEM_MESSAGE,
-                                   def);
+      XMLSink sink = XMLSink.getSink(pw);
+      String tagName = getTagName(Constants.ELEM_MESSAGE, def);
       Iterator messageIterator = messages.values().iterator();
 
       while (messageIterator.hasNext())
@@ -692,20 +706,18 @@ public class WSDLWriterImpl implements WSDLWriter
 
         if (!message.isUndefined())
         {
-          pw.print("  <" + tagName);
+          startElement(sink, "  ", tagName);
 
           QName name = message.getQName();
 
           if (name != null)
           {
-            DOMUtils.printAttribute(Constants.ATTR_NAME,
-                                    name.getLocalPart(),
-                                    pw);
+            attribute(sink, Constants.ATTR_NAME, name.getLocalPart());
           }
 
           printExtensibilityAttributes(Message.class, message, def, pw);
           
-          pw.println('>');
+          newline(sink);
 
           printDocumentation(message.getDocumentationElement(), def, pw);
           printParts(message.getOrderedParts(null), def, pw);
@@ -714,7 +726,7 @@ public class WSDLWriterImpl implements WSDLWriter
           
           printExtensibilityElements(Message.class, extElements, def, pw);
 
-          pw.println("  </" + tagName + '>');
+          endElement(sink, "  ", tagName);
         }
       }
     }
@@ -725,31 +737,23 @@ public class WSDLWriterImpl implements WSDLWriter
   {
     if (parts != null)
     {
-      String tagName =
-        DOMUtils.getQualifiedValue(Constants.NS_URI_WSDL,
-                                   Constants.ELEM_PART,
-                                   def);
+      XMLSink sink = XMLSink.getSink(pw);
+      String tagName = getTagName(Constants.ELEM_PART, def);
       Iterator partIterator = parts.iterator();
 
       while (partIterator.hasNext())
       {
         Part part = (Part)partIterator.next();
 
-        pw.print("    <" + tagName);
+        startElement(sink, "    ", tagName);
 
-        DOMUtils.printAttribute(Constants.ATTR_NAME, part.getName(), pw);
-        DOMUtils.printQualifiedAttribute(Constants.ATTR_ELEMENT,
-                                         part.getElementName(),
-                                         def,
-                                         pw);
-        DOMUtils.printQualifiedAttribute(Constants.ATTR_TYPE,
-                                         part.getTypeName(),
-                                         def,
-                                         pw);
+        attribute(sink, Constants.ATTR_NAME, part.getName());
+        attribute(sink, Constants.ATTR_ELEMENT, part.getElementName(), def);
+        attribute(sink, Constants.ATTR_TYPE, part.getTypeName(), def);
 
         printExtensibilityAttributes(Part.class, part, def, pw);
 
-        pw.println('>');
+        newline(sink);
 
         printDocumentation(part.getDocumentationElement(), def, pw);
 
@@ -757,7 +761,7 @@ public class WSDLWriterImpl implements WSDLWriter
 
         printExtensibilityElements(Part.class, extElements, def, pw);
 
-        pw.println("    </" + tagName + '>');
+        endElement(sink, "    ", tagName);
       }
     }
   }
@@ -768,6 +772,7 @@ public class WSDLWriterImpl implements WSDLWriter
                                               PrintWriter pw)
                                                 throws WSDLException
   {
+    XMLSink sink = XMLSink.getSink(pw);
     Map extensionAttributes = attrExt.getExtensionAttributes();
     Iterator attrNames = extensionAttributes.keySet().iterator();
 
@@ -775,76 +780,84 @@ public class WSDLWriterImpl implements WSDLWriter
     {
       QName attrName = (QName)attrNames.next();
       Object attrValue = extensionAttributes.get(attrName);
-      String attrStrValue = null;
-      QName attrQNameValue = null;
 
-      if (attrValue instanceof String)
-      {
-        attrStrValue = (String)attrValue;
-      }
-      else if (attrValue instanceof QName)
-      {
-        attrQNameValue = (QName)attrValue;
-      }
-      else if (attrValue instanceof List)
-      {
-        List attrValueList = (List)attrValue;
-        int size = attrValueList.size();
+      attribute(sink,
+                DOMUtils.getQualifiedValue(attrName.getNamespaceURI(),
+                                           attrName.getLocalPart(),
+                                           def),
+                getExtensionAttributeValue(attrName, attrValue, def));
+    }
+  }
 
-        if (size > 0)
-        {
-          Object tempAttrVal = attrValueList.get(0);
+  /*
+    Get the string to print as the value of an extension attribute.
+  */
+  private static String getExtensionAttributeValue(QName attrName,
+                                                   Object attrValue,
+                                                   Definition def)
+                                                     throws WSDLException
+  {
+    if (attrValue instanceof String)
+    {
+      return (String)attrValue;
+    }
+    else if (attrValue instanceof QName)
+    {
+      QName attrQNameValue = (QName)attrValue;
 
-          if (tempAttrVal instanceof String)
-          {
-            attrStrValue = StringUtils.getNMTokens(attrValueList);
-          }
-          else if (tempAttrVal instanceof QName)
-          {
-            StringBuffer strBuf = new StringBuffer();
+      return DOMUtils.getQualifiedValue(attrQNameValue.getNamespaceURI(),
+                                        attrQNameValue.getLocalPart(),
+                                        def);
+    }
+    else if (attrValue instanceof List)
+    {
+      List attrValueList = (List)attrValue;
+      int size = attrValueList.size();
 
-            for (int i = 0; i < size; i++)
-            {
-              QName tempQName = (QName)attrValueList.get(i);
+      if (size > 0)
+      {
+        Object tempAttrVal = attrValueList.get(0);
 
-              strBuf.append((i > 0 ? " " : "") +
-                            DOMUtils.getQualifiedValue(tempQName.getNamespaceURI(),
-                                                       tempQName.getLocalPart(),
-                                                       def));
-            }
+        if (tempAttrVal instanceof String)
+        {
+          return StringUtils.getNMTokens(attrValueList);
+        }
+        else if (tempAttrVal instanceof QName)
+        {
+          StringBuffer strBuf = new StringBuffer();
 
-            attrStrValue = strBuf.toString();
-          }
-          else
+          for (int i = 0; i < size; i++)
           {
-            throw new WSDLException(WSDLException.CONFIGURATION_ERROR,
-                                    "Unknown type of extension attribute '" +
-                                    attrName + "': " +
-                                    tempAttrVal.getClass().getName());
+            QName tempQName = (QName)attrValueList.get(i);
+
+            strBuf.append((i > 0 ? " " : "") +
+                          DOMUtils.getQualifiedValue(tempQName.getNamespaceURI(),
+                                                     tempQName.getLocalPart(),
+                                                     def));
           }
+
+          return strBuf.toString();
         }
         else
         {
-          attrStrValue = "";
+          throw new WSDLException(WSDLException.CONFIGURATION_ERROR,
+                                  "Unknown type of extension attribute '" +
+                                  attrName + "': " +
+                                  tempAttrVal.getClass().getName());
         }
       }
       else
       {
-        throw new WSDLException(WSDLException.CONFIGURATION_ERROR,
-                                "Unknown type of extension attribute '" +
-                                attrName + "': " +
-                                attrValue.getClass().getName());
-      }
-
-      if (attrQNameValue != null)
-      {
-        DOMUtils.printQualifiedAttribute(attrName, attrQNameValue, def, pw);
-      }
-      else
-      {
-        DOMUtils.printQualifiedAttribute(attrName, attrStrValue, def, pw);
+        return "";
       }
     }
+    else
+    {
+      throw new WSDLException(WSDLException.CONFIGURATION_ERROR,
+                              "Unknown type of extension attribute '" +
+                              attrName + "': " +
+                              attrValue.getClass().getName());
+    }
   }
 
   protected void printDocumentation(Element docElement,
@@ -854,9 +867,11 @@ public class WSDLWriterImpl implements WSDLWriter
   {
     if (docElement != null)
     {
-      DOM2Writer.serializeAsXML(docElement, def.getNamespaces(), pw);
+      XMLSink sink = XMLSink.getSink(pw);
+
+      sink.element(docElement, def.getNamespaces());
 
-      pw.println();
+      newline(sink);
     }
   }
 
@@ -865,15 +880,14 @@ public class WSDLWriterImpl implements WSDLWriter
   {
     if (types != null)
     {
-      String tagName =
-        DOMUtils.getQualifiedValue(Constants.NS_URI_WSDL,
-                                   Constants.ELEM_TYPES,
-                                   def);
-      pw.print("  <" + tagName);
+      XMLSink sink = XMLSink.getSink(pw);
+      String tagName = getTagName(Constants.ELEM_TYPES, def);
+
+      startElement(sink, "  ", tagName);
 
       printExtensibilityAttributes(Types.class, types, def, pw);
       
-      pw.println('>');
+      newline(sink);
 
       printDocumentation(types.getDocumentationElement(), def, pw);
 
@@ -881,7 +895,7 @@ public class WSDLWriterImpl implements WSDLWriter
 
       printExtensibilityElements(Types.class, extElements, def, pw);
 
-      pw.println("  </" + tagName + '>');
+      endElement(sink, "  ", tagName);
     }
   }
 
@@ -890,10 +904,8 @@ public class WSDLWriterImpl implements WSDLWriter
   {
     if (imports != null)
     {
-      String tagName =
-        DOMUtils.getQualifiedValue(Constants.NS_URI_WSDL,
-                                   Constants.ELEM_IMPORT,
-                                   def);
+      XMLSink sink = XMLSink.getSink(pw);
+      String tagName = getTagName(Constants.ELEM_IMPORT, def);
       Iterator importListIterator = imports.values().iterator();
 
       while (importListIterator.hasNext())
@@ -905,18 +917,14 @@ public class WSDLWriterImpl implements WSDLWriter
         {
           Import importDef = (Import)importIterator.next();
 
-          pw.print("  <" + tagName);
+          startElement(sink, "  ", tagName);
 
-          DOMUtils.printAttribute(Constants.ATTR_NAMESPACE,
-                                  importDef.getNamespaceURI(),
-                                  pw);
-          DOMUtils.printAttribute(Constants.ATTR_LOCATION,
-                                  importDef.getLocationURI(),
-                                  pw);
+          attribute(sink, Constants.ATTR_NAMESPACE, importDef.getNamespaceURI());
+          attribute(sink, Constants.ATTR_LOCATION, importDef.getLocationURI());
 
           printExtensibilityAttributes(Import.class, importDef, def, pw);
 
-          pw.println('>');
+          newline(sink);
 
           printDocumentation(importDef.getDocumentationElement(), def, pw);
 
@@ -924,7 +932,7 @@ public class WSDLWriterImpl implements WSDLWriter
 
           printExtensibilityElements(Import.class, extElements, def, pw);
 
-          pw.println("    </" + tagName + '>');
+          endElement(sink, "    ", tagName);
         }
       }
     }
@@ -936,6 +944,7 @@ public class WSDLWriterImpl implements WSDLWriter
   {
     if (namespaces != null)
     {
+      XMLSink sink = XMLSink.getSink(pw);
       Set keys = namespaces.keySet();
       Iterator keyIterator = keys.iterator();
 
@@ -948,10 +957,10 @@ public class WSDLWriterImpl implements WSDLWriter
           prefix = "";
         }
 
-        DOMUtils.printAttribute(Constants.ATTR_XMLNS +
-                                (!prefix.equals("") ? ":" + prefix : ""),
-                                (String)namespaces.get(prefix),
-                                pw);
+        attribute(sink,
+                  Constants.ATTR_XMLNS +
+                  (!prefix.equals("") ? ":" + prefix : ""),
+                  (String)namespaces.get(prefix));
       }
     }
   }
@@ -964,6 +973,7 @@ public class WSDLWriterImpl implements WSDLWriter
   {
     if (extensibilityElements != null)
     {
+      XMLSink sink = XMLSink.getSink(pw);
       Iterator extensibilityElementIterator = extensibilityElements.iterator();
 
       while (extensibilityElementIterator.hasNext())
@@ -972,75 +982,169 @@ public class WSDLWriterImpl implements WSDLWriter
           (ExtensibilityElement)extensibilityElementIterator.next();
         QName elementType = ext.getElementType();
         ExtensionRegistry extReg = def.getExtensionRegistry();
-
-        if (extReg == null)
+        ExtensionSerializer extSer =
+          getExtensionSerializer(parentType, ext, def);
+        Class extSerClass = extSer.getClass();
+
+        /*
+          These two serializers just print the element they hold, so copy
+          it instead.
+        */
+        if ((extSerClass == SchemaSerializer.class
+             && ext instanceof javax.wsdl.extensions.schema.Schema)
+            || (extSerClass == UnknownExtensionSerializer.class
+                && ext instanceof UnknownExtensibilityElement))
         {
-          throw new WSDLException(WSDLException.CONFIGURATION_ERROR,
-                                  "No ExtensionRegistry set for this " +
-                                  "Definition, so unable to serialize a '" +
-                                  elementType +
-                                  "' element in the context of a '" +
-                                  parentType.getName() + "'.");
+          Element el = (ext instanceof UnknownExtensibilityElement)
+            ? ((UnknownExtensibilityElement)ext).getElement()
+            : ((javax.wsdl.extensions.schema.Schema)ext).getElement();
+
+          indent(sink, "    ");
+          sink.element(el, def.getNamespaces());
+          newline(sink);
         }
-        
-        // If the wsdl was parsed using the parseSchema feature set to false
-        // then the extensibility will be an UnknownExtensibilityElement rather 
-        // than a schema. Serialize this using the default serializer.
-        ExtensionSerializer extSer;
-        if (ext instanceof UnknownExtensibilityElement) 
+        else
         {
-          extSer = extReg.getDefaultSerializer();
-        } 
-        else 
-        {        	
-          extSer = extReg.querySerializer(parentType,elementType);
+          sink.extension(extSer, parentType, elementType, ext, def, extReg);
         }
-        extSer.marshall(parentType, elementType, ext, pw, def, extReg);
       }
     }
   }
 
-  private static Document getDocument(InputSource inputSource,
-                                      String desc) throws WSDLException
+  /*
+    Get the serializer to use for an extensibility element.
+  */
+  static ExtensionSerializer getExtensionSerializer(Class parentType,
+                                                    ExtensibilityElement ext,
+                                                    Definition def)
+                                                      throws WSDLException
   {
-    DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+    QName elementType = ext.getElementType();
+    ExtensionRegistry extReg = def.getExtensionRegistry();
 
-    factory.setNamespaceAware(true);
-    factory.setValidating(false);
+    if (extReg == null)
+    {
+      throw new WSDLException(WSDLException.CONFIGURATION_ERROR,
+                              "No ExtensionRegistry set for this " +
+                              "Definition, so unable to serialize a '" +
+                              elementType +
+                              "' element in the context of a '" +
+                              parentType.getName() + "'.");
+    }
 
-    try
+    // If the wsdl was parsed using the parseSchema feature set to false
+    // then the extensibility will be an UnknownExtensibilityElement rather 
+    // than a schema. Serialize this using the default serializer.
+    if (ext instanceof UnknownExtensibilityElement) 
     {
-      DocumentBuilder builder = factory.newDocumentBuilder();
-      Document doc = builder.parse(inputSource);
+      return extReg.getDefaultSerializer();
+    } 
+    else 
+    {        	
+      return extReg.querySerializer(parentType, elementType);
+    }
+  }
+
+  private static String getTagName(String localPart, Definition def)
+    throws WSDLException
+  {
+    return DOMUtils.getQualifiedValue(Constants.NS_URI_WSDL, localPart, def);
+  }
+
+  private static void startElement(XMLSink sink, String indent, String tagName)
+    throws WSDLException
+  {
+    indent(sink, indent);
+    sink.startElement(tagName);
+  }
+
+  private static void endElement(XMLSink sink, String indent, String tagName)
+    throws WSDLException
+  {
+    indent(sink, indent);
+    sink.endElement(tagName);
+    newline(sink);
+  }
 
-      return doc;
+  private static void attribute(XMLSink sink, String name, String value)
+    throws WSDLException
+  {
+    if (value != null)
+    {
+      sink.attribute(name, value);
     }
-    catch (RuntimeException e)
+  }
+
+  private static void attribute(XMLSink sink,
+                                String name,
+                                QName value,
+                                Definition def)
+                                  throws WSDLException
+  {
+    if (value != null)
     {
-      throw e;
+      sink.attribute(name,
+                     DOMUtils.getQualifiedValue(value.getNamespaceURI(),
+                                                value.getLocalPart(),
+                                                def));
     }
-    catch (Exception e)
+  }
+
+  /*
+    Indentation and line ends are only written to pretty sinks.
+  */
+  private static void indent(XMLSink sink, String spaces)
+    throws WSDLException
+  {
+    if (sink.isPretty())
     {
-      throw new WSDLException(WSDLException.PARSER_ERROR,
-                              "Problem parsing '" + desc + "'.",
-                              e);
+      sink.characters(spaces);
+    }
+  }
+
+  private static void newline(XMLSink sink) throws WSDLException
+  {
+    if (sink.isPretty())
+    {
+      sink.characters(StringUtils.lineSeparator);
     }
   }
 
+  private DocumentBuilderPool getPool()
+  {
+    return poolDocumentBuilders
+           ? getDocumentBuilderPool()
+           : new DocumentBuilderPool(null, 0);
+  }
+
   /**
    * Return a document generated from the specified WSDL model.
+   * <p>
+   * The document is built directly from the model, and is the same
+   * as the one obtained by parsing the output of writeWSDL(...).
+   * Extensibility elements whose serializers implement
+   * DOMExtensionSerializer are added to it directly. What other
+   * serializers print, and any markup printed by the printXXX methods
+   * of subclasses, is parsed.
+   *
+   * @see com.ibm.wsdl.extensions.DOMExtensionSerializer
    */
   public Document getDocument(Definition wsdlDef) throws WSDLException
   {
-    StringWriter sw = new StringWriter();
-    PrintWriter pw = new PrintWriter(sw);
+    DocumentBuilderPool pool = getPool();
+    DOMSink sink = new DOMSink(pool.newDocument(), pool);
 
-    writeWSDL(wsdlDef, pw);
+    printDefinition(wsdlDef, sink.getPrintWriter());
 
-    StringReader sr = new StringReader(sw.toString());
-    InputSource is = new InputSource(sr);
+    Document doc = sink.getDocument();
+
+    if (doc.getDocumentElement() == null)
+    {
+      throw new WSDLException(WSDLException.PARSER_ERROR,
+                              "The WSDL document has no root element.");
+    }
 
-    return getDocument(is, "- WSDL Document -");
+    return doc;
   }
 
   /**
@@ -1052,7 +1156,6 @@ public class WSDLWriterImpl implements WSDLWriter
   public void writeWSDL(Definition wsdlDef, Writer sink)
     throws WSDLException
   {
-    PrintWriter pw = new PrintWriter(sink);
     String javaEncoding = (sink instanceof OutputStreamWriter)
                           ? ((OutputStreamWriter)sink).getEncoding()
                           : null;
@@ -1066,11 +1169,7 @@ public class WSDLWriterImpl implements WSDLWriter
                               "wsdl file: '" + javaEncoding + "'.");
     }
 
-    pw.println(Constants.XML_DECL_START +
-               xmlEncoding +
-               Constants.XML_DECL_END);
-
-    printDefinition(wsdlDef, pw);
+    writeWSDL(wsdlDef, sink, xmlEncoding);
   }
 
   /**
@@ -1082,20 +1181,30 @@ public class WSDLWriterImpl implements WSDLWriter
   public void writeWSDL(Definition wsdlDef, OutputStream sink)
     throws WSDLException
   {
-    Writer writer = null;
+    writeWSDL(wsdlDef, new UTF8Writer(sink), "UTF-8");
+  }
 
-    try
-    {
-      writer = new OutputStreamWriter(sink, "UTF8");
-    }
-    catch (UnsupportedEncodingException e)
-    {
-      e.printStackTrace();
+  /**
+   * Write the specified WSDL definition to the specified channel, using
+   * UTF-8. The channel is not closed.
+   *
+   * @param wsdlDef the WSDL definition to be written.
+   * @param sink the channel to write the xml to.
+   */
+  public void writeWSDL(Definition wsdlDef, WritableByteChannel sink)
+    throws WSDLException
+  {
+    writeWSDL(wsdlDef, new UTF8Writer(sink), "UTF-8");
+  }
 
-      writer = new OutputStreamWriter(sink);
-    }
+  private void writeWSDL(Definition wsdlDef, Writer out, String xmlEncoding)
+    throws WSDLException
+  {
+    WriterSink sink = new WriterSink(out, prettyPrint);
 
-    writeWSDL(wsdlDef, writer);
+    sink.xmlDeclaration(xmlEncoding);
+    printDefinition(wsdlDef, sink.getPrintWriter());
+    sink.flush();
   }
 
   /**
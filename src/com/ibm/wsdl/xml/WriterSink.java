@@ -0,0 +1,542 @@
+/*
+ * (c) Copyright IBM Corp 2006
+ */
+
+package com.ibm.wsdl.xml;
+
+import java.io.*;
+import java.util.*;
+import org.w3c.dom.*;
+import javax.wsdl.*;
+import javax.wsdl.extensions.*;
+import javax.xml.namespace.*;
+import com.ibm.wsdl.*;
+import com.ibm.wsdl.util.*;
+import com.ibm.wsdl.util.xml.*;
+
+/**
+ * An XMLSink that writes markup to a Writer, escaping as it goes. With
+ * pretty set to false, elements with no content are written as
+ * empty-element tags, and whitespace between the markup printed by
+ * extension serializers, or by the printXXX methods of subclasses of
+ * WSDLWriterImpl, is left out.
+ *
+ * @see WSDLWriterImpl#writeWSDL(Definition, Writer)
+ */
+class WriterSink extends XMLSink
+{
+  private static final String CDATA_START = "<![CDATA[";
+
+  // Where writeCompact(String) has got to in the printed markup.
+  private static final int TEXT = 0;
+  private static final int LT = 1;
+  private static final int LT_BANG = 2;
+  private static final int LT_BANG_DASH = 3;
+  private static final int TAG = 4;
+  private static final int QUOTED = 5;
+  private static final int COMMENT = 6;
+  private static final int CDATA = 7;
+  private static final int PI = 8;
+
+  private final Writer out;
+  private boolean inStartTag = false;
+
+  // The state of writeCompact(String), kept between calls. Whitespace in
+  // text is held back until it is known whether it is only between
+  // markup; afterMarkup is whether a tag, comment or processing
+  // instruction was the last thing written.
+  private int state = TEXT;
+  private char quote;
+  private int endCount = 0;
+  private boolean afterMarkup = true;
+  private final StringBuffer space = new StringBuffer();
+
+  // Writes straight to the output, for what needn't be compacted.
+  private final PrintWriter outPW;
+
+  WriterSink(Writer out, boolean pretty)
+  {
+    super(pretty);
+    this.out = out;
+    this.outPW = new PrintWriter(new FilterWriter(out)
+    {
+      // Only flush the output when asked to by WSDLWriterImpl.
+      public void flush()
+      {
+      }
+    });
+  }
+
+  void xmlDeclaration(String xmlEncoding) throws WSDLException
+  {
+    try
+    {
+      out.write(Constants.XML_DECL_START);
+      out.write(xmlEncoding);
+      out.write(Constants.XML_DECL_END);
+
+      if (isPretty())
+      {
+        out.write(StringUtils.lineSeparator);
+      }
+    }
+    catch (IOException e)
+    {
+      throw newWSDLException(e);
+    }
+  }
+
+  void startElement(String name) throws WSDLException
+  {
+    flushPrinted();
+
+    try
+    {
+      writeSpace(true);
+      closeStartTag();
+      out.write('<');
+      out.write(name);
+      inStartTag = true;
+    }
+    catch (IOException e)
+    {
+      throw newWSDLException(e);
+    }
+  }
+
+  void attribute(String name, String value) throws WSDLException
+  {
+    flushPrinted();
+
+    try
+    {
+      writeSpace(true);
+      out.write(' ');
+      out.write(name);
+      out.write("=\"");
+      writeAttributeValue(value);
+      out.write('\"');
+    }
+    catch (IOException e)
+    {
+      throw newWSDLException(e);
+    }
+  }
+
+  void endElement(String name) throws WSDLException
+  {
+    flushPrinted();
+
+    try
+    {
+      writeSpace(true);
+
+      if (inStartTag)
+      {
+        out.write("/>");
+        inStartTag = false;
+      }
+      else
+      {
+        out.write("</");
+        out.write(name);
+        out.write('>');
+      }
+    }
+    catch (IOException e)
+    {
+      throw newWSDLException(e);
+    }
+  }
+
+  void characters(String text) throws WSDLException
+  {
+    flushPrinted();
+
+    try
+    {
+      writeSpace(false);
+      closeStartTag();
+      writeText(text);
+    }
+    catch (IOException e)
+    {
+      throw newWSDLException(e);
+    }
+  }
+
+  void cdata(String text) throws WSDLException
+  {
+    write(CDATA_START, text, "]]>", false);
+  }
+
+  void comment(String text) throws WSDLException
+  {
+    write("<!--", text, "-->", true);
+  }
+
+  void processingInstruction(String target, String data)
+    throws WSDLException
+  {
+    write("<?", target, (data != null && data.length() > 0)
+                        ? " " + data + "?>"
+                        : "?>",
+          true);
+  }
+
+  void extension(ExtensionSerializer extSer,
+                 Class parentType,
+                 QName elementType,
+                 ExtensibilityElement ext,
+                 Definition def,
+                 ExtensionRegistry extReg)
+                   throws WSDLException
+  {
+    flushPrinted();
+
+    try
+    {
+      closeStartTag();
+
+      if (isPretty())
+      {
+        writeSpace(true);
+        extSer.marshall(parentType, elementType, ext, outPW, def, extReg);
+        checkError();
+      }
+      else
+      {
+        extSer.marshall(parentType,
+                        elementType,
+                        ext,
+                        getPrintWriter(),
+                        def,
+                        extReg);
+        flushPrinted();
+      }
+    }
+    catch (IOException e)
+    {
+      throw newWSDLException(e);
+    }
+  }
+
+  /**
+   * Write the element the same way DOM2Writer does.
+   */
+  void element(Element el, Map namespaces) throws WSDLException
+  {
+    flushPrinted();
+
+    try
+    {
+      writeSpace(true);
+      closeStartTag();
+
+      DOM2Writer.serializeAsXML(el, namespaces, outPW);
+      checkError();
+    }
+    catch (IOException e)
+    {
+      throw newWSDLException(e);
+    }
+  }
+
+  void printed(String text) throws WSDLException
+  {
+    try
+    {
+      // The start tag is left open for attributes printed after it.
+      if (inStartTag && isAttributes(text))
+      {
+        out.write(text);
+        return;
+      }
+
+      closeStartTag();
+
+      if (isPretty())
+      {
+        out.write(text);
+      }
+      else
+      {
+        writeCompact(text);
+      }
+    }
+    catch (IOException e)
+    {
+      throw newWSDLException(e);
+    }
+  }
+
+  void flush() throws WSDLException
+  {
+    flushPrinted();
+
+    try
+    {
+      out.flush();
+    }
+    catch (IOException e)
+    {
+      throw newWSDLException(e);
+    }
+  }
+
+  private void closeStartTag() throws IOException
+  {
+    if (inStartTag)
+    {
+      out.write('>');
+      inStartTag = false;
+    }
+  }
+
+  private void write(String start, String text, String end, boolean markup)
+    throws WSDLException
+  {
+    flushPrinted();
+
+    try
+    {
+      writeSpace(markup);
+      closeStartTag();
+      out.write(start);
+      out.write(text);
+      out.write(end);
+    }
+    catch (IOException e)
+    {
+      throw newWSDLException(e);
+    }
+  }
+
+  private void checkError() throws IOException
+  {
+    if (outPW.checkError())
+    {
+      throw new IOException("Unable to write to the PrintWriter.");
+    }
+  }
+
+  /*
+    Escape the value the same way DOMUtils.cleanString(String) does,
+    which leaves CDATA sections alone.
+  */
+  private void writeAttributeValue(String value) throws IOException
+  {
+    int len = value.length();
+    int start = 0;
+
+    for (int i = 0; i < len; i++)
+    {
+      char ch = value.charAt(i);
+      String ref;
+
+      switch (ch)
+      {
+        case '&'  : ref = "&amp;";
+                    break;
+        case '\"' : ref = "&quot;";
+                    break;
+        case '\'' : ref = "&apos;";
+                    break;
+        case '>'  : ref = "&gt;";
+                    break;
+        case '<'  :
+                    {
+                      if (value.startsWith("<![CDATA[", i))
+                      {
+                        int end = value.indexOf("]]>", i + 9);
+
+                        i = (end != -1) ? end + 2 : len - 1;
+                        continue;
+                      }
+
+                      ref = "&lt;";
+                    }
+                    break;
+        default   : continue;
+      }
+
+      out.write(value, start, i - start);
+      out.write(ref);
+      start = i + 1;
+    }
+
+    out.write(value, start, len - start);
+  }
+
+  private void writeText(String text) throws IOException
+  {
+    int len = text.length();
+    int start = 0;
+
+    for (int i = 0; i < len; i++)
+    {
+      char ch = text.charAt(i);
+      String ref;
+
+      switch (ch)
+      {
+        case '&'  : ref = "&amp;";
+                    break;
+        case '<'  : ref = "&lt;";
+                    break;
+        case '>'  : ref = "&gt;";
+                    break;
+        default   : continue;
+      }
+
+      out.write(text, start, i - start);
+      out.write(ref);
+      start = i + 1;
+    }
+
+    out.write(text, start, len - start);
+  }
+
+  /*
+    Write the text, leaving out whitespace in text that is only between
+    tags, comments and processing instructions. What has been printed may
+    end anywhere, so the markup the text is in is kept track of between
+    calls.
+  */
+  private void writeCompact(String text) throws IOException
+  {
+    int len = text.length();
+    int start = 0;
+
+    for (int i = 0; i < len; i++)
+    {
+      char ch = text.charAt(i);
+
+      switch (state)
+      {
+        case TEXT :
+        {
+          if (isSpace(ch))
+          {
+            out.write(text, start, i - start);
+            space.append(ch);
+            start = i + 1;
+            break;
+          }
+
+          if (space.length() > 0)
+          {
+            // A CDATA section is text, so keep whitespace next to one.
+            if (ch != '<'
+                || !afterMarkup
+                || CDATA_START.regionMatches(0,
+                                             text,
+                                             i,
+                                             Math.min(len - i,
+                                                      CDATA_START.length())))
+            {
+              out.write(space.toString());
+            }
+
+            space.setLength(0);
+          }
+
+          if (ch == '<')
+          {
+            state = LT;
+          }
+          else
+          {
+            afterMarkup = false;
+          }
+          break;
+        }
+
+        case LT :
+          state = (ch == '!') ? LT_BANG : (ch == '?') ? PI : TAG;
+          break;
+
+        case LT_BANG :
+          state = (ch == '-') ? LT_BANG_DASH : (ch == '[') ? CDATA : TAG;
+          break;
+
+        case LT_BANG_DASH :
+          state = (ch == '-') ? COMMENT : TAG;
+          break;
+
+        case TAG :
+        {
+          if (ch == '\"' || ch == '\'')
+          {
+            quote = ch;
+            state = QUOTED;
+          }
+          else if (ch == '>')
+          {
+            state = TEXT;
+            afterMarkup = true;
+          }
+          break;
+        }
+
+        case QUOTED :
+        {
+          if (ch == quote)
+          {
+            state = TAG;
+          }
+          break;
+        }
+
+        default :
+        {
+          // A comment ends with "-->", a CDATA section with "]]>" and a
+          // processing instruction with "?>".
+          char endChar = (state == COMMENT)
+                         ? '-'
+                         : (state == CDATA) ? ']' : '?';
+
+          if (ch == '>' && endCount >= ((state == PI) ? 1 : 2))
+          {
+            afterMarkup = (state != CDATA);
+            state = TEXT;
+            endCount = 0;
+          }
+          else
+          {
+            endCount = (ch == endChar) ? endCount + 1 : 0;
+          }
+          break;
+        }
+      }
+    }
+
+    out.write(text, start, len - start);
+  }
+
+  /*
+    Write the whitespace held back by writeCompact(String), unless it is
+    only between markup, before the sink writes markup or text of its own.
+  */
+  private void writeSpace(boolean markup) throws IOException
+  {
+    if (space.length() > 0)
+    {
+      if (!markup || !afterMarkup)
+      {
+        out.write(space.toString());
+      }
+
+      space.setLength(0);
+    }
+
+    afterMarkup = markup;
+  }
+
+  private static WSDLException newWSDLException(IOException e)
+  {
+    return new WSDLException(WSDLException.OTHER_ERROR,
+                             "Unable to write the WSDL document.",
+                             e);
+  }
+}
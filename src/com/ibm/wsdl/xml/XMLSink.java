@@ -0,0 +1,331 @@
+/*
+ * (c) Copyright IBM Corp 2006
+ */
+
+package com.ibm.wsdl.xml;
+
+import java.io.*;
+import java.util.*;
+import org.w3c.dom.*;
+import javax.wsdl.*;
+import javax.wsdl.extensions.*;
+import javax.xml.namespace.*;
+import com.ibm.wsdl.util.*;
+import com.ibm.wsdl.util.xml.*;
+
+/**
+ * Receives the XML produced for a WSDL definition by the printXXX
+ * methods of WSDLWriterImpl. Names are qualified names, exactly as they
+ * would be printed; namespace declarations are passed as xmlns
+ * attributes. The attributes of an element follow startElement(), and
+ * come before anything else.
+ * <p>
+ * The printXXX methods are passed the PrintWriter of the sink, so that
+ * subclasses of WSDLWriterImpl that override them, and extension
+ * serializers, can still print markup of their own. What is printed to
+ * it is passed to printed(String) before the next call to the sink.
+ * Attributes printed to it after startElement(), as subclasses that
+ * override printNamespaceDeclarations or printExtensibilityAttributes
+ * may, belong to the start tag.
+ *
+ * @see WSDLWriterImpl
+ */
+abstract class XMLSink
+{
+  private static final String NS_URI_XMLNS = "http://www.w3.org/2000/xmlns/";
+  private static final String NS_URI_XML =
+    "http://www.w3.org/XML/1998/namespace";
+
+  private final boolean pretty;
+  private final StringWriter printedText = new StringWriter();
+  private final SinkPrintWriter pw = new SinkPrintWriter(this, printedText);
+
+  XMLSink(boolean pretty)
+  {
+    this.pretty = pretty;
+  }
+
+  /**
+   * Get the sink that the specified PrintWriter belongs to. A
+   * PrintWriter that doesn't belong to one gets a new sink writing
+   * indented XML to it.
+   */
+  static XMLSink getSink(PrintWriter pw)
+  {
+    return (pw instanceof SinkPrintWriter)
+           ? ((SinkPrintWriter)pw).sink
+           : new WriterSink(pw, true);
+  }
+
+  /**
+   * Whether the elements should be indented and put on lines of their
+   * own.
+   */
+  boolean isPretty()
+  {
+    return pretty;
+  }
+
+  /**
+   * Get the PrintWriter to pass to the printXXX methods.
+   */
+  PrintWriter getPrintWriter()
+  {
+    return pw;
+  }
+
+  abstract void startElement(String name) throws WSDLException;
+
+  abstract void attribute(String name, String value) throws WSDLException;
+
+  abstract void endElement(String name) throws WSDLException;
+
+  abstract void characters(String text) throws WSDLException;
+
+  abstract void cdata(String text) throws WSDLException;
+
+  abstract void comment(String text) throws WSDLException;
+
+  abstract void processingInstruction(String target, String data)
+    throws WSDLException;
+
+  /**
+   * Receive markup printed to the PrintWriter of the sink.
+   */
+  abstract void printed(String text) throws WSDLException;
+
+  /**
+   * Serialize an extensibility element using the specified serializer.
+   */
+  abstract void extension(ExtensionSerializer extSer,
+                          Class parentType,
+                          QName elementType,
+                          ExtensibilityElement ext,
+                          Definition def,
+                          ExtensionRegistry extReg)
+                            throws WSDLException;
+
+  /**
+   * Pass on what has been printed to the PrintWriter of the sink since
+   * this was last called. Each call to the sink should start with this.
+   */
+  void flushPrinted() throws WSDLException
+  {
+    String text = takePrinted();
+
+    if (text != null)
+    {
+      printed(text);
+    }
+  }
+
+  /**
+   * Whether printed text is attributes, the way
+   * DOMUtils.printAttribute(String, String, PrintWriter) prints them,
+   * rather than content: whitespace, followed by a name and '='.
+   */
+  static boolean isAttributes(String text)
+  {
+    int len = text.length();
+    int i = 0;
+
+    while (i < len && isSpace(text.charAt(i)))
+    {
+      i++;
+    }
+
+    int nameStart = i;
+
+    while (i < len && isNameChar(text.charAt(i)))
+    {
+      i++;
+    }
+
+    if (nameStart == 0 || i == nameStart)
+    {
+      return false;
+    }
+
+    while (i < len && isSpace(text.charAt(i)))
+    {
+      i++;
+    }
+
+    return i < len && text.charAt(i) == '=';
+  }
+
+  static boolean isSpace(char ch)
+  {
+    return ch == ' ' || ch == '\t' || ch == '\n' || ch == '\r';
+  }
+
+  static boolean isNameChar(char ch)
+  {
+    return !isSpace(ch) && "<>=/\"'&".indexOf(ch) == -1;
+  }
+
+  /**
+   * Get what has been printed to the PrintWriter of the sink since this
+   * was last called, or null if nothing has.
+   */
+  String takePrinted()
+  {
+    StringBuffer strBuf = printedText.getBuffer();
+
+    if (strBuf.length() == 0)
+    {
+      return null;
+    }
+
+    String text = strBuf.toString();
+
+    strBuf.setLength(0);
+
+    return text;
+  }
+
+  /**
+   * Copy an existing element, declaring any of its prefixes that aren't
+   * declared in the specified map, the same way
+   * DOM2Writer.serializeAsXML(Node, Map, Writer) does.
+   */
+  void element(Element el, Map namespaces) throws WSDLException
+  {
+    flushPrinted();
+
+    NamespaceStack namespaceStack = new NamespaceStack(namespaces);
+
+    namespaceStack.declare("xml", NS_URI_XML);
+
+    node(el, namespaceStack);
+  }
+
+  private void node(Node node, NamespaceStack namespaceStack)
+    throws WSDLException
+  {
+    switch (node.getNodeType())
+    {
+      case Node.ELEMENT_NODE :
+      {
+        int mark = namespaceStack.mark();
+
+        startElement(node.getNodeName());
+
+        if (!isDeclared(node, namespaceStack))
+        {
+          namespaceDecl((Element)node, node, namespaceStack);
+        }
+
+        NamedNodeMap attrs = node.getAttributes();
+        int len = (attrs != null) ? attrs.getLength() : 0;
+
+        for (int i = 0; i < len; i++)
+        {
+          Attr attr = (Attr)attrs.item(i);
+
+          attribute(attr.getNodeName(), attr.getValue());
+
+          if (!isDeclared(attr, namespaceStack))
+          {
+            namespaceDecl(attr.getOwnerElement(), attr, namespaceStack);
+          }
+        }
+
+        for (Node child = node.getFirstChild();
+             child != null;
+             child = child.getNextSibling())
+        {
+          node(child, namespaceStack);
+        }
+
+        endElement(node.getNodeName());
+        namespaceStack.reset(mark);
+        break;
+      }
+
+      case Node.ENTITY_REFERENCE_NODE :
+      {
+        for (Node child = node.getFirstChild();
+             child != null;
+             child = child.getNextSibling())
+        {
+          node(child, namespaceStack);
+        }
+        break;
+      }
+
+      case Node.CDATA_SECTION_NODE :
+      {
+        cdata(node.getNodeValue());
+        break;
+      }
+
+      case Node.TEXT_NODE :
+      {
+        characters(node.getNodeValue());
+        break;
+      }
+
+      case Node.COMMENT_NODE :
+      {
+        comment(node.getNodeValue());
+        break;
+      }
+
+      case Node.PROCESSING_INSTRUCTION_NODE :
+      {
+        processingInstruction(node.getNodeName(), node.getNodeValue());
+        characters(StringUtils.lineSeparator);
+        break;
+      }
+    }
+  }
+
+  private static boolean isDeclared(Node node, NamespaceStack namespaceStack)
+  {
+    String prefix = node.getPrefix();
+    String namespaceURI = node.getNamespaceURI();
+
+    return prefix == null
+           || namespaceURI == null
+           || namespaceURI.equals(namespaceStack.getNamespaceURI(prefix));
+  }
+
+  private void namespaceDecl(Element owner,
+                             Node node,
+                             NamespaceStack namespaceStack)
+                               throws WSDLException
+  {
+    String namespaceURI = node.getNamespaceURI();
+    String prefix = node.getPrefix();
+
+    if (!(namespaceURI.equals(NS_URI_XMLNS) && prefix.equals("xmlns")))
+    {
+      if (DOMUtils.getAttributeNS(owner, NS_URI_XMLNS, prefix) == null)
+      {
+        attribute("xmlns:" + prefix, namespaceURI);
+      }
+    }
+    else
+    {
+      prefix = node.getLocalName();
+      namespaceURI = node.getNodeValue();
+    }
+
+    namespaceStack.declare(prefix, namespaceURI);
+  }
+
+  /*
+    Marks the PrintWriter of a sink, so that the sink can be found again.
+  */
+  private static class SinkPrintWriter extends PrintWriter
+  {
+    final XMLSink sink;
+
+    SinkPrintWriter(XMLSink sink, Writer out)
+    {
+      super(out);
+      this.sink = sink;
+    }
+  }
+}
@@ -0,0 +1,147 @@
+/*
+ * (c) Copyright IBM Corp 2006
+ */
+
+package com.ibm.wsdl;
+
+import java.util.Map;
+
+import javax.wsdl.Binding;
+import javax.wsdl.Definition;
+import javax.wsdl.Import;
+import javax.wsdl.Message;
+import javax.wsdl.factory.WSDLFactory;
+import javax.xml.namespace.QName;
+
+import junit.framework.TestCase;
+
+public class ImportIndexTest extends TestCase
+{
+  private static final String NS = "urn:test";
+
+  private WSDLFactory factory;
+
+  public ImportIndexTest()
+  {
+    super("ImportIndexTest");
+  }
+
+  protected void setUp() throws Exception
+  {
+    factory = WSDLFactory.newInstance();
+  }
+
+  public void testDiamondAndCycle()
+  {
+    Definition a = factory.newDefinition();
+    Definition b = factory.newDefinition();
+    Definition c = factory.newDefinition();
+    Definition d = factory.newDefinition();
+
+    addImport(a, b);
+    addImport(a, c);
+    addImport(b, d);
+    addImport(c, d);
+    addImport(d, a);
+    addBinding(a, "a");
+    addBinding(d, "d");
+    addMessage(d, "m");
+
+    Map allBindings = a.getAllBindings();
+
+    assertEquals(2, allBindings.size());
+    assertEquals(allBindings, a.getAllBindings());
+    assertEquals(2, b.getAllBindings().size());
+    assertNotNull(a.getMessage(new QName(NS, "m")));
+    assertNull(a.getMessage(new QName(NS, "missing")));
+    assertNotNull(d.getBinding(new QName(NS, "a")));
+
+    // The result is a copy, which callers may change.
+    allBindings.clear();
+    assertEquals(2, a.getAllBindings().size());
+  }
+
+  public void testDiamondOrder()
+  {
+    Definition a = factory.newDefinition();
+    Definition b = factory.newDefinition();
+    Definition c = factory.newDefinition();
+    Definition d = factory.newDefinition();
+    QName name = new QName(NS, "m");
+
+    addImport(a, b);
+    addImport(a, c);
+    addImport(b, d);
+    addImport(c, d);
+    addBinding(c, "m");
+    addMessage(c, "m");
+
+    // d comes after c when the imports are walked recursively.
+    Binding binding = addBinding(d, "m");
+    Message message = addMessage(d, "m");
+
+    assertSame(binding, a.getAllBindings().get(name));
+    assertSame(message, a.getMessage(name));
+  }
+
+  public void testChangesAreSeen()
+  {
+    Definition a = factory.newDefinition();
+    Definition b = factory.newDefinition();
+    Import importDef = addImport(a, b);
+    QName name = new QName(NS, "m");
+
+    assertNull(a.getMessage(name));
+    assertEquals(0, a.getAllBindings().size());
+
+    Message message = addMessage(b, "m");
+
+    assertSame(message, a.getMessage(name));
+
+    b.getMessages().remove(name);
+    assertNull(a.getMessage(name));
+
+    addBinding(a, "a");
+    assertEquals(1, a.getAllBindings().size());
+
+    Definition c = factory.newDefinition();
+
+    addBinding(c, "c");
+    importDef.setDefinition(c);
+    assertEquals(2, a.getAllBindings().size());
+
+    a.removeImport(importDef);
+    assertEquals(1, a.getAllBindings().size());
+  }
+
+  private Import addImport(Definition def, Definition importedDef)
+  {
+    Import importDef = def.createImport();
+
+    importDef.setNamespaceURI(NS);
+    importDef.setDefinition(importedDef);
+    def.addImport(importDef);
+
+    return importDef;
+  }
+
+  private Binding addBinding(Definition def, String name)
+  {
+    Binding binding = def.createBinding();
+
+    binding.setQName(new QName(NS, name));
+    def.addBinding(binding);
+
+    return binding;
+  }
+
+  private Message addMessage(Definition def, String name)
+  {
+    Message message = def.createMessage();
+
+    message.setQName(new QName(NS, name));
+    def.addMessage(message);
+
+    return message;
+  }
+}
@@ -0,0 +1,88 @@
+/*
+ * (c) Copyright IBM Corp 2006
+ */
+
+package com.ibm.wsdl;
+
+import java.util.Iterator;
+import java.util.Map;
+
+import javax.wsdl.Definition;
+import javax.wsdl.factory.WSDLFactory;
+
+import junit.framework.TestCase;
+
+public class NamespacePrefixTest extends TestCase
+{
+  private Definition def;
+
+  public NamespacePrefixTest()
+  {
+    super("NamespacePrefixTest");
+  }
+
+  protected void setUp() throws Exception
+  {
+    def = WSDLFactory.newInstance().newDefinition();
+  }
+
+  public void testFirstPrefixWins()
+  {
+    for (int i = 0; i < 20; i++)
+    {
+      def.addNamespace("p" + i, "urn:shared");
+    }
+
+    assertEquals("p0", def.getPrefix("urn:shared"));
+
+    def.addNamespace("p0", "urn:shared");
+    assertEquals("p0", def.getPrefix("urn:shared"));
+
+    def.removeNamespace("p0");
+    assertEquals("p1", def.getPrefix("urn:shared"));
+
+    def.addNamespace("p1", "urn:other");
+    assertEquals("p2", def.getPrefix("urn:shared"));
+    assertEquals("p1", def.getPrefix("urn:other"));
+    assertNull(def.getPrefix("urn:missing"));
+  }
+
+  public void testChangesThroughViews()
+  {
+    Map namespaces = def.getNamespaces();
+
+    def.addNamespace("a", "urn:a");
+    def.addNamespace("b", "urn:b");
+    namespaces.put("c", "urn:c");
+
+    assertEquals("c", def.getPrefix("urn:c"));
+    assertTrue(namespaces.values().contains("urn:c"));
+
+    namespaces.keySet().remove("c");
+    assertNull(def.getPrefix("urn:c"));
+    assertFalse(namespaces.values().contains("urn:c"));
+
+    Iterator entryIterator = namespaces.entrySet().iterator();
+
+    while (entryIterator.hasNext())
+    {
+      Map.Entry entry = (Map.Entry)entryIterator.next();
+
+      if (entry.getKey().equals("a"))
+      {
+        entry.setValue("urn:b");
+      }
+      else
+      {
+        entryIterator.remove();
+      }
+    }
+
+    assertEquals(1, namespaces.size());
+    assertEquals("a", def.getPrefix("urn:b"));
+    assertNull(def.getPrefix("urn:a"));
+
+    namespaces.clear();
+    assertNull(def.getPrefix("urn:b"));
+  }
+}
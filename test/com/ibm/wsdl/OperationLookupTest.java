@@ -0,0 +1,203 @@
+/*
+ * (c) Copyright IBM Corp 2006
+ */
+
+package com.ibm.wsdl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import javax.wsdl.Binding;
+import javax.wsdl.BindingOperation;
+import javax.wsdl.Definition;
+import javax.wsdl.Input;
+import javax.wsdl.Operation;
+import javax.wsdl.OperationType;
+import javax.wsdl.Output;
+import javax.wsdl.PortType;
+import javax.wsdl.factory.WSDLFactory;
+import javax.xml.namespace.QName;
+
+import junit.framework.TestCase;
+
+public class OperationLookupTest extends TestCase
+{
+  private Definition def;
+
+  public OperationLookupTest()
+  {
+    super("OperationLookupTest");
+  }
+
+  protected void setUp() throws Exception
+  {
+    def = WSDLFactory.newInstance().newDefinition();
+  }
+
+  public void testOverloadedOperations()
+  {
+    PortType portType = def.createPortType();
+    Operation op1 = createOperation("op", "in1", null);
+    Operation op2 = createOperation("op", null, null);
+
+    portType.addOperation(createOperation("other", null, null));
+    portType.addOperation(op1);
+    portType.addOperation(op2);
+
+    assertSame(op1, portType.getOperation("op", "in1", null));
+    assertSame(op2, portType.getOperation("op", Constants.NONE, null));
+    assertSame(op2, portType.getOperation("op", "opRequest", "opResponse"));
+    assertNull(portType.getOperation("op", "in2", null));
+    assertNull(portType.getOperation("missing", null, null));
+
+    try
+    {
+      portType.getOperation("op", null, null);
+      fail("Expected an IllegalArgumentException.");
+    }
+    catch (IllegalArgumentException e)
+    {
+    }
+
+    assertSame(op1, portType.removeOperation("op", "in1", null));
+    assertSame(op2, portType.getOperation("op", null, null));
+  }
+
+  public void testListChanges()
+  {
+    PortType portType = def.createPortType();
+    Operation op1 = createOperation("op1", null, null);
+    Operation op2 = createOperation("op2", null, null);
+
+    portType.addOperation(op1);
+    assertSame(op1, portType.getOperation("op1", null, null));
+
+    portType.getOperations().set(0, op2);
+    assertNull(portType.getOperation("op1", null, null));
+    assertSame(op2, portType.getOperation("op2", null, null));
+
+    op2.setName("renamed");
+    assertNull(portType.getOperation("op2", null, null));
+    assertSame(op2, portType.getOperation("renamed", null, null));
+
+    portType.getOperations().clear();
+    assertNull(portType.getOperation("renamed", null, null));
+  }
+
+  public void testBindingOperations()
+  {
+    PortType portType = def.createPortType();
+    Binding binding = def.createBinding();
+    BindingOperation bindingOp = def.createBindingOperation();
+
+    portType.addOperation(createOperation("op", null, null));
+    binding.setPortType(portType);
+    bindingOp.setName("op");
+    bindingOp.setBindingInput(def.createBindingInput());
+    bindingOp.setBindingOutput(def.createBindingOutput());
+    binding.addBindingOperation(bindingOp);
+
+    assertSame(bindingOp,
+               binding.getBindingOperation("op", "opRequest", "opResponse"));
+    assertNull(binding.getBindingOperation("op", "in", null));
+
+    bindingOp.setName("renamed");
+    assertNull(binding.getBindingOperation("op", null, null));
+    assertSame(bindingOp, binding.getBindingOperation("renamed", null, null));
+  }
+
+  public void testRenamesOnlyAffectOwnLists()
+  {
+    PortType portType1 = def.createPortType();
+    PortType portType2 = def.createPortType();
+    Operation op1 = createOperation("op1", null, null);
+    Operation op2 = createOperation("op2", null, null);
+    Operation shared = createOperation("shared", null, null);
+
+    portType1.addOperation(op1);
+    portType1.addOperation(shared);
+    portType2.addOperation(op2);
+    portType2.addOperation(shared);
+    assertSame(op1, portType1.getOperation("op1", null, null));
+    assertSame(op2, portType2.getOperation("op2", null, null));
+
+    op1.setName("renamed1");
+    assertTrue(((OperationList)portType2.getOperations()).isIndexCurrent());
+    assertSame(op1, portType1.getOperation("renamed1", null, null));
+
+    shared.setName("renamedShared");
+    assertSame(shared, portType1.getOperation("renamedShared", null, null));
+    assertSame(shared, portType2.getOperation("renamedShared", null, null));
+
+    // Once removed, renames no longer affect the list.
+    portType1.getOperations().remove(op1);
+    portType1.getOperation("shared", null, null);
+    op1.setName("renamedAgain");
+    assertTrue(((OperationList)portType1.getOperations()).isIndexCurrent());
+  }
+
+  public void testSerializedForm() throws Exception
+  {
+    PortType portType = def.createPortType();
+    Binding binding = def.createBinding();
+    BindingOperation bindingOp = def.createBindingOperation();
+    QName portTypeName = new QName("urn:test", "pt");
+
+    portType.setQName(portTypeName);
+    portType.addOperation(createOperation("op", null, null));
+    portType.setUndefined(false);
+    bindingOp.setName("op");
+    binding.addBindingOperation(bindingOp);
+    def.addPortType(portType);
+    def.addNamespace("tns", "urn:test");
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ObjectOutputStream out = new ObjectOutputStream(bytes);
+
+    out.writeObject(def);
+    out.writeObject(binding);
+    out.close();
+
+    // The collections are written as the classes used before they kept
+    // indexes.
+    String stream = new String(bytes.toByteArray(), "ISO-8859-1");
+
+    assertEquals(-1, stream.indexOf("OperationList"));
+    assertEquals(-1, stream.indexOf("TrackedMap"));
+    assertEquals(-1, stream.indexOf("NamespaceMap"));
+
+    ObjectInputStream in =
+      new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    DefinitionImpl copy = (DefinitionImpl)in.readObject();
+    BindingImpl bindingCopy = (BindingImpl)in.readObject();
+    PortTypeImpl portTypeCopy = (PortTypeImpl)copy.getPortType(portTypeName);
+
+    assertTrue(copy.getNamespaces() instanceof NamespaceMap);
+    assertTrue(copy.getPortTypes() instanceof TrackedMap);
+    assertEquals("tns", copy.getPrefix("urn:test"));
+    assertTrue(portTypeCopy.getOperations() instanceof OperationList);
+    assertNotNull(portTypeCopy.getOperation("op", null, null));
+    assertTrue(bindingCopy.getBindingOperations() instanceof OperationList);
+    assertNotNull(bindingCopy.getBindingOperation("op", null, null));
+  }
+
+  private Operation createOperation(String name,
+                                    String inputName,
+                                    String outputName)
+  {
+    Operation op = def.createOperation();
+    Input input = def.createInput();
+    Output output = def.createOutput();
+
+    input.setName(inputName);
+    output.setName(outputName);
+    op.setName(name);
+    op.setInput(input);
+    op.setOutput(output);
+    op.setStyle(OperationType.REQUEST_RESPONSE);
+
+    return op;
+  }
+}
@@ -10,11 +10,26 @@ import junit.framework.Test;
 import junit.framework.TestCase;
 import junit.framework.TestSuite;
 
+import com.ibm.wsdl.extensions.ExtensionRegistryTest;
 import com.ibm.wsdl.extensions.soap12.ReadSOAP12Test;
 import com.ibm.wsdl.factory.WSDLFactoryPropertyTest;
+import com.ibm.wsdl.util.FootprintEstimatorTest;
+import com.ibm.wsdl.util.xml.DOM2WriterTest;
+import com.ibm.wsdl.util.xml.DocumentBuilderPoolTest;
+import com.ibm.wsdl.util.xml.QNamePoolTest;
+import com.ibm.wsdl.xml.ConcurrentReadTest;
+import com.ibm.wsdl.xml.DefinitionsChildHandlerTest;
+import com.ibm.wsdl.xml.DefinitionSnapshotTest;
 import com.ibm.wsdl.xml.ImportWSDLTest;
+import com.ibm.wsdl.xml.LRUDocumentCacheTest;
+import com.ibm.wsdl.xml.LazySchemaTest;
+import com.ibm.wsdl.xml.ParallelImportTest;
+import com.ibm.wsdl.xml.PersistentDefinitionCacheTest;
 import com.ibm.wsdl.xml.SetFactoryNameTest;
+import com.ibm.wsdl.xml.StAXWSDLReaderTest;
+import com.ibm.wsdl.xml.WSDLDocumentTest;
 import com.ibm.wsdl.xml.WSDLExceptionTest;
+import com.ibm.wsdl.xml.WSDLStreamWriterTest;
 
 public class WSDL4JTestSuite extends TestCase
 {
@@ -31,6 +46,24 @@ public class WSDL4JTestSuite extends TestCase
     testSuite.addTestSuite(WSDLLocatorTest.class);
     testSuite.addTestSuite(RecursiveGetTest.class);
     testSuite.addTestSuite(QNameSerializationTest.class);
+    testSuite.addTestSuite(DocumentBuilderPoolTest.class);
+    testSuite.addTestSuite(ExtensionRegistryTest.class);
+    testSuite.addTestSuite(ParallelImportTest.class);
+    testSuite.addTestSuite(LRUDocumentCacheTest.class);
+    testSuite.addTestSuite(StAXWSDLReaderTest.class);
+    testSuite.addTestSuite(LazySchemaTest.class);
+    testSuite.addTestSuite(OperationLookupTest.class);
+    testSuite.addTestSuite(NamespacePrefixTest.class);
+    testSuite.addTestSuite(ImportIndexTest.class);
+    testSuite.addTestSuite(WSDLDocumentTest.class);
+    testSuite.addTestSuite(WSDLStreamWriterTest.class);
+    testSuite.addTestSuite(DOM2WriterTest.class);
+    testSuite.addTestSuite(QNamePoolTest.class);
+    testSuite.addTestSuite(DefinitionsChildHandlerTest.class);
+    testSuite.addTestSuite(DefinitionSnapshotTest.class);
+    testSuite.addTestSuite(PersistentDefinitionCacheTest.class);
+    testSuite.addTestSuite(ConcurrentReadTest.class);
+    testSuite.addTestSuite(FootprintEstimatorTest.class);
 
     return testSuite;
   }
@@ -0,0 +1,188 @@
+/*
+ * (c) Copyright IBM Corp 2006 
+ */
+
+package com.ibm.wsdl.extensions;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import javax.wsdl.Binding;
+import javax.wsdl.BindingInput;
+import javax.wsdl.Types;
+import javax.wsdl.Definition;
+import javax.wsdl.extensions.ExtensibilityElement;
+import javax.wsdl.extensions.ExtensionRegistry;
+import javax.wsdl.extensions.UnknownExtensibilityElement;
+import javax.wsdl.extensions.UnknownExtensionDeserializer;
+import javax.wsdl.extensions.mime.MIMEMultipartRelated;
+import javax.wsdl.extensions.soap.SOAPBinding;
+import javax.wsdl.factory.WSDLFactory;
+import javax.xml.namespace.QName;
+
+import junit.framework.TestCase;
+
+import com.ibm.wsdl.extensions.mime.MIMEConstants;
+import com.ibm.wsdl.extensions.mime.MIMEPartImpl;
+import com.ibm.wsdl.extensions.schema.SchemaConstants;
+import com.ibm.wsdl.extensions.schema.SchemaImpl;
+import com.ibm.wsdl.extensions.soap.SOAPBindingSerializer;
+import com.ibm.wsdl.extensions.soap.SOAPBodyImpl;
+import com.ibm.wsdl.extensions.soap.SOAPConstants;
+
+public class ExtensionRegistryTest extends TestCase
+{
+  private static final QName Q_ELEM_MY_EXT =
+    new QName("http://example.com/ext", "myExt");
+
+  public ExtensionRegistryTest()
+  {
+    super("ExtensionRegistryTest");
+  }
+
+  public void testSharedRegistrationsAreCopiedOnWrite() throws Exception
+  {
+    WSDLFactory factory = WSDLFactory.newInstance();
+    Definition def1 = factory.newDefinition();
+    Definition def2 = factory.newDefinition();
+    ExtensionRegistry extReg1 = def1.getExtensionRegistry();
+    ExtensionRegistry extReg2 = def2.getExtensionRegistry();
+
+    assertNotSame(extReg1, extReg2);
+
+    extReg1.registerDeserializer(Binding.class,
+                                 Q_ELEM_MY_EXT,
+                                 new UnknownExtensionDeserializer());
+    extReg1.mapExtensionTypes(Binding.class,
+                              Q_ELEM_MY_EXT,
+                              UnknownExtensibilityElement.class);
+
+    assertTrue(extReg1.getAllowableExtensions(Binding.class)
+                 .contains(Q_ELEM_MY_EXT));
+    assertFalse(extReg2.getAllowableExtensions(Binding.class)
+                  .contains(Q_ELEM_MY_EXT));
+    assertFalse(factory.newPopulatedExtensionRegistry()
+                  .getAllowableExtensions(Binding.class)
+                  .contains(Q_ELEM_MY_EXT));
+
+    // Registrations made before the copy are still there.
+    assertTrue(extReg1.createExtension(Binding.class,
+                                       SOAPConstants.Q_ELEM_SOAP_BINDING)
+                 instanceof SOAPBinding);
+  }
+
+  public void testCompiledRegistry() throws Exception
+  {
+    PopulatedExtensionRegistry extReg = new PopulatedExtensionRegistry();
+
+    extReg.compile();
+
+    assertTrue(extReg.isCompiled());
+    assertTrue(extReg.querySerializer(Binding.class,
+                                      SOAPConstants.Q_ELEM_SOAP_BINDING)
+                 instanceof SOAPBindingSerializer);
+    assertSame(extReg.getDefaultDeserializer(),
+               extReg.queryDeserializer(Binding.class, Q_ELEM_MY_EXT));
+
+    // A registration replaces the compiled tables.
+    extReg.registerDeserializer(Binding.class,
+                                Q_ELEM_MY_EXT,
+                                new UnknownExtensionDeserializer());
+
+    assertFalse(extReg.isCompiled());
+    assertNotSame(extReg.getDefaultDeserializer(),
+                  extReg.queryDeserializer(Binding.class, Q_ELEM_MY_EXT));
+  }
+
+  public void testFrozenRegistry() throws Exception
+  {
+    PopulatedExtensionRegistry extReg = new PopulatedExtensionRegistry();
+
+    extReg.freeze();
+
+    try
+    {
+      extReg.mapExtensionTypes(Binding.class,
+                               Q_ELEM_MY_EXT,
+                               UnknownExtensibilityElement.class);
+      fail("Expected an IllegalStateException.");
+    }
+    catch (IllegalStateException e)
+    {
+    }
+
+    PopulatedExtensionRegistry copy = new PopulatedExtensionRegistry(extReg);
+
+    assertFalse(copy.isFrozen());
+    assertTrue(copy.isCompiled());
+
+    copy.mapExtensionTypes(Binding.class,
+                           Q_ELEM_MY_EXT,
+                           UnknownExtensibilityElement.class);
+
+    assertTrue(copy.createExtension(Binding.class, Q_ELEM_MY_EXT)
+                 instanceof UnknownExtensibilityElement);
+  }
+
+  public void testExtensionFactory() throws Exception
+  {
+    PopulatedExtensionRegistry extReg = new PopulatedExtensionRegistry();
+    final UnknownExtensibilityElement myExt = new UnknownExtensibilityElement();
+
+    extReg.mapExtensionTypes(Binding.class,
+                             Q_ELEM_MY_EXT,
+                             UnknownExtensibilityElement.class);
+    extReg.registerExtensionFactory(Binding.class,
+                                    Q_ELEM_MY_EXT,
+                                    new ExtensionFactory()
+    {
+      public ExtensibilityElement createExtension(Class parentType,
+                                                  QName elementType)
+      {
+        return myExt;
+      }
+    });
+
+    assertSame(myExt, extReg.createExtension(Binding.class, Q_ELEM_MY_EXT));
+    assertEquals(Q_ELEM_MY_EXT, myExt.getElementType());
+
+    // Mapping the type again takes precedence over the factory.
+    extReg.mapExtensionTypes(Binding.class,
+                             Q_ELEM_MY_EXT,
+                             UnknownExtensibilityElement.class);
+
+    assertNotSame(myExt, extReg.createExtension(Binding.class, Q_ELEM_MY_EXT));
+  }
+
+  public void testPopulatedFactoriesMatchMappedTypes() throws Exception
+  {
+    ExtensionRegistry extReg = new PopulatedExtensionRegistry();
+
+    assertTrue(extReg.createExtension(BindingInput.class,
+                                      SOAPConstants.Q_ELEM_SOAP_BODY)
+                 instanceof SOAPBodyImpl);
+    assertTrue(extReg.createExtension(MIMEMultipartRelated.class,
+                                      MIMEConstants.Q_ELEM_MIME_PART)
+                 instanceof MIMEPartImpl);
+    assertTrue(extReg.createExtension(Types.class,
+                                      SchemaConstants.Q_ELEM_XSD_2001)
+                 instanceof SchemaImpl);
+
+    // The factories survive serialization.
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ObjectOutputStream out = new ObjectOutputStream(bytes);
+
+    out.writeObject(extReg);
+    out.close();
+
+    ObjectInputStream in =
+      new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    ExtensionRegistry copy = (ExtensionRegistry)in.readObject();
+
+    assertTrue(copy.createExtension(BindingInput.class,
+                                    SOAPConstants.Q_ELEM_SOAP_BODY)
+                 instanceof SOAPBodyImpl);
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * (c) Copyright IBM Corp 2006
+ */
+
+package com.ibm.wsdl.util;
+
+import javax.wsdl.Definition;
+import javax.wsdl.factory.WSDLFactory;
+import javax.wsdl.xml.WSDLReader;
+
+import com.ibm.wsdl.DefinitionImpl;
+import com.ibm.wsdl.xml.LRUDocumentCache;
+
+import junit.framework.TestCase;
+
+public class FootprintEstimatorTest extends TestCase
+{
+  public FootprintEstimatorTest()
+  {
+    super("FootprintEstimatorTest");
+  }
+
+  public void testCategories() throws Exception
+  {
+    Definition def = read("test/resources/schemas/TravelCo.wsdl", false);
+    FootprintEstimator estimator = new FootprintEstimator();
+
+    estimator.add(def);
+
+    long total = 0;
+
+    for (int i = 0; i < FootprintEstimator.CATEGORY_COUNT; i++)
+    {
+      total += estimator.getSize(i);
+    }
+
+    assertEquals(estimator.getTotal(), total);
+    assertTrue(estimator.getSize(FootprintEstimator.MODEL) > 0);
+    assertTrue(estimator.getSize(FootprintEstimator.COLLECTIONS) > 0);
+    assertTrue(estimator.getSize(FootprintEstimator.STRINGS) > 0);
+    assertTrue(estimator.getSize(FootprintEstimator.DOM_SCHEMAS) > 0);
+    assertEquals(estimator.getTotal(),
+                 ((DefinitionImpl)def).estimateRetainedSize());
+
+    // Adding it again counts nothing more.
+    estimator.add(def);
+
+    assertEquals(total, estimator.getTotal());
+  }
+
+  public void testLazySchemas() throws Exception
+  {
+    String uri = "test/resources/schemas/TravelCo.wsdl";
+    FootprintEstimator eager = new FootprintEstimator();
+    FootprintEstimator lazy = new FootprintEstimator();
+
+    eager.add(read(uri, false));
+    lazy.add(read(uri, true));
+
+    assertEquals(0, lazy.getSize(FootprintEstimator.DOM_SCHEMAS));
+    assertTrue(lazy.getTotal() < eager.getTotal());
+  }
+
+  public void testImports() throws Exception
+  {
+    Definition def = read("test/resources/imports/MyImportA.wsdl", false);
+    FootprintEstimator own = new FootprintEstimator();
+
+    own.setIncludeReferenced(false);
+    own.add(def);
+
+    assertTrue(own.getTotal() > 0);
+    assertTrue(own.getTotal() < FootprintEstimator.estimate(def));
+  }
+
+  public void testWeigher() throws Exception
+  {
+    Definition def = read("test/resources/AddressBook.wsdl", false);
+    LRUDocumentCache cache = new LRUDocumentCache(1L << 20, false)
+    {
+      protected long weigh(String uri, Object document)
+      {
+        FootprintEstimator estimator = new FootprintEstimator();
+
+        estimator.setIncludeReferenced(false);
+        estimator.add(document);
+
+        return estimator.getTotal();
+      }
+    };
+
+    cache.put("AddressBook.wsdl", def);
+
+    assertEquals(FootprintEstimator.estimate(def), cache.getWeight());
+  }
+
+  private static Definition read(String uri, boolean lazySchemas)
+    throws Exception
+  {
+    WSDLReader reader = WSDLFactory.newInstance().newWSDLReader();
+
+    reader.setFeature("javax.wsdl.verbose", false);
+    reader.setFeature("com.ibm.wsdl.lazySchemas", lazySchemas);
+
+    return reader.readWSDL(uri);
+  }
+}
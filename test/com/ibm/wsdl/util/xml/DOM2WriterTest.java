@@ -0,0 +1,77 @@
+/*
+ * (c) Copyright IBM Corp 2006
+ */
+
+package com.ibm.wsdl.util.xml;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import junit.framework.TestCase;
+
+import com.ibm.wsdl.util.StringUtils;
+
+public class DOM2WriterTest extends TestCase
+{
+  private static final String NS_URI_XMLNS = "http://www.w3.org/2000/xmlns/";
+
+  public DOM2WriterTest()
+  {
+    super("DOM2WriterTest");
+  }
+
+  public void testNamespacesAndEscaping() throws Exception
+  {
+    Map namespaces = new HashMap();
+
+    namespaces.put("a", "urn:a");
+    namespaces.put("c", "urn:c");
+
+    String ls = StringUtils.lineSeparator;
+
+    assertEquals("<a:root b:attr=\"&lt;&quot;x&amp;y&quot;&gt;\" " +
+                 "xmlns:b=\"urn:b\">" +
+                 ls + "one\r\ntwo" + ls + "'" +
+                 "<c:child xmlns:c=\"urn:c2\">" +
+                 "<b:leaf/>" +
+                 "<c:leaf xmlns:c=\"urn:c3\"/>" +
+                 "<![CDATA[<&>]]><!--note--><?pi data?>" + ls +
+                 "</c:child>" +
+                 "<c:leaf/>" +
+                 "<d:leaf d:attr=\"\" xmlns:d=\"urn:d\"/>" +
+                 "</a:root>",
+                 DOM2Writer.nodeToString(createElement(), namespaces));
+  }
+
+  private static Element createElement() throws Exception
+  {
+    DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+
+    factory.setNamespaceAware(true);
+
+    Document doc = factory.newDocumentBuilder().newDocument();
+    Element root = doc.createElementNS("urn:a", "a:root");
+    Element child = doc.createElementNS("urn:c2", "c:child");
+    Element declared = doc.createElementNS("urn:d", "d:leaf");
+
+    root.setAttributeNS("urn:b", "b:attr", "<\"x&y\">");
+    root.appendChild(doc.createTextNode("\none\r\ntwo\n'"));
+    root.appendChild(child);
+    child.appendChild(doc.createElementNS("urn:b", "b:leaf"));
+    child.appendChild(doc.createElementNS("urn:c3", "c:leaf"));
+    child.appendChild(doc.createCDATASection("<&>"));
+    child.appendChild(doc.createComment("note"));
+    child.appendChild(doc.createProcessingInstruction("pi", "data"));
+    root.appendChild(doc.createElementNS("urn:c", "c:leaf"));
+    declared.setAttributeNS(NS_URI_XMLNS, "xmlns:d", "urn:d");
+    declared.setAttributeNS("urn:d", "d:attr", "");
+    root.appendChild(declared);
+
+    return root;
+  }
+}
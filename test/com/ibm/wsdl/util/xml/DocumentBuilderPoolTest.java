@@ -0,0 +1,64 @@
+/*
+ * (c) Copyright IBM Corp 2006 
+ */
+
+package com.ibm.wsdl.util.xml;
+
+import javax.wsdl.Definition;
+import javax.wsdl.factory.WSDLFactory;
+import javax.wsdl.xml.WSDLReader;
+import javax.xml.parsers.DocumentBuilder;
+
+import junit.framework.TestCase;
+
+import com.ibm.wsdl.xml.WSDLReaderImpl;
+
+public class DocumentBuilderPoolTest extends TestCase
+{
+  public DocumentBuilderPoolTest()
+  {
+    super("DocumentBuilderPoolTest");
+  }
+
+  public void testBuildersAreReused() throws Exception
+  {
+    DocumentBuilderPool pool = new DocumentBuilderPool(null, 2);
+
+    DocumentBuilder builder = pool.acquire();
+    pool.release(builder);
+
+    assertSame(builder, pool.acquire());
+    assertEquals(1, pool.getHits());
+    assertEquals(1, pool.getMisses());
+  }
+
+  public void testIdleBuildersAreBounded() throws Exception
+  {
+    DocumentBuilderPool pool = new DocumentBuilderPool(null, 1);
+
+    DocumentBuilder builder1 = pool.acquire();
+    DocumentBuilder builder2 = pool.acquire();
+    pool.release(builder1);
+    pool.release(builder2);
+
+    assertEquals(1, pool.getIdleCount());
+  }
+
+  public void testReaderUsesPool() throws Exception
+  {
+    WSDLFactory factory = WSDLFactory.newInstance();
+    WSDLReader reader = factory.newWSDLReader();
+    DocumentBuilderPool pool = new DocumentBuilderPool();
+
+    reader.setFeature("javax.wsdl.verbose", false);
+    ((WSDLReaderImpl)reader).setDocumentBuilderPool(pool);
+
+    Definition def1 = reader.readWSDL("test/resources/AddressBook.wsdl");
+    Definition def2 = reader.readWSDL("test/resources/AddressBook.wsdl");
+
+    assertNotNull(def1);
+    assertNotNull(def2);
+    assertEquals(1, pool.getMisses());
+    assertEquals(1, pool.getHits());
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * (c) Copyright IBM Corp 2006 
+ */
+
+package com.ibm.wsdl.util.xml;
+
+import javax.wsdl.Definition;
+import javax.wsdl.factory.WSDLFactory;
+import javax.wsdl.xml.WSDLReader;
+import javax.xml.namespace.QName;
+
+import com.ibm.wsdl.xml.WSDLReaderImpl;
+
+import junit.framework.TestCase;
+
+public class QNamePoolTest extends TestCase
+{
+  public QNamePoolTest()
+  {
+    super("QNamePoolTest");
+  }
+
+  public void testQNamesAreInterned() throws Exception
+  {
+    QNamePool pool = new QNamePool();
+    String namespaceURI = new String("urn:test");
+    QName qname = pool.intern(namespaceURI, "a");
+
+    assertSame(qname, pool.intern(new String("urn:test"), "a"));
+    assertSame(namespaceURI,
+               pool.intern(new String("urn:test"), "b").getNamespaceURI());
+    assertEquals(new QName("urn:test", "b"), pool.intern("urn:test", "b"));
+    assertEquals(new QName("a"), pool.intern(null, "a"));
+    assertEquals(2, pool.getHits());
+    assertEquals(3, pool.getMisses());
+    assertEquals(3, pool.size());
+    assertEquals(1, pool.getNamespaceCount());
+
+    pool.clear();
+
+    assertEquals(0, pool.size());
+    assertEquals(0, pool.getHits());
+  }
+
+  public void testReaderInternsQNames() throws Exception
+  {
+    WSDLFactory factory = WSDLFactory.newInstance();
+    WSDLReaderImpl reader = (WSDLReaderImpl)factory.newWSDLReader();
+    QNamePool pool = new QNamePool();
+
+    reader.setFeature("javax.wsdl.verbose", false);
+    assertFalse(reader.getFeature("com.ibm.wsdl.internQNames"));
+    assertSame(QNamePool.getDefaultPool(), reader.getQNamePool());
+    assertNotSame(readMessageName(reader), readMessageName(reader));
+
+    reader.setFeature("com.ibm.wsdl.internQNames", true);
+    reader.setQNamePool(pool);
+
+    assertSame(readMessageName(reader), readMessageName(reader));
+    assertTrue(pool.getHits() > 0);
+    assertNull(QNamePool.getThreadPool());
+  }
+
+  private static QName readMessageName(WSDLReader reader) throws Exception
+  {
+    Definition def = reader.readWSDL("test/resources/AddressBook.wsdl");
+
+    return def.getMessage(new QName(def.getTargetNamespace(),
+                                    "AddEntryRequest")).getQName();
+  }
+}
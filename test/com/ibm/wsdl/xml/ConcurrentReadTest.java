@@ -0,0 +1,257 @@
+/*
+ * (c) Copyright IBM Corp 2006
+ */
+
+package com.ibm.wsdl.xml;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import javax.wsdl.Definition;
+import javax.wsdl.Import;
+import javax.wsdl.WSDLException;
+import javax.wsdl.factory.WSDLFactory;
+import javax.wsdl.xml.WSDLReader;
+
+import com.ibm.wsdl.factory.StAXWSDLFactoryImpl;
+
+import junit.framework.TestCase;
+
+/*
+  Reads documents from several threads at once, sharing readers,
+  factories and caches in the ways they are meant to be shared, and
+  checks that every definition matches the one read by a single thread.
+*/
+public class ConcurrentReadTest extends TestCase
+{
+  private static final String[] WSDL_URIS =
+  {
+    "test/resources/AddressBook.wsdl",
+    "test/resources/SOAP12Test.wsdl",
+    "test/resources/schemas/TravelCo.wsdl",
+    "test/resources/imports/MyImportA.wsdl"
+  };
+
+  private static final int THREADS = 4;
+  private static final int ROUNDS = 3;
+
+  private final Map expected = new HashMap();
+  private final List failures = new ArrayList();
+
+  public ConcurrentReadTest()
+  {
+    super("ConcurrentReadTest");
+  }
+
+  protected void setUp() throws Exception
+  {
+    for (int i = 0; i < WSDL_URIS.length; i++)
+    {
+      expected.put(WSDL_URIS[i],
+                   describe(newReader(WSDLFactory.newInstance())
+                              .readWSDL(WSDL_URIS[i])));
+    }
+  }
+
+  public void testSeparateReaders() throws Exception
+  {
+    check(new ReaderSource()
+      {
+        public WSDLReader getReader() throws WSDLException
+        {
+          return newReader(WSDLFactory.newInstance());
+        }
+      });
+  }
+
+  public void testSharedFactory() throws Exception
+  {
+    final WSDLFactory[] factories =
+    {
+      WSDLFactory.newInstance(),
+      new StAXWSDLFactoryImpl()
+    };
+
+    for (int i = 0; i < factories.length; i++)
+    {
+      final WSDLFactory factory = factories[i];
+
+      check(new ReaderSource()
+        {
+          public WSDLReader getReader()
+          {
+            return newReader(factory);
+          }
+        });
+    }
+  }
+
+  public void testSharedReader() throws Exception
+  {
+    final WSDLReader reader = newReader(WSDLFactory.newInstance());
+
+    check(new ReaderSource()
+      {
+        public WSDLReader getReader()
+        {
+          return reader;
+        }
+      });
+  }
+
+  public void testSharedCaches() throws Exception
+  {
+    final WSDLFactory factory = WSDLFactory.newInstance();
+    final LRUDocumentCache documentCache = new LRUDocumentCache();
+    File dir = File.createTempFile("wsdlcache", "");
+
+    dir.delete();
+
+    final PersistentDefinitionCache definitionCache =
+      new PersistentDefinitionCache(dir);
+
+    try
+    {
+      check(new ReaderSource()
+        {
+          public WSDLReader getReader()
+          {
+            WSDLReaderImpl reader = (WSDLReaderImpl)newReader(factory);
+
+            reader.setDocumentCache(documentCache);
+            reader.setDefinitionCache(definitionCache);
+
+            return reader;
+          }
+        });
+      assertTrue(definitionCache.getHits() > 0);
+    }
+    finally
+    {
+      definitionCache.clear();
+      dir.delete();
+    }
+  }
+
+  /*
+    Read each document ROUNDS times in each of THREADS threads, each
+    thread starting with a different document.
+  */
+  private void check(final ReaderSource readerSource) throws Exception
+  {
+    Thread[] threads = new Thread[THREADS];
+
+    for (int i = 0; i < threads.length; i++)
+    {
+      final int offset = i;
+
+      threads[i] = new Thread()
+      {
+        public void run()
+        {
+          for (int j = 0; j < ROUNDS * WSDL_URIS.length; j++)
+          {
+            String uri = WSDL_URIS[(offset + j) % WSDL_URIS.length];
+
+            try
+            {
+              String actual =
+                describe(readerSource.getReader().readWSDL(uri));
+
+              if (!actual.equals(expected.get(uri)))
+              {
+                addFailure("Read a different definition from '" + uri +
+                           "'.");
+              }
+            }
+            catch (Throwable t)
+            {
+              addFailure(t.toString());
+            }
+          }
+        }
+      };
+    }
+
+    for (int i = 0; i < threads.length; i++)
+    {
+      threads[i].start();
+    }
+
+    for (int i = 0; i < threads.length; i++)
+    {
+      threads[i].join();
+    }
+
+    synchronized (failures)
+    {
+      assertTrue(failures.toString(), failures.isEmpty());
+    }
+  }
+
+  private void addFailure(String failure)
+  {
+    synchronized (failures)
+    {
+      failures.add(failure);
+    }
+  }
+
+  private static WSDLReader newReader(WSDLFactory factory)
+  {
+    WSDLReader reader = factory.newWSDLReader();
+
+    reader.setFeature("javax.wsdl.verbose", false);
+
+    return reader;
+  }
+
+  /*
+    Write the definition and the ones it imports.
+  */
+  private static String describe(Definition def) throws WSDLException
+  {
+    StringWriter strWriter = new StringWriter();
+
+    describe(def, strWriter, new IdentityHashMap());
+
+    return strWriter.toString();
+  }
+
+  private static void describe(Definition def,
+                               StringWriter strWriter,
+                               Map visited)
+                                 throws WSDLException
+  {
+    if (visited.put(def, def) != null)
+    {
+      return;
+    }
+
+    strWriter.write(def.getDocumentBaseURI() + "\n");
+    new WSDLWriterImpl().writeWSDL(def, strWriter);
+
+    Iterator importListIterator = def.getImports().values().iterator();
+
+    while (importListIterator.hasNext())
+    {
+      List imports = (List)importListIterator.next();
+
+      for (int i = 0; i < imports.size(); i++)
+      {
+        describe(((Import)imports.get(i)).getDefinition(), strWriter, visited);
+      }
+    }
+  }
+
+  private interface ReaderSource
+  {
+    public WSDLReader getReader() throws WSDLException;
+  }
+}
@@ -0,0 +1,234 @@
+/*
+ * (c) Copyright IBM Corp 2006
+ */
+
+package com.ibm.wsdl.xml;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.wsdl.Binding;
+import javax.wsdl.Definition;
+import javax.wsdl.Import;
+import javax.wsdl.PortType;
+import javax.wsdl.WSDLException;
+import javax.wsdl.extensions.schema.Schema;
+import javax.wsdl.factory.WSDLFactory;
+import javax.wsdl.xml.WSDLReader;
+
+import org.xml.sax.InputSource;
+
+import com.ibm.wsdl.factory.StAXWSDLFactoryImpl;
+
+import junit.framework.TestCase;
+
+public class DefinitionSnapshotTest extends TestCase
+{
+  private static final String[] WSDL_URIS =
+  {
+    "test/resources/test.wsdl",
+    "test/resources/AddressBook.wsdl",
+    "test/resources/SOAP12Test.wsdl",
+    "test/resources/MyExtendedWSDL.wsdl",
+    "test/resources/schemas/TravelCo.wsdl",
+    "test/resources/imports/MyImportA.wsdl",
+    "test/resources/testGetXXXA.wsdl"
+  };
+
+  private static final String HTTP_WSDL =
+    "<definitions xmlns='http://schemas.xmlsoap.org/wsdl/'"
+    + " xmlns:http='http://schemas.xmlsoap.org/wsdl/http/'"
+    + " xmlns:mime='http://schemas.xmlsoap.org/wsdl/mime/'"
+    + " xmlns:x='urn:x' xmlns:tns='urn:test' targetNamespace='urn:test'>"
+    + "<documentation>A <b xmlns='urn:doc'>test</b><![CDATA[<&>]]>"
+    + "<!-- comment --></documentation>"
+    + "<message name='m'><part name='p' type='x:t'/></message>"
+    + "<portType name='pt'><operation name='op'>"
+    + "<input message='tns:m'/><output message='tns:m'/>"
+    + "</operation></portType>"
+    + "<binding name='b' type='tns:pt'>"
+    + "<http:binding verb='GET'/>"
+    + "<operation name='op'><http:operation location='/op'/>"
+    + "<input><http:urlEncoded/></input>"
+    + "<output><mime:multipartRelated><mime:part>"
+    + "<mime:content part='p' type='text/xml'/>"
+    + "<x:unknown a='1'/>"
+    + "</mime:part></mime:multipartRelated></output>"
+    + "</operation></binding>"
+    + "<service name='s'><port name='p' binding='tns:b'>"
+    + "<http:address location='http://localhost/'/>"
+    + "</port></service>"
+    + "</definitions>";
+
+  public DefinitionSnapshotTest()
+  {
+    super("DefinitionSnapshotTest");
+  }
+
+  public void testRoundTrip() throws Exception
+  {
+    WSDLFactory[] factories =
+    {
+      WSDLFactory.newInstance(),
+      new StAXWSDLFactoryImpl()
+    };
+
+    for (int i = 0; i < factories.length; i++)
+    {
+      for (int j = 0; j < WSDL_URIS.length; j++)
+      {
+        WSDLReader reader = factories[i].newWSDLReader();
+
+        reader.setFeature("javax.wsdl.verbose", false);
+
+        Definition def = reader.readWSDL(WSDL_URIS[j]);
+
+        assertEqual(WSDL_URIS[j], def, roundTrip(def));
+      }
+
+      WSDLReader reader = factories[i].newWSDLReader();
+
+      reader.setFeature("javax.wsdl.verbose", false);
+
+      Definition def = reader.readWSDL(null,
+        new InputSource(new StringReader(HTTP_WSDL)));
+      Definition copy = roundTrip(def);
+
+      assertEqual("HTTP", def, copy);
+      assertNotNull(copy.getDocumentationElement());
+      assertEquals("urn:doc",
+                   copy.getDocumentationElement().getFirstChild()
+                     .getNextSibling().getNamespaceURI());
+    }
+  }
+
+  public void testSharing() throws Exception
+  {
+    Definition copy =
+      roundTrip(readWSDL("test/resources/imports/MyImportA.wsdl"));
+    List importsB = copy.getImports("http://www.ibm.com/wsdl4j/importB.wsdl");
+    List importsC = copy.getImports("http://www.ibm.com/wsdl4j/importC.wsdl");
+    Definition defB = ((Import)importsB.get(0)).getDefinition();
+    Definition defC = ((Import)importsC.get(0)).getDefinition();
+
+    assertEquals(2, importsB.size());
+    assertSame(defB, ((Import)importsB.get(1)).getDefinition());
+    assertSame(defB,
+               ((Import)defC.getImports(
+                 "http://www.ibm.com/wsdl4j/importB.wsdl").get(0))
+                   .getDefinition());
+
+    copy = roundTrip(readWSDL("test/resources/AddressBook.wsdl"));
+
+    Iterator bindingIterator = copy.getBindings().values().iterator();
+
+    while (bindingIterator.hasNext())
+    {
+      Binding binding = (Binding)bindingIterator.next();
+      PortType portType = binding.getPortType();
+
+      assertSame(portType, copy.getPortType(portType.getQName()));
+    }
+
+    copy = roundTrip(readWSDL("test/resources/schemas/TravelCo.wsdl"));
+
+    Schema schema = (Schema)copy.getTypes().getExtensibilityElements().get(0);
+
+    assertEquals("http://www.w3.org/2001/XMLSchema",
+                 schema.getElement().getNamespaceURI());
+    assertEquals(1, schema.getImports().size());
+  }
+
+  public void testBadInput() throws Exception
+  {
+    Definition def = readWSDL("test/resources/AddressBook.wsdl");
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+    new DefinitionSnapshotWriter().writeSnapshot(def, bytes);
+
+    byte[] snapshot = bytes.toByteArray();
+
+    checkBadInput("not a snapshot", "<definitions/>".getBytes("UTF-8"));
+
+    byte[] otherVersion = (byte[])snapshot.clone();
+
+    otherVersion[SnapshotOutput.MAGIC.length]++;
+    checkBadInput("other version", otherVersion);
+
+    byte[] truncated = new byte[snapshot.length / 2];
+
+    System.arraycopy(snapshot, 0, truncated, 0, truncated.length);
+    checkBadInput("truncated", truncated);
+  }
+
+  private static void checkBadInput(String desc, byte[] bytes)
+  {
+    try
+    {
+      new DefinitionSnapshotReader().readSnapshot(
+        new ByteArrayInputStream(bytes));
+      fail(desc);
+    }
+    catch (WSDLException e)
+    {
+      assertEquals(desc, WSDLException.PARSER_ERROR, e.getFaultCode());
+    }
+  }
+
+  private static Definition roundTrip(Definition def) throws WSDLException
+  {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+    new DefinitionSnapshotWriter().writeSnapshot(def, bytes);
+
+    return new DefinitionSnapshotReader().readSnapshot(
+      new ByteArrayInputStream(bytes.toByteArray()));
+  }
+
+  /*
+    Check that the definitions, and the ones they import, print the same.
+  */
+  private static void assertEqual(String desc, Definition def, Definition copy)
+    throws WSDLException
+  {
+    assertEquals(desc, def.getDocumentBaseURI(), copy.getDocumentBaseURI());
+    assertTrue(desc,
+               new WSDLWriterImpl().getDocument(def).isEqualNode(
+                 new WSDLWriterImpl().getDocument(copy)));
+
+    Iterator namespaceIterator = def.getImports().keySet().iterator();
+
+    while (namespaceIterator.hasNext())
+    {
+      String namespaceURI = (String)namespaceIterator.next();
+      List imports = def.getImports(namespaceURI);
+      List copyImports = copy.getImports(namespaceURI);
+
+      assertEquals(desc, imports.size(), copyImports.size());
+
+      for (int i = 0; i < imports.size(); i++)
+      {
+        Definition importedDef = ((Import)imports.get(i)).getDefinition();
+        Definition copyImportedDef =
+          ((Import)copyImports.get(i)).getDefinition();
+
+        if (importedDef != def)
+        {
+          assertEqual(desc, importedDef, copyImportedDef);
+        }
+      }
+    }
+  }
+
+  private static Definition readWSDL(String uri) throws WSDLException
+  {
+    WSDLReader reader = WSDLFactory.newInstance().newWSDLReader();
+
+    reader.setFeature("javax.wsdl.verbose", false);
+
+    return reader.readWSDL(uri);
+  }
+}
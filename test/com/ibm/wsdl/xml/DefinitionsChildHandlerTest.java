@@ -0,0 +1,102 @@
+/*
+ * (c) Copyright IBM Corp 2006 
+ */
+
+package com.ibm.wsdl.xml;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.wsdl.Definition;
+import javax.wsdl.WSDLException;
+import javax.wsdl.factory.WSDLFactory;
+import javax.xml.namespace.QName;
+
+import org.w3c.dom.Element;
+import org.xml.sax.InputSource;
+
+import com.ibm.wsdl.Constants;
+import com.ibm.wsdl.factory.StAXWSDLFactoryImpl;
+
+import junit.framework.TestCase;
+
+public class DefinitionsChildHandlerTest extends TestCase
+{
+  private static final QName POLICY = new QName("urn:policy", "policy");
+
+  private static final String WSDL =
+    "<definitions xmlns='http://schemas.xmlsoap.org/wsdl/'"
+    + " xmlns:p='urn:policy' targetNamespace='urn:test'>"
+    + "<p:policy id='a'/>"
+    + "<message name='m'/>"
+    + "<p:policy id='b'/>"
+    + "</definitions>";
+
+  public DefinitionsChildHandlerTest()
+  {
+    super("DefinitionsChildHandlerTest");
+  }
+
+  public void testHandlers() throws Exception
+  {
+    WSDLFactory[] factories =
+    {
+      WSDLFactory.newInstance(),
+      new StAXWSDLFactoryImpl()
+    };
+
+    for (int i = 0; i < factories.length; i++)
+    {
+      WSDLReaderImpl reader = (WSDLReaderImpl)factories[i].newWSDLReader();
+      final List ids = new ArrayList();
+
+      reader.setFeature("javax.wsdl.verbose", false);
+      assertNotNull(reader.getDefinitionsChildHandler(
+        Constants.Q_ELEM_MESSAGE));
+      assertNull(reader.getDefinitionsChildHandler(POLICY));
+
+      Definition def = read(reader);
+
+      assertEquals(2, def.getExtensibilityElements().size());
+      assertEquals(1, def.getMessages().size());
+
+      DefinitionsChildHandler handler = new DefinitionsChildHandler()
+      {
+        public void parse(WSDLReaderImpl reader,
+                          Element el,
+                          Definition def,
+                          Map importedDefs)
+        {
+          ids.add(el.getLocalName() + " " + el.getAttribute("id"));
+        }
+      };
+
+      reader.setDefinitionsChildHandler(POLICY, handler);
+      reader.setDefinitionsChildHandler(Constants.Q_ELEM_MESSAGE, handler);
+      assertSame(handler, reader.getDefinitionsChildHandler(POLICY));
+      def = read(reader);
+
+      assertEquals(3, ids.size());
+      assertEquals("policy a", ids.get(0));
+      assertEquals("message ", ids.get(1));
+      assertEquals("policy b", ids.get(2));
+      assertEquals(0, def.getMessages().size());
+      assertEquals(0, def.getExtensibilityElements().size());
+
+      reader.setDefinitionsChildHandler(POLICY, null);
+      def = read(reader);
+
+      assertEquals(4, ids.size());
+      assertEquals(2, def.getExtensibilityElements().size());
+      assertNull(((WSDLReaderImpl)factories[i].newWSDLReader())
+                   .getDefinitionsChildHandler(POLICY));
+    }
+  }
+
+  private static Definition read(WSDLReaderImpl reader) throws WSDLException
+  {
+    return reader.readWSDL(null, new InputSource(new StringReader(WSDL)));
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * (c) Copyright IBM Corp 2006
+ */
+
+package com.ibm.wsdl.xml;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.util.List;
+
+import javax.wsdl.Definition;
+import javax.wsdl.Import;
+import javax.wsdl.extensions.schema.Schema;
+import javax.wsdl.extensions.schema.SchemaReference;
+import javax.wsdl.factory.WSDLFactory;
+import javax.wsdl.xml.WSDLReader;
+
+import junit.framework.TestCase;
+
+public class LRUDocumentCacheTest extends TestCase
+{
+  public LRUDocumentCacheTest()
+  {
+    super("LRUDocumentCacheTest");
+  }
+
+  public void testLeastRecentlyUsedEviction()
+  {
+    LRUDocumentCache cache = new LRUDocumentCache(2, false);
+
+    cache.put("http://example.com/a.xsd", "a");
+    cache.put("http://example.com/b.xsd", "b");
+    assertEquals("a", cache.get("http://example.com/a.xsd"));
+    cache.put("http://example.com/c.xsd", "c");
+
+    assertNull(cache.get("http://example.com/b.xsd"));
+    assertEquals("a", cache.get("http://example.com/x/../a.xsd"));
+    assertEquals("c", cache.get("http://example.com/c.xsd"));
+    assertEquals(2, cache.getSize());
+    assertEquals(3, cache.getHits());
+    assertEquals(1, cache.getMisses());
+    assertEquals(1, cache.getEvictions());
+  }
+
+  public void testValidation() throws Exception
+  {
+    File file = File.createTempFile("wsdl4j", ".xsd");
+
+    try
+    {
+      String uri = file.toURI().toString();
+      LRUDocumentCache cache = new LRUDocumentCache();
+
+      cache.put(uri, "schema");
+      assertEquals("schema", cache.get(uri));
+
+      FileWriter writer = new FileWriter(file);
+
+      writer.write("<changed/>");
+      writer.close();
+      file.setLastModified(file.lastModified() + 10000);
+
+      assertNull(cache.get(uri));
+      assertEquals(1, cache.getInvalidations());
+      assertEquals(0, cache.getSize());
+    }
+    finally
+    {
+      file.delete();
+    }
+  }
+
+  public void testSharedBetweenReaders() throws Exception
+  {
+    WSDLFactory factory = WSDLFactory.newInstance();
+    LRUDocumentCache cache = new LRUDocumentCache();
+    Definition[] defs = new Definition[2];
+
+    for (int i = 0; i < defs.length; i++)
+    {
+      WSDLReader reader = factory.newWSDLReader();
+
+      reader.setFeature("javax.wsdl.verbose", false);
+      ((WSDLReaderImpl)reader).setDocumentCache(cache);
+      defs[i] = reader.readWSDL("test/resources/schemas/TravelCo.wsdl");
+    }
+
+    assertNotSame(defs[0], defs[1]);
+    assertSame(getReferencedSchema(defs[0]), getReferencedSchema(defs[1]));
+    assertTrue("Expected cache hits.", cache.getHits() > 0);
+
+    WSDLReader reader = factory.newWSDLReader();
+
+    reader.setFeature("javax.wsdl.verbose", false);
+    ((WSDLReaderImpl)reader).setDocumentCache(cache);
+
+    Definition def1 = reader.readWSDL("test/resources/imports/MyImportA.wsdl");
+    Definition def2 = reader.readWSDL("test/resources/imports/MyImportA.wsdl");
+    List imports1 = (List)def1.getImports().values().iterator().next();
+    List imports2 = (List)def2.getImports().values().iterator().next();
+
+    assertSame(((Import)imports1.get(0)).getDefinition(),
+               ((Import)imports2.get(0)).getDefinition());
+  }
+
+  private static Schema getReferencedSchema(Definition def)
+  {
+    Schema schema =
+      (Schema)def.getTypes().getExtensibilityElements().get(0);
+    SchemaReference schemaRef =
+      (SchemaReference)schema.getIncludes().get(0);
+
+    return schemaRef.getReferencedSchema();
+  }
+}
@@ -0,0 +1,171 @@
+/*
+ * (c) Copyright IBM Corp 2006
+ */
+
+package com.ibm.wsdl.xml;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.StringWriter;
+
+import javax.wsdl.Definition;
+import javax.wsdl.Types;
+import javax.wsdl.extensions.schema.SchemaReference;
+import javax.wsdl.factory.WSDLFactory;
+import javax.wsdl.xml.WSDLReader;
+import javax.wsdl.xml.WSDLWriter;
+
+import org.w3c.dom.Element;
+
+import com.ibm.wsdl.extensions.schema.SchemaImpl;
+import com.ibm.wsdl.util.xml.DOMUtils;
+
+import junit.framework.TestCase;
+
+public class LazySchemaTest extends TestCase
+{
+  private static final String WSDL_URI =
+    "test/resources/schemas/TravelCo.wsdl";
+
+  public LazySchemaTest()
+  {
+    super("LazySchemaTest");
+  }
+
+  public void testLazySchemas() throws Exception
+  {
+    checkLazySchemas(WSDLFactory.newInstance(
+      "com.ibm.wsdl.factory.WSDLFactoryImpl"));
+    checkLazySchemas(WSDLFactory.newInstance(
+      "com.ibm.wsdl.factory.StAXWSDLFactoryImpl"));
+  }
+
+  public void testSerializeLazySchema() throws Exception
+  {
+    WSDLReader reader = WSDLFactory.newInstance().newWSDLReader();
+
+    reader.setFeature("javax.wsdl.verbose", false);
+    reader.setFeature("com.ibm.wsdl.lazySchemas", true);
+
+    SchemaImpl schema = getSchema(reader.readWSDL(WSDL_URI));
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ObjectOutputStream out = new ObjectOutputStream(bytes);
+
+    out.writeObject(schema);
+    out.close();
+
+    ObjectInputStream in =
+      new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    SchemaImpl copy = (SchemaImpl)in.readObject();
+
+    assertEquals(schema.getElementSource().toString(),
+                 copy.getElementSource().toString());
+    assertEquals("schema", copy.getElement().getLocalName());
+  }
+
+  public void testMultipleInlineSchemas() throws Exception
+  {
+    File file = File.createTempFile("lazySchemas", ".wsdl");
+    FileWriter writer = new FileWriter(file);
+
+    try
+    {
+      writer.write(
+        "<definitions xmlns='http://schemas.xmlsoap.org/wsdl/'" +
+        " xmlns:xsd='http://www.w3.org/2001/XMLSchema'" +
+        " targetNamespace='urn:test'>" +
+        "<types>" +
+        "<documentation>Schemas</documentation>" +
+        "<xsd:schema targetNamespace='urn:first'/>" +
+        "<xsd:schema targetNamespace='urn:second'/>" +
+        "<xsd:schema targetNamespace='urn:third'/>" +
+        "</types>" +
+        "</definitions>");
+      writer.close();
+
+      checkMultipleInlineSchemas(WSDLFactory.newInstance(
+        "com.ibm.wsdl.factory.WSDLFactoryImpl"), file);
+      checkMultipleInlineSchemas(WSDLFactory.newInstance(
+        "com.ibm.wsdl.factory.StAXWSDLFactoryImpl"), file);
+    }
+    finally
+    {
+      writer.close();
+      file.delete();
+    }
+  }
+
+  private void checkMultipleInlineSchemas(WSDLFactory factory, File file)
+    throws Exception
+  {
+    WSDLReader reader = factory.newWSDLReader();
+
+    reader.setFeature("javax.wsdl.verbose", false);
+    reader.setFeature("com.ibm.wsdl.lazySchemas", true);
+
+    Types types = reader.readWSDL(file.getPath()).getTypes();
+    String[] namespaces = {"urn:first", "urn:second", "urn:third"};
+
+    assertEquals(namespaces.length, types.getExtensibilityElements().size());
+
+    for (int i = 0; i < namespaces.length; i++)
+    {
+      SchemaImpl schema = (SchemaImpl)types.getExtensibilityElements().get(i);
+
+      assertNotNull(schema.getElementSource());
+      assertEquals(namespaces[i],
+                   schema.getElement().getAttribute("targetNamespace"));
+    }
+  }
+
+  private void checkLazySchemas(WSDLFactory factory) throws Exception
+  {
+    WSDLReader reader = factory.newWSDLReader();
+
+    reader.setFeature("javax.wsdl.verbose", false);
+
+    Definition eagerDef = reader.readWSDL(WSDL_URI);
+
+    // Schemas are shared between the documents a reader reads.
+    reader = factory.newWSDLReader();
+    reader.setFeature("javax.wsdl.verbose", false);
+    reader.setFeature("com.ibm.wsdl.lazySchemas", true);
+
+    Definition lazyDef = reader.readWSDL(WSDL_URI);
+    SchemaImpl schema = getSchema(lazyDef);
+    SchemaImpl includedSchema = (SchemaImpl)
+      ((SchemaReference)schema.getIncludes().get(0)).getReferencedSchema();
+
+    assertNull(getSchema(eagerDef).getElementSource());
+    assertNotNull(schema.getElementSource());
+    assertNotNull(includedSchema.getElementSource());
+    assertEquals(0, includedSchema.getElementSource().getPath().length);
+
+    Element schemaEl = schema.getElement();
+
+    assertSame(schemaEl, schema.getElement());
+    assertEquals("http://travelco.com",
+                 DOMUtils.getNamespaceURIFromPrefix(schemaEl, "tns"));
+    assertEquals(toString(factory, eagerDef), toString(factory, lazyDef));
+  }
+
+  private static SchemaImpl getSchema(Definition def)
+  {
+    return (SchemaImpl)def.getTypes().getExtensibilityElements().get(0);
+  }
+
+  private static String toString(WSDLFactory factory, Definition def)
+    throws Exception
+  {
+    WSDLWriter writer = factory.newWSDLWriter();
+    StringWriter strWriter = new StringWriter();
+
+    writer.writeWSDL(def, strWriter);
+
+    return strWriter.toString();
+  }
+}
@@ -0,0 +1,226 @@
+/*
+ * (c) Copyright IBM Corp 2006 
+ */
+
+package com.ibm.wsdl.xml;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import javax.wsdl.Definition;
+import javax.wsdl.Import;
+import javax.wsdl.extensions.schema.Schema;
+import javax.wsdl.extensions.schema.SchemaReference;
+import javax.wsdl.factory.WSDLFactory;
+import javax.wsdl.xml.WSDLReader;
+import javax.wsdl.xml.WSDLWriter;
+
+import junit.framework.TestCase;
+
+public class ParallelImportTest extends TestCase
+{
+  private static final String WSDL_URI =
+    "test/resources/imports/MyImportA.wsdl";
+  private static final String SCHEMA_WSDL_URI =
+    "test/resources/schemas/TravelCo.wsdl";
+
+  private int tasks = 0;
+
+  public ParallelImportTest()
+  {
+    super("ParallelImportTest");
+  }
+
+  public void testParallelImportsMatchSerialImports() throws Exception
+  {
+    WSDLFactory factory = WSDLFactory.newInstance();
+    WSDLReader reader = factory.newWSDLReader();
+
+    reader.setFeature("javax.wsdl.verbose", false);
+
+    Definition serialDef = reader.readWSDL(WSDL_URI);
+
+    reader.setFeature("com.ibm.wsdl.parallelImports", true);
+    ((WSDLReaderImpl)reader).setImportExecutor(new Executor()
+    {
+      public void execute(Runnable command)
+      {
+        tasks++;
+        new Thread(command).start();
+      }
+    });
+
+    Definition parallelDef = reader.readWSDL(WSDL_URI);
+
+    assertTrue("Expected imports to be prefetched.", tasks > 0);
+    assertEquals(toString(serialDef), toString(parallelDef));
+    assertEquals(serialDef.getImports().keySet(),
+                 parallelDef.getImports().keySet());
+
+    Iterator nsIterator = serialDef.getImports().keySet().iterator();
+
+    while (nsIterator.hasNext())
+    {
+      String namespaceURI = (String)nsIterator.next();
+      List serialImports = serialDef.getImports(namespaceURI);
+      List parallelImports = parallelDef.getImports(namespaceURI);
+
+      assertEquals(serialImports.size(), parallelImports.size());
+
+      for (int i = 0; i < serialImports.size(); i++)
+      {
+        Import serialImport = (Import)serialImports.get(i);
+        Import parallelImport = (Import)parallelImports.get(i);
+
+        assertEquals(serialImport.getLocationURI(),
+                     parallelImport.getLocationURI());
+        assertEquals(toString(serialImport.getDefinition()),
+                     toString(parallelImport.getDefinition()));
+      }
+    }
+
+    // Documents imported more than once are still only read once.
+    assertSame(getImportedDefinition(parallelDef, "MyImportB.wsdl", 0),
+               getImportedDefinition(parallelDef, "MyImportB.wsdl", 1));
+  }
+
+  public void testParallelSchemasMatchSerialSchemas() throws Exception
+  {
+    WSDLFactory factory = WSDLFactory.newInstance();
+    WSDLReader serialReader = factory.newWSDLReader();
+
+    serialReader.setFeature("javax.wsdl.verbose", false);
+
+    Definition serialDef = serialReader.readWSDL(SCHEMA_WSDL_URI);
+
+    // Each reader remembers the schemas it has read, so use a new one.
+    WSDLReader parallelReader = factory.newWSDLReader();
+
+    parallelReader.setFeature("javax.wsdl.verbose", false);
+    parallelReader.setFeature("com.ibm.wsdl.parallelSchemas", true);
+    ((WSDLReaderImpl)parallelReader).setImportExecutor(new Executor()
+    {
+      public void execute(Runnable command)
+      {
+        tasks++;
+        new Thread(command).start();
+      }
+    });
+
+    Definition parallelDef = parallelReader.readWSDL(SCHEMA_WSDL_URI);
+
+    assertTrue("Expected schemas to be prefetched.", tasks > 0);
+    assertEquals(toString(serialDef), toString(parallelDef));
+    assertEquals(describeSchemas(serialDef), describeSchemas(parallelDef));
+  }
+
+  /*
+    Describe the graph of schemas used by the specified definition,
+    numbering each distinct Schema object in the order it is reached, so
+    that both the locations and the sharing of schemas are compared.
+  */
+  private static String describeSchemas(Definition def)
+  {
+    StringBuffer strBuf = new StringBuffer();
+    Map ids = new IdentityHashMap();
+    Iterator extIterator =
+      def.getTypes().getExtensibilityElements().iterator();
+
+    while (extIterator.hasNext())
+    {
+      Object ext = extIterator.next();
+
+      if (ext instanceof Schema)
+      {
+        describeSchema((Schema)ext, ids, strBuf);
+      }
+    }
+
+    return strBuf.toString();
+  }
+
+  private static void describeSchema(Schema schema,
+                                     Map ids,
+                                     StringBuffer strBuf)
+  {
+    if (ids.containsKey(schema))
+    {
+      strBuf.append("#" + ids.get(schema) + "\n");
+      return;
+    }
+
+    ids.put(schema, new Integer(ids.size()));
+    strBuf.append("#" + ids.get(schema) + " " + schema.getDocumentBaseURI()
+                  + "\n");
+
+    List schemaRefs = new ArrayList();
+    Iterator importListIterator = schema.getImports().values().iterator();
+
+    while (importListIterator.hasNext())
+    {
+      schemaRefs.addAll((Collection)importListIterator.next());
+    }
+
+    schemaRefs.addAll(schema.getIncludes());
+    schemaRefs.addAll(schema.getRedefines());
+
+    for (int i = 0; i < schemaRefs.size(); i++)
+    {
+      SchemaReference schemaRef = (SchemaReference)schemaRefs.get(i);
+
+      strBuf.append(schemaRef.getSchemaLocationURI() + " -> ");
+
+      if (schemaRef.getReferencedSchema() != null)
+      {
+        describeSchema(schemaRef.getReferencedSchema(), ids, strBuf);
+      }
+      else
+      {
+        strBuf.append("null\n");
+      }
+    }
+  }
+
+  private static Definition getImportedDefinition(Definition def,
+                                                  String locationURI,
+                                                  int index)
+  {
+    Map imports = def.getImports();
+    Iterator importListIterator = imports.values().iterator();
+    int found = 0;
+
+    while (importListIterator.hasNext())
+    {
+      List importList = (List)importListIterator.next();
+
+      for (int i = 0; i < importList.size(); i++)
+      {
+        Import importDef = (Import)importList.get(i);
+
+        if (locationURI.equals(importDef.getLocationURI()) && found++ == index)
+        {
+          return importDef.getDefinition();
+        }
+      }
+    }
+
+    fail("Import of '" + locationURI + "' not found.");
+    return null;
+  }
+
+  private static String toString(Definition def) throws Exception
+  {
+    WSDLWriter writer = WSDLFactory.newInstance().newWSDLWriter();
+    StringWriter sw = new StringWriter();
+
+    writer.writeWSDL(def, sw);
+
+    return sw.toString();
+  }
+}
@@ -0,0 +1,232 @@
+/*
+ * (c) Copyright IBM Corp 2006
+ */
+
+package com.ibm.wsdl.xml;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.Map;
+
+import javax.wsdl.Definition;
+import javax.wsdl.factory.WSDLFactory;
+
+import org.w3c.dom.Element;
+
+import com.ibm.wsdl.Constants;
+import com.ibm.wsdl.factory.StAXWSDLFactoryImpl;
+
+import junit.framework.TestCase;
+
+public class PersistentDefinitionCacheTest extends TestCase
+{
+  private File dir;
+  private File wsdlFile;
+
+  public PersistentDefinitionCacheTest()
+  {
+    super("PersistentDefinitionCacheTest");
+  }
+
+  protected void setUp() throws Exception
+  {
+    dir = File.createTempFile("wsdlcache", "");
+    dir.delete();
+    dir.mkdir();
+    wsdlFile = new File(dir, "AddressBook.wsdl");
+    copy(new File("test/resources/AddressBook.wsdl"), wsdlFile);
+
+    // Files changed just before being read aren't cached.
+    wsdlFile.setLastModified(System.currentTimeMillis() - 60000);
+  }
+
+  protected void tearDown()
+  {
+    File[] files = new File(dir, "cache").listFiles();
+
+    for (int i = 0; files != null && i < files.length; i++)
+    {
+      files[i].delete();
+    }
+
+    new File(dir, "cache").delete();
+    wsdlFile.delete();
+    dir.delete();
+  }
+
+  public void testHit() throws Exception
+  {
+    WSDLFactory[] factories =
+    {
+      WSDLFactory.newInstance(),
+      new StAXWSDLFactoryImpl()
+    };
+
+    for (int i = 0; i < factories.length; i++)
+    {
+      PersistentDefinitionCache cache =
+        new PersistentDefinitionCache(new File(dir, "cache"));
+      Definition def = read(factories[i], cache);
+
+      assertEquals(0, cache.getHits());
+      assertEquals(1, cache.getMisses());
+
+      Definition cachedDef = read(factories[i], cache);
+
+      assertEquals(1, cache.getHits());
+      assertNotSame(def, cachedDef);
+      assertEquals(def.getDocumentBaseURI(), cachedDef.getDocumentBaseURI());
+      assertTrue(new WSDLWriterImpl().getDocument(def).isEqualNode(
+        new WSDLWriterImpl().getDocument(cachedDef)));
+    }
+  }
+
+  public void testInvalidation() throws Exception
+  {
+    PersistentDefinitionCache cache =
+      new PersistentDefinitionCache(new File(dir, "cache"));
+
+    read(WSDLFactory.newInstance(), cache);
+
+    // Same length and time, different content.
+    long lastModified = wsdlFile.lastModified();
+    RandomAccessFile raf = new RandomAccessFile(wsdlFile, "rw");
+
+    raf.seek(raf.length() - 2);
+    raf.write(' ');
+    raf.close();
+    wsdlFile.setLastModified(lastModified);
+
+    read(WSDLFactory.newInstance(), cache);
+    assertEquals(1, cache.getHits());
+
+    cache = new PersistentDefinitionCache(new File(dir, "cache"),
+                                          PersistentDefinitionCache.DEFAULT_MAX_SIZE,
+                                          true);
+    read(WSDLFactory.newInstance(), cache);
+    assertEquals(0, cache.getHits());
+    assertEquals(1, cache.getInvalidations());
+
+    // The entry was replaced.
+    read(WSDLFactory.newInstance(), cache);
+    assertEquals(1, cache.getHits());
+  }
+
+  public void testCorruptEntry() throws Exception
+  {
+    PersistentDefinitionCache cache =
+      new PersistentDefinitionCache(new File(dir, "cache"));
+
+    read(WSDLFactory.newInstance(), cache);
+
+    File[] entries = new File(dir, "cache").listFiles();
+
+    assertEquals(1, entries.length);
+
+    RandomAccessFile raf = new RandomAccessFile(entries[0], "rw");
+
+    raf.setLength(raf.length() / 2);
+    raf.close();
+
+    assertNotNull(read(WSDLFactory.newInstance(), cache));
+    assertEquals(0, cache.getHits());
+    assertEquals(1, cache.getFailures());
+
+    // The entry was replaced.
+    read(WSDLFactory.newInstance(), cache);
+    assertEquals(1, cache.getHits());
+  }
+
+  public void testEviction() throws Exception
+  {
+    PersistentDefinitionCache cache =
+      new PersistentDefinitionCache(new File(dir, "cache"), 0, false);
+
+    read(WSDLFactory.newInstance(), cache);
+    read(WSDLFactory.newInstance(), cache);
+
+    assertEquals(0, cache.getHits());
+    assertEquals(2, cache.getEvictions());
+    assertEquals(0, new File(dir, "cache").listFiles().length);
+  }
+
+  public void testReaderConfiguration() throws Exception
+  {
+    PersistentDefinitionCache cache =
+      new PersistentDefinitionCache(new File(dir, "cache"));
+
+    read(WSDLFactory.newInstance(), cache);
+
+    // Lazy schemas are read into a different entry.
+    WSDLReaderImpl reader = newReader(WSDLFactory.newInstance(), cache);
+
+    reader.setFeature("com.ibm.wsdl.lazySchemas", true);
+    reader.readWSDL(wsdlFile.getPath());
+    assertEquals(0, cache.getHits());
+    assertEquals(2, new File(dir, "cache").listFiles().length);
+
+    reader.readWSDL(wsdlFile.getPath());
+    assertEquals(1, cache.getHits());
+
+    // Readers with handlers of their own don't use the cache.
+    reader = newReader(WSDLFactory.newInstance(), cache);
+    reader.setDefinitionsChildHandler(Constants.Q_ELEM_MESSAGE,
+      new DefinitionsChildHandler()
+      {
+        public void parse(WSDLReaderImpl reader,
+                          Element el,
+                          Definition def,
+                          Map importedDefs)
+        {
+        }
+      });
+
+    reader.readWSDL(wsdlFile.getPath());
+    reader.readWSDL(wsdlFile.getPath());
+    assertEquals(1, cache.getHits());
+    assertEquals(2, cache.getMisses());
+  }
+
+  private Definition read(WSDLFactory factory, PersistentDefinitionCache cache)
+    throws Exception
+  {
+    return newReader(factory, cache).readWSDL(wsdlFile.getPath());
+  }
+
+  private static WSDLReaderImpl newReader(WSDLFactory factory,
+                                          PersistentDefinitionCache cache)
+  {
+    WSDLReaderImpl reader = (WSDLReaderImpl)factory.newWSDLReader();
+
+    reader.setFeature("javax.wsdl.verbose", false);
+    reader.setDefinitionCache(cache);
+
+    return reader;
+  }
+
+  private static void copy(File from, File to) throws IOException
+  {
+    InputStream in = new FileInputStream(from);
+    OutputStream out = new FileOutputStream(to);
+
+    try
+    {
+      byte[] buf = new byte[8192];
+
+      for (int len = in.read(buf); len != -1; len = in.read(buf))
+      {
+        out.write(buf, 0, len);
+      }
+    }
+    finally
+    {
+      in.close();
+      out.close();
+    }
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * (c) Copyright IBM Corp 2006
+ */
+
+package com.ibm.wsdl.xml;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.wsdl.Definition;
+import javax.wsdl.Import;
+import javax.wsdl.WSDLException;
+import javax.wsdl.extensions.schema.Schema;
+import javax.wsdl.factory.WSDLFactory;
+import javax.wsdl.xml.WSDLReader;
+import javax.wsdl.xml.WSDLWriter;
+
+import org.w3c.dom.Element;
+import org.xml.sax.InputSource;
+
+import com.ibm.wsdl.util.xml.DOMUtils;
+
+import junit.framework.TestCase;
+
+public class StAXWSDLReaderTest extends TestCase
+{
+  private static final String[] WSDL_URIS =
+  {
+    "test/resources/AddressBook.wsdl",
+    "test/resources/MyExtendedWSDL.wsdl",
+    "test/resources/SOAP12Test.wsdl",
+    "test/resources/testGetXXXA.wsdl",
+    "test/resources/imports/MyImportA.wsdl",
+    "test/resources/schemas/TravelCo.wsdl"
+  };
+
+  private WSDLFactory factory;
+
+  public StAXWSDLReaderTest()
+  {
+    super("StAXWSDLReaderTest");
+  }
+
+  protected void setUp() throws Exception
+  {
+    factory = WSDLFactory.newInstance(
+      "com.ibm.wsdl.factory.StAXWSDLFactoryImpl");
+  }
+
+  public void testMatchesDOMReader() throws Exception
+  {
+    WSDLReader staxReader = factory.newWSDLReader();
+    WSDLReader domReader = new WSDLReaderImpl();
+
+    assertTrue(staxReader instanceof StAXWSDLReaderImpl);
+    staxReader.setFeature("javax.wsdl.verbose", false);
+    domReader.setFeature("javax.wsdl.verbose", false);
+
+    for (int i = 0; i < WSDL_URIS.length; i++)
+    {
+      Definition staxDef = staxReader.readWSDL(WSDL_URIS[i]);
+      Definition domDef = domReader.readWSDL(WSDL_URIS[i]);
+
+      assertEquals(WSDL_URIS[i], toString(domDef), toString(staxDef));
+      assertEquals(WSDL_URIS[i],
+                   domDef.getNamespaces(),
+                   staxDef.getNamespaces());
+    }
+  }
+
+  public void testFragmentsKeepNamespaceContext() throws Exception
+  {
+    WSDLReader reader = factory.newWSDLReader();
+
+    reader.setFeature("javax.wsdl.verbose", false);
+
+    Definition def = reader.readWSDL("test/resources/schemas/TravelCo.wsdl");
+    Schema schema =
+      (Schema)def.getTypes().getExtensibilityElements().get(0);
+    Element schemaEl = schema.getElement();
+
+    assertEquals("types", schemaEl.getParentNode().getLocalName());
+    assertEquals("http://travelco.com",
+                 DOMUtils.getNamespaceURIFromPrefix(schemaEl, "tns"));
+    assertEquals("http://schemas.xmlsoap.org/wsdl/",
+                 DOMUtils.getNamespaceURIFromPrefix(schemaEl, null));
+  }
+
+  public void testUnboundPrefix() throws Exception
+  {
+    String wsdl =
+      "<definitions xmlns='http://schemas.xmlsoap.org/wsdl/'"
+      + " targetNamespace='urn:test'>"
+      + "<portType name='PT'><operation name='op'>"
+      + "<input message='undeclared:Request'/>"
+      + "</operation></portType></definitions>";
+    WSDLReader reader = factory.newWSDLReader();
+
+    reader.setFeature("javax.wsdl.verbose", false);
+
+    try
+    {
+      reader.readWSDL(null, new InputSource(new StringReader(wsdl)));
+      fail("Expected a WSDLException.");
+    }
+    catch (WSDLException e)
+    {
+      assertEquals(WSDLException.UNBOUND_PREFIX, e.getFaultCode());
+      assertEquals("/definitions/portType/operation/input", e.getLocation());
+    }
+  }
+
+  private String toString(Definition def) throws Exception
+  {
+    WSDLWriter writer = factory.newWSDLWriter();
+    StringWriter strWriter = new StringWriter();
+
+    writer.writeWSDL(def, strWriter);
+
+    Iterator importListIterator = def.getImports().values().iterator();
+
+    while (importListIterator.hasNext())
+    {
+      Iterator importIterator = ((List)importListIterator.next()).iterator();
+
+      while (importIterator.hasNext())
+      {
+        Definition importedDef = ((Import)importIterator.next()).getDefinition();
+
+        if (importedDef != null)
+        {
+          writer.writeWSDL(importedDef, strWriter);
+        }
+      }
+    }
+
+    return strWriter.toString();
+  }
+}
@@ -0,0 +1,198 @@
+/*
+ * (c) Copyright IBM Corp 2006
+ */
+
+package com.ibm.wsdl.xml;
+
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Iterator;
+import java.util.Map;
+
+import javax.wsdl.Definition;
+import javax.wsdl.Port;
+import javax.wsdl.WSDLException;
+import javax.wsdl.extensions.ExtensibilityElement;
+import javax.wsdl.extensions.ExtensionRegistry;
+import javax.wsdl.extensions.UnknownExtensibilityElement;
+import javax.wsdl.extensions.UnknownExtensionSerializer;
+import javax.wsdl.factory.WSDLFactory;
+import javax.wsdl.xml.WSDLReader;
+import javax.xml.namespace.QName;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.xml.sax.InputSource;
+
+import com.ibm.wsdl.Constants;
+import com.ibm.wsdl.extensions.DOMExtensionSerializer;
+import com.ibm.wsdl.util.StringUtils;
+import com.ibm.wsdl.util.xml.DOMUtils;
+
+import junit.framework.TestCase;
+
+public class WSDLDocumentTest extends TestCase
+{
+  private static final String[] WSDL_URIS =
+  {
+    "test/resources/test.wsdl",
+    "test/resources/AddressBook.wsdl",
+    "test/resources/SOAP12Test.wsdl",
+    "test/resources/MyExtendedWSDL.wsdl",
+    "test/resources/schemas/TravelCo.wsdl"
+  };
+
+  public WSDLDocumentTest()
+  {
+    super("WSDLDocumentTest");
+  }
+
+  public void testSameAsParsed() throws Exception
+  {
+    for (int i = 0; i < WSDL_URIS.length; i++)
+    {
+      checkDocument(readWSDL(WSDL_URIS[i], true), WSDL_URIS[i]);
+      checkDocument(readWSDL(WSDL_URIS[i], false), WSDL_URIS[i]);
+    }
+  }
+
+  public void testDOMExtensionSerializer() throws Exception
+  {
+    Definition def = readWSDL("test/resources/AddressBook.wsdl", false);
+    CopyingSerializer extSer = new CopyingSerializer();
+
+    def.getExtensionRegistry().setDefaultSerializer(extSer);
+    checkDocument(def, "AddressBook.wsdl");
+    assertTrue(extSer.count > 0);
+  }
+
+  public void testPrintedExtensions() throws Exception
+  {
+    Definition def = readWSDL("test/resources/AddressBook.wsdl", false);
+
+    def.getExtensionRegistry().setDefaultSerializer(new PrintingSerializer());
+    checkDocument(def, "AddressBook.wsdl");
+  }
+
+  public void testOverriddenPrintMethods() throws Exception
+  {
+    Definition def = readWSDL("test/resources/AddressBook.wsdl", true);
+
+    checkDocument(new PrintingWriter(), def, "AddressBook.wsdl");
+  }
+
+  private void checkDocument(Definition def, String desc) throws Exception
+  {
+    checkDocument(new WSDLWriterImpl(), def, desc);
+  }
+
+  /*
+    Check that the document is the same as the one parsed from the
+    output of writeWSDL(...).
+  */
+  private void checkDocument(WSDLWriterImpl writer,
+                             Definition def,
+                             String desc)
+                               throws Exception
+  {
+    StringWriter sw = new StringWriter();
+
+    writer.writeWSDL(def, sw);
+
+    DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+
+    factory.setNamespaceAware(true);
+
+    Document expected = factory.newDocumentBuilder().parse(
+      new InputSource(new StringReader(sw.toString())));
+    Document actual = writer.getDocument(def);
+
+    assertTrue(desc, expected.isEqualNode(actual));
+  }
+
+  private Definition readWSDL(String uri, boolean parseSchema)
+    throws WSDLException
+  {
+    WSDLReader reader = WSDLFactory.newInstance().newWSDLReader();
+
+    reader.setFeature("javax.wsdl.verbose", false);
+    reader.setFeature("com.ibm.wsdl.parseXMLSchemas", parseSchema);
+
+    return reader.readWSDL(uri);
+  }
+
+  /*
+    Prints a character reference, which has to be parsed.
+  */
+  private static class PrintingSerializer extends UnknownExtensionSerializer
+  {
+    public void marshall(Class parentType,
+                         QName elementType,
+                         ExtensibilityElement extension,
+                         PrintWriter pw,
+                         Definition def,
+                         ExtensionRegistry extReg)
+                           throws WSDLException
+    {
+      super.marshall(parentType, elementType, extension, pw, def, extReg);
+      pw.println("    <x:a xmlns:x=\"urn:x\" b=\"&#65;\">&#66;<x:c/></x:a>");
+    }
+  }
+
+  /*
+    Prints the start tags of ports itself, and leaves the rest to
+    WSDLWriterImpl.
+  */
+  private static class PrintingWriter extends WSDLWriterImpl
+  {
+    protected void printPorts(Map ports, Definition def, PrintWriter pw)
+      throws WSDLException
+    {
+      String tagName = DOMUtils.getQualifiedValue(Constants.NS_URI_WSDL,
+                                                  "port",
+                                                  def);
+      Iterator portIterator = ports.values().iterator();
+
+      while (portIterator.hasNext())
+      {
+        Port port = (Port)portIterator.next();
+
+        pw.print("    <" + tagName + " name=\"" + port.getName() + "\"");
+        printExtensibilityAttributes(Port.class, port, def, pw);
+        pw.println("><!-- &#65; -->");
+        printExtensibilityElements(Port.class,
+                                   port.getExtensibilityElements(),
+                                   def,
+                                   pw);
+        pw.println("    </" + tagName + ">");
+      }
+    }
+  }
+
+  /*
+    Adds the same nodes as the ones UnknownExtensionSerializer prints.
+  */
+  private static class CopyingSerializer extends UnknownExtensionSerializer
+    implements DOMExtensionSerializer
+  {
+    int count = 0;
+
+    public void marshall(Class parentType,
+                         QName elementType,
+                         ExtensibilityElement extension,
+                         Element parent,
+                         Definition def,
+                         ExtensionRegistry extReg)
+    {
+      Document doc = parent.getOwnerDocument();
+      Element el = ((UnknownExtensibilityElement)extension).getElement();
+
+      parent.appendChild(doc.createTextNode("    "));
+      parent.appendChild(doc.importNode(el, true));
+      parent.appendChild(doc.createTextNode(StringUtils.lineSeparator));
+      count++;
+    }
+  }
+}
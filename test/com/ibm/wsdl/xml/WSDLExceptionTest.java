@@ -4,6 +4,9 @@
 
 package com.ibm.wsdl.xml;
 
+import java.io.StringReader;
+import java.io.StringWriter;
+
 import javax.wsdl.Definition;
 import javax.wsdl.WSDLException;
 import javax.wsdl.factory.WSDLFactory;
@@ -12,6 +15,7 @@ import javax.wsdl.xml.WSDLReader;
 
 import org.xml.sax.InputSource;
 
+import com.ibm.wsdl.factory.StAXWSDLFactoryImpl;
 import com.ibm.wsdl.factory.WSDLFactoryImpl3;
 
 import junit.framework.TestCase;
@@ -122,4 +126,105 @@ public class WSDLExceptionTest extends TestCase
       //this is what we wanted
     }
   }  
+
+  /**
+   * Test that the location of an exception is reported, with line and
+   * column numbers when the com.ibm.wsdl.lineNumbers feature is set.
+   *
+   * @throws Exception
+   */
+  public void testLocation() throws Exception
+  {
+    WSDLFactory[] factories =
+    {
+      WSDLFactory.newInstance(),
+      new StAXWSDLFactoryImpl()
+    };
+    String wsdl =
+      "<definitions xmlns='http://schemas.xmlsoap.org/wsdl/'\n"
+      + "             targetNamespace='urn:test'>\n"
+      + "  <portType name='PT' bad='x'/>\n"
+      + "</definitions>";
+
+    for (int i = 0; i < factories.length; i++)
+    {
+      WSDLReader reader = factories[i].newWSDLReader();
+
+      reader.setFeature("javax.wsdl.verbose", false);
+
+      LocatedWSDLException e = readInvalidWSDL(reader, wsdl);
+
+      assertEquals("/definitions/portType", e.getLocation());
+      assertEquals(-1, e.getLineNumber());
+      assertTrue(e.getMessage(),
+                 e.getMessage().startsWith(
+                   "WSDLException (at /definitions/portType): " +
+                   "faultCode=INVALID_WSDL: "));
+
+      reader.setFeature("com.ibm.wsdl.lineNumbers", true);
+      assertTrue(reader.getFeature("com.ibm.wsdl.lineNumbers"));
+      e = readInvalidWSDL(reader, wsdl);
+
+      assertEquals("/definitions/portType", e.getLocation());
+      assertEquals(3, e.getLineNumber());
+      assertEquals(32, e.getColumnNumber());
+      assertTrue(e.getMessage(),
+                 e.getMessage().startsWith(
+                   "WSDLException (at /definitions/portType, " +
+                   "line 3, column 32): faultCode=INVALID_WSDL: "));
+    }
+  }
+
+  /**
+   * Test that recording line numbers doesn't change what is read.
+   *
+   * @throws Exception
+   */
+  public void testLineNumbersSameDefinition() throws Exception
+  {
+    WSDLFactory factory = WSDLFactory.newInstance();
+    String wsdlURI = "test/resources/schemas/TravelCo.wsdl";
+    WSDLReader reader = factory.newWSDLReader();
+
+    reader.setFeature("javax.wsdl.verbose", false);
+
+    String expected = toString(factory, reader.readWSDL(wsdlURI));
+
+    reader.setFeature("com.ibm.wsdl.lineNumbers", true);
+
+    assertEquals(expected, toString(factory, reader.readWSDL(wsdlURI)));
+  }
+
+  private static LocatedWSDLException readInvalidWSDL(WSDLReader reader,
+                                                      String wsdl)
+  {
+    try
+    {
+      reader.readWSDL(null, new InputSource(new StringReader(wsdl)));
+    }
+    catch (LocatedWSDLException e)
+    {
+      assertEquals(WSDLException.INVALID_WSDL, e.getFaultCode());
+
+      return e;
+    }
+    catch (WSDLException e)
+    {
+      fail("Expected a LocatedWSDLException: " + e);
+    }
+
+    fail("Expected a LocatedWSDLException.");
+
+    return null;
+  }
+
+  private static String toString(WSDLFactory factory, Definition def)
+    throws WSDLException
+  {
+    StringWriter strWriter = new StringWriter();
+
+    factory.newWSDLWriter().writeWSDL(def, strWriter);
+
+    return strWriter.toString();
+  }
 }
@@ -0,0 +1,299 @@
+/*
+ * (c) Copyright IBM Corp 2006
+ */
+
+package com.ibm.wsdl.xml;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+
+import javax.wsdl.Definition;
+import javax.wsdl.WSDLException;
+import javax.wsdl.extensions.AttributeExtensible;
+import javax.wsdl.extensions.ExtensibilityElement;
+import javax.wsdl.extensions.ExtensionRegistry;
+import javax.wsdl.extensions.ExtensionSerializer;
+import javax.wsdl.factory.WSDLFactory;
+import javax.wsdl.xml.WSDLReader;
+import javax.xml.namespace.QName;
+
+import org.xml.sax.InputSource;
+
+import com.ibm.wsdl.extensions.soap.SOAPAddressImpl;
+import com.ibm.wsdl.util.xml.DOMUtils;
+
+import junit.framework.TestCase;
+
+public class WSDLStreamWriterTest extends TestCase
+{
+  private static final String[] WSDL_URIS =
+  {
+    "test/resources/test.wsdl",
+    "test/resources/AddressBook.wsdl",
+    "test/resources/SOAP12Test.wsdl",
+    "test/resources/MyExtendedWSDL.wsdl",
+    "test/resources/schemas/TravelCo.wsdl"
+  };
+
+  public WSDLStreamWriterTest()
+  {
+    super("WSDLStreamWriterTest");
+  }
+
+  public void testSameAsPrinted() throws Exception
+  {
+    for (int i = 0; i < WSDL_URIS.length; i++)
+    {
+      Definition def = readWSDL(WSDL_URIS[i]);
+
+      checkBytes(def, WSDL_URIS[i]);
+    }
+
+    Definition def = readWSDL(WSDL_URIS[0]);
+
+    def.setQName(new QName(def.getTargetNamespace(),
+                           "caf\u00e9 \u20ac \uD83D\uDE00 \uD800 <&>"));
+    checkBytes(def, "non-ASCII name");
+  }
+
+  public void testCompact() throws Exception
+  {
+    for (int i = 0; i < WSDL_URIS.length; i++)
+    {
+      Definition def = readWSDL(WSDL_URIS[i]);
+      WSDLWriterImpl writer = new WSDLWriterImpl();
+      WSDLWriterImpl subclassWriter = new WSDLWriterImpl() {};
+
+      writer.setFeature("com.ibm.wsdl.prettyPrint", false);
+      subclassWriter.setFeature("com.ibm.wsdl.prettyPrint", false);
+      assertFalse(writer.getFeature("com.ibm.wsdl.prettyPrint"));
+
+      byte[] compact = write(writer, def);
+      byte[] pretty = write(new WSDLWriterImpl(), def);
+
+      assertTrue(WSDL_URIS[i],
+                 Arrays.equals(compact, write(subclassWriter, def)));
+
+      assertTrue(WSDL_URIS[i], compact.length < pretty.length);
+      assertTrue(WSDL_URIS[i],
+                 new String(compact, "UTF-8").indexOf(">\n  <") == -1);
+
+      Definition copy = readWSDL(WSDL_URIS[i],
+                                 new ByteArrayInputStream(compact));
+
+      // Only the order of the namespace declarations may differ.
+      assertTrue(WSDL_URIS[i],
+                 new WSDLWriterImpl().getDocument(def).isEqualNode(
+                   new WSDLWriterImpl().getDocument(copy)));
+    }
+  }
+
+  public void testCompactPrinted() throws Exception
+  {
+    assertEquals("<a><b/></a>", writeCompact("<a><b/></a>"));
+    assertEquals("<a><b/></a>", writeCompact("\n<a>\n  <b/>\n</a>\n"));
+
+    // Whitespace in text next to text, and in markup, is kept.
+    assertEquals("<a x=\"1 > 0\" y='\" > \"'><b> t </b>\n" +
+                 "  <![CDATA[ > < ]]> <!-- > < --><?p > ?></a>",
+                 writeCompact("<a x=\"1 > 0\" y='\" > \"'>\n" +
+                              "  <b> t </b>\n" +
+                              "  <![CDATA[ > < ]]> <!-- > < -->\n" +
+                              "  <?p > ?>\n" +
+                              "</a>"));
+  }
+
+  public void testAttributesPrinted() throws Exception
+  {
+    for (int i = 0; i < WSDL_URIS.length; i++)
+    {
+      Definition def = readWSDL(WSDL_URIS[i]);
+
+      for (int j = 0; j < 2; j++)
+      {
+        WSDLWriterImpl writer = new WSDLWriterImpl();
+        WSDLWriterImpl subclassWriter = new AttributePrintingWriter();
+
+        writer.setFeature("com.ibm.wsdl.prettyPrint", j == 0);
+        subclassWriter.setFeature("com.ibm.wsdl.prettyPrint", j == 0);
+
+        assertTrue(WSDL_URIS[i],
+                   Arrays.equals(write(writer, def),
+                                 write(subclassWriter, def)));
+      }
+
+      assertTrue(WSDL_URIS[i],
+                 new WSDLWriterImpl().getDocument(def).isEqualNode(
+                   new AttributePrintingWriter().getDocument(def)));
+    }
+  }
+
+  public void testUnpairedSurrogateAtFlush() throws Exception
+  {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    UTF8Writer writer = new UTF8Writer(bytes);
+
+    writer.write("a\uD83D");
+    writer.flush();
+    assertEquals("a?", new String(bytes.toByteArray(), "UTF-8"));
+
+    writer.write("\uDE00b");
+    writer.flush();
+    assertEquals("a??b", new String(bytes.toByteArray(), "UTF-8"));
+  }
+
+  /*
+    Prints namespace declarations and extension attributes itself, the
+    way subclasses written for earlier versions do.
+  */
+  private static class AttributePrintingWriter extends WSDLWriterImpl
+  {
+    protected void printNamespaceDeclarations(Map namespaces, PrintWriter pw)
+    {
+      Iterator prefixIterator = namespaces.keySet().iterator();
+
+      while (prefixIterator.hasNext())
+      {
+        String prefix = (String)prefixIterator.next();
+
+        DOMUtils.printAttribute(prefix.equals("")
+                                ? "xmlns"
+                                : "xmlns:" + prefix,
+                                (String)namespaces.get(prefix),
+                                pw);
+      }
+    }
+
+    protected void printExtensibilityAttributes(Class parentType,
+                                                AttributeExtensible attrExt,
+                                                Definition def,
+                                                PrintWriter pw)
+                                                  throws WSDLException
+    {
+      Map extensionAttributes = attrExt.getExtensionAttributes();
+      Iterator attrNameIterator = extensionAttributes.keySet().iterator();
+
+      while (attrNameIterator.hasNext())
+      {
+        QName attrName = (QName)attrNameIterator.next();
+        Object attrValue = extensionAttributes.get(attrName);
+
+        if (attrValue instanceof QName)
+        {
+          DOMUtils.printQualifiedAttribute(attrName,
+                                           (QName)attrValue,
+                                           def,
+                                           pw);
+        }
+        else
+        {
+          DOMUtils.printQualifiedAttribute(attrName,
+                                           String.valueOf(attrValue),
+                                           def,
+                                           pw);
+        }
+      }
+    }
+  }
+
+  /*
+    Check that the bytes written are the same as those written through
+    an OutputStreamWriter, for the class itself and for subclasses.
+  */
+  private void checkBytes(Definition def, String desc) throws Exception
+  {
+    ByteArrayOutputStream expectedBytes = new ByteArrayOutputStream();
+    Writer writer = new OutputStreamWriter(expectedBytes, "UTF-8");
+
+    new WSDLWriterImpl().writeWSDL(def, writer);
+    writer.close();
+
+    byte[] expected = expectedBytes.toByteArray();
+    ByteArrayOutputStream channelBytes = new ByteArrayOutputStream();
+
+    new WSDLWriterImpl().writeWSDL(def, Channels.newChannel(channelBytes));
+
+    assertTrue(desc, Arrays.equals(expected,
+                                   write(new WSDLWriterImpl(), def)));
+    assertTrue(desc, Arrays.equals(expected,
+                                   write(new WSDLWriterImpl() {}, def)));
+    assertTrue(desc, Arrays.equals(expected, channelBytes.toByteArray()));
+  }
+
+  /*
+    Write a definition holding an extensibility element that is printed
+    as the specified markup, without indenting, and return what was
+    written for it.
+  */
+  private static String writeCompact(final String markup) throws Exception
+  {
+    WSDLFactory factory = WSDLFactory.newInstance();
+    Definition def = factory.newDefinition();
+    ExtensionRegistry extReg = factory.newPopulatedExtensionRegistry();
+    QName elementType = new QName("urn:test", "ext");
+    ExtensibilityElement ext = new SOAPAddressImpl();
+
+    ext.setElementType(elementType);
+    extReg.registerSerializer(Definition.class,
+                              elementType,
+                              new ExtensionSerializer()
+    {
+      public void marshall(Class parentType,
+                           QName elementType,
+                           ExtensibilityElement extension,
+                           PrintWriter pw,
+                           Definition def,
+                           ExtensionRegistry extReg)
+      {
+        pw.print(markup);
+      }
+    });
+    def.setExtensionRegistry(extReg);
+    def.addExtensibilityElement(ext);
+
+    WSDLWriterImpl writer = new WSDLWriterImpl();
+
+    writer.setFeature("com.ibm.wsdl.prettyPrint", false);
+
+    String text = new String(write(writer, def), "UTF-8");
+    int start = text.indexOf('>', text.indexOf(":definitions")) + 1;
+
+    return text.substring(start, text.lastIndexOf("</"));
+  }
+
+  private static byte[] write(WSDLWriterImpl writer, Definition def)
+    throws WSDLException
+  {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+    writer.writeWSDL(def, bytes);
+
+    return bytes.toByteArray();
+  }
+
+  private static Definition readWSDL(String uri) throws WSDLException
+  {
+    WSDLReader reader = WSDLFactory.newInstance().newWSDLReader();
+
+    reader.setFeature("javax.wsdl.verbose", false);
+
+    return reader.readWSDL(uri);
+  }
+
+  private static Definition readWSDL(String uri, ByteArrayInputStream in)
+    throws WSDLException
+  {
+    WSDLReader reader = WSDLFactory.newInstance().newWSDLReader();
+
+    reader.setFeature("javax.wsdl.verbose", false);
+
+    return reader.readWSDL(uri, new InputSource(in));
+  }
+}